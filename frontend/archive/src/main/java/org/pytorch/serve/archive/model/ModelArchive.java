@@ -2,14 +2,13 @@ package org.pytorch.serve.archive.model;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.FileAlreadyExistsException;
-import java.nio.file.Files;
 import java.util.List;
 import java.util.Map;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.pytorch.serve.archive.DownloadArchiveException;
+import org.pytorch.serve.archive.utils.ArchiveCache;
 import org.pytorch.serve.archive.utils.ArchiveUtils;
 import org.pytorch.serve.archive.utils.InvalidArchiveURLException;
 import org.pytorch.serve.archive.utils.ZipUtils;
@@ -69,15 +68,12 @@ public class ModelArchive {
         }
 
         if (modelLocation.isFile()) {
-            try (InputStream is = Files.newInputStream(modelLocation.toPath())) {
-                File unzipDir;
-                if (modelLocation.getName().endsWith(".mar")) {
-                    unzipDir = ZipUtils.unzip(is, null, "models", true);
-                } else {
-                    unzipDir = ZipUtils.unzip(is, null, "models", false);
-                }
-                return load(url, unzipDir, true);
+            boolean isMar = modelLocation.getName().endsWith(".mar");
+            ArchiveCache cache = ArchiveCache.getInstance();
+            if (cache != null) {
+                return load(url, cache.extract(modelLocation, isMar), true);
             }
+            return load(url, ZipUtils.unzip(modelLocation, null, "models", isMar), true);
         }
 
         if (new File(url).isDirectory()) {
@@ -0,0 +1,467 @@
+package org.pytorch.serve.archive.utils;
+
+import com.google.gson.JsonParseException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps extracted archives in a directory keyed by the SHA-256 digest of the archive, so that an
+ * archive registered again, under another name or after a restart, is not extracted again.
+ *
+ * <p>An archive whose path, size and modification time match an earlier lookup is not read at
+ * all, any other archive is hashed first and only extracted if no entry has its digest. Callers
+ * get a directory of their own made of hard links into the entry, which they delete when done
+ * with it, so that evicting the least recently used entries under the size budget never removes
+ * files from under a registered model. Files are shared between the entry and the directories
+ * linked to it, and are made read-only.
+ *
+ * <p>Servers may share the cache directory. The index is read, updated and written, and entries
+ * are linked or evicted, while holding a lock on a file of the cache. Unfinished extractions are
+ * named after the process extracting them, and only deleted once it is no longer running.
+ */
+public final class ArchiveCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveCache.class);
+
+    private static final String INDEX_FILE = "index.json";
+    private static final String LOCK_FILE = "lock";
+    private static final String ENTRIES_DIR = "entries";
+    private static final String LINKS_DIR = "links";
+    private static final String TMP_PREFIX = "tmp-";
+
+    private static ArchiveCache instance;
+
+    private final File indexFile;
+    private final Path lockFile;
+    private final File entriesDir;
+    private final File linksDir;
+    private final long maxSize;
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    private final Map<String, Integer> pinned = new HashMap<>();
+    private Index index;
+    private volatile boolean hardLinks = true;
+
+    private ArchiveCache(File dir, long maxSize) throws IOException {
+        this.indexFile = new File(dir, INDEX_FILE);
+        this.lockFile = new File(dir, LOCK_FILE).toPath();
+        this.entriesDir = new File(dir, ENTRIES_DIR);
+        this.maxSize = maxSize;
+        this.linksDir = new File(new File(dir, LINKS_DIR), Long.toString(getPid()));
+        FileUtils.forceMkdir(entriesDir);
+        FileUtils.forceMkdir(linksDir);
+        FileChannel lock = lock();
+        try {
+            this.index = readIndex();
+            recover();
+            save();
+        } finally {
+            lock.close();
+        }
+    }
+
+    /**
+     * Enables the cache.
+     *
+     * @param dir the directory of the cache, null or empty to disable the cache
+     * @param maxSize the size in bytes above which the least recently used entries are deleted, 0
+     *     for no limit
+     */
+    public static void init(String dir, long maxSize) throws IOException {
+        if (dir == null || dir.isEmpty()) {
+            instance = null;
+            return;
+        }
+        instance = new ArchiveCache(new File(dir), maxSize);
+        logger.info("Caching extracted archives in {}", dir);
+    }
+
+    /** Returns the cache, or null if it is disabled. */
+    public static ArchiveCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns a new directory with the content of an archive, extracting the archive into the
+     * cache first if it is not cached yet. The caller deletes the directory when done with it.
+     *
+     * @param archive a .mar or a .tar.gz archive
+     * @param isMar true for a .mar, false for a .tar.gz
+     */
+    public File extract(File archive, boolean isMar) throws IOException {
+        String path = archive.getCanonicalPath();
+        long size = archive.length();
+        long lastModified = archive.lastModified();
+        String digest = lookup(path, size, lastModified);
+        if (digest == null) {
+            digest = digest(archive);
+        }
+
+        pin(digest);
+        try {
+            File entry = new File(entriesDir, digest);
+            File dir;
+            do {
+                synchronized (locks.computeIfAbsent(digest, k -> new Object())) {
+                    if (entry.isDirectory()) {
+                        logger.info("Reusing extracted archive {} for {}", digest, path);
+                    } else {
+                        extractEntry(archive, isMar, entry);
+                    }
+                }
+                // null if another server evicted the entry before it was linked
+                dir = linkAndRecord(entry, path, size, lastModified);
+            } while (dir == null);
+            return dir;
+        } finally {
+            unpin(digest);
+        }
+    }
+
+    private synchronized File linkAndRecord(File entry, String path, long size, long lastModified)
+            throws IOException {
+        FileChannel lock = lock();
+        try {
+            if (!entry.isDirectory()) {
+                return null;
+            }
+            File dir = link(entry);
+            // the other servers sharing the cache may have changed the index since it was read
+            index = readIndex();
+            recover();
+            record(path, size, lastModified, entry.getName());
+            return dir;
+        } finally {
+            lock.close();
+        }
+    }
+
+    /**
+     * Returns a channel of the lock file holding an exclusive lock on it, which is released when
+     * the channel is closed.
+     */
+    private FileChannel lock() throws IOException {
+        FileChannel channel =
+                FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            channel.lock();
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void record(String path, long size, long lastModified, String digest) {
+        Source source = new Source();
+        source.digest = digest;
+        source.size = size;
+        source.lastModified = lastModified;
+        index.sources.put(path, source);
+        Entry entry = index.entries.get(digest);
+        if (entry == null) {
+            entry = new Entry();
+            entry.size = FileUtils.sizeOfDirectory(new File(entriesDir, digest));
+            index.entries.put(digest, entry);
+        }
+        entry.lastUsed = System.currentTimeMillis();
+        evict(digest);
+        save();
+    }
+
+    private synchronized String lookup(String path, long size, long lastModified) {
+        Source source = index.sources.get(path);
+        if (source != null
+                && source.size == size
+                && source.lastModified == lastModified
+                && index.entries.containsKey(source.digest)) {
+            return source.digest;
+        }
+        return null;
+    }
+
+    private synchronized void pin(String digest) {
+        pinned.merge(digest, 1, Integer::sum);
+    }
+
+    private synchronized void unpin(String digest) {
+        pinned.computeIfPresent(digest, (k, count) -> count == 1 ? null : count - 1);
+    }
+
+    private void extractEntry(File archive, boolean isMar, File entry) throws IOException {
+        long begin = System.currentTimeMillis();
+        File tmp =
+                Files.createTempDirectory(entriesDir.toPath(), TMP_PREFIX + getPid() + '-')
+                        .toFile();
+        boolean failed = true;
+        try {
+            if (isMar) {
+                ZipUtils.unzip(archive, tmp, Runtime.getRuntime().availableProcessors());
+            } else {
+                try (InputStream is = Files.newInputStream(archive.toPath())) {
+                    ZipUtils.decompressTarGzipFile(is, tmp);
+                }
+            }
+            setReadOnly(tmp.toPath());
+            try {
+                Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileSystemException e) {
+                if (!entry.isDirectory()) {
+                    throw e;
+                }
+                // another server sharing the cache extracted the same archive first
+                logger.info("Reusing extracted archive {} of another server", entry.getName());
+                return;
+            }
+            failed = false;
+        } finally {
+            if (failed) {
+                FileUtils.deleteQuietly(tmp);
+            }
+        }
+        logger.info(
+                "Extracted archive {} into {} in {} ms",
+                archive,
+                entry.getName(),
+                System.currentTimeMillis() - begin);
+    }
+
+    private File link(File entry) throws IOException {
+        File dir = Files.createTempDirectory(linksDir.toPath(), entry.getName() + "-").toFile();
+        boolean failed = true;
+        try {
+            if (hardLinks) {
+                try {
+                    linkFiles(entry.toPath(), dir.toPath());
+                    failed = false;
+                    return dir;
+                } catch (UnsupportedOperationException | FileSystemException e) {
+                    logger.warn("Hard links are not supported, copying cached archives instead", e);
+                    hardLinks = false;
+                    FileUtils.cleanDirectory(dir);
+                }
+            }
+            FileUtils.copyDirectory(entry, dir);
+            failed = false;
+            return dir;
+        } finally {
+            if (failed) {
+                FileUtils.deleteQuietly(dir);
+            }
+        }
+    }
+
+    private static void linkFiles(Path source, Path target) throws IOException {
+        Files.walkFileTree(
+                source,
+                new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                            throws IOException {
+                        Files.createDirectories(target.resolve(source.relativize(dir)));
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                            throws IOException {
+                        Files.createLink(target.resolve(source.relativize(file)), file);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+    }
+
+    /** Makes the files of an extraction read-only, since they are shared by hard links. */
+    private static void setReadOnly(Path dir) throws IOException {
+        Files.walkFileTree(
+                dir,
+                new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                            throws IOException {
+                        if (attrs.isRegularFile() && !file.toFile().setReadOnly()) {
+                            throw new IOException("Failed to make " + file + " read-only");
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+    }
+
+    /** Deletes the least recently used entries until the cache fits its size budget. */
+    private void evict(String current) {
+        if (maxSize <= 0) {
+            return;
+        }
+        long total = 0;
+        for (Entry entry : index.entries.values()) {
+            total += entry.size;
+        }
+        while (total > maxSize) {
+            String oldest = null;
+            long oldestUsed = Long.MAX_VALUE;
+            for (Map.Entry<String, Entry> entry : index.entries.entrySet()) {
+                String digest = entry.getKey();
+                if (!digest.equals(current)
+                        && !pinned.containsKey(digest)
+                        && entry.getValue().lastUsed < oldestUsed) {
+                    oldest = digest;
+                    oldestUsed = entry.getValue().lastUsed;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            total -= remove(oldest).size;
+            logger.info("Evicted extracted archive {} from cache", oldest);
+        }
+    }
+
+    private Entry remove(String digest) {
+        FileUtils.deleteQuietly(new File(entriesDir, digest));
+        index.sources.values().removeIf(s -> s.digest.equals(digest));
+        return index.entries.remove(digest);
+    }
+
+    /**
+     * Reconciles the index with the entries on disk, deleting the unfinished extractions and the
+     * linked directories left by servers that are no longer running. Called with the lock held.
+     */
+    private void recover() {
+        Iterator<Map.Entry<String, Entry>> it = index.entries.entrySet().iterator();
+        while (it.hasNext()) {
+            if (!new File(entriesDir, it.next().getKey()).isDirectory()) {
+                it.remove();
+            }
+        }
+        index.sources.values().removeIf(s -> !index.entries.containsKey(s.digest));
+
+        File[] dirs = entriesDir.listFiles();
+        if (dirs != null) {
+            for (File dir : dirs) {
+                if (dir.getName().startsWith(TMP_PREFIX)) {
+                    // the extractions of running servers are still in progress
+                    String name = dir.getName().substring(TMP_PREFIX.length());
+                    if (!isRunning(name.substring(0, Math.max(name.indexOf('-'), 0)))) {
+                        FileUtils.deleteQuietly(dir);
+                    }
+                } else if (dir.isDirectory() && !index.entries.containsKey(dir.getName())) {
+                    Entry entry = new Entry();
+                    entry.size = FileUtils.sizeOfDirectory(dir);
+                    entry.lastUsed = dir.lastModified();
+                    index.entries.put(dir.getName(), entry);
+                }
+            }
+        }
+
+        File[] processes = linksDir.getParentFile().listFiles();
+        if (processes != null) {
+            for (File dir : processes) {
+                if (!isRunning(dir.getName())) {
+                    FileUtils.deleteQuietly(dir);
+                }
+            }
+        }
+    }
+
+    private Index readIndex() throws IOException {
+        if (indexFile.isFile()) {
+            try (Reader r = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+                Index read = ArchiveUtils.GSON.fromJson(r, Index.class);
+                if (read != null) {
+                    return read;
+                }
+            } catch (JsonParseException e) {
+                logger.warn("Ignoring invalid archive cache index {}", indexFile, e);
+            }
+        }
+        return new Index();
+    }
+
+    private void save() {
+        try {
+            Path tmp = indexFile.toPath().resolveSibling(INDEX_FILE + ".tmp");
+            Files.write(tmp, ArchiveUtils.GSON.toJson(index).getBytes(StandardCharsets.UTF_8));
+            Files.move(
+                    tmp,
+                    indexFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to save archive cache index {}", indexFile, e);
+        }
+    }
+
+    private static String digest(File archive) throws IOException {
+        long begin = System.currentTimeMillis();
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        byte[] buf = new byte[1024 * 1024];
+        try (InputStream is = Files.newInputStream(archive.toPath())) {
+            int read;
+            while ((read = is.read(buf)) != -1) {
+                md.update(buf, 0, read);
+            }
+        }
+        String digest = HexUtils.toHexString(md.digest());
+        logger.debug("Hashed archive {} in {} ms", archive, System.currentTimeMillis() - begin);
+        return digest;
+    }
+
+    private static long getPid() {
+        return ProcessHandle.current().pid();
+    }
+
+    private static boolean isRunning(String pid) {
+        try {
+            Optional<ProcessHandle> process = ProcessHandle.of(Long.parseLong(pid));
+            return process.isPresent() && process.get().isAlive();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static final class Index {
+
+        private Map<String, Source> sources = new HashMap<>();
+        private Map<String, Entry> entries = new HashMap<>();
+    }
+
+    /** The digest of an archive, valid as long as its size and modification time are unchanged. */
+    private static final class Source {
+
+        private String digest;
+        private long size;
+        private long lastModified;
+    }
+
+    private static final class Entry {
+
+        private long size;
+        private long lastUsed;
+    }
+}
@@ -5,23 +5,44 @@ import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.EntryStreamOffsets;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 public final class ZipUtils {
 
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long MAP_SIZE = 1L << 30;
+
     private ZipUtils() {}
 
     public static void unzip(InputStream is, File dest) throws IOException {
@@ -71,13 +92,8 @@ public final class ZipUtils {
 
     public static File unzip(InputStream is, String eTag, String type, boolean isMar)
             throws IOException {
-        File tmpDir = FileUtils.getTempDirectory();
-        File modelDir = new File(tmpDir, type);
-        FileUtils.forceMkdir(modelDir);
-
-        File tmp = File.createTempFile(type, ".download");
-        FileUtils.forceDelete(tmp);
-        FileUtils.forceMkdir(tmp);
+        File modelDir = createTypeDirectory(type);
+        File tmp = createTempDirectory(type);
 
         MessageDigest md;
         try {
@@ -90,6 +106,193 @@ public final class ZipUtils {
         } else {
             decompressTarGzipFile(new DigestInputStream(is, md), tmp);
         }
+        return moveDirectory(tmp, modelDir, eTag);
+    }
+
+    /**
+     * Extracts an archive file like {@link #unzip(InputStream, String, String, boolean)}, a .mar
+     * with {@link #unzip(File, File, int)} on as many threads as there are processors.
+     */
+    public static File unzip(File archive, String eTag, String type, boolean isMar)
+            throws IOException {
+        File modelDir = createTypeDirectory(type);
+        File tmp = createTempDirectory(type);
+
+        if (isMar) {
+            unzip(archive, tmp, Runtime.getRuntime().availableProcessors());
+        } else {
+            try (InputStream is = Files.newInputStream(archive.toPath())) {
+                decompressTarGzipFile(is, tmp);
+            }
+        }
+        return moveDirectory(tmp, modelDir, eTag);
+    }
+
+    /**
+     * Extracts a zip file from its central directory, inflating its entries in parallel on at most
+     * {@code threads} threads, the largest entries first. Stored entries are copied from the
+     * archive to their file with {@link FileChannel#transferTo}. As with {@link ZipInputStream},
+     * the size and the CRC-32 of every entry are verified.
+     */
+    public static void unzip(File archive, File dest, int threads) throws IOException {
+        try (ZipFile zip = new ZipFile(archive);
+                FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+            String destPath = dest.getCanonicalPath() + File.separator;
+            Map<File, ZipArchiveEntry> files = new LinkedHashMap<>();
+            for (ZipArchiveEntry entry : Collections.list(zip.getEntries())) {
+                File file = new File(dest, entry.getName());
+                if (!file.getCanonicalPath().startsWith(destPath)) {
+                    throw new ZipException("Entry outside of the archive: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    FileUtils.forceMkdir(file);
+                } else {
+                    FileUtils.forceMkdir(file.getParentFile());
+                    // a later entry with the same name overwrites the earlier one, as when read
+                    // sequentially
+                    files.remove(file);
+                    files.put(file, entry);
+                }
+            }
+
+            List<Map.Entry<File, ZipArchiveEntry>> sorted = new ArrayList<>(files.entrySet());
+            sorted.sort((a, b) -> Long.compare(b.getValue().getSize(), a.getValue().getSize()));
+            int poolSize = Math.min(Math.max(threads, 1), sorted.size());
+            if (poolSize <= 1) {
+                for (Map.Entry<File, ZipArchiveEntry> file : sorted) {
+                    extractEntry(zip, channel, file.getValue(), file.getKey());
+                }
+                return;
+            }
+
+            ExecutorService executor =
+                    Executors.newFixedThreadPool(
+                            poolSize,
+                            r -> {
+                                Thread thread = new Thread(r, "unzip");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+            try {
+                List<Future<Void>> futures = new ArrayList<>(sorted.size());
+                for (Map.Entry<File, ZipArchiveEntry> file : sorted) {
+                    futures.add(
+                            executor.submit(
+                                    () -> {
+                                        extractEntry(zip, channel, file.getValue(), file.getKey());
+                                        return null;
+                                    }));
+                }
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("Failed to extract " + archive, cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while extracting " + archive);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static void extractEntry(
+            ZipFile zip, FileChannel channel, ZipArchiveEntry entry, File file) throws IOException {
+        if (!zip.canReadEntryData(entry)) {
+            throw new ZipException("Unsupported compression of entry: " + entry.getName());
+        }
+        CRC32 crc = new CRC32();
+        long size;
+        if (entry.getMethod() == ZipEntry.STORED
+                && entry.getDataOffset() != EntryStreamOffsets.OFFSET_UNKNOWN) {
+            size = copyEntry(channel, entry, file, crc);
+        } else {
+            size = 0;
+            byte[] buf = new byte[BUFFER_SIZE];
+            try (InputStream is = zip.getInputStream(entry);
+                    OutputStream os = Files.newOutputStream(file.toPath())) {
+                int read;
+                while ((read = is.read(buf)) != -1) {
+                    crc.update(buf, 0, read);
+                    os.write(buf, 0, read);
+                    size += read;
+                }
+            }
+        }
+
+        if (entry.getSize() != ArchiveEntry.SIZE_UNKNOWN && size != entry.getSize()) {
+            throw new ZipException(
+                    "invalid entry size (expected "
+                            + entry.getSize()
+                            + " but got "
+                            + size
+                            + " bytes) of entry: "
+                            + entry.getName());
+        }
+        if (entry.getCrc() != -1 && crc.getValue() != entry.getCrc()) {
+            throw new ZipException(
+                    "invalid entry CRC (expected 0x"
+                            + Long.toHexString(entry.getCrc())
+                            + " but got 0x"
+                            + Long.toHexString(crc.getValue())
+                            + ") of entry: "
+                            + entry.getName());
+        }
+    }
+
+    /**
+     * Copies a stored entry to its file without passing its content through the heap. The CRC-32
+     * is computed over each region of the archive mapped in memory right before the region is
+     * transferred, while its pages are still cached.
+     */
+    private static long copyEntry(
+            FileChannel channel, ZipArchiveEntry entry, File file, CRC32 crc) throws IOException {
+        long offset = entry.getDataOffset();
+        long size = entry.getCompressedSize();
+        if (offset + size > channel.size()) {
+            throw new ZipException("Truncated entry: " + entry.getName());
+        }
+        try (FileChannel out =
+                FileChannel.open(
+                        file.toPath(),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE)) {
+            for (long region = 0; region < size; region += MAP_SIZE) {
+                long length = Math.min(MAP_SIZE, size - region);
+                crc.update(channel.map(MapMode.READ_ONLY, offset + region, length));
+                long pos = 0;
+                while (pos < length) {
+                    long transferred = channel.transferTo(offset + region + pos, length - pos, out);
+                    if (transferred <= 0) {
+                        throw new ZipException("Truncated entry: " + entry.getName());
+                    }
+                    pos += transferred;
+                }
+            }
+        }
+        return size;
+    }
+
+    private static File createTypeDirectory(String type) throws IOException {
+        File modelDir = new File(FileUtils.getTempDirectory(), type);
+        FileUtils.forceMkdir(modelDir);
+        return modelDir;
+    }
+
+    private static File createTempDirectory(String type) throws IOException {
+        File tmp = File.createTempFile(type, ".download");
+        FileUtils.forceDelete(tmp);
+        FileUtils.forceMkdir(tmp);
+        return tmp;
+    }
+
+    private static File moveDirectory(File tmp, File modelDir, String eTag) throws IOException {
         if (eTag == null) {
             eTag = UUID.randomUUID().toString().replaceAll("-", "");
         }
@@ -0,0 +1,141 @@
+package org.pytorch.serve.archive.utils;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.pytorch.serve.archive.DownloadArchiveException;
+import org.pytorch.serve.archive.model.ModelArchive;
+import org.pytorch.serve.archive.model.ModelException;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class ArchiveCacheTest {
+
+    private static final List<String> ALLOWED_URLS_LIST =
+            Collections.singletonList("file://.*|http(s)?://.*");
+
+    private File dir;
+    private File modelStore;
+
+    @BeforeClass
+    public void beforeClass() throws IOException {
+        dir = Files.createTempDirectory("archive-cache").toFile();
+        modelStore = new File(dir, "models");
+        FileUtils.copyFileToDirectory(new File("src/test/resources/models/noop.mar"), modelStore);
+        FileUtils.copyFileToDirectory(new File("src/test/resources/models/echo.mar"), modelStore);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void afterClass() throws IOException {
+        ArchiveCache.init(null, 0);
+        FileUtils.deleteQuietly(dir);
+    }
+
+    @Test
+    public void testReuse() throws ModelException, IOException, DownloadArchiveException {
+        File cacheDir = new File(dir, "cache");
+        ArchiveCache.init(cacheDir.getAbsolutePath(), 0);
+        String store = modelStore.getAbsolutePath();
+
+        ModelArchive first = ModelArchive.downloadModel(ALLOWED_URLS_LIST, store, "noop.mar");
+        ModelArchive second = ModelArchive.downloadModel(ALLOWED_URLS_LIST, store, "noop.mar");
+        Assert.assertEquals(second.getModelName(), "noop");
+        Assert.assertNotEquals(first.getModelDir(), second.getModelDir());
+        File manifest = new File(second.getModelDir(), "MAR-INF/MANIFEST.json");
+        Assert.assertTrue(
+                Files.isSameFile(
+                        new File(first.getModelDir(), "MAR-INF/MANIFEST.json").toPath(),
+                        manifest.toPath()));
+        assertReadOnly(manifest.toPath());
+
+        // a touched archive is hashed again and still found by its digest
+        File archive = new File(modelStore, "noop.mar");
+        Assert.assertTrue(archive.setLastModified(archive.lastModified() - 10000));
+        ModelArchive third = ModelArchive.downloadModel(ALLOWED_URLS_LIST, store, "noop.mar");
+        Assert.assertEquals(getEntries(cacheDir).length, 1);
+
+        // deleting the directory of a model leaves the others and the cache intact
+        first.clean();
+        Assert.assertFalse(first.getModelDir().exists());
+        Assert.assertTrue(manifest.isFile());
+        second.clean();
+        third.clean();
+
+        // a restarted cache reads its index and reuses the extraction
+        ArchiveCache.init(cacheDir.getAbsolutePath(), 0);
+        Assert.assertTrue(new File(cacheDir, "index.json").isFile());
+        ModelArchive restarted = ModelArchive.downloadModel(ALLOWED_URLS_LIST, store, "noop.mar");
+        Assert.assertEquals(restarted.getModelName(), "noop");
+        Assert.assertEquals(getEntries(cacheDir).length, 1);
+        restarted.clean();
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        File cacheDir = new File(dir, "evicted");
+        ArchiveCache.init(cacheDir.getAbsolutePath(), 1);
+        ArchiveCache cache = ArchiveCache.getInstance();
+
+        File noop = cache.extract(new File(modelStore, "noop.mar"), true);
+        File echo = cache.extract(new File(modelStore, "echo.mar"), true);
+        // only the extraction used last fits the budget, the evicted one stays linked
+        Assert.assertEquals(getEntries(cacheDir).length, 1);
+        Assert.assertTrue(new File(noop, "MAR-INF/MANIFEST.json").isFile());
+        Assert.assertTrue(new File(echo, "MAR-INF/MANIFEST.json").isFile());
+        FileUtils.deleteQuietly(noop);
+        FileUtils.deleteQuietly(echo);
+    }
+
+    @Test
+    public void testSharedCache() throws IOException {
+        File cacheDir = new File(dir, "shared");
+        ArchiveCache.init(cacheDir.getAbsolutePath(), 0);
+        ArchiveCache first = ArchiveCache.getInstance();
+
+        // only the unfinished extractions of servers that are no longer running are deleted
+        File running = new File(cacheDir, "entries/tmp-" + ProcessHandle.current().pid() + "-1");
+        File stopped = new File(cacheDir, "entries/tmp-" + Long.MAX_VALUE + "-1");
+        FileUtils.forceMkdir(running);
+        FileUtils.forceMkdir(stopped);
+        ArchiveCache.init(cacheDir.getAbsolutePath(), 0);
+        ArchiveCache second = ArchiveCache.getInstance();
+        Assert.assertTrue(running.isDirectory());
+        Assert.assertFalse(stopped.exists());
+        FileUtils.deleteQuietly(running);
+
+        // each server reads the index before updating it, neither loses the entries of the other
+        File noop = first.extract(new File(modelStore, "noop.mar"), true);
+        File echo = second.extract(new File(modelStore, "echo.mar"), true);
+        String index =
+                FileUtils.readFileToString(
+                        new File(cacheDir, "index.json"), StandardCharsets.UTF_8);
+        JsonObject json = JsonParser.parseString(index).getAsJsonObject();
+        Assert.assertEquals(json.getAsJsonObject("sources").size(), 2);
+        Assert.assertEquals(json.getAsJsonObject("entries").size(), 2);
+        FileUtils.deleteQuietly(noop);
+        FileUtils.deleteQuietly(echo);
+    }
+
+    private static void assertReadOnly(Path file) throws IOException {
+        if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Assert.assertFalse(
+                    Files.getPosixFilePermissions(file).contains(PosixFilePermission.OWNER_WRITE));
+        }
+    }
+
+    private static File[] getEntries(File cacheDir) {
+        File[] entries = new File(cacheDir, "entries").listFiles();
+        Assert.assertNotNull(entries);
+        return entries;
+    }
+}
@@ -0,0 +1,181 @@
+package org.pytorch.serve.archive.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class ZipUtilsTest {
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    private File dir;
+
+    @BeforeClass
+    public void beforeClass() throws IOException {
+        dir = Files.createTempDirectory("zip-utils").toFile();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void afterClass() {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    @Test
+    public void testUnzipInParallel() throws IOException {
+        File archive = new File(dir, "shards.mar");
+        createArchive(archive, 6, 3 * BLOCK_SIZE + 17);
+
+        File sequential = new File(dir, "sequential");
+        try (InputStream is = Files.newInputStream(archive.toPath())) {
+            ZipUtils.unzip(is, sequential);
+        }
+        File parallel = new File(dir, "parallel");
+        ZipUtils.unzip(archive, parallel, 4);
+
+        Assert.assertTrue(new File(parallel, "MAR-INF").isDirectory());
+        for (int i = 0; i < 6; ++i) {
+            String name = "shards/shard-" + i + ".bin";
+            Assert.assertTrue(
+                    FileUtils.contentEquals(new File(sequential, name), new File(parallel, name)),
+                    name);
+        }
+    }
+
+    @Test
+    public void testInvalidCrc() throws IOException {
+        File archive = new File(dir, "corrupted.mar");
+        createArchive(archive, 2, BLOCK_SIZE);
+        // the second shard is stored, its content ends right before the central directory
+        try (RandomAccessFile file = new RandomAccessFile(archive, "rw")) {
+            long pos = file.length() - 200 - BLOCK_SIZE / 2;
+            file.seek(pos);
+            int b = file.read();
+            file.seek(pos);
+            file.write(b ^ 0xff);
+        }
+        try {
+            ZipUtils.unzip(archive, new File(dir, "corrupted"), 2);
+            Assert.fail("corrupted entry extracted");
+        } catch (ZipException e) {
+            Assert.assertTrue(e.getMessage().startsWith("invalid entry CRC"), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testEntryOutsideOfArchive() throws IOException {
+        File archive = new File(dir, "escaping.mar");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(archive.toPath()))) {
+            zos.putNextEntry(new ZipEntry("MAR-INF/MANIFEST.json"));
+            zos.write('{');
+            zos.putNextEntry(new ZipEntry("../escaped.txt"));
+            zos.write('x');
+        }
+        File dest = new File(dir, "escaping");
+        try {
+            ZipUtils.unzip(archive, dest, 2);
+            Assert.fail("entry outside of the archive extracted");
+        } catch (ZipException e) {
+            Assert.assertEquals(e.getMessage(), "Entry outside of the archive: ../escaped.txt");
+        }
+        // the archive is rejected before any entry is extracted
+        Assert.assertFalse(new File(dir, "escaped.txt").exists());
+        Assert.assertFalse(new File(dest, "MAR-INF/MANIFEST.json").exists());
+    }
+
+    /**
+     * Compares extracting an archive of weight shards from a stream with the random access
+     * extraction. It only runs with the size of the archive in MB set with
+     * -Dts.benchmark.archive.mb; use several GB to compare them on the archives of large models.
+     */
+    @Test
+    public void benchmarkUnzip() throws IOException {
+        Long archiveMb = Long.getLong("ts.benchmark.archive.mb");
+        if (archiveMb == null) {
+            throw new SkipException("Benchmark skipped without -Dts.benchmark.archive.mb");
+        }
+        int shards = 8;
+        long archiveSize = archiveMb * BLOCK_SIZE;
+        File archive = new File(dir, "benchmark.mar");
+        createArchive(archive, shards, archiveSize / shards);
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        File sequential = new File(dir, "benchmark-sequential");
+        long start = System.nanoTime();
+        try (InputStream is = Files.newInputStream(archive.toPath())) {
+            ZipUtils.unzip(is, sequential);
+        }
+        long before = (System.nanoTime() - start) / 1000000;
+        FileUtils.deleteQuietly(sequential);
+
+        File parallel = new File(dir, "benchmark-parallel");
+        start = System.nanoTime();
+        ZipUtils.unzip(archive, parallel, threads);
+        long after = (System.nanoTime() - start) / 1000000;
+        System.out.printf(
+                "extraction of a %d MB archive: stream %d ms, random access on %d thread(s)"
+                        + " %d ms%n",
+                archive.length() / BLOCK_SIZE, before, threads, after);
+
+        Assert.assertEquals(FileUtils.sizeOfDirectory(parallel), archiveSize / shards * shards + 2);
+        FileUtils.deleteQuietly(parallel);
+        FileUtils.deleteQuietly(archive);
+    }
+
+    /**
+     * Writes an archive with a manifest and shards of random half bytes, which deflate to about
+     * half their size. Every other shard is stored, the last one included.
+     */
+    private static void createArchive(File archive, int shards, long shardSize) throws IOException {
+        Random random = new Random(shards);
+        byte[] block = new byte[BLOCK_SIZE];
+        for (int i = 0; i < block.length; ++i) {
+            block[i] = (byte) random.nextInt(16);
+        }
+
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(archive.toPath()))) {
+            zos.putNextEntry(new ZipEntry("MAR-INF/"));
+            zos.putNextEntry(new ZipEntry("MAR-INF/MANIFEST.json"));
+            zos.write(new byte[] {'{', '}'});
+            zos.putNextEntry(new ZipEntry("shards/"));
+            for (int i = 0; i < shards; ++i) {
+                ZipEntry entry = new ZipEntry("shards/shard-" + i + ".bin");
+                if (i % 2 == 1) {
+                    CRC32 crc = new CRC32();
+                    writeShard(null, crc, block, i, shardSize);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(shardSize);
+                    entry.setCrc(crc.getValue());
+                }
+                zos.putNextEntry(entry);
+                writeShard(zos, null, block, i, shardSize);
+            }
+        }
+    }
+
+    private static void writeShard(OutputStream os, CRC32 crc, byte[] block, int seed, long size)
+            throws IOException {
+        block[0] = (byte) seed;
+        for (long written = 0; written < size; written += block.length) {
+            int length = (int) Math.min(block.length, size - written);
+            if (os != null) {
+                os.write(block, 0, length);
+            } else {
+                crc.update(block, 0, length);
+            }
+        }
+    }
+}
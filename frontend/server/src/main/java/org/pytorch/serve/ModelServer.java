@@ -1,7 +1,6 @@
 package org.pytorch.serve;
 
 import io.grpc.Server;
-import io.grpc.ServerBuilder;
 import io.grpc.ServerInterceptors;
 import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
 import io.netty.bootstrap.ServerBootstrap;
@@ -11,6 +10,7 @@ import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.FixedRecvByteBufAllocator;
 import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.handler.ssl.SslContext;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import io.netty.util.internal.logging.Slf4JLoggerFactory;
@@ -25,36 +25,48 @@ import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
-import org.pytorch.serve.archive.DownloadArchiveException;
-import org.pytorch.serve.archive.model.ModelArchive;
-import org.pytorch.serve.archive.model.ModelException;
 import org.pytorch.serve.archive.model.ModelNotFoundException;
+import org.pytorch.serve.archive.utils.ArchiveCache;
+import org.pytorch.serve.bulk.BulkJobManager;
+import org.pytorch.serve.grpcimpl.GRPCExecutor;
 import org.pytorch.serve.grpcimpl.GRPCInterceptor;
 import org.pytorch.serve.grpcimpl.GRPCServiceFactory;
+import org.pytorch.serve.metrics.BackendMetricsChannel;
+import org.pytorch.serve.metrics.LatencyTracker;
+import org.pytorch.serve.metrics.LogEventPipeline;
 import org.pytorch.serve.metrics.MetricCache;
 import org.pytorch.serve.metrics.MetricManager;
+import org.pytorch.serve.metrics.RequestTracer;
+import org.pytorch.serve.metrics.format.prometheous.PrometheusScrapeCache;
+import org.pytorch.serve.metrics.jfr.JfrEvents;
 import org.pytorch.serve.servingsdk.ModelServerEndpoint;
 import org.pytorch.serve.servingsdk.annotations.Endpoint;
 import org.pytorch.serve.servingsdk.annotations.helpers.EndpointTypes;
 import org.pytorch.serve.servingsdk.impl.PluginsManager;
 import org.pytorch.serve.snapshot.InvalidSnapshotException;
 import org.pytorch.serve.snapshot.SnapshotManager;
+import org.pytorch.serve.util.AcceptorShard;
 import org.pytorch.serve.util.ConfigManager;
 import org.pytorch.serve.util.Connector;
 import org.pytorch.serve.util.ConnectorType;
+import org.pytorch.serve.util.DeviceTelemetry;
 import org.pytorch.serve.util.GPUManager;
 import org.pytorch.serve.util.ServerGroups;
 import org.pytorch.serve.wlm.Model;
 import org.pytorch.serve.wlm.ModelManager;
+import org.pytorch.serve.wlm.StartupModelLoader;
 import org.pytorch.serve.wlm.WorkLoadManager;
-import org.pytorch.serve.wlm.WorkerInitializationException;
 import org.pytorch.serve.workflow.WorkflowManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,10 +76,12 @@ public class ModelServer {
     private ServerGroups serverGroups;
     private Server inferencegRPCServer;
     private Server managementgRPCServer;
+    private final List<ExecutorService> grpcExecutors = new CopyOnWriteArrayList<>();
     private List<ChannelFuture> futures = new ArrayList<>(2);
     private AtomicBoolean stopped = new AtomicBoolean(false);
     private ConfigManager configManager;
     private GPUManager gpuManager;
+    private CompletableFuture<Void> startupModelsLoaded = CompletableFuture.completedFuture(null);
     public static final int MAX_RCVBUF_SIZE = 4096;
 
     /** Creates a new {@code ModelServer} instance. */
@@ -75,6 +89,7 @@ public class ModelServer {
         this.configManager = configManager;
         this.gpuManager = gpuManager;
         serverGroups = new ServerGroups(configManager);
+        PrometheusScrapeCache.init(configManager);
     }
 
     public static void main(String[] args) {
@@ -86,7 +101,12 @@ public class ModelServer {
             ConfigManager.init(arguments);
             ConfigManager configManager = ConfigManager.getInstance();
             PluginsManager.getInstance().initialize();
+            LogEventPipeline.init(configManager);
             MetricCache.init();
+            LatencyTracker.init(configManager);
+            RequestTracer.init(configManager);
+            JfrEvents.init(configManager);
+            DeviceTelemetry.init(configManager);
             GPUManager.init(configManager);
             GPUManager gpuManager = GPUManager.getInstance();
             InternalLoggerFactory.setDefaultFactory(Slf4JLoggerFactory.INSTANCE);
@@ -98,6 +118,9 @@ public class ModelServer {
                                 @Override
                                 public void run() {
                                     modelServer.stop();
+                                    RequestTracer.shutdown();
+                                    DeviceTelemetry.shutdown();
+                                    LogEventPipeline.shutdown();
                                 }
                             });
 
@@ -124,6 +147,8 @@ public class ModelServer {
 
             startGRPCServers();
 
+            resumeBulkJobs();
+
             // Create and schedule metrics manager
             if (!configManager.isSystemMetricsDisabled()) {
                 MetricManager.scheduleMetrics(configManager);
@@ -151,11 +176,13 @@ public class ModelServer {
 
     private void initModelStore() throws InvalidSnapshotException, IOException {
         WorkLoadManager wlm = new WorkLoadManager(configManager, gpuManager, serverGroups.getBackendGroup());
+        ArchiveCache.init(
+                configManager.getArchiveCacheDir(),
+                configManager.getArchiveCacheSizeMb() * 1024L * 1024L);
         ModelManager.init(configManager, wlm);
         WorkflowManager.init(configManager);
         SnapshotManager.init(configManager);
-        Set<String> startupModels = ModelManager.getInstance().getStartupModels();
-        String defaultModelName;
+        BulkJobManager.init(configManager);
         String modelSnapshot = configManager.getModelSnapshot();
         if (modelSnapshot != null) {
             SnapshotManager.getInstance().restore(modelSnapshot);
@@ -167,8 +194,8 @@ public class ModelServer {
             return;
         }
 
-        ModelManager modelManager = ModelManager.getInstance();
-        int workers = configManager.getDefaultWorkers();
+        StartupModelLoader loader =
+                new StartupModelLoader(configManager, ModelManager.getInstance());
         if ("ALL".equalsIgnoreCase(loadModels)) {
             String modelStore = configManager.getModelStore();
             if (modelStore == null) {
@@ -195,130 +222,41 @@ public class ModelServer {
                             && !fileName.endsWith(".model")) {
                         continue;
                     }
-                    try {
-                        logger.debug("Loading models from model store: {}", file.getName());
-                        defaultModelName = getDefaultModelName(fileName);
-
-                        ModelArchive archive =
-                                modelManager.registerModel(file.getName(), defaultModelName);
-                        int minWorkers =
-                                configManager.getJsonIntValue(
-                                        archive.getModelName(),
-                                        archive.getModelVersion(),
-                                        Model.MIN_WORKERS,
-                                        workers);
-                        int maxWorkers =
-                                configManager.getJsonIntValue(
-                                        archive.getModelName(),
-                                        archive.getModelVersion(),
-                                        Model.MAX_WORKERS,
-                                        workers);
-                        if (archive.getModelConfig() != null) {
-                            int marMinWorkers = archive.getModelConfig().getMinWorkers();
-                            int marMaxWorkers = archive.getModelConfig().getMaxWorkers();
-                            if (marMinWorkers > 0 && marMaxWorkers >= marMinWorkers) {
-                                minWorkers = marMinWorkers;
-                                maxWorkers = marMaxWorkers;
-                            } else {
-                                logger.warn(
-                                        "Invalid model config in mar, minWorkers:{}, maxWorkers:{}",
-                                        marMinWorkers,
-                                        marMaxWorkers);
-                            }
-                        }
-                        modelManager.updateModel(
-                                archive.getModelName(),
-                                archive.getModelVersion(),
-                                minWorkers,
-                                maxWorkers,
-                                true,
-                                false);
-                        startupModels.add(archive.getModelName());
-                    } catch (ModelException
-                            | IOException
-                            | InterruptedException
-                            | DownloadArchiveException
-                            | WorkerInitializationException e) {
-                        logger.warn("Failed to load model: " + file.getAbsolutePath(), e);
-                    }
+                    logger.debug("Loading models from model store: {}", file.getName());
+                    loader.add(file.getName(), null, getDefaultModelName(fileName));
                 }
             }
-            return;
-        }
-
-        String[] models = loadModels.split(",");
-        for (String model : models) {
-            String[] pair = model.split("=", 2);
-            String modelName = null;
-            String url;
-            if (pair.length == 1) {
-                url = pair[0];
-            } else {
-                modelName = pair[0];
-                url = pair[1];
-            }
-            if (url.isEmpty()) {
-                continue;
-            }
-
-            try {
-                logger.info("Loading initial models: {}", url);
-                defaultModelName = getDefaultModelName(url);
-
-                ModelArchive archive =
-                        modelManager.registerModel(
-                                url,
-                                modelName,
-                                null,
-                                null,
-                                1,
-                                100,
-                                configManager.getDefaultResponseTimeout(),
-                                defaultModelName,
-                                false,
-                                false,
-                                false);
-                int minWorkers =
-                        configManager.getJsonIntValue(
-                                archive.getModelName(),
-                                archive.getModelVersion(),
-                                Model.MIN_WORKERS,
-                                workers);
-                int maxWorkers =
-                        configManager.getJsonIntValue(
-                                archive.getModelName(),
-                                archive.getModelVersion(),
-                                Model.MAX_WORKERS,
-                                workers);
-                if (archive.getModelConfig() != null) {
-                    int marMinWorkers = archive.getModelConfig().getMinWorkers();
-                    int marMaxWorkers = archive.getModelConfig().getMaxWorkers();
-                    if (marMinWorkers > 0 && marMaxWorkers >= marMinWorkers) {
-                        minWorkers = marMinWorkers;
-                        maxWorkers = marMaxWorkers;
-                    } else {
-                        logger.warn(
-                                "Invalid model config in mar, minWorkers:{}, maxWorkers:{}",
-                                marMinWorkers,
-                                marMaxWorkers);
-                    }
+        } else {
+            String[] models = loadModels.split(",");
+            for (String model : models) {
+                String[] pair = model.split("=", 2);
+                String modelName = null;
+                String url;
+                if (pair.length == 1) {
+                    url = pair[0];
+                } else {
+                    modelName = pair[0];
+                    url = pair[1];
                 }
-                modelManager.updateModel(
-                        archive.getModelName(),
-                        archive.getModelVersion(),
-                        minWorkers,
-                        maxWorkers,
-                        true,
-                        false);
-                startupModels.add(archive.getModelName());
-            } catch (ModelException
-                    | IOException
-                    | InterruptedException
-                    | DownloadArchiveException
-                    | WorkerInitializationException e) {
-                logger.warn("Failed to load model: " + url, e);
+                if (url.isEmpty()) {
+                    continue;
+                }
+                loader.add(url, modelName, getDefaultModelName(url));
             }
         }
+
+        startupModelsLoaded = loader.start();
+        if (!configManager.isStartupModelLoadInBackground()) {
+            startupModelsLoaded.join();
+        }
+    }
+
+    /**
+     * Resumes the bulk jobs that were running when the server stopped, once the models to load at
+     * startup are registered, which may happen in the background.
+     */
+    public CompletableFuture<Void> resumeBulkJobs() {
+        return startupModelsLoaded.thenRun(() -> BulkJobManager.getInstance().resumeJobs());
     }
 
     public ChannelFuture initializeServer(
@@ -327,9 +265,53 @@ public class ModelServer {
             EventLoopGroup workerGroup,
             ConnectorType type)
             throws InterruptedException, IOException, GeneralSecurityException {
+        return initializeServer(connector, serverGroup, workerGroup, type, null);
+    }
+
+    /**
+     * Binds one listener per acceptor shard if sharded acceptors are enabled, a single listener
+     * otherwise. A null worker group stands for the inference event loops, which are only created
+     * when a connector does not use the shards.
+     */
+    private void bindServer(
+            Connector connector,
+            EventLoopGroup serverGroup,
+            EventLoopGroup workerGroup,
+            ConnectorType type)
+            throws InterruptedException, IOException, GeneralSecurityException {
+        List<AcceptorShard> shards = serverGroups.getAcceptorShards();
+        // the management connector keeps its own event loops, see management_netty_threads
+        if (shards.isEmpty()
+                || connector.isUds()
+                || ConnectorType.MANAGEMENT_CONNECTOR.equals(type)) {
+            EventLoopGroup group = workerGroup == null ? serverGroups.getChildGroup() : workerGroup;
+            futures.add(initializeServer(connector, serverGroup, group, type));
+            return;
+        }
+        for (AcceptorShard shard : shards) {
+            futures.add(
+                    initializeServer(connector, shard.getGroup(), shard.getGroup(), type, shard));
+        }
+    }
+
+    private ChannelFuture initializeServer(
+            Connector connector,
+            EventLoopGroup serverGroup,
+            EventLoopGroup workerGroup,
+            ConnectorType type,
+            AcceptorShard shard)
+            throws InterruptedException, IOException, GeneralSecurityException {
         final String purpose = connector.getPurpose();
         Class<? extends ServerChannel> channelClass = connector.getServerChannel();
-        logger.info("Initialize {} server with: {}.", purpose, channelClass.getSimpleName());
+        if (shard == null) {
+            logger.info("Initialize {} server with: {}.", purpose, channelClass.getSimpleName());
+        } else {
+            logger.info(
+                    "Initialize {} server shard {} with: {}.",
+                    purpose,
+                    shard.getIndex(),
+                    channelClass.getSimpleName());
+        }
         ServerBootstrap b = new ServerBootstrap();
         b.option(ChannelOption.SO_BACKLOG, 1024)
                 .channel(channelClass)
@@ -345,7 +327,13 @@ public class ModelServer {
         if (connector.isSsl()) {
             sslCtx = configManager.getSslContext();
         }
-        b.childHandler(new ServerInitializer(sslCtx, type));
+        if (shard == null) {
+            b.childHandler(new ServerInitializer(sslCtx, type));
+        } else {
+            // every shard binds its own listener to the same port
+            b.option(EpollChannelOption.SO_REUSEPORT, true);
+            b.childHandler(new ServerInitializer(sslCtx, type, shard.newMetricsHandler(type)));
+        }
 
         ChannelFuture future;
         try {
@@ -398,6 +386,7 @@ public class ModelServer {
 
         logger.info(configManager.dumpConfigurations());
 
+        BackendMetricsChannel.start(configManager);
         initModelStore();
 
         Connector inferenceConnector = configManager.getListener(ConnectorType.INFERENCE_CONNECTOR);
@@ -408,27 +397,18 @@ public class ModelServer {
         managementConnector.clean();
 
         EventLoopGroup serverGroup = serverGroups.getServerGroup();
-        EventLoopGroup workerGroup = serverGroups.getChildGroup();
 
         futures.clear();
 
         if (!inferenceConnector.equals(managementConnector)) {
-            futures.add(
-                    initializeServer(
-                            inferenceConnector,
-                            serverGroup,
-                            workerGroup,
-                            ConnectorType.INFERENCE_CONNECTOR));
-            futures.add(
-                    initializeServer(
-                            managementConnector,
-                            serverGroup,
-                            workerGroup,
-                            ConnectorType.MANAGEMENT_CONNECTOR));
+            bindServer(inferenceConnector, serverGroup, null, ConnectorType.INFERENCE_CONNECTOR);
+            bindServer(
+                    managementConnector,
+                    serverGroup,
+                    serverGroups.getManagementGroup(),
+                    ConnectorType.MANAGEMENT_CONNECTOR);
         } else {
-            futures.add(
-                    initializeServer(
-                            inferenceConnector, serverGroup, workerGroup, ConnectorType.ALL));
+            bindServer(inferenceConnector, serverGroup, null, ConnectorType.ALL);
         }
 
         if (configManager.isMetricApiEnable()) {
@@ -454,14 +434,36 @@ public class ModelServer {
 
     private Server startGRPCServer(ConnectorType connectorType) throws IOException {
 
-        ServerBuilder<?> s =
+        NettyServerBuilder s =
                 NettyServerBuilder.forPort(configManager.getGRPCPort(connectorType))
-                        .maxInboundMessageSize(configManager.getMaxRequestSize())
+                        .maxInboundMessageSize(configManager.getGRPCMaxInboundMessageSize())
+                        .flowControlWindow(configManager.getGRPCFlowControlWindow())
+                        .maxConcurrentCallsPerConnection(
+                                configManager.getGRPCMaxConcurrentStreams())
+                        .keepAliveTime(configManager.getGRPCKeepAliveTime(), TimeUnit.MILLISECONDS)
+                        .keepAliveTimeout(
+                                configManager.getGRPCKeepAliveTimeout(), TimeUnit.MILLISECONDS)
+                        .permitKeepAliveTime(
+                                configManager.getGRPCPermitKeepAliveTime(), TimeUnit.MILLISECONDS)
                         .addService(
                                 ServerInterceptors.intercept(
                                         GRPCServiceFactory.getgRPCService(connectorType),
                                         new GRPCInterceptor()));
 
+        if (connectorType == ConnectorType.INFERENCE_CONNECTOR
+                && configManager.isGRPCInferenceDirectExecutor()) {
+            // the inference calls only queue jobs and never block, run them on the event loops
+            s.directExecutor();
+        } else {
+            ExecutorService executor =
+                    GRPCExecutor.newExecutor(
+                            connectorType,
+                            configManager.getGRPCThreads(connectorType),
+                            configManager.getGRPCQueueSize());
+            grpcExecutors.add(executor);
+            s.executor(executor);
+        }
+
         if (configManager.isGRPCSSLEnabled()) {
             s.useTransportSecurity(
                     new File(configManager.getCertificateFile()),
@@ -542,6 +544,9 @@ public class ModelServer {
 
         stopgRPCServer(inferencegRPCServer);
         stopgRPCServer(managementgRPCServer);
+        for (ExecutorService executor : grpcExecutors) {
+            executor.shutdown();
+        }
 
         for (ChannelFuture future : futures) {
             try {
@@ -551,14 +556,20 @@ public class ModelServer {
             }
         }
 
+        BulkJobManager bulkJobManager = BulkJobManager.getInstance();
+        if (bulkJobManager != null) {
+            bulkJobManager.shutdown();
+        }
         SnapshotManager.getInstance().saveShutdownSnapshot();
         serverGroups.shutdown(true);
         serverGroups.init();
 
         try {
             exitModelStore();
+            ModelManager.getInstance().shutdownWarmWorkerPool();
         } catch (Exception e) {
             e.printStackTrace(); // NOPMD
         }
+        BackendMetricsChannel.shutdown();
     }
 }
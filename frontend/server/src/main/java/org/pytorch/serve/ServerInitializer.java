@@ -1,6 +1,7 @@
 package org.pytorch.serve;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.codec.http.HttpObjectAggregator;
@@ -10,8 +11,11 @@ import org.pytorch.serve.http.ExtendedSSLHandler;
 import org.pytorch.serve.http.HttpRequestHandler;
 import org.pytorch.serve.http.HttpRequestHandlerChain;
 import org.pytorch.serve.http.InvalidRequestHandler;
+import org.pytorch.serve.http.RequestTimingHandler;
 import org.pytorch.serve.http.api.rest.ApiDescriptionRequestHandler;
+import org.pytorch.serve.http.api.rest.BulkJobRequestHandler;
 import org.pytorch.serve.http.api.rest.InferenceRequestHandler;
+import org.pytorch.serve.http.api.rest.LatencyRequestHandler;
 import org.pytorch.serve.http.api.rest.ManagementRequestHandler;
 import org.pytorch.serve.http.api.rest.PrometheusMetricsRequestHandler;
 import org.pytorch.serve.servingsdk.impl.PluginsManager;
@@ -27,18 +31,33 @@ import org.pytorch.serve.workflow.api.http.WorkflowMgmtRequestHandler;
  */
 public class ServerInitializer extends ChannelInitializer<Channel> {
 
+    private static final RequestTimingHandler TIMING_HANDLER = new RequestTimingHandler();
+
     private ConnectorType connectorType;
     private SslContext sslCtx;
+    private ChannelHandler shardHandler;
 
     /**
      * Creates a new {@code HttpRequestHandler} instance.
      *
      * @param sslCtx null if SSL is not enabled
-     * @param type true to initialize a management server instead of an API Server
+     * @param type the type of the connector, which selects the APIs served by the channel
      */
     public ServerInitializer(SslContext sslCtx, ConnectorType type) {
+        this(sslCtx, type, null);
+    }
+
+    /**
+     * Creates a new {@code HttpRequestHandler} instance for a listener of an acceptor shard.
+     *
+     * @param sslCtx null if SSL is not enabled
+     * @param type the type of the connector, which selects the APIs served by the channel
+     * @param shardHandler the metrics handler of the acceptor shard, null if not sharded
+     */
+    public ServerInitializer(SslContext sslCtx, ConnectorType type, ChannelHandler shardHandler) {
         this.sslCtx = sslCtx;
         this.connectorType = type;
+        this.shardHandler = shardHandler;
     }
 
     /** {@inheritDoc} */
@@ -54,7 +73,15 @@ public class ServerInitializer extends ChannelInitializer<Channel> {
             pipeline.addLast("ssl", new ExtendedSSLHandler(sslCtx, connectorType));
         }
         pipeline.addLast("http", new HttpServerCodec());
+        if (ConfigManager.getInstance().isRequestStageTimingEnabled()
+                && (ConnectorType.ALL.equals(connectorType)
+                        || ConnectorType.INFERENCE_CONNECTOR.equals(connectorType))) {
+            pipeline.addLast("timing", TIMING_HANDLER);
+        }
         pipeline.addLast("aggregator", new HttpObjectAggregator(maxRequestSize));
+        if (shardHandler != null) {
+            pipeline.addLast("shard", shardHandler);
+        }
 
         HttpRequestHandlerChain httpRequestHandlerChain = apiDescriptionRequestHandler;
         if (ConnectorType.ALL.equals(connectorType)
@@ -74,6 +101,10 @@ public class ServerInitializer extends ChannelInitializer<Channel> {
                                     PluginsManager.getInstance().getManagementEndpoints()));
             httpRequestHandlerChain =
                     httpRequestHandlerChain.setNextHandler(new WorkflowMgmtRequestHandler());
+            httpRequestHandlerChain =
+                    httpRequestHandlerChain.setNextHandler(new BulkJobRequestHandler());
+            httpRequestHandlerChain =
+                    httpRequestHandlerChain.setNextHandler(new LatencyRequestHandler());
         }
         if (ConfigManager.getInstance().isMetricApiEnable()
                         && ConnectorType.ALL.equals(connectorType)
@@ -82,6 +113,7 @@ public class ServerInitializer extends ChannelInitializer<Channel> {
                     httpRequestHandlerChain.setNextHandler(new PrometheusMetricsRequestHandler());
         }
         httpRequestHandlerChain.setNextHandler(invalidRequestHandler);
-        pipeline.addLast("handler", new HttpRequestHandler(apiDescriptionRequestHandler));
+        pipeline.addLast(
+                "handler", new HttpRequestHandler(apiDescriptionRequestHandler, connectorType));
     }
 }
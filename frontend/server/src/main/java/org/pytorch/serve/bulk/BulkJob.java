@@ -0,0 +1,571 @@
+package org.pytorch.serve.bulk;
+
+import com.google.gson.JsonObject;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+import org.pytorch.serve.archive.model.ModelVersionNotFoundException;
+import org.pytorch.serve.http.messages.DescribeBulkJobResponse;
+import org.pytorch.serve.job.BatchItemJob;
+import org.pytorch.serve.util.ApiUtils;
+import org.pytorch.serve.util.JsonUtils;
+import org.pytorch.serve.util.Priority;
+import org.pytorch.serve.util.messages.InputParameter;
+import org.pytorch.serve.util.messages.RequestInput;
+import org.pytorch.serve.wlm.ModelManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An offline inference job reading records from a JSONL file or a directory and writing one JSON
+ * line per record to the output file, in input order.
+ *
+ * <p>Records are queued as {@link Priority#LOW} jobs with at most {@code concurrency} records in
+ * flight, so the job only uses capacity left over by online traffic. The progress is checkpointed
+ * together with the output file position, a restarted job truncates the output to the last
+ * checkpoint and continues from there.
+ */
+public class BulkJob implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkJob.class);
+
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final long CHECKPOINT_INTERVAL_MS = 5000;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RETRIES = 10;
+    private static final int MAX_BACKOFF_SHIFT = 5;
+
+    /** The life cycle of a bulk job. */
+    public enum Status {
+        PENDING,
+        RUNNING,
+        PAUSED,
+        CANCELLED,
+        COMPLETED,
+        FAILED
+    }
+
+    private final Path checkpointFile;
+    private final Checkpoint state;
+
+    private long processedRecords;
+    private long failedRecords;
+    private long runStartTime;
+    private long runStartRecords;
+    private boolean active;
+    private boolean deleted;
+    private volatile boolean stopped;
+
+    BulkJob(
+            Path jobDir,
+            String modelName,
+            String modelVersion,
+            Path input,
+            Path output,
+            int concurrency) {
+        state = new Checkpoint();
+        state.id = UUID.randomUUID().toString();
+        state.modelName = modelName;
+        state.modelVersion = modelVersion;
+        state.input = input.toString();
+        state.output = output.toString();
+        state.concurrency = concurrency;
+        state.status = Status.PENDING;
+        state.totalRecords = -1;
+        state.createdTime = System.currentTimeMillis();
+        checkpointFile = jobDir.resolve(state.id + ".json");
+    }
+
+    private BulkJob(Path checkpointFile, Checkpoint state) {
+        this.checkpointFile = checkpointFile;
+        this.state = state;
+        processedRecords = state.committedRecords;
+        failedRecords = state.committedFailed;
+    }
+
+    static BulkJob load(Path checkpointFile) throws IOException {
+        String json = new String(Files.readAllBytes(checkpointFile), StandardCharsets.UTF_8);
+        Checkpoint state = JsonUtils.GSON.fromJson(json, Checkpoint.class);
+        if (state == null || state.id == null || state.status == null) {
+            throw new IOException("Invalid bulk job checkpoint: " + checkpointFile);
+        }
+        return new BulkJob(checkpointFile, state);
+    }
+
+    public String getId() {
+        return state.id;
+    }
+
+    public synchronized Status getStatus() {
+        return state.status;
+    }
+
+    public synchronized DescribeBulkJobResponse getDescription() {
+        DescribeBulkJobResponse resp = new DescribeBulkJobResponse();
+        resp.setJobId(state.id);
+        resp.setModelName(state.modelName);
+        resp.setModelVersion(state.modelVersion);
+        resp.setInput(state.input);
+        resp.setOutput(state.output);
+        resp.setConcurrency(state.concurrency);
+        resp.setStatus(state.status.name());
+        resp.setMessage(state.message);
+        resp.setCreatedTime(state.createdTime);
+        resp.setTotalRecords(state.totalRecords);
+        resp.setProcessedRecords(processedRecords);
+        resp.setFailedRecords(failedRecords);
+        if (active && state.status == Status.RUNNING) {
+            long elapsed = System.currentTimeMillis() - runStartTime;
+            if (elapsed > 0) {
+                double throughput = (processedRecords - runStartRecords) * 1000d / elapsed;
+                resp.setThroughput(throughput);
+                if (throughput > 0 && state.totalRecords >= 0) {
+                    resp.setEtaSeconds(
+                            (long) Math.ceil((state.totalRecords - processedRecords) / throughput));
+                }
+            }
+        }
+        return resp;
+    }
+
+    /** Returns true if a worker thread has to be scheduled to continue this job. */
+    synchronized boolean resume() {
+        // a job restored from a checkpoint may still be marked as running
+        boolean restored = state.status == Status.RUNNING && !active;
+        if (state.status != Status.PAUSED && state.status != Status.PENDING && !restored) {
+            return false;
+        }
+        state.status = Status.PENDING;
+        // a paused job that is still draining its window picks the resume up by itself
+        return !active;
+    }
+
+    synchronized boolean pause() {
+        if (state.status != Status.RUNNING && state.status != Status.PENDING) {
+            return false;
+        }
+        state.status = Status.PAUSED;
+        return true;
+    }
+
+    synchronized boolean cancel() {
+        if (isFinished()) {
+            return false;
+        }
+        state.status = Status.CANCELLED;
+        return true;
+    }
+
+    synchronized boolean isFinished() {
+        return state.status == Status.CANCELLED
+                || state.status == Status.COMPLETED
+                || state.status == Status.FAILED;
+    }
+
+    /** Stops processing on server shutdown, the job is resumed from its checkpoint on restart. */
+    void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (active || state.status != Status.PENDING) {
+                return;
+            }
+            active = true;
+            state.status = Status.RUNNING;
+        }
+        boolean resumed;
+        do {
+            try {
+                process();
+            } catch (IOException | ModelVersionNotFoundException | RuntimeException e) {
+                logger.error("Bulk job {} failed", state.id, e);
+                synchronized (this) {
+                    state.status = Status.FAILED;
+                    state.message = e.getMessage();
+                }
+            } catch (InterruptedException e) {
+                logger.warn("Bulk job {} interrupted", state.id);
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                // a resume after the window was drained is not seen by process()
+                resumed = state.status == Status.PENDING && !stopped;
+                if (resumed) {
+                    state.status = Status.RUNNING;
+                } else {
+                    active = false;
+                }
+            }
+            saveCheckpoint();
+        } while (resumed);
+    }
+
+    private void process() throws IOException, InterruptedException, ModelVersionNotFoundException {
+        if (ModelManager.getInstance().getModel(state.modelName, state.modelVersion) == null) {
+            throw new IllegalArgumentException("Model not found: " + state.modelName);
+        }
+        Path input = Path.of(state.input);
+        synchronized (this) {
+            if (state.totalRecords < 0) {
+                state.totalRecords = countRecords(input);
+            }
+            runStartTime = System.currentTimeMillis();
+            runStartRecords = processedRecords;
+        }
+        logger.info(
+                "Bulk job {} processing {} from record {}",
+                state.id,
+                state.input,
+                state.committedRecords);
+
+        ArrayDeque<InFlight> window = new ArrayDeque<>(state.concurrency);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+        try (RecordReader reader = openReader(input);
+                FileChannel out =
+                        FileChannel.open(
+                                Path.of(state.output),
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.WRITE)) {
+            // drop output written after the last checkpoint, those records are processed again
+            out.truncate(state.outputPosition);
+            out.position(state.outputPosition);
+            reader.skip(state.committedRecords);
+
+            long nextIndex = state.committedRecords;
+            long lastCheckpoint = System.currentTimeMillis();
+            while (!stopped) {
+                Status status = nextStatus();
+                if (status == Status.CANCELLED) {
+                    break;
+                }
+                if (status == Status.RUNNING) {
+                    while (window.size() < state.concurrency && reader.hasNext()) {
+                        Record record = reader.next();
+                        window.add(
+                                new InFlight(
+                                        record.name,
+                                        submit(Math.toIntExact(nextIndex++), record)));
+                    }
+                }
+                InFlight head = window.peek();
+                if (head == null) {
+                    break;
+                }
+                try {
+                    head.job.getResult().get(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    continue;
+                } catch (ExecutionException e) {
+                    throw new IOException(e.getCause());
+                }
+                if (head.job.getStatusCode() == HttpURLConnection.HTTP_UNAVAILABLE
+                        && head.retries < MAX_RETRIES) {
+                    // the queue is full of online traffic, back off and retry the record, it is
+                    // written as failed once the retries are exhausted
+                    Thread.sleep(POLL_INTERVAL_MS << Math.min(head.retries, MAX_BACKOFF_SHIFT));
+                    ++head.retries;
+                    head.job = resubmit(head.job);
+                    continue;
+                }
+                window.poll();
+                write(out, buffer, head);
+                synchronized (this) {
+                    ++processedRecords;
+                    if (!head.job.isSuccess()) {
+                        ++failedRecords;
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastCheckpoint >= CHECKPOINT_INTERVAL_MS) {
+                    commit(out, buffer);
+                    saveCheckpoint();
+                    lastCheckpoint = now;
+                }
+            }
+            commit(out, buffer);
+            synchronized (this) {
+                if (state.status == Status.RUNNING
+                        && !stopped
+                        && window.isEmpty()
+                        && !reader.hasNext()) {
+                    state.status = Status.COMPLETED;
+                    logger.info(
+                            "Bulk job {} completed, {} of {} records failed",
+                            state.id,
+                            failedRecords,
+                            state.totalRecords);
+                }
+            }
+        }
+    }
+
+    /** Picks up a resume that happened while the window was draining. */
+    private synchronized Status nextStatus() {
+        if (state.status == Status.PENDING) {
+            state.status = Status.RUNNING;
+            runStartTime = System.currentTimeMillis();
+            runStartRecords = processedRecords;
+        }
+        return state.status;
+    }
+
+    private BatchItemJob submit(int index, Record record) {
+        RequestInput input = new RequestInput(UUID.randomUUID().toString());
+        input.updateHeaders("x-ts-priority", Priority.LOW.name());
+        input.addParameter(new InputParameter("body", record.data, record.contentType));
+        return ApiUtils.addBatchItemJob(index, state.modelName, state.modelVersion, input);
+    }
+
+    private BatchItemJob resubmit(BatchItemJob job) {
+        return ApiUtils.addBatchItemJob(
+                job.getIndex(), state.modelName, state.modelVersion, job.getPayload());
+    }
+
+    private void write(FileChannel out, ByteBuffer buffer, InFlight record) throws IOException {
+        JsonObject line =
+                JsonUtils.GSON.toJsonTree(ApiUtils.getBatchItemResponse(record.job))
+                        .getAsJsonObject();
+        if (record.name != null) {
+            line.addProperty("input", record.name);
+        }
+        byte[] data = (line.toString() + '\n').getBytes(StandardCharsets.UTF_8);
+        if (data.length > buffer.remaining()) {
+            flush(out, buffer);
+        }
+        if (data.length > buffer.capacity()) {
+            ByteBuffer wrapped = ByteBuffer.wrap(data);
+            while (wrapped.hasRemaining()) {
+                out.write(wrapped);
+            }
+        } else {
+            buffer.put(data);
+        }
+    }
+
+    private static void flush(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** Makes the processed records durable so that the checkpoint can point past them. */
+    private void commit(FileChannel out, ByteBuffer buffer) throws IOException {
+        flush(out, buffer);
+        out.force(false);
+        long position = out.position();
+        synchronized (this) {
+            state.outputPosition = position;
+            state.committedRecords = processedRecords;
+            state.committedFailed = failedRecords;
+        }
+    }
+
+    synchronized void saveCheckpoint() {
+        if (deleted) {
+            // a cancelled job still draining its window must not restore the checkpoint
+            return;
+        }
+        try {
+            Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            Files.write(tmp, JsonUtils.GSON_PRETTY.toJson(state).getBytes(StandardCharsets.UTF_8));
+            Files.move(
+                    tmp,
+                    checkpointFile,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Failed to save checkpoint of bulk job {}", state.id, e);
+        }
+    }
+
+    synchronized void deleteCheckpoint() throws IOException {
+        deleted = true;
+        Files.deleteIfExists(checkpointFile);
+    }
+
+    private static long countRecords(Path input) throws IOException {
+        if (Files.isDirectory(input)) {
+            return listFiles(input).size();
+        }
+        try (Stream<String> lines = Files.lines(input, StandardCharsets.UTF_8)) {
+            return lines.filter(l -> !l.isBlank()).count();
+        }
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(dir)) {
+            // symbolic links may lead out of bulk_job_root
+            stream.filter(f -> Files.isRegularFile(f, LinkOption.NOFOLLOW_LINKS))
+                    .forEach(files::add);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static RecordReader openReader(Path input) throws IOException {
+        if (Files.isDirectory(input)) {
+            return new DirectoryReader(listFiles(input));
+        }
+        return new JsonLinesReader(Files.newBufferedReader(input, StandardCharsets.UTF_8));
+    }
+
+    private static final class Record {
+
+        private final String name;
+        private final byte[] data;
+        private final CharSequence contentType;
+
+        Record(String name, byte[] data, CharSequence contentType) {
+            this.name = name;
+            this.data = data;
+            this.contentType = contentType;
+        }
+    }
+
+    /** A submitted record, the job is replaced when the record is retried. */
+    private static final class InFlight {
+
+        private final String name;
+        private BatchItemJob job;
+        private int retries;
+
+        InFlight(String name, BatchItemJob job) {
+            this.name = name;
+            this.job = job;
+        }
+    }
+
+    private interface RecordReader extends Closeable {
+
+        boolean hasNext() throws IOException;
+
+        Record next() throws IOException;
+
+        default void skip(long count) throws IOException {
+            for (long i = 0; i < count && hasNext(); ++i) {
+                next();
+            }
+        }
+    }
+
+    /** Reads one record per non blank line. */
+    private static final class JsonLinesReader implements RecordReader {
+
+        private final BufferedReader reader;
+        private String line;
+
+        JsonLinesReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            while (line == null) {
+                String next = reader.readLine();
+                if (next == null) {
+                    return false;
+                }
+                if (!next.isBlank()) {
+                    line = next;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Record next() throws IOException {
+            if (!hasNext()) {
+                throw new IOException("No more records");
+            }
+            byte[] data = line.getBytes(StandardCharsets.UTF_8);
+            line = null;
+            return new Record(null, data, HttpHeaderValues.APPLICATION_JSON);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /** Reads one record per file, files are read in name order. */
+    private static final class DirectoryReader implements RecordReader {
+
+        private final Iterator<Path> files;
+
+        DirectoryReader(List<Path> files) {
+            this.files = files.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return files.hasNext();
+        }
+
+        @Override
+        public Record next() throws IOException {
+            Path file = files.next();
+            String contentType = Files.probeContentType(file);
+            return new Record(
+                    file.getFileName().toString(),
+                    Files.readAllBytes(file),
+                    contentType == null
+                            ? HttpHeaderValues.APPLICATION_OCTET_STREAM
+                            : contentType);
+        }
+
+        @Override
+        public void skip(long count) {
+            for (long i = 0; i < count && files.hasNext(); ++i) {
+                files.next();
+            }
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    /** The persisted state of a job. */
+    private static final class Checkpoint {
+
+        private String id;
+        private String modelName;
+        private String modelVersion;
+        private String input;
+        private String output;
+        private int concurrency;
+        private Status status;
+        private String message;
+        private long createdTime;
+        private long totalRecords;
+        private long committedRecords;
+        private long committedFailed;
+        private long outputPosition;
+    }
+}
@@ -0,0 +1,277 @@
+package org.pytorch.serve.bulk;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.pytorch.serve.archive.model.ModelNotFoundException;
+import org.pytorch.serve.archive.model.ModelVersionNotFoundException;
+import org.pytorch.serve.http.BadRequestException;
+import org.pytorch.serve.http.ConflictStatusException;
+import org.pytorch.serve.http.ResourceNotFoundException;
+import org.pytorch.serve.http.messages.DescribeBulkJobResponse;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.wlm.ModelManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Keeps track of the bulk inference jobs and their checkpoints in the bulk job directory. */
+public final class BulkJobManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkJobManager.class);
+
+    private static BulkJobManager bulkJobManager;
+
+    private final ConfigManager configManager;
+    private final Path jobDir;
+    private final Path root;
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<String, BulkJob> jobs;
+
+    private BulkJobManager(ConfigManager configManager) {
+        this.configManager = configManager;
+        this.jobDir = Path.of(configManager.getBulkJobDir());
+        this.root = resolveRoot(configManager.getBulkJobRoot());
+        this.executor =
+                Executors.newFixedThreadPool(
+                        configManager.getBulkJobThreads(),
+                        new ThreadFactoryBuilder()
+                                .setNameFormat("bulk-job-thread-%d")
+                                .setDaemon(true)
+                                .build());
+        this.jobs = new ConcurrentHashMap<>();
+        loadCheckpoints();
+    }
+
+    public static void init(ConfigManager configManager) {
+        bulkJobManager = new BulkJobManager(configManager);
+    }
+
+    public static BulkJobManager getInstance() {
+        return bulkJobManager;
+    }
+
+    private void loadCheckpoints() {
+        if (!Files.isDirectory(jobDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(jobDir)) {
+            files.filter(f -> f.getFileName().toString().endsWith(".json"))
+                    .forEach(
+                            f -> {
+                                try {
+                                    BulkJob job = BulkJob.load(f);
+                                    jobs.put(job.getId(), job);
+                                } catch (IOException | RuntimeException e) {
+                                    logger.warn("Failed to load bulk job checkpoint {}", f, e);
+                                }
+                            });
+        } catch (IOException e) {
+            logger.warn("Failed to list bulk job directory {}", jobDir, e);
+        }
+    }
+
+    /** Restarts the jobs that were running when the server stopped, once the models are loaded. */
+    public void resumeJobs() {
+        for (BulkJob job : jobs.values()) {
+            BulkJob.Status status = job.getStatus();
+            if (status == BulkJob.Status.PENDING || status == BulkJob.Status.RUNNING) {
+                DescribeBulkJobResponse desc = job.getDescription();
+                if (!isInRoot(desc.getInput()) || !isInRoot(desc.getOutput())) {
+                    logger.warn("Not resuming bulk job {} outside of bulk_job_root", job.getId());
+                    continue;
+                }
+                logger.info("Resuming bulk job {}", job.getId());
+                if (job.resume()) {
+                    executor.submit(job);
+                }
+            }
+        }
+    }
+
+    public DescribeBulkJobResponse submitJob(
+            String modelName, String modelVersion, String input, String output, int concurrency)
+            throws ModelNotFoundException, ModelVersionNotFoundException {
+        if (modelName == null || modelName.isEmpty()) {
+            throw new BadRequestException("Parameter model_name is required.");
+        }
+        if (input == null || input.isEmpty() || output == null || output.isEmpty()) {
+            throw new BadRequestException("Parameters input and output are required.");
+        }
+        int maxConcurrency = configManager.getMaxBulkJobConcurrency();
+        if (concurrency <= 0 || concurrency > maxConcurrency) {
+            throw new BadRequestException(
+                    "Parameter concurrency must be between 1 and " + maxConcurrency + '.');
+        }
+        if (root == null) {
+            throw new ResourceNotFoundException("Bulk jobs are disabled.");
+        }
+        if (ModelManager.getInstance().getModel(modelName, modelVersion) == null) {
+            throw new ModelNotFoundException("Model not found: " + modelName);
+        }
+
+        Path inputPath = Path.of(input).toAbsolutePath().normalize();
+        Path outputPath = Path.of(output).toAbsolutePath().normalize();
+        if (!Files.isReadable(inputPath)) {
+            throw new BadRequestException("Input not found: " + input);
+        }
+        if (Files.exists(outputPath, LinkOption.NOFOLLOW_LINKS)) {
+            throw new ConflictStatusException("Output already exists: " + output);
+        }
+        Path parent = outputPath.getParent();
+        if (parent == null || !Files.isDirectory(parent)) {
+            throw new BadRequestException("Output directory does not exist: " + output);
+        }
+        // symbolic links are resolved, they must not lead out of the root either
+        inputPath = toRealPath(inputPath);
+        outputPath = toRealPath(parent).resolve(outputPath.getFileName());
+        if (!inputPath.startsWith(root) || !outputPath.startsWith(root)) {
+            throw new BadRequestException("Input and output must be in " + root + '.');
+        }
+        for (BulkJob job : jobs.values()) {
+            if (!job.isFinished()
+                    && outputPath.toString().equals(job.getDescription().getOutput())) {
+                throw new ConflictStatusException("Output is used by bulk job " + job.getId());
+            }
+        }
+
+        try {
+            Files.createDirectories(jobDir);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create bulk job directory " + jobDir, e);
+        }
+        BulkJob job =
+                new BulkJob(jobDir, modelName, modelVersion, inputPath, outputPath, concurrency);
+        job.saveCheckpoint();
+        jobs.put(job.getId(), job);
+        executor.submit(job);
+        logger.info("Submitted bulk job {} for model {}", job.getId(), modelName);
+        return job.getDescription();
+    }
+
+    public List<DescribeBulkJobResponse> getJobs() {
+        List<DescribeBulkJobResponse> list = new ArrayList<>(jobs.size());
+        for (BulkJob job : jobs.values()) {
+            list.add(job.getDescription());
+        }
+        list.sort(Comparator.comparingLong(DescribeBulkJobResponse::getCreatedTime));
+        return list;
+    }
+
+    public DescribeBulkJobResponse getJob(String jobId) {
+        return findJob(jobId).getDescription();
+    }
+
+    public DescribeBulkJobResponse pauseJob(String jobId) {
+        BulkJob job = findJob(jobId);
+        if (!job.pause()) {
+            throw new ConflictStatusException("Bulk job " + jobId + " is not running.");
+        }
+        job.saveCheckpoint();
+        return job.getDescription();
+    }
+
+    public DescribeBulkJobResponse resumeJob(String jobId) {
+        BulkJob job = findJob(jobId);
+        BulkJob.Status status = job.getStatus();
+        if (status != BulkJob.Status.PAUSED && status != BulkJob.Status.PENDING) {
+            throw new ConflictStatusException("Bulk job " + jobId + " is not paused.");
+        }
+        if (job.resume()) {
+            executor.submit(job);
+        }
+        return job.getDescription();
+    }
+
+    public DescribeBulkJobResponse cancelJob(String jobId) {
+        BulkJob job = findJob(jobId);
+        if (!job.cancel()) {
+            throw new ConflictStatusException("Bulk job " + jobId + " is already finished.");
+        }
+        job.saveCheckpoint();
+        return job.getDescription();
+    }
+
+    /** Removes a finished job and its checkpoint, the output file is kept. */
+    public void deleteJob(String jobId) {
+        BulkJob job = findJob(jobId);
+        if (!job.isFinished()) {
+            throw new ConflictStatusException("Bulk job " + jobId + " is not finished.");
+        }
+        try {
+            job.deleteCheckpoint();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to delete bulk job " + jobId, e);
+        }
+        jobs.remove(jobId);
+    }
+
+    /** Stops the running jobs, they keep their checkpoint and resume on the next start. */
+    public void shutdown() {
+        for (BulkJob job : jobs.values()) {
+            job.stop();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Bulk jobs did not stop in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Resolves the symbolic links in the root once, the paths of the jobs are resolved too. */
+    private static Path resolveRoot(String root) {
+        if (root == null) {
+            return null;
+        }
+        try {
+            return Path.of(root).toRealPath();
+        } catch (IOException e) {
+            logger.warn("Bulk jobs are disabled, failed to resolve bulk_job_root {}", root, e);
+            return null;
+        }
+    }
+
+    private boolean isInRoot(String path) {
+        if (root == null) {
+            return false;
+        }
+        Path file = Path.of(path);
+        if (!Files.exists(file)) {
+            // the output is only created once the job runs
+            file = file.getParent();
+        }
+        try {
+            return file.toRealPath().startsWith(root);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Path toRealPath(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            throw new BadRequestException("Failed to resolve " + path + ": " + e.getMessage());
+        }
+    }
+
+    private BulkJob findJob(String jobId) {
+        BulkJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Bulk job not found: " + jobId);
+        }
+        return job;
+    }
+}
@@ -0,0 +1,95 @@
+package org.pytorch.serve.grpcimpl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.pytorch.serve.util.ConnectorType;
+
+/**
+ * A fixed size executor with a bounded queue running the callbacks of a gRPC server, in place of
+ * the unbounded cached pool gRPC uses by default. Every task records when it was queued so that
+ * {@link GRPCInterceptor} can report how long a call waited for a thread.
+ *
+ * <p>A task rejected by the full queue runs on the calling transport thread, so that the callbacks
+ * of the running calls are never lost. {@link GRPCInterceptor} refuses the calls started by a
+ * rejected task with {@code RESOURCE_EXHAUSTED}.
+ */
+public final class GRPCExecutor extends ThreadPoolExecutor {
+
+    private static final ThreadLocal<Long> QUEUED_AT = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> REJECTED = new ThreadLocal<>();
+
+    private static final RejectedExecutionHandler RUN_REJECTED =
+            (r, executor) -> {
+                if (executor.isShutdown()) {
+                    return;
+                }
+                REJECTED.set(Boolean.TRUE);
+                try {
+                    r.run();
+                } finally {
+                    REJECTED.remove();
+                }
+            };
+
+    private GRPCExecutor(int threads, int queueSize, ThreadFactory threadFactory) {
+        super(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                threadFactory,
+                RUN_REJECTED);
+    }
+
+    /**
+     * Creates the executor of the gRPC server of a connector.
+     *
+     * @param connectorType the connector of the gRPC server
+     * @param threads the number of threads
+     * @param queueSize the maximum number of tasks waiting for a thread
+     * @return the executor
+     */
+    public static ExecutorService newExecutor(
+            ConnectorType connectorType, int threads, int queueSize) {
+        String name =
+                connectorType == ConnectorType.MANAGEMENT_CONNECTOR ? "management" : "inference";
+        return new GRPCExecutor(
+                threads,
+                queueSize,
+                new ThreadFactoryBuilder().setNameFormat("grpc-" + name + "-%d").build());
+    }
+
+    /**
+     * Returns the time in nanoseconds the task running on the calling thread was queued at, or -1
+     * if the calling thread is not a thread of a {@code GRPCExecutor}.
+     */
+    static long getQueuedAt() {
+        Long queuedAt = QUEUED_AT.get();
+        return queuedAt == null ? -1 : queuedAt;
+    }
+
+    /** Returns true if the calling thread runs a task rejected by the full queue. */
+    static boolean isRejected() {
+        return REJECTED.get() != null;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        long queuedAt = System.nanoTime();
+        super.execute(
+                () -> {
+                    QUEUED_AT.set(queuedAt);
+                    try {
+                        command.run();
+                    } finally {
+                        QUEUED_AT.remove();
+                    }
+                });
+    }
+}
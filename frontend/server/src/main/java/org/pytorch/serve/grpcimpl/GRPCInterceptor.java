@@ -7,13 +7,25 @@ import io.grpc.ServerCall;
 import io.grpc.ServerCallHandler;
 import io.grpc.ServerInterceptor;
 import io.grpc.Status;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.pytorch.serve.http.Session;
+import org.pytorch.serve.metrics.IMetric;
+import org.pytorch.serve.metrics.LogEventPipeline;
+import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.MetricHandle;
+import org.pytorch.serve.util.ConfigManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class GRPCInterceptor implements ServerInterceptor {
 
-    private static final Logger logger = LoggerFactory.getLogger("ACCESS_LOG");
+    private static final Logger metricsLogger = LoggerFactory.getLogger(GRPCInterceptor.class);
+
+    /** The metric handles per gRPC method, the methods are fixed by the registered services. */
+    private final ConcurrentMap<String, CallMetrics> callMetrics = new ConcurrentHashMap<>();
 
     @Override
     public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
@@ -22,16 +34,74 @@ public class GRPCInterceptor implements ServerInterceptor {
                 call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR).toString();
         String serviceName = call.getMethodDescriptor().getFullMethodName();
         Session session = new Session(inetSocketString, serviceName);
+        // the interceptor runs in the first task of the call on the server executor
+        long startedAt = System.nanoTime();
+        long queuedAt = GRPCExecutor.getQueuedAt();
+        CallMetrics metrics = callMetrics.get(serviceName);
+        if (metrics == null) {
+            metrics = callMetrics.computeIfAbsent(serviceName, CallMetrics::new);
+        }
+        update(metrics.requests, "ts_grpc_requests_total", 1);
+        update(
+                metrics.queueLatency,
+                "ts_grpc_queue_latency_microseconds",
+                queuedAt < 0 ? 0 : (startedAt - queuedAt) / 1000);
+        MetricHandle latencyMetric = metrics.latency;
+
+        if (GRPCExecutor.isRejected()) {
+            // the queue of the executor is full, the call runs on the transport thread
+            Status status =
+                    Status.RESOURCE_EXHAUSTED.withDescription(
+                            "Too many pending gRPC calls, please retry later.");
+            session.setCode(status.getCode().value());
+            LogEventPipeline.logAccess(session);
+            call.close(status, new Metadata());
+            return new ServerCall.Listener<ReqT>() {};
+        }
 
         return next.startCall(
                 new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
                     @Override
                     public void close(final Status status, final Metadata trailers) {
                         session.setCode(status.getCode().value());
-                        logger.info(session.toString());
+                        LogEventPipeline.logAccess(session);
+                        update(
+                                latencyMetric,
+                                "ts_grpc_latency_microseconds",
+                                (System.nanoTime() - startedAt) / 1000);
                         super.close(status, trailers);
                     }
                 },
                 headers);
     }
+
+    private static void update(MetricHandle metric, String name, double value) {
+        if (metric != null) {
+            try {
+                metric.addOrUpdate(value);
+            } catch (Exception e) {
+                metricsLogger.error("Failed to update frontend metric " + name + ": ", e);
+            }
+        }
+    }
+
+    private static final class CallMetrics {
+
+        private final MetricHandle requests;
+        private final MetricHandle queueLatency;
+        private final MetricHandle latency;
+
+        CallMetrics(String serviceName) {
+            List<String> dimensionValues =
+                    Arrays.asList(serviceName, ConfigManager.getInstance().getHostName());
+            requests = bind("ts_grpc_requests_total", dimensionValues);
+            queueLatency = bind("ts_grpc_queue_latency_microseconds", dimensionValues);
+            latency = bind("ts_grpc_latency_microseconds", dimensionValues);
+        }
+
+        private static MetricHandle bind(String name, List<String> dimensionValues) {
+            IMetric metric = MetricCache.getInstance().getMetricFrontend(name);
+            return metric == null ? null : metric.bind(dimensionValues);
+        }
+    }
 }
@@ -1,32 +1,37 @@
 package org.pytorch.serve.grpcimpl;
 
-import com.google.protobuf.ByteString;
 import com.google.protobuf.Empty;
 import io.grpc.Status;
 import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import java.net.HttpURLConnection;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.pytorch.serve.archive.model.ModelNotFoundException;
 import org.pytorch.serve.archive.model.ModelVersionNotFoundException;
+import org.pytorch.serve.grpc.inference.BatchPredictionItem;
+import org.pytorch.serve.grpc.inference.BatchPredictionsRequest;
+import org.pytorch.serve.grpc.inference.BatchPredictionsResponse;
 import org.pytorch.serve.grpc.inference.InferenceAPIsServiceGrpc.InferenceAPIsServiceImplBase;
 import org.pytorch.serve.grpc.inference.PredictionResponse;
 import org.pytorch.serve.grpc.inference.PredictionsRequest;
 import org.pytorch.serve.grpc.inference.TorchServeHealthResponse;
 import org.pytorch.serve.http.BadRequestException;
 import org.pytorch.serve.http.InternalServerException;
+import org.pytorch.serve.http.ServiceUnavailableException;
 import org.pytorch.serve.http.StatusResponse;
+import org.pytorch.serve.job.BatchItemJob;
 import org.pytorch.serve.job.GRPCJob;
 import org.pytorch.serve.job.Job;
-import org.pytorch.serve.metrics.IMetric;
 import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.MetricHandle;
+import org.pytorch.serve.metrics.RequestTimeline;
 import org.pytorch.serve.util.ApiUtils;
 import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.GRPCUtils;
 import org.pytorch.serve.util.JsonUtils;
-import org.pytorch.serve.util.messages.InputParameter;
 import org.pytorch.serve.util.messages.RequestInput;
 import org.pytorch.serve.util.messages.WorkerCommands;
 import org.pytorch.serve.wlm.Model;
@@ -83,6 +88,101 @@ public class InferenceImpl extends InferenceAPIsServiceImplBase {
         prediction(request, responseObserver, WorkerCommands.STREAMPREDICT);
     }
 
+    @Override
+    public void batchPredictions(
+            BatchPredictionsRequest request,
+            StreamObserver<BatchPredictionsResponse> responseObserver) {
+        ServerCallStreamObserver<BatchPredictionsResponse> serverCallObserver =
+                (ServerCallStreamObserver<BatchPredictionsResponse>) responseObserver;
+        serverCallObserver.setOnCancelHandler(
+                () -> logger.warn("grpc client call already cancelled"));
+        List<PredictionsRequest> requests = request.getRequestsList();
+        if (requests.isEmpty()) {
+            responseObserver.onError(
+                    Status.INVALID_ARGUMENT
+                            .withDescription("Batch request contains no requests.")
+                            .asRuntimeException());
+            return;
+        }
+
+        List<BatchItemJob> jobs = new ArrayList<>(requests.size());
+        CompletableFuture<?>[] results = new CompletableFuture<?>[requests.size()];
+        for (int i = 0; i < requests.size(); ++i) {
+            PredictionsRequest item = requests.get(i);
+            String modelName = item.getModelName();
+            String modelVersion = item.getModelVersion();
+            if ("".equals(modelName)) {
+                modelName = request.getModelName();
+                modelVersion = request.getModelVersion();
+            }
+            if ("".equals(modelVersion)) {
+                modelVersion = null;
+            }
+            RequestInput inputData = new RequestInput(UUID.randomUUID().toString());
+            GRPCUtils.addInputParameters(inputData, item.getInputMap());
+
+            BatchItemJob job;
+            if ("".equals(modelName)) {
+                job = new BatchItemJob(i, modelName, modelVersion, inputData);
+                job.sendError(
+                        HttpURLConnection.HTTP_BAD_REQUEST, "Parameter model_name is required.");
+            } else {
+                updateInferenceRequestsMetric(modelName, modelVersion);
+                job = ApiUtils.addBatchItemJob(i, modelName, modelVersion, inputData);
+            }
+            jobs.add(job);
+            results[i] = job.getResult();
+        }
+
+        CompletableFuture.allOf(results)
+                .thenRun(
+                        () -> {
+                            if (serverCallObserver.isCancelled()) {
+                                return;
+                            }
+                            BatchPredictionsResponse.Builder reply =
+                                    BatchPredictionsResponse.newBuilder();
+                            for (BatchItemJob job : jobs) {
+                                BatchPredictionItem.Builder itemReply =
+                                        BatchPredictionItem.newBuilder()
+                                                .setCorrelationId(
+                                                        requests.get(job.getIndex())
+                                                                .getCorrelationId())
+                                                .setCode(job.getStatusCode());
+                                if (job.isSuccess()) {
+                                    itemReply.setPrediction(
+                                            GRPCUtils.wrapResponse(job.getContent()));
+                                } else if (job.getMessage() != null) {
+                                    itemReply.setMessage(job.getMessage());
+                                }
+                                reply.addResponses(itemReply);
+                            }
+                            responseObserver.onNext(reply.build());
+                            responseObserver.onCompleted();
+                        });
+    }
+
+    static void updateInferenceRequestsMetric(String modelName, String modelVersion) {
+        MetricHandle inferenceRequestsTotalMetric =
+                MetricCache.getInstance()
+                        .getMetricFrontend("ts_inference_requests_total", modelName, modelVersion);
+        if (inferenceRequestsTotalMetric != null) {
+            try {
+                inferenceRequestsTotalMetric.addOrUpdate(1);
+            } catch (Exception e) {
+                logger.error("Failed to update frontend metric ts_inference_requests_total: ", e);
+            }
+        }
+    }
+
+    @Override
+    public StreamObserver<PredictionsRequest> predictionsStream(
+            StreamObserver<PredictionResponse> responseObserver) {
+        return new PredictionsStreamObserver(
+                (ServerCallStreamObserver<PredictionResponse>) responseObserver,
+                ConfigManager.getInstance().getGRPCStreamWindow());
+    }
+
     private void sendErrorResponse(
             StreamObserver<PredictionResponse> responseObserver,
             Status status,
@@ -124,35 +224,23 @@ public class InferenceImpl extends InferenceAPIsServiceImplBase {
 
         String requestId = UUID.randomUUID().toString();
         RequestInput inputData = new RequestInput(requestId);
+        RequestTimeline timeline = RequestTimeline.start(0);
         try {
             ModelManager modelManager = ModelManager.getInstance();
             Model model = modelManager.getModel(modelName, modelVersion);
             if (model == null) {
+                ApiUtils.checkStartupModelLoading(modelName);
                 throw new ModelNotFoundException("Model not found: " + modelName);
             }
             inputData.setClientExpireTS(model.getClientTimeoutInMills());
 
-            for (Map.Entry<String, ByteString> entry : request.getInputMap().entrySet()) {
-                inputData.addParameter(
-                        new InputParameter(entry.getKey(), entry.getValue().toByteArray()));
+            GRPCUtils.addInputParameters(inputData, request.getInputMap());
+            if (timeline != null) {
+                timeline.mark(RequestTimeline.Mark.PARSED);
+                inputData.setTimeline(timeline);
             }
 
-            IMetric inferenceRequestsTotalMetric =
-                    MetricCache.getInstance().getMetricFrontend("ts_inference_requests_total");
-            if (inferenceRequestsTotalMetric != null) {
-                List<String> inferenceRequestsTotalMetricDimensionValues =
-                        Arrays.asList(
-                                modelName,
-                                modelVersion == null ? "default" : modelVersion,
-                                ConfigManager.getInstance().getHostName());
-                try {
-                    inferenceRequestsTotalMetric.addOrUpdate(
-                            inferenceRequestsTotalMetricDimensionValues, 1);
-                } catch (Exception e) {
-                    logger.error(
-                            "Failed to update frontend metric ts_inference_requests_total: ", e);
-                }
-            }
+            updateInferenceRequestsMetric(modelName, modelVersion);
 
             Job job = new GRPCJob(responseObserver, modelName, modelVersion, workerCmd, inputData);
 
@@ -166,6 +254,8 @@ public class InferenceImpl extends InferenceAPIsServiceImplBase {
             }
         } catch (ModelNotFoundException | ModelVersionNotFoundException e) {
             sendErrorResponse(responseObserver, Status.INTERNAL, e, null);
+        } catch (ServiceUnavailableException e) {
+            sendErrorResponse(responseObserver, Status.UNAVAILABLE, e, null);
         }
     }
 }
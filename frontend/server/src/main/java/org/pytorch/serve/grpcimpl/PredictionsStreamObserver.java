@@ -0,0 +1,133 @@
+package org.pytorch.serve.grpcimpl;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.net.HttpURLConnection;
+import java.util.UUID;
+import org.pytorch.serve.grpc.inference.PredictionResponse;
+import org.pytorch.serve.grpc.inference.PredictionsRequest;
+import org.pytorch.serve.job.BatchItemJob;
+import org.pytorch.serve.util.ApiUtils;
+import org.pytorch.serve.util.GRPCUtils;
+import org.pytorch.serve.util.messages.RequestInput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handles the requests of a PredictionsStream call. Every request is queued as an individual job
+ * and answered as soon as it completes, tagged with the correlation id of the request.
+ *
+ * <p>Inbound messages are requested manually: at most {@code window} requests are pulled from the
+ * transport or running at a time, and no new request is pulled while the client does not read the
+ * responses. A slow model or a slow client so pushes back to the sender instead of filling the
+ * model queue.
+ */
+class PredictionsStreamObserver implements StreamObserver<PredictionsRequest> {
+
+    private static final Logger logger = LoggerFactory.getLogger(PredictionsStreamObserver.class);
+
+    private final ServerCallStreamObserver<PredictionResponse> responseObserver;
+    private final int window;
+
+    private int requested;
+    private int running;
+    private int sequence;
+    private boolean halfClosed;
+    private boolean closed;
+
+    PredictionsStreamObserver(
+            ServerCallStreamObserver<PredictionResponse> responseObserver, int window) {
+        this.responseObserver = responseObserver;
+        this.window = Math.max(1, window);
+        responseObserver.disableAutoRequest();
+        responseObserver.setOnReadyHandler(this::requestMore);
+        responseObserver.setOnCancelHandler(this::cancel);
+        requestMore();
+    }
+
+    @Override
+    public void onNext(PredictionsRequest request) {
+        String correlationId = request.getCorrelationId();
+        String modelName = request.getModelName();
+        String modelVersion = request.getModelVersion();
+        if ("".equals(modelVersion)) {
+            modelVersion = null;
+        }
+        RequestInput inputData = new RequestInput(UUID.randomUUID().toString());
+        GRPCUtils.addInputParameters(inputData, request.getInputMap());
+
+        int index;
+        synchronized (this) {
+            index = sequence++;
+            --requested;
+            ++running;
+        }
+        BatchItemJob job;
+        if ("".equals(modelName)) {
+            job = new BatchItemJob(index, modelName, modelVersion, inputData);
+            job.sendError(HttpURLConnection.HTTP_BAD_REQUEST, "Parameter model_name is required.");
+        } else {
+            InferenceImpl.updateInferenceRequestsMetric(modelName, modelVersion);
+            job = ApiUtils.addBatchItemJob(index, modelName, modelVersion, inputData);
+        }
+        job.getResult().thenAccept(j -> sendResponse(correlationId, j));
+    }
+
+    @Override
+    public synchronized void onError(Throwable t) {
+        logger.debug("PredictionsStream closed by the client", t);
+        closed = true;
+    }
+
+    @Override
+    public synchronized void onCompleted() {
+        halfClosed = true;
+        if (running == 0) {
+            complete();
+        }
+    }
+
+    private synchronized void sendResponse(String correlationId, BatchItemJob job) {
+        --running;
+        if (closed) {
+            return;
+        }
+        PredictionResponse.Builder response =
+                PredictionResponse.newBuilder()
+                        .setCorrelationId(correlationId)
+                        .setCode(job.getStatusCode());
+        if (job.isSuccess()) {
+            response.setPrediction(GRPCUtils.wrapResponse(job.getContent()));
+        } else if (job.getMessage() != null) {
+            response.setMessage(job.getMessage());
+        }
+        responseObserver.onNext(response.build());
+        if (halfClosed && running == 0) {
+            complete();
+        } else {
+            requestMore();
+        }
+    }
+
+    /** Pulls requests from the transport up to the window while the client reads responses. */
+    private synchronized void requestMore() {
+        if (closed || halfClosed || !responseObserver.isReady()) {
+            return;
+        }
+        int count = window - requested - running;
+        if (count > 0) {
+            requested += count;
+            responseObserver.request(count);
+        }
+    }
+
+    private synchronized void cancel() {
+        logger.warn("grpc client call already cancelled");
+        closed = true;
+    }
+
+    private void complete() {
+        closed = true;
+        responseObserver.onCompleted();
+    }
+}
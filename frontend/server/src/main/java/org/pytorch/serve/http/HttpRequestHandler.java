@@ -5,12 +5,18 @@ import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.QueryStringDecoder;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 import org.pytorch.serve.archive.DownloadArchiveException;
 import org.pytorch.serve.archive.model.ModelException;
 import org.pytorch.serve.archive.model.ModelNotFoundException;
 import org.pytorch.serve.archive.model.ModelVersionNotFoundException;
 import org.pytorch.serve.archive.workflow.WorkflowNotFoundException;
+import org.pytorch.serve.servingsdk.impl.PluginsManager;
+import org.pytorch.serve.util.ConnectorType;
 import org.pytorch.serve.util.NettyUtils;
+import org.pytorch.serve.util.OffloadExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,7 +28,16 @@ import org.slf4j.LoggerFactory;
 public class HttpRequestHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
 
     private static final Logger logger = LoggerFactory.getLogger(HttpRequestHandler.class);
+
+    /**
+     * Requests of a shared listener that may block and are offloaded from the event loop. Metric
+     * scrapes are rendered on their own thread, see {@code PrometheusScrapeCache}.
+     */
+    private static final Set<String> BLOCKING_PATHS =
+            new HashSet<>(Arrays.asList("models", "workflows", "bulk"));
+
     private HttpRequestHandlerChain handlerChain;
+    private ConnectorType connectorType;
     /** Creates a new {@code HttpRequestHandler} instance. */
     public HttpRequestHandler() {}
 
@@ -30,18 +45,62 @@ public class HttpRequestHandler extends SimpleChannelInboundHandler<FullHttpRequ
         handlerChain = chain;
     }
 
+    public HttpRequestHandler(HttpRequestHandlerChain chain, ConnectorType connectorType) {
+        handlerChain = chain;
+        this.connectorType = connectorType;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest req) {
+        NettyUtils.requestReceived(ctx.channel(), req);
+        QueryStringDecoder decoder = new QueryStringDecoder(req.uri());
+        String path = decoder.path();
+        String[] segments = path.split("/");
+        if (!isBlocking(segments)) {
+            handleRequest(ctx, req, decoder, segments);
+            return;
+        }
+
+        req.retain();
+        try {
+            OffloadExecutor.getInstance()
+                    .execute(
+                            connectorType,
+                            () -> {
+                                try {
+                                    handleRequest(ctx, req, decoder, segments);
+                                } finally {
+                                    req.release();
+                                }
+                            });
+        } catch (ServiceUnavailableException e) {
+            req.release();
+            logger.trace("", e);
+            NettyUtils.sendError(ctx, HttpResponseStatus.SERVICE_UNAVAILABLE, e);
+        }
+    }
+
+    private boolean isBlocking(String[] segments) {
+        if (ConnectorType.MANAGEMENT_CONNECTOR.equals(connectorType)) {
+            return true;
+        }
+        if (!ConnectorType.ALL.equals(connectorType) || segments.length < 2) {
+            return false;
+        }
+        return BLOCKING_PATHS.contains(segments[1])
+                || PluginsManager.getInstance().getManagementEndpoints().containsKey(segments[1]);
+    }
+
+    private void handleRequest(
+            ChannelHandlerContext ctx,
+            FullHttpRequest req,
+            QueryStringDecoder decoder,
+            String[] segments) {
         try {
-            NettyUtils.requestReceived(ctx.channel(), req);
             if (!req.decoderResult().isSuccess()) {
                 throw new BadRequestException("Invalid HTTP message.");
             }
-            QueryStringDecoder decoder = new QueryStringDecoder(req.uri());
-            String path = decoder.path();
-
-            String[] segments = path.split("/");
             handlerChain.handleRequest(ctx, req, decoder, segments);
         } catch (ResourceNotFoundException
                 | ModelNotFoundException
@@ -18,8 +18,9 @@ import org.pytorch.serve.servingsdk.ModelServerEndpointException;
 import org.pytorch.serve.servingsdk.impl.ModelServerContext;
 import org.pytorch.serve.servingsdk.impl.ModelServerRequest;
 import org.pytorch.serve.servingsdk.impl.ModelServerResponse;
+import org.pytorch.serve.util.ConnectorType;
 import org.pytorch.serve.util.NettyUtils;
-import org.pytorch.serve.wlm.ModelManager;
+import org.pytorch.serve.util.OffloadExecutor;
 import org.pytorch.serve.wlm.WorkerInitializationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -126,6 +127,10 @@ public abstract class HttpRequestHandlerChain {
                         logger.error("Unknown exception", e);
                     }
                 };
-        ModelManager.getInstance().submitTask(r);
+        if (OffloadExecutor.isOffloadThread()) {
+            r.run();
+        } else {
+            OffloadExecutor.getInstance().execute(ConnectorType.INFERENCE_CONNECTOR, r);
+        }
     }
 }
@@ -0,0 +1,33 @@
+package org.pytorch.serve.http;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.util.AttributeKey;
+
+/**
+ * Takes the time the headers of each HTTP request were decoded at, the start of its {@link
+ * org.pytorch.serve.metrics.RequestTimeline}. Added behind the HTTP codec of the inference
+ * connectors while request stage timing is enabled.
+ */
+@ChannelHandler.Sharable
+public class RequestTimingHandler extends ChannelInboundHandlerAdapter {
+
+    private static final AttributeKey<Long> RECEIVED_KEY = AttributeKey.valueOf("received");
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof HttpRequest) {
+            ctx.channel().attr(RECEIVED_KEY).set(System.nanoTime());
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    /** Returns the time the headers of the current request were decoded at, 0 if not timed. */
+    public static long getReceived(Channel channel) {
+        Long received = channel.attr(RECEIVED_KEY).get();
+        return received == null ? 0 : received;
+    }
+}
@@ -11,4 +11,14 @@ public class ResourceNotFoundException extends RuntimeException {
     public ResourceNotFoundException() {
         super("Requested resource is not found, please refer to API document.");
     }
+
+    /**
+     * Constructs an {@code ResourceNotFoundException} with the specified detail message.
+     *
+     * @param message The detail message (which is saved for later retrieval by the {@link
+     *     #getMessage()} method)
+     */
+    public ResourceNotFoundException(String message) {
+        super(message);
+    }
 }
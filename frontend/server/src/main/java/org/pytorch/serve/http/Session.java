@@ -13,6 +13,7 @@ public class Session {
     private String protocol;
     private int code;
     private long startTime;
+    private long endTime;
 
     public Session(String remoteIp, HttpRequest request) {
         this.remoteIp = remoteIp;
@@ -52,9 +53,13 @@ public class Session {
         this.code = code;
     }
 
+    public void setEndTime(long endTime) {
+        this.endTime = endTime;
+    }
+
     @Override
     public String toString() {
-        long duration = System.currentTimeMillis() - startTime;
+        long duration = (endTime == 0 ? System.currentTimeMillis() : endTime) - startTime;
         return remoteIp + " \"" + method + " " + uri + ' ' + protocol + "\" " + code + ' '
                 + duration;
     }
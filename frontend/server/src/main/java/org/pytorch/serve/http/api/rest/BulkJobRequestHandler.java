@@ -0,0 +1,108 @@
+package org.pytorch.serve.http.api.rest;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.pytorch.serve.archive.DownloadArchiveException;
+import org.pytorch.serve.archive.model.ModelException;
+import org.pytorch.serve.archive.workflow.WorkflowException;
+import org.pytorch.serve.bulk.BulkJobManager;
+import org.pytorch.serve.http.HttpRequestHandlerChain;
+import org.pytorch.serve.http.MethodNotAllowedException;
+import org.pytorch.serve.http.ResourceNotFoundException;
+import org.pytorch.serve.http.StatusResponse;
+import org.pytorch.serve.util.NettyUtils;
+import org.pytorch.serve.wlm.WorkerInitializationException;
+
+/**
+ * A class handling inbound HTTP requests to the bulk inference jobs API.
+ *
+ * <p>Jobs are submitted with {@code POST /bulk}, described with {@code GET /bulk[/{job_id}]},
+ * paused, resumed or cancelled with {@code PUT /bulk/{job_id}/{action}} and removed once finished
+ * with {@code DELETE /bulk/{job_id}}.
+ */
+public class BulkJobRequestHandler extends HttpRequestHandlerChain {
+
+    private static final int DEFAULT_CONCURRENCY = 8;
+
+    /** Creates a new {@code BulkJobRequestHandler} instance. */
+    public BulkJobRequestHandler() {}
+
+    @Override
+    public void handleRequest(
+            ChannelHandlerContext ctx,
+            FullHttpRequest req,
+            QueryStringDecoder decoder,
+            String[] segments)
+            throws ModelException, DownloadArchiveException, WorkflowException,
+                    WorkerInitializationException {
+        if (!isBulkJobReq(segments)) {
+            chain.handleRequest(ctx, req, decoder, segments);
+            return;
+        }
+
+        BulkJobManager bulkJobManager = BulkJobManager.getInstance();
+        HttpMethod method = req.method();
+        if (segments.length == 2) {
+            if (HttpMethod.GET.equals(method)) {
+                NettyUtils.sendJsonResponse(ctx, bulkJobManager.getJobs());
+            } else if (HttpMethod.POST.equals(method)) {
+                handleSubmitJob(ctx, decoder);
+            } else {
+                throw new MethodNotAllowedException();
+            }
+            return;
+        }
+
+        String jobId = segments[2];
+        if (segments.length == 3) {
+            if (HttpMethod.GET.equals(method)) {
+                NettyUtils.sendJsonResponse(ctx, bulkJobManager.getJob(jobId));
+            } else if (HttpMethod.DELETE.equals(method)) {
+                bulkJobManager.deleteJob(jobId);
+                NettyUtils.sendJsonResponse(
+                        ctx, new StatusResponse("Bulk job \"" + jobId + "\" deleted", 200));
+            } else {
+                throw new MethodNotAllowedException();
+            }
+            return;
+        }
+
+        if (!HttpMethod.PUT.equals(method)) {
+            throw new MethodNotAllowedException();
+        }
+        switch (segments[3]) {
+            case "pause":
+                NettyUtils.sendJsonResponse(ctx, bulkJobManager.pauseJob(jobId));
+                break;
+            case "resume":
+                NettyUtils.sendJsonResponse(ctx, bulkJobManager.resumeJob(jobId));
+                break;
+            case "cancel":
+                NettyUtils.sendJsonResponse(ctx, bulkJobManager.cancelJob(jobId));
+                break;
+            default:
+                throw new ResourceNotFoundException();
+        }
+    }
+
+    private boolean isBulkJobReq(String[] segments) {
+        return segments.length >= 2 && segments.length <= 4 && "bulk".equals(segments[1]);
+    }
+
+    private void handleSubmitJob(ChannelHandlerContext ctx, QueryStringDecoder decoder)
+            throws ModelException {
+        String modelName = NettyUtils.getParameter(decoder, "model_name", null);
+        String modelVersion = NettyUtils.getParameter(decoder, "model_version", null);
+        String input = NettyUtils.getParameter(decoder, "input", null);
+        String output = NettyUtils.getParameter(decoder, "output", null);
+        int concurrency = NettyUtils.getIntParameter(decoder, "concurrency", DEFAULT_CONCURRENCY);
+        NettyUtils.sendJsonResponse(
+                ctx,
+                BulkJobManager.getInstance()
+                        .submitJob(modelName, modelVersion, input, output, concurrency),
+                HttpResponseStatus.ACCEPTED);
+    }
+}
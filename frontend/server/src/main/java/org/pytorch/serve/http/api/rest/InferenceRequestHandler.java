@@ -1,18 +1,28 @@
 package org.pytorch.serve.http.api.rest;
 
+import com.google.gson.JsonObject;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.QueryStringDecoder;
 import io.netty.handler.codec.http.multipart.DefaultHttpDataFactory;
 import io.netty.handler.codec.http.multipart.HttpDataFactory;
 import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder;
 import java.net.HttpURLConnection;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.pytorch.serve.archive.DownloadArchiveException;
 import org.pytorch.serve.archive.model.ModelException;
 import org.pytorch.serve.archive.model.ModelNotFoundException;
@@ -20,14 +30,20 @@ import org.pytorch.serve.archive.model.ModelVersionNotFoundException;
 import org.pytorch.serve.archive.workflow.WorkflowException;
 import org.pytorch.serve.http.BadRequestException;
 import org.pytorch.serve.http.HttpRequestHandlerChain;
+import org.pytorch.serve.http.InternalServerException;
+import org.pytorch.serve.http.RequestTimingHandler;
 import org.pytorch.serve.http.ResourceNotFoundException;
 import org.pytorch.serve.http.StatusResponse;
-import org.pytorch.serve.metrics.IMetric;
+import org.pytorch.serve.http.messages.BatchItemResponse;
+import org.pytorch.serve.job.BatchItemJob;
 import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.MetricHandle;
+import org.pytorch.serve.metrics.RequestTimeline;
 import org.pytorch.serve.openapi.OpenApiUtils;
 import org.pytorch.serve.servingsdk.ModelServerEndpoint;
 import org.pytorch.serve.util.ApiUtils;
 import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.KServeUtils;
 import org.pytorch.serve.util.NettyUtils;
 import org.pytorch.serve.util.messages.InputParameter;
 import org.pytorch.serve.util.messages.RequestInput;
@@ -85,7 +101,11 @@ public class InferenceRequestHandler extends HttpRequestHandlerChain {
                         handleInvocations(ctx, req, decoder, segments);
                         break;
                     case "predictions":
-                        handlePredictions(ctx, req, segments, false);
+                        if (isBatchPredictionsReq(segments)) {
+                            handleBatchPredictions(ctx, req, segments);
+                        } else {
+                            handlePredictions(ctx, req, segments, false);
+                        }
                         break;
                     case "explanations":
                         handlePredictions(ctx, req, segments, true);
@@ -140,6 +160,11 @@ public class InferenceRequestHandler extends HttpRequestHandlerChain {
                 && (segments[4].equals("infer") || segments[4].equals("explain"));
     }
 
+    private boolean isBatchPredictionsReq(String[] segments) {
+        return (segments.length == 4 || segments.length == 5)
+                && "batch".equals(segments[segments.length - 1]);
+    }
+
     private void validatePredictionsEndpoint(String[] segments) {
         if (segments.length == 2 && "invocations".equals(segments[1])) {
             return;
@@ -172,6 +197,44 @@ public class InferenceRequestHandler extends HttpRequestHandlerChain {
         predict(ctx, req, null, segments[2], modelVersion);
     }
 
+    private void handleBatchPredictions(
+            ChannelHandlerContext ctx, FullHttpRequest req, String[] segments)
+            throws ModelNotFoundException, ModelVersionNotFoundException {
+        String modelName = segments[2];
+        String modelVersion = null;
+        if (segments.length == 5) {
+            modelVersion = segments[3];
+        }
+        Model model = ModelManager.getInstance().getModel(modelName, modelVersion);
+        if (model == null) {
+            ApiUtils.checkStartupModelLoading(modelName);
+            throw new ModelNotFoundException("Model not found: " + modelName);
+        }
+
+        List<RequestInput> inputs = parseBatchRequest(req);
+        if (inputs.isEmpty()) {
+            throw new BadRequestException("Batch request contains no inputs.");
+        }
+        updateInferenceRequestsMetric(modelName, modelVersion, inputs.size());
+
+        List<BatchItemJob> jobs = new ArrayList<>(inputs.size());
+        CompletableFuture<?>[] results = new CompletableFuture<?>[inputs.size()];
+        for (int i = 0; i < inputs.size(); ++i) {
+            BatchItemJob job = ApiUtils.addBatchItemJob(i, modelName, modelVersion, inputs.get(i));
+            jobs.add(job);
+            results[i] = job.getResult();
+        }
+        CompletableFuture.allOf(results)
+                .thenRun(
+                        () -> {
+                            List<BatchItemResponse> resp = new ArrayList<>(jobs.size());
+                            for (BatchItemJob job : jobs) {
+                                resp.add(ApiUtils.getBatchItemResponse(job));
+                            }
+                            NettyUtils.sendJsonResponse(ctx, resp);
+                        });
+    }
+
     private void handleKFV1Predictions(
             ChannelHandlerContext ctx, FullHttpRequest req, String[] segments, boolean explain)
             throws ModelNotFoundException, ModelVersionNotFoundException {
@@ -183,6 +246,16 @@ public class InferenceRequestHandler extends HttpRequestHandlerChain {
             req.headers().add("explain", "True");
         }
 
+        if (ConfigManager.getInstance().isKServeSplitRequests()
+                && splitKServePredictions(
+                        ctx,
+                        req,
+                        modelName,
+                        modelVersion,
+                        KServeUtils.V1_REQUEST_FIELD,
+                        KServeUtils.V1_RESPONSE_FIELD)) {
+            return;
+        }
         predict(ctx, req, null, modelName, modelVersion);
     }
 
@@ -197,9 +270,155 @@ public class InferenceRequestHandler extends HttpRequestHandlerChain {
             req.headers().add("explain", "True");
         }
 
+        String headerLength = req.headers().get(KServeUtils.INFERENCE_HEADER_CONTENT_LENGTH);
+        if (headerLength != null) {
+            handleKFV2BinaryPredictions(ctx, req, modelName, modelVersion, headerLength);
+            return;
+        }
+        if (ConfigManager.getInstance().isKServeSplitRequests()
+                && splitKServePredictions(
+                        ctx,
+                        req,
+                        modelName,
+                        modelVersion,
+                        KServeUtils.V2_REQUEST_FIELD,
+                        KServeUtils.V2_RESPONSE_FIELD)) {
+            return;
+        }
         predict(ctx, req, null, modelName, modelVersion);
     }
 
+    /** Handles a KServe v2 request using the binary tensor extension. */
+    private void handleKFV2BinaryPredictions(
+            ChannelHandlerContext ctx,
+            FullHttpRequest req,
+            String modelName,
+            String modelVersion,
+            String headerLength)
+            throws ModelNotFoundException, ModelVersionNotFoundException {
+        Model model = ModelManager.getInstance().getModel(modelName, modelVersion);
+        if (model == null) {
+            ApiUtils.checkStartupModelLoading(modelName);
+            throw new ModelNotFoundException("Model not found: " + modelName);
+        }
+        int length;
+        try {
+            length = Integer.parseInt(headerLength.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException(
+                    "Invalid " + KServeUtils.INFERENCE_HEADER_CONTENT_LENGTH + ": " + headerLength);
+        }
+
+        RequestInput input = new RequestInput(NettyUtils.getRequestId(ctx.channel()));
+        for (Map.Entry<String, String> entry : req.headers().entries()) {
+            input.updateHeaders(entry.getKey().toLowerCase(), entry.getValue());
+        }
+        // the only copy of the request, all tensors are slices of this array
+        byte[] content = NettyUtils.getBytes(req.content());
+        JsonObject header = KServeUtils.parseBinaryRequest(content, length, input);
+        boolean binaryOutput = KServeUtils.isBinaryOutputRequested(header);
+        updateInferenceRequestsMetric(modelName, modelVersion, 1);
+
+        BatchItemJob job = ApiUtils.addBatchItemJob(0, modelName, modelVersion, input);
+        job.getResult()
+                .thenAccept(
+                        item -> {
+                            if (!item.isSuccess()) {
+                                NettyUtils.sendError(
+                                        ctx,
+                                        HttpResponseStatus.valueOf(item.getStatusCode()),
+                                        new InternalServerException(item.getMessage()));
+                                return;
+                            }
+                            FullHttpResponse resp;
+                            if (binaryOutput) {
+                                try {
+                                    resp =
+                                            KServeUtils.encodeBinaryResponse(
+                                                    header, item.getContent());
+                                } catch (InternalServerException e) {
+                                    logger.error("Failed to encode binary response", e);
+                                    NettyUtils.sendError(
+                                            ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR, e);
+                                    return;
+                                }
+                            } else {
+                                resp =
+                                        new DefaultFullHttpResponse(
+                                                HttpVersion.HTTP_1_1,
+                                                HttpResponseStatus.valueOf(item.getStatusCode()),
+                                                Unpooled.wrappedBuffer(item.getContent()));
+                                if (item.getContentType() != null) {
+                                    resp.headers()
+                                            .set(
+                                                    HttpHeaderNames.CONTENT_TYPE,
+                                                    item.getContentType());
+                                }
+                            }
+                            NettyUtils.sendHttpResponse(ctx, resp, true);
+                        });
+    }
+
+    /**
+     * Queues every instance of a KServe request as its own job, so that the instances are batched
+     * together with other requests, and merges the predictions into one response.
+     *
+     * @return false if the request has less than two instances and should be handled as is
+     */
+    private boolean splitKServePredictions(
+            ChannelHandlerContext ctx,
+            FullHttpRequest req,
+            String modelName,
+            String modelVersion,
+            String requestField,
+            String responseField)
+            throws ModelNotFoundException, ModelVersionNotFoundException {
+        Model model = ModelManager.getInstance().getModel(modelName, modelVersion);
+        if (model == null) {
+            ApiUtils.checkStartupModelLoading(modelName);
+            throw new ModelNotFoundException("Model not found: " + modelName);
+        }
+        List<byte[]> instances = KServeUtils.splitRequest(req.content(), requestField);
+        if (instances == null) {
+            return false;
+        }
+        updateInferenceRequestsMetric(modelName, modelVersion, 1);
+
+        List<BatchItemJob> jobs = new ArrayList<>(instances.size());
+        CompletableFuture<?>[] results = new CompletableFuture<?>[instances.size()];
+        for (int i = 0; i < instances.size(); ++i) {
+            RequestInput input = newBatchItemInput(req);
+            input.addParameter(
+                    new InputParameter(
+                            "body", instances.get(i), HttpHeaderValues.APPLICATION_JSON));
+            BatchItemJob job = ApiUtils.addBatchItemJob(i, modelName, modelVersion, input);
+            jobs.add(job);
+            results[i] = job.getResult();
+        }
+        CompletableFuture.allOf(results)
+                .thenRun(
+                        () -> {
+                            for (BatchItemJob job : jobs) {
+                                if (!job.isSuccess()) {
+                                    NettyUtils.sendError(
+                                            ctx,
+                                            HttpResponseStatus.valueOf(job.getStatusCode()),
+                                            new InternalServerException(job.getMessage()));
+                                    return;
+                                }
+                            }
+                            try {
+                                NettyUtils.sendJsonResponse(
+                                        ctx, KServeUtils.mergeResponses(jobs, responseField));
+                            } catch (InternalServerException e) {
+                                logger.error("Failed to merge KServe responses", e);
+                                NettyUtils.sendError(
+                                        ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR, e);
+                            }
+                        });
+        return true;
+    }
+
     private void handleInvocations(
             ChannelHandlerContext ctx,
             FullHttpRequest req,
@@ -242,7 +461,13 @@ public class InferenceRequestHandler extends HttpRequestHandlerChain {
             String modelName,
             String modelVersion)
             throws ModelNotFoundException, ModelVersionNotFoundException {
+        RequestTimeline timeline =
+                RequestTimeline.start(RequestTimingHandler.getReceived(ctx.channel()));
         RequestInput input = parseRequest(ctx, req, decoder);
+        if (timeline != null) {
+            timeline.mark(RequestTimeline.Mark.PARSED);
+            input.setTimeline(timeline);
+        }
         if (modelName == null) {
             modelName = input.getStringParameter("model_name");
             if (modelName == null) {
@@ -252,6 +477,7 @@ public class InferenceRequestHandler extends HttpRequestHandlerChain {
         ModelManager modelManager = ModelManager.getInstance();
         Model model = modelManager.getModel(modelName, modelVersion);
         if (model == null) {
+            ApiUtils.checkStartupModelLoading(modelName);
             throw new ModelNotFoundException("Model not found: " + modelName);
         }
         input.setClientExpireTS(model.getClientTimeoutInMills());
@@ -262,23 +488,79 @@ public class InferenceRequestHandler extends HttpRequestHandlerChain {
             return;
         }
 
-        IMetric inferenceRequestsTotalMetric =
-                MetricCache.getInstance().getMetricFrontend("ts_inference_requests_total");
+        updateInferenceRequestsMetric(modelName, modelVersion, 1);
+
+        ApiUtils.addRESTInferenceJob(ctx, modelName, modelVersion, input);
+    }
+
+    private void updateInferenceRequestsMetric(
+            String modelName, String modelVersion, int numRequests) {
+        MetricHandle inferenceRequestsTotalMetric =
+                MetricCache.getInstance()
+                        .getMetricFrontend("ts_inference_requests_total", modelName, modelVersion);
         if (inferenceRequestsTotalMetric != null) {
-            List<String> inferenceRequestsTotalMetricDimensionValues =
-                    Arrays.asList(
-                            modelName,
-                            modelVersion == null ? "default" : modelVersion,
-                            ConfigManager.getInstance().getHostName());
             try {
-                inferenceRequestsTotalMetric.addOrUpdate(
-                        inferenceRequestsTotalMetricDimensionValues, 1);
+                inferenceRequestsTotalMetric.addOrUpdate(numRequests);
             } catch (Exception e) {
                 logger.error("Failed to update frontend metric ts_inference_requests_total: ", e);
             }
         }
+    }
 
-        ApiUtils.addRESTInferenceJob(ctx, modelName, modelVersion, input);
+    /**
+     * Splits a batch request into one input per item. Multipart requests contribute one item per
+     * form field, any other body is read as JSON lines with one item per non-empty line.
+     */
+    private static List<RequestInput> parseBatchRequest(FullHttpRequest req) {
+        List<RequestInput> inputs = new ArrayList<>();
+        if (HttpPostRequestDecoder.isMultipart(req)) {
+            HttpDataFactory factory =
+                    new DefaultHttpDataFactory(ConfigManager.getInstance().getMaxRequestSize());
+            HttpPostRequestDecoder form = new HttpPostRequestDecoder(factory, req);
+            try {
+                while (form.hasNext()) {
+                    RequestInput input = newBatchItemInput(req);
+                    input.addParameter(NettyUtils.getFormData(form.next()));
+                    inputs.add(input);
+                }
+            } catch (HttpPostRequestDecoder.EndOfDataDecoderException ignore) {
+                logger.trace("End of multipart items.");
+            } finally {
+                form.cleanFiles();
+                form.destroy();
+            }
+            return inputs;
+        }
+
+        ByteBuf content = req.content();
+        int start = content.readerIndex();
+        int end = content.writerIndex();
+        while (start < end) {
+            int eol = content.indexOf(start, end, (byte) '\n');
+            int lineEnd = eol < 0 ? end : eol;
+            int length = lineEnd - start;
+            if (length > 0 && content.getByte(lineEnd - 1) == '\r') {
+                --length;
+            }
+            if (length > 0) {
+                byte[] line = new byte[length];
+                content.getBytes(start, line);
+                RequestInput input = newBatchItemInput(req);
+                input.addParameter(
+                        new InputParameter("body", line, HttpHeaderValues.APPLICATION_JSON));
+                inputs.add(input);
+            }
+            start = lineEnd + 1;
+        }
+        return inputs;
+    }
+
+    private static RequestInput newBatchItemInput(FullHttpRequest req) {
+        RequestInput input = new RequestInput(UUID.randomUUID().toString());
+        for (Map.Entry<String, String> entry : req.headers().entries()) {
+            input.updateHeaders(entry.getKey().toLowerCase(), entry.getValue());
+        }
+        return input;
     }
 
     private static RequestInput parseRequest(
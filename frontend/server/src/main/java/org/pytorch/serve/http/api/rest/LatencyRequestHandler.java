@@ -0,0 +1,47 @@
+package org.pytorch.serve.http.api.rest;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.pytorch.serve.archive.DownloadArchiveException;
+import org.pytorch.serve.archive.model.ModelException;
+import org.pytorch.serve.archive.workflow.WorkflowException;
+import org.pytorch.serve.http.HttpRequestHandlerChain;
+import org.pytorch.serve.http.MethodNotAllowedException;
+import org.pytorch.serve.http.ResourceNotFoundException;
+import org.pytorch.serve.metrics.LatencyTracker;
+import org.pytorch.serve.util.NettyUtils;
+import org.pytorch.serve.wlm.WorkerInitializationException;
+
+/** A class handling inbound HTTP requests for the latency percentiles of the models. */
+public class LatencyRequestHandler extends HttpRequestHandlerChain {
+
+    /** Creates a new {@code LatencyRequestHandler} instance. */
+    public LatencyRequestHandler() {}
+
+    @Override
+    public void handleRequest(
+            ChannelHandlerContext ctx,
+            FullHttpRequest req,
+            QueryStringDecoder decoder,
+            String[] segments)
+            throws ModelException, DownloadArchiveException, WorkflowException,
+                    WorkerInitializationException {
+        if (segments.length != 2 || !"latency".equals(segments[1])) {
+            chain.handleRequest(ctx, req, decoder, segments);
+            return;
+        }
+        if (!HttpMethod.GET.equals(req.method())) {
+            throw new MethodNotAllowedException();
+        }
+
+        LatencyTracker latencyTracker = LatencyTracker.getInstance();
+        if (latencyTracker == null) {
+            throw new ResourceNotFoundException("Latency percentiles are disabled.");
+        }
+        String modelName = NettyUtils.getParameter(decoder, "model_name", null);
+        String modelVersion = NettyUtils.getParameter(decoder, "model_version", null);
+        NettyUtils.sendJsonResponse(ctx, latencyTracker.getLatencies(modelName, modelVersion));
+    }
+}
@@ -1,22 +1,18 @@
 package org.pytorch.serve.http.api.rest;
 
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
-import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.QueryStringDecoder;
-import io.prometheus.client.CollectorRegistry;
-import io.prometheus.client.exporter.common.TextFormat;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import io.netty.util.concurrent.EventExecutor;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -24,6 +20,8 @@ import org.pytorch.serve.archive.DownloadArchiveException;
 import org.pytorch.serve.archive.model.ModelException;
 import org.pytorch.serve.archive.workflow.WorkflowException;
 import org.pytorch.serve.http.HttpRequestHandlerChain;
+import org.pytorch.serve.metrics.format.prometheous.PrometheusScrapeCache;
+import org.pytorch.serve.metrics.format.prometheous.PrometheusScrapeCache.Format;
 import org.pytorch.serve.util.NettyUtils;
 import org.pytorch.serve.wlm.WorkerInitializationException;
 import org.slf4j.Logger;
@@ -34,6 +32,8 @@ public class PrometheusMetricsRequestHandler extends HttpRequestHandlerChain {
     private static final Logger logger =
             LoggerFactory.getLogger(PrometheusMetricsRequestHandler.class);
 
+    private static final int CHUNK_SIZE = 64 * 1024;
+
     /** Creates a new {@code MetricsRequestHandler} instance. */
     public PrometheusMetricsRequestHandler() {
         // TODO: Add plugins manager support
@@ -48,27 +48,43 @@ public class PrometheusMetricsRequestHandler extends HttpRequestHandlerChain {
             throws ModelException, DownloadArchiveException, WorkflowException,
                     WorkerInitializationException {
         if (segments.length >= 2 && "metrics".equals(segments[1])) {
-            ByteBuf resBuf = Unpooled.directBuffer();
             List<String> params =
                     decoder.parameters().getOrDefault("name[]", Collections.emptyList());
-            FullHttpResponse resp;
-            try (OutputStream outputStream = new ByteBufOutputStream(resBuf);
-                    Writer writer = new OutputStreamWriter(outputStream)) {
-                TextFormat.write004(
-                        writer,
-                        CollectorRegistry.defaultRegistry.filteredMetricFamilySamples(
-                                new HashSet<>(params)));
-                resp =
-                        new DefaultFullHttpResponse(
-                                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, resBuf);
-            } catch (IOException e) {
-                logger.error("Exception encountered while reporting metrics");
-                throw new ModelException(e.getMessage(), e);
-            }
-            resp.headers().set(HttpHeaderNames.CONTENT_TYPE, TextFormat.CONTENT_TYPE_004);
-            NettyUtils.sendHttpResponse(ctx, resp, true);
+            Format format = Format.negotiate(req.headers().get(HttpHeaderNames.ACCEPT));
+            boolean gzip =
+                    req.headers()
+                            .containsValue(
+                                    HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderValues.GZIP, true);
+            // the scrape is rendered on a background thread, the response is written on the loop
+            EventExecutor loop = ctx.executor();
+            PrometheusScrapeCache.getInstance()
+                    .getBody(format, new HashSet<>(params), gzip)
+                    .whenComplete(
+                            (body, t) ->
+                                    loop.execute(() -> sendMetrics(ctx, format, gzip, body, t)));
         } else {
             chain.handleRequest(ctx, req, decoder, segments);
         }
     }
+
+    /** Streams the cached scrape in chunks that wrap the shared body without copying it. */
+    private static void sendMetrics(
+            ChannelHandlerContext ctx, Format format, boolean gzip, byte[] body, Throwable t) {
+        if (t != null) {
+            logger.error("Exception encountered while reporting metrics", t);
+            NettyUtils.sendError(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR, t);
+            return;
+        }
+        HttpResponse resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        resp.headers().set(HttpHeaderNames.CONTENT_TYPE, format.getContentType());
+        if (gzip) {
+            resp.headers().set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP);
+        }
+        NettyUtils.sendHttpResponse(ctx, resp, true);
+        for (int offset = 0; offset < body.length; offset += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, body.length - offset);
+            ctx.write(new DefaultHttpContent(Unpooled.wrappedBuffer(body, offset, length)));
+        }
+        ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+    }
 }
@@ -0,0 +1,61 @@
+package org.pytorch.serve.http.messages;
+
+import com.google.gson.JsonElement;
+
+public class BatchItemResponse {
+
+    private int index;
+    private int code;
+    private String message;
+    private String contentType;
+    private String encoding;
+    private JsonElement response;
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public void setCode(int code) {
+        this.code = code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+
+    public JsonElement getResponse() {
+        return response;
+    }
+
+    public void setResponse(JsonElement response) {
+        this.response = response;
+    }
+}
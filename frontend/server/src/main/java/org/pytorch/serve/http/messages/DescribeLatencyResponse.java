@@ -0,0 +1,102 @@
+package org.pytorch.serve.http.messages;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class DescribeLatencyResponse {
+
+    private String modelName;
+    private String modelVersion;
+    private String priority;
+    private int windowSeconds;
+    private Map<String, Latency> latencies;
+
+    public DescribeLatencyResponse() {
+        latencies = new LinkedHashMap<>();
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    public void setModelName(String modelName) {
+        this.modelName = modelName;
+    }
+
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public void setModelVersion(String modelVersion) {
+        this.modelVersion = modelVersion;
+    }
+
+    public String getPriority() {
+        return priority;
+    }
+
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
+
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    public void setWindowSeconds(int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+    }
+
+    public Map<String, Latency> getLatencies() {
+        return latencies;
+    }
+
+    public void addStage(
+            String stage, long count, long p50, long p90, long p99, long p999, long max) {
+        latencies.put(stage, new Latency(count, p50, p90, p99, p999, max));
+    }
+
+    /** Latency percentiles of a stage in microseconds. */
+    public static final class Latency {
+
+        private final long count;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        public Latency(long count, long p50, long p90, long p99, long p999, long max) {
+            this.count = count;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.pytorch.serve.job;
+
+import static org.pytorch.serve.util.messages.RequestInput.TS_STREAM_NEXT;
+
+import java.io.ByteArrayOutputStream;
+import java.net.HttpURLConnection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.pytorch.serve.util.messages.RequestInput;
+import org.pytorch.serve.util.messages.WorkerCommands;
+
+/**
+ * A job for one item of a batch request. Items of a batch are queued as individual jobs so that
+ * they are batched with other traffic at the worker, the caller collects the results from {@link
+ * #getResult()} and answers the client once all items are done.
+ */
+public class BatchItemJob extends Job {
+
+    private final int index;
+    private final CompletableFuture<BatchItemJob> result;
+    private ByteArrayOutputStream chunks;
+    private byte[] content;
+    private int statusCode;
+    private String message;
+    private CharSequence contentType;
+
+    public BatchItemJob(int index, String modelName, String version, RequestInput input) {
+        super(modelName, version, WorkerCommands.PREDICT, input);
+        this.index = index;
+        this.result = new CompletableFuture<>();
+    }
+
+    @Override
+    public synchronized void response(
+            byte[] body,
+            CharSequence contentType,
+            int statusCode,
+            String statusPhrase,
+            Map<String, String> responseHeaders) {
+        if (result.isDone()) {
+            return;
+        }
+        boolean last =
+                responseHeaders == null || !"true".equals(responseHeaders.get(TS_STREAM_NEXT));
+        if (chunks == null && last) {
+            // single response, keep the body of the worker message without copying it
+            content = body;
+        } else {
+            if (chunks == null) {
+                chunks = new ByteArrayOutputStream();
+            }
+            chunks.write(body, 0, body.length);
+            if (!last) {
+                // intermediate chunk of a stream response, wait for the last one
+                return;
+            }
+            content = chunks.toByteArray();
+            chunks = null;
+        }
+        this.contentType = contentType;
+        this.statusCode = statusCode;
+        this.message = statusPhrase;
+        result.complete(this);
+    }
+
+    @Override
+    public synchronized void sendError(int status, String error) {
+        if (result.isDone()) {
+            return;
+        }
+        this.statusCode = status;
+        this.message = error;
+        result.complete(this);
+    }
+
+    public CompletableFuture<BatchItemJob> getResult() {
+        return result;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public synchronized int getStatusCode() {
+        return statusCode;
+    }
+
+    public synchronized boolean isSuccess() {
+        return statusCode >= HttpURLConnection.HTTP_OK
+                && statusCode < HttpURLConnection.HTTP_MULT_CHOICE;
+    }
+
+    public synchronized String getMessage() {
+        return message;
+    }
+
+    public synchronized CharSequence getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the response body. The array is shared with the job and not copied, callers must not
+     * modify it.
+     */
+    public synchronized byte[] getContent() {
+        return content == null ? new byte[0] : content;
+    }
+}
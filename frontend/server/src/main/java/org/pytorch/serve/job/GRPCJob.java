@@ -4,20 +4,20 @@ import static org.pytorch.serve.util.messages.RequestInput.TS_STREAM_NEXT;
 
 import com.google.protobuf.ByteString;
 import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.pytorch.serve.archive.model.ModelNotFoundException;
 import org.pytorch.serve.archive.model.ModelVersionNotFoundException;
 import org.pytorch.serve.grpc.inference.PredictionResponse;
 import org.pytorch.serve.grpc.management.ManagementResponse;
 import org.pytorch.serve.grpcimpl.ManagementImpl;
 import org.pytorch.serve.http.messages.DescribeModelResponse;
-import org.pytorch.serve.metrics.IMetric;
 import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.MetricHandle;
 import org.pytorch.serve.util.ApiUtils;
 import org.pytorch.serve.util.ConfigManager;
 import org.pytorch.serve.util.GRPCUtils;
@@ -30,10 +30,16 @@ import org.slf4j.LoggerFactory;
 public class GRPCJob extends Job {
     private static final Logger logger = LoggerFactory.getLogger(Job.class);
 
-    private final IMetric queueTimeMetric;
-    private final List<String> queueTimeMetricDimensionValues;
+    private final MetricHandle queueTimeMetric;
     private StreamObserver<PredictionResponse> predictionResponseObserver;
     private StreamObserver<ManagementResponse> managementResponseObserver;
+    private ServerCallStreamObserver<PredictionResponse> serverCallObserver;
+    /** Bytes of stream responses queued while the grpc call was not ready. */
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    private final Object writabilityLock = new Object();
+    private volatile boolean aborted;
+    private final long maxBufferedBytes;
 
     public GRPCJob(
             StreamObserver<PredictionResponse> predictionResponseObserver,
@@ -43,9 +49,16 @@ public class GRPCJob extends Job {
             RequestInput input) {
         super(modelName, version, cmd, input);
         this.predictionResponseObserver = predictionResponseObserver;
-        this.queueTimeMetric = MetricCache.getInstance().getMetricFrontend("QueueTime");
-        this.queueTimeMetricDimensionValues =
-                Arrays.asList("Host", ConfigManager.getInstance().getHostName());
+        this.queueTimeMetric = MetricCache.getInstance().getHostMetricFrontend("QueueTime");
+        this.maxBufferedBytes = ConfigManager.getInstance().getMaxStreamBufferSize();
+        if (cmd == WorkerCommands.STREAMPREDICT
+                && predictionResponseObserver instanceof ServerCallStreamObserver) {
+            // The job is created while the rpc method is still executing, the only time the
+            // onReady handler can be registered.
+            serverCallObserver =
+                    (ServerCallStreamObserver<PredictionResponse>) predictionResponseObserver;
+            serverCallObserver.setOnReadyHandler(this::signalWritable);
+        }
     }
 
     public GRPCJob(
@@ -55,9 +68,7 @@ public class GRPCJob extends Job {
             RequestInput input) {
         super(modelName, version, WorkerCommands.DESCRIBE, input);
         this.managementResponseObserver = managementResponseObserver;
-        this.queueTimeMetric = MetricCache.getInstance().getMetricFrontend("QueueTime");
-        this.queueTimeMetricDimensionValues =
-                Arrays.asList("Host", ConfigManager.getInstance().getHostName());
+        this.queueTimeMetric = MetricCache.getInstance().getHostMetricFrontend("QueueTime");
     }
 
     @Override
@@ -68,9 +79,24 @@ public class GRPCJob extends Job {
             String statusPhrase,
             Map<String, String> responseHeaders) {
 
-        ByteString output = ByteString.copyFrom(body);
+        ByteString output = GRPCUtils.wrapResponse(body);
         if (this.getCmd() == WorkerCommands.PREDICT
                 || this.getCmd() == WorkerCommands.STREAMPREDICT) {
+            if (aborted) {
+                logger.debug("Drop stream response for aborted request {}", getJobId());
+                return;
+            }
+            if (serverCallObserver != null && !serverCallObserver.isReady()) {
+                if (bufferedBytes.addAndGet(body.length) > maxBufferedBytes) {
+                    abortStream(
+                            "buffered stream response exceeds "
+                                    + maxBufferedBytes
+                                    + " bytes for a slow client");
+                    return;
+                }
+            } else {
+                bufferedBytes.set(0);
+            }
             PredictionResponse reply =
                     PredictionResponse.newBuilder().setPrediction(output).build();
             predictionResponseObserver.onNext(reply);
@@ -91,13 +117,11 @@ public class GRPCJob extends Job {
                                         getScheduled() - getBegin(), TimeUnit.NANOSECONDS);
                 if (this.queueTimeMetric != null) {
                     try {
-                        this.queueTimeMetric.addOrUpdate(
-                                this.queueTimeMetricDimensionValues, queueTime);
+                        this.queueTimeMetric.addOrUpdate(queueTime);
                     } catch (Exception e) {
                         logger.error("Failed to update frontend metric QueueTime: ", e);
                     }
                 }
-                // TODO Simon: we should probably also add, as we did before the queue priority here
             }
         } else if (this.getCmd() == WorkerCommands.DESCRIBE) {
             try {
@@ -116,8 +140,64 @@ public class GRPCJob extends Job {
         }
     }
 
+    private void signalWritable() {
+        bufferedBytes.set(0);
+        synchronized (writabilityLock) {
+            writabilityLock.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean isWritable() {
+        return serverCallObserver == null
+                || aborted
+                || serverCallObserver.isCancelled()
+                || serverCallObserver.isReady();
+    }
+
+    @Override
+    public long getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    @Override
+    public boolean awaitWritable(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (writabilityLock) {
+            while (!isWritable()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(writabilityLock, remaining);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void abortStream(String reason) {
+        if (aborted || serverCallObserver == null) {
+            return;
+        }
+        aborted = true;
+        logger.warn(
+                "Abort stream response for request {}: {}, buffered bytes: {}",
+                getJobId(),
+                reason,
+                bufferedBytes.get());
+        if (!serverCallObserver.isCancelled()) {
+            predictionResponseObserver.onError(
+                    Status.RESOURCE_EXHAUSTED.withDescription(reason).asRuntimeException());
+        }
+        signalWritable();
+    }
+
     @Override
     public void sendError(int status, String error) {
+        if (aborted) {
+            return;
+        }
         Status responseStatus = GRPCUtils.getGRPCStatusCode(status);
         if (this.getCmd() == WorkerCommands.PREDICT
                 || this.getCmd() == WorkerCommands.STREAMPREDICT) {
@@ -3,6 +3,7 @@ package org.pytorch.serve.job;
 import static org.pytorch.serve.util.messages.RequestInput.TS_STREAM_NEXT;
 
 import java.util.Map;
+import org.pytorch.serve.metrics.RequestTimeline;
 import org.pytorch.serve.util.messages.RequestInput;
 import org.pytorch.serve.util.messages.WorkerCommands;
 import org.pytorch.serve.util.Prioritisable;
@@ -68,6 +69,23 @@ public abstract class Job implements Prioritisable {
 
     public void setScheduled() {
         scheduled = System.nanoTime();
+        RequestTimeline timeline = input.getTimeline();
+        if (timeline != null) {
+            timeline.mark(RequestTimeline.Mark.SCHEDULED, scheduled);
+        }
+    }
+
+    /** Returns the stage timestamps of the job, null if request stage timing is disabled. */
+    public RequestTimeline getTimeline() {
+        return input.getTimeline();
+    }
+
+    /** Takes the timestamp of a stage if request stage timing is enabled. */
+    public void mark(RequestTimeline.Mark mark) {
+        RequestTimeline timeline = input.getTimeline();
+        if (timeline != null) {
+            timeline.mark(mark);
+        }
     }
 
     public long getBegin() {
@@ -78,6 +96,32 @@ public abstract class Job implements Prioritisable {
         return scheduled;
     }
 
+    /**
+     * Returns false while the client of a streaming response can not accept more data without
+     * buffering it in the frontend.
+     */
+    public boolean isWritable() {
+        return true;
+    }
+
+    /** Returns the number of response bytes buffered in the frontend for this job. */
+    public long getBufferedBytes() {
+        return 0;
+    }
+
+    /**
+     * Blocks until the client becomes writable again.
+     *
+     * @param timeoutMs maximum time to wait in milliseconds
+     * @return false if the client is still not writable after timeoutMs
+     */
+    public boolean awaitWritable(long timeoutMs) throws InterruptedException {
+        return true;
+    }
+
+    /** Aborts a streaming response whose client does not keep up with the backend. */
+    public void abortStream(String reason) {}
+
     public abstract void response(
             byte[] body,
             CharSequence contentType,
@@ -4,6 +4,7 @@ import static org.pytorch.serve.util.messages.RequestInput.TS_STREAM_NEXT;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.DefaultHttpContent;
@@ -17,17 +18,16 @@ import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.util.CharsetUtil;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.pytorch.serve.archive.model.ModelNotFoundException;
 import org.pytorch.serve.archive.model.ModelVersionNotFoundException;
 import org.pytorch.serve.http.InternalServerException;
 import org.pytorch.serve.http.messages.DescribeModelResponse;
-import org.pytorch.serve.metrics.IMetric;
 import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.MetricHandle;
 import org.pytorch.serve.util.ApiUtils;
 import org.pytorch.serve.util.ConfigManager;
 import org.pytorch.serve.util.JsonUtils;
@@ -41,11 +41,9 @@ public class RestJob extends Job {
 
     private static final Logger logger = LoggerFactory.getLogger(Job.class);
 
-    private final IMetric inferenceLatencyMetric;
-    private final IMetric queueLatencyMetric;
-    private final List<String> latencyMetricDimensionValues;
-    private final IMetric queueTimeMetric;
-    private final List<String> queueTimeMetricDimensionValues;
+    private final MetricHandle inferenceLatencyMetric;
+    private final MetricHandle queueLatencyMetric;
+    private final MetricHandle queueTimeMetric;
     private ChannelHandlerContext ctx;
     private CompletableFuture<byte[]> responsePromise;
     /**
@@ -53,6 +51,12 @@ public class RestJob extends Job {
      * 1: the first stream response [2, max_integer]: the 2nd and more stream response
      */
     private int numStreams;
+    /** Bytes of streamed chunks handed to netty but not yet written to the client socket. */
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    private final Object writabilityLock = new Object();
+    private volatile boolean aborted;
+    private final long maxBufferedBytes;
 
     public RestJob(
             ChannelHandlerContext ctx,
@@ -62,19 +66,16 @@ public class RestJob extends Job {
             RequestInput input) {
         super(modelName, version, cmd, input);
         this.ctx = ctx;
+        MetricCache metricCache = MetricCache.getInstance();
         this.inferenceLatencyMetric =
-                MetricCache.getInstance().getMetricFrontend("ts_inference_latency_microseconds");
+                metricCache.getMetricFrontend(
+                        "ts_inference_latency_microseconds", getModelName(), getModelVersion());
         this.queueLatencyMetric =
-                MetricCache.getInstance().getMetricFrontend("ts_queue_latency_microseconds");
-        this.latencyMetricDimensionValues =
-                Arrays.asList(
-                        getModelName(),
-                        getModelVersion() == null ? "default" : getModelVersion(),
-                        ConfigManager.getInstance().getHostName());
-        this.queueTimeMetric = MetricCache.getInstance().getMetricFrontend("QueueTime");
-        this.queueTimeMetricDimensionValues =
-                Arrays.asList("Host", ConfigManager.getInstance().getHostName());
+                metricCache.getMetricFrontend(
+                        "ts_queue_latency_microseconds", getModelName(), getModelVersion());
+        this.queueTimeMetric = metricCache.getHostMetricFrontend("QueueTime");
         this.numStreams = 0;
+        this.maxBufferedBytes = ConfigManager.getInstance().getMaxStreamBufferSize();
     }
 
     @Override
@@ -170,17 +171,28 @@ public class RestJob extends Job {
          * by external clients.
          */
         if (ctx != null) {
+            if (aborted) {
+                logger.debug("Drop stream response for aborted request {}", getJobId());
+                return;
+            }
+            if (numStreams != 0 && bufferedBytes.get() + body.length > maxBufferedBytes) {
+                abortStream(
+                        "buffered stream response exceeds "
+                                + maxBufferedBytes
+                                + " bytes for a slow client");
+                return;
+            }
             if (numStreams == 0) { // non-stream response
                 ((DefaultFullHttpResponse) resp).content().writeBytes(body);
                 NettyUtils.sendHttpResponse(ctx, resp, true);
             } else if (numStreams == -1) { // the last response in a stream
-                ctx.writeAndFlush(new DefaultHttpContent(Unpooled.wrappedBuffer(body)));
+                writeStreamChunk(body);
                 ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
             } else if (numStreams == 1) { // the first response in a stream
                 NettyUtils.sendHttpResponse(ctx, resp, true);
-                ctx.writeAndFlush(new DefaultHttpContent(Unpooled.wrappedBuffer(body)));
+                writeStreamChunk(body);
             } else if (numStreams > 1) { // the 2nd+ response in a stream
-                ctx.writeAndFlush(new DefaultHttpContent(Unpooled.wrappedBuffer(body)));
+                writeStreamChunk(body);
             }
         } else if (responsePromise != null) {
             responsePromise.complete(body);
@@ -189,8 +201,7 @@ public class RestJob extends Job {
         if (numStreams <= 0) {
             if (this.inferenceLatencyMetric != null) {
                 try {
-                    this.inferenceLatencyMetric.addOrUpdate(
-                            this.latencyMetricDimensionValues, inferTime / 1000.0);
+                    this.inferenceLatencyMetric.addOrUpdate(inferTime / 1000.0);
                 } catch (Exception e) {
                     logger.error(
                             "Failed to update frontend metric ts_inference_latency_microseconds: ",
@@ -199,9 +210,7 @@ public class RestJob extends Job {
             }
             if (this.queueLatencyMetric != null) {
                 try {
-                    this.queueLatencyMetric.addOrUpdate(
-                            this.latencyMetricDimensionValues,
-                            (getScheduled() - getBegin()) / 1000.0);
+                    this.queueLatencyMetric.addOrUpdate((getScheduled() - getBegin()) / 1000.0);
                 } catch (Exception e) {
                     logger.error(
                             "Failed to update frontend metric ts_queue_latency_microseconds: ", e);
@@ -218,18 +227,86 @@ public class RestJob extends Job {
                                     getScheduled() - getBegin(), TimeUnit.NANOSECONDS);
             if (this.queueTimeMetric != null) {
                 try {
-                    this.queueTimeMetric.addOrUpdate(
-                            this.queueTimeMetricDimensionValues, queueTime);
+                    this.queueTimeMetric.addOrUpdate(queueTime);
                 } catch (Exception e) {
                     logger.error("Failed to update frontend metric QueueTime: ", e);
                 }
             }
-            // TODO Simon: we should probably also add, as we did before the queue priority here
         }
     }
 
+    private void writeStreamChunk(byte[] body) {
+        final int size = body.length;
+        bufferedBytes.addAndGet(size);
+        ctx.writeAndFlush(new DefaultHttpContent(Unpooled.wrappedBuffer(body)))
+                .addListener(
+                        (ChannelFutureListener)
+                                future -> {
+                                    bufferedBytes.addAndGet(-size);
+                                    // The channel writability is only updated after the write
+                                    // promise completes, so signal from a subsequent task.
+                                    future.channel().eventLoop().execute(this::signalWritable);
+                                });
+    }
+
+    private void signalWritable() {
+        synchronized (writabilityLock) {
+            writabilityLock.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean isWritable() {
+        return ctx == null
+                || aborted
+                || !ctx.channel().isActive()
+                || ctx.channel().isWritable();
+    }
+
+    @Override
+    public long getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    @Override
+    public boolean awaitWritable(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (writabilityLock) {
+            while (!isWritable()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(writabilityLock, remaining);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void abortStream(String reason) {
+        if (aborted) {
+            return;
+        }
+        aborted = true;
+        logger.warn(
+                "Abort stream response for request {}: {}, buffered bytes: {}",
+                getJobId(),
+                reason,
+                bufferedBytes.get());
+        if (ctx != null) {
+            // The response headers are already sent, closing the connection is the only way to
+            // tell the client that the stream is incomplete.
+            ctx.close();
+        }
+        signalWritable();
+    }
+
     @Override
     public void sendError(int status, String error) {
+        if (aborted) {
+            return;
+        }
         /*
          * We can load the models based on the configuration file.Since this Job is
          * not driven by the external connections, we could have a empty context for
@@ -0,0 +1,107 @@
+package org.pytorch.serve.metrics;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import java.net.InetSocketAddress;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.Connector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Listens for the metrics of backend workers on a dedicated socket. Workers connect at startup and
+ * send length prefixed binary records, see {@link BackendMetricsDecoder}, in place of the {@code
+ * [METRICS]} lines of their stdout which then remain only as a fallback for workers that cannot
+ * connect.
+ *
+ * <p>The channel runs on its own event loop so that slow metric appenders never delay the
+ * responses of the workers.
+ */
+public final class BackendMetricsChannel {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackendMetricsChannel.class);
+
+    private static final int MAX_FRAME_SIZE = 64 * 1024;
+
+    private static volatile BackendMetricsChannel instance;
+
+    private final Connector connector;
+    private final EventLoopGroup group;
+    private final Channel channel;
+
+    private BackendMetricsChannel(Connector connector, EventLoopGroup group, Channel channel) {
+        this.connector = connector;
+        this.group = group;
+        this.channel = channel;
+    }
+
+    /**
+     * Binds the channel if it is enabled and not bound yet. Workers fall back to their stdout if
+     * the channel cannot be bound.
+     */
+    public static synchronized void start(ConfigManager configManager) {
+        if (instance != null || !configManager.isBackendMetricsChannelEnabled()) {
+            return;
+        }
+        Connector connector = Connector.newBackendMetricsConnector();
+        connector.clean();
+        EventLoopGroup group = Connector.newEventLoopGroup(1);
+        ServerBootstrap b = new ServerBootstrap();
+        b.group(group)
+                .channel(connector.getServerChannel())
+                .childHandler(
+                        new ChannelInitializer<Channel>() {
+                            @Override
+                            public void initChannel(Channel ch) {
+                                ch.pipeline()
+                                        .addLast(
+                                                new LengthFieldBasedFrameDecoder(
+                                                        MAX_FRAME_SIZE, 0, 4, 0, 4),
+                                                new BackendMetricsDecoder(
+                                                        MetricCache.getInstance()
+                                                                ::getMetricBackend));
+                            }
+                        });
+        try {
+            Channel channel = b.bind(connector.getSocketAddress()).sync().channel();
+            instance = new BackendMetricsChannel(connector, group, channel);
+            logger.info("Backend metrics channel bind to: {}", channel.localAddress());
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.warn("Failed to bind the backend metrics channel, using worker stdout.", e);
+            group.shutdownGracefully();
+        }
+    }
+
+    /** Returns the channel, or null if workers report their metrics on stdout. */
+    public static BackendMetricsChannel getInstance() {
+        return instance;
+    }
+
+    public static synchronized void shutdown() {
+        if (instance == null) {
+            return;
+        }
+        instance.channel.close();
+        instance.group.shutdownGracefully();
+        instance.connector.clean();
+        instance = null;
+    }
+
+    public String getSocketType() {
+        return connector.getSocketType();
+    }
+
+    /** Returns the socket path for a unix domain socket, the port on localhost otherwise. */
+    public String getSocketName() {
+        if (connector.isUds()) {
+            return connector.getSocketPath();
+        }
+        return String.valueOf(((InetSocketAddress) channel.localAddress()).getPort());
+    }
+}
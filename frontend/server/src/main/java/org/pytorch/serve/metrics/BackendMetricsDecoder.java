@@ -0,0 +1,73 @@
+package org.pytorch.serve.metrics;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decodes the metric records a backend worker sends on the {@link BackendMetricsChannel} and
+ * updates the backend metrics. Every frame holds one record, all integers are big endian and
+ * strings are prefixed with their length in bytes:
+ *
+ * <pre>
+ * int     length of the metric name, UTF-8 metric name
+ * double  value
+ * int     length of the request ids, UTF-8 request ids, empty if none
+ * int     number of dimension values, the last one being the hostname
+ * int     length of a dimension value, UTF-8 dimension value, repeated
+ * </pre>
+ */
+class BackendMetricsDecoder extends SimpleChannelInboundHandler<ByteBuf> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackendMetricsDecoder.class);
+
+    private final Function<String, IMetric> metrics;
+
+    BackendMetricsDecoder(Function<String, IMetric> metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+        String metricName = readString(frame);
+        double value = frame.readDouble();
+        String requestIds = readString(frame);
+        IMetric metric = metrics.apply(metricName);
+        if (metric == null) {
+            return;
+        }
+        int count = frame.readInt();
+        if (count < 0 || count > frame.readableBytes() / 4) {
+            throw new IllegalArgumentException("Invalid number of dimensions: " + count);
+        }
+        List<String> dimensionValues = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            dimensionValues.add(readString(frame));
+        }
+        try {
+            metric.addOrUpdate(dimensionValues, requestIds.isEmpty() ? null : requestIds, value);
+        } catch (Exception e) {
+            logger.error("Failed to update backend metric " + metricName + ": ", e);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        logger.error("Invalid backend metrics frame, closing the connection.", cause);
+        ctx.close();
+    }
+
+    private static String readString(ByteBuf in) {
+        int len = in.readInt();
+        if (len < 0 || len > in.readableBytes()) {
+            throw new IllegalArgumentException("Invalid string length: " + len);
+        }
+        return in.readCharSequence(len, StandardCharsets.UTF_8).toString();
+    }
+}
@@ -1,13 +1,21 @@
 package org.pytorch.serve.metrics;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public abstract class IMetric {
+
+    /** Maximum number of handles cached per metric. */
+    static final int MAX_CACHED_HANDLES = 1024;
+
     protected MetricBuilder.MetricType type;
     protected String name;
     protected String unit;
     protected List<String> dimensionNames;
+    private final ConcurrentMap<List<String>, MetricHandle> handles;
 
     public IMetric(
             MetricBuilder.MetricType type, String name, String unit, List<String> dimensionNames) {
@@ -15,9 +23,36 @@ public abstract class IMetric {
         this.name = name;
         this.unit = unit;
         this.dimensionNames = new ArrayList<String>(dimensionNames);
+        this.handles = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the handle of the metric for the given dimension values. Handles are cached, binding
+     * the same dimension values again returns the same handle. At most {@link #MAX_CACHED_HANDLES}
+     * handles are cached per metric, so that dimension values of unbounded cardinality don't grow
+     * the cache: beyond it a new handle is returned on every call.
+     *
+     * @param dimensionValues the dimension values, in the order of the dimension names
+     * @return the handle recording values for these dimension values
+     */
+    public MetricHandle bind(List<String> dimensionValues) {
+        MetricHandle handle = handles.get(dimensionValues);
+        if (handle != null) {
+            return handle;
+        }
+        List<String> key = Collections.unmodifiableList(new ArrayList<>(dimensionValues));
+        if (handles.size() >= MAX_CACHED_HANDLES) {
+            return newHandle(key);
+        }
+        return handles.computeIfAbsent(key, this::newHandle);
     }
 
-    public abstract void addOrUpdate(List<String> dimensionValues, double value);
+    /** Creates the handle of the metric for the given dimension values. */
+    protected abstract MetricHandle newHandle(List<String> dimensionValues);
+
+    public void addOrUpdate(List<String> dimensionValues, double value) {
+        bind(dimensionValues).addOrUpdate(value);
+    }
 
     public abstract void addOrUpdate(List<String> dimensionValues, String requestIds, double value);
 }
@@ -0,0 +1,428 @@
+package org.pytorch.serve.metrics;
+
+import io.prometheus.client.Collector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.pytorch.serve.http.messages.DescribeLatencyResponse;
+import org.pytorch.serve.job.Job;
+import org.pytorch.serve.metrics.RequestTimeline.Mark;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.Priority;
+
+/**
+ * Records the queue, backend and end to end latency of inference requests per model version and
+ * priority into HdrHistograms over a sliding time window, and reports their percentiles. While
+ * request stage timing is enabled, the stages of each request's {@link RequestTimeline} are
+ * recorded as well.
+ *
+ * <p>The window is split in slices: values are recorded into a wait free {@link Recorder}, which
+ * is rotated into a ring of slice histograms once per slice. Percentiles cover the completed
+ * slices of the window.
+ */
+public final class LatencyTracker {
+
+    /**
+     * The latencies recorded per request. The stages from HTTP_DECODE to RESPONSE_WRITE span two
+     * marks of the {@link RequestTimeline} and are only recorded while request stage timing is
+     * enabled. The stages from DESERIALIZE on are the processing steps the backend reports in its
+     * responses.
+     */
+    public enum Stage {
+        QUEUE,
+        BACKEND,
+        END_TO_END,
+        HTTP_DECODE(Mark.RECEIVED, Mark.DECODED),
+        PARSE(Mark.DECODED, Mark.PARSED),
+        ENQUEUE(Mark.PARSED, Mark.ENQUEUED),
+        BATCH_WAIT(Mark.ENQUEUED, Mark.SCHEDULED),
+        ENCODE(Mark.SCHEDULED, Mark.ENCODED),
+        SOCKET_WRITE(Mark.ENCODED, Mark.WRITTEN),
+        BACKEND_COMPUTE(Mark.WRITTEN, Mark.REPLIED),
+        RESPONSE_DECODE(Mark.REPLIED, Mark.REPLY_DECODED),
+        RESPONSE_WRITE(Mark.REPLY_DECODED, Mark.COMPLETED),
+        DESERIALIZE("deserialize"),
+        HANDLE("handle"),
+        PREPROCESS("preprocess"),
+        INFERENCE("inference"),
+        POSTPROCESS("postprocess"),
+        SERIALIZE("serialize");
+
+        private final Mark from;
+        private final Mark to;
+        private final String timing;
+
+        Stage() {
+            this(null, null, null);
+        }
+
+        Stage(Mark from, Mark to) {
+            this(from, to, null);
+        }
+
+        Stage(String timing) {
+            this(null, null, timing);
+        }
+
+        Stage(Mark from, Mark to, String timing) {
+            this.from = from;
+            this.to = to;
+            this.timing = timing;
+        }
+
+        /** Returns true for the stages which are only recorded for some requests. */
+        boolean isOptional() {
+            return from != null || timing != null;
+        }
+
+        Mark getFrom() {
+            return from;
+        }
+
+        Mark getTo() {
+            return to;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final int WINDOW_SLICES = 6;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String DEFAULT_VERSION = "default";
+
+    private static LatencyTracker instance;
+
+    private final int windowSeconds;
+    private final ConcurrentMap<String, ConcurrentMap<String, Map<Priority, Stages>>> stages;
+
+    private LatencyTracker(ConfigManager configManager) {
+        windowSeconds = Math.max(WINDOW_SLICES, configManager.getLatencyWindowSeconds());
+        stages = new ConcurrentHashMap<>();
+        ScheduledExecutorService scheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        r -> {
+                            Thread thread = new Thread(r, "latency-tracker");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        long slice = windowSeconds * 1000L / WINDOW_SLICES;
+        scheduler.scheduleAtFixedRate(this::rotate, slice, slice, TimeUnit.MILLISECONDS);
+    }
+
+    public static void init(ConfigManager configManager) {
+        if (!configManager.isLatencyPercentilesEnabled()
+                && !configManager.isRequestStageTimingEnabled()) {
+            return;
+        }
+        instance = new LatencyTracker(configManager);
+        String metricsMode = configManager.getMetricsMode();
+        if (metricsMode != null && metricsMode.toLowerCase(Locale.ROOT).contains("prometheus")) {
+            new SummaryCollector(instance).register();
+        }
+    }
+
+    /** Returns the tracker, or null if latency percentiles are disabled. */
+    public static LatencyTracker getInstance() {
+        return instance;
+    }
+
+    /**
+     * Records the latencies of a completed inference job.
+     *
+     * @param job the job
+     * @param completed the time the job completed at, in nanoseconds
+     */
+    public void record(Job job, long completed) {
+        record(job, completed, Collections.emptyMap());
+    }
+
+    /**
+     * Records the latencies of a completed inference job.
+     *
+     * @param job the job
+     * @param completed the time the job completed at, in nanoseconds
+     * @param timings the durations of the processing steps the backend reported for the job, in
+     *     milliseconds
+     */
+    public void record(Job job, long completed, Map<String, Double> timings) {
+        Stages jobStages = getStages(job.getModelName(), job.getModelVersion(), job.getPriority());
+        jobStages.record(Stage.QUEUE, job.getScheduled() - job.getBegin());
+        jobStages.record(Stage.BACKEND, completed - job.getScheduled());
+        jobStages.record(Stage.END_TO_END, completed - job.getBegin());
+
+        RequestTimeline timeline = job.getTimeline();
+        if (timeline == null && timings.isEmpty()) {
+            return;
+        }
+        for (Stage stage : STAGES) {
+            if (stage.from != null && timeline != null) {
+                long nanos = timeline.getDuration(stage.from, stage.to);
+                if (nanos >= 0) {
+                    jobStages.record(stage, nanos);
+                }
+            } else if (stage.timing != null) {
+                Double durationMs = timings.get(stage.timing);
+                if (durationMs != null) {
+                    jobStages.record(stage, (long) (durationMs * 1_000_000));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the latency percentiles of the sliding window.
+     *
+     * @param modelName the model to report, null for all models
+     * @param modelVersion the model version to report, null for all versions
+     * @return the percentiles per model version and priority
+     */
+    public List<DescribeLatencyResponse> getLatencies(String modelName, String modelVersion) {
+        List<DescribeLatencyResponse> latencies = new ArrayList<>();
+        for (Map.Entry<String, ConcurrentMap<String, Map<Priority, Stages>>> model :
+                stages.entrySet()) {
+            if (modelName != null && !modelName.equals(model.getKey())) {
+                continue;
+            }
+            for (Map.Entry<String, Map<Priority, Stages>> version : model.getValue().entrySet()) {
+                if (modelVersion != null && !modelVersion.equals(version.getKey())) {
+                    continue;
+                }
+                for (Stages priorityStages : version.getValue().values()) {
+                    Histogram[] histograms = new Histogram[Stage.values().length];
+                    for (Stage stage : Stage.values()) {
+                        histograms[stage.ordinal()] = priorityStages.snapshot(stage);
+                    }
+                    if (histograms[Stage.END_TO_END.ordinal()].getTotalCount() == 0) {
+                        continue;
+                    }
+                    DescribeLatencyResponse resp = new DescribeLatencyResponse();
+                    resp.setModelName(model.getKey());
+                    resp.setModelVersion(version.getKey());
+                    resp.setPriority(priorityStages.priority.name());
+                    resp.setWindowSeconds(windowSeconds);
+                    for (Stage stage : Stage.values()) {
+                        Histogram histogram = histograms[stage.ordinal()];
+                        if (stage.isOptional() && histogram.getTotalCount() == 0) {
+                            continue;
+                        }
+                        resp.addStage(
+                                stage.name().toLowerCase(Locale.ROOT),
+                                histogram.getTotalCount(),
+                                histogram.getValueAtPercentile(50),
+                                histogram.getValueAtPercentile(90),
+                                histogram.getValueAtPercentile(99),
+                                histogram.getValueAtPercentile(99.9),
+                                histogram.getMaxValue());
+                    }
+                    latencies.add(resp);
+                }
+            }
+        }
+        return latencies;
+    }
+
+    /**
+     * Drops the latencies of an unregistered model version.
+     *
+     * @param modelName the model
+     * @param modelVersion the unregistered version
+     * @param lastVersion true if no version of the model is left, which drops all latencies of the
+     *     model, also those recorded without a version
+     */
+    public void removeModel(String modelName, String modelVersion, boolean lastVersion) {
+        if (lastVersion) {
+            stages.remove(modelName);
+            return;
+        }
+        ConcurrentMap<String, Map<Priority, Stages>> versions = stages.get(modelName);
+        if (versions != null) {
+            versions.remove(modelVersion);
+        }
+    }
+
+    private Stages getStages(String modelName, String modelVersion, Priority priority) {
+        String version = modelVersion == null ? DEFAULT_VERSION : modelVersion;
+        ConcurrentMap<String, Map<Priority, Stages>> versions = stages.get(modelName);
+        if (versions == null) {
+            versions = stages.computeIfAbsent(modelName, k -> new ConcurrentHashMap<>());
+        }
+        Map<Priority, Stages> priorities = versions.get(version);
+        if (priorities == null) {
+            priorities =
+                    versions.computeIfAbsent(
+                            version,
+                            k -> {
+                                Map<Priority, Stages> map = new EnumMap<>(Priority.class);
+                                for (Priority p : Priority.values()) {
+                                    map.put(p, new Stages(p));
+                                }
+                                return Collections.unmodifiableMap(map);
+                            });
+        }
+        return priorities.get(priority);
+    }
+
+    /** Moves the window by one slice. */
+    void rotate() {
+        for (ConcurrentMap<String, Map<Priority, Stages>> versions : stages.values()) {
+            for (Map<Priority, Stages> priorities : versions.values()) {
+                for (Stages priorityStages : priorities.values()) {
+                    priorityStages.rotate();
+                }
+            }
+        }
+    }
+
+    /** The sliding window histograms of one model version and priority. */
+    private static final class Stages {
+
+        private final Priority priority;
+        private final SlidingHistogram[] histograms;
+
+        Stages(Priority priority) {
+            this.priority = priority;
+            histograms = new SlidingHistogram[Stage.values().length];
+            for (int i = 0; i < histograms.length; ++i) {
+                histograms[i] = new SlidingHistogram();
+            }
+        }
+
+        void record(Stage stage, long nanos) {
+            histograms[stage.ordinal()].record(nanos / 1000);
+        }
+
+        Histogram snapshot(Stage stage) {
+            return histograms[stage.ordinal()].snapshot();
+        }
+
+        void rotate() {
+            for (SlidingHistogram histogram : histograms) {
+                histogram.rotate();
+            }
+        }
+    }
+
+    private static final class SlidingHistogram {
+
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        private final Histogram[] slices = new Histogram[WINDOW_SLICES];
+        private int current;
+
+        void record(long micros) {
+            recorder.recordValue(Math.max(0, micros));
+        }
+
+        synchronized void rotate() {
+            current = (current + 1) % WINDOW_SLICES;
+            // the oldest slice leaves the window, its histogram is reused for the new one
+            slices[current] = recorder.getIntervalHistogram(slices[current]);
+        }
+
+        synchronized Histogram snapshot() {
+            Histogram sum = new Histogram(SIGNIFICANT_DIGITS);
+            for (Histogram slice : slices) {
+                if (slice != null) {
+                    sum.add(slice);
+                }
+            }
+            return sum;
+        }
+    }
+
+    /** Exports the percentiles of the window as Prometheus summaries. */
+    private static final class SummaryCollector extends Collector {
+
+        private static final List<String> LABEL_NAMES =
+                Arrays.asList("model_name", "model_version", "priority");
+        private static final List<String> QUANTILE_LABEL_NAMES =
+                Arrays.asList("model_name", "model_version", "priority", "quantile");
+
+        private final LatencyTracker tracker;
+
+        SummaryCollector(LatencyTracker tracker) {
+            this.tracker = tracker;
+        }
+
+        @Override
+        public List<MetricFamilySamples> collect() {
+            List<MetricFamilySamples> families = new ArrayList<>();
+            for (Stage stage : Stage.values()) {
+                String name =
+                        "ts_"
+                                + stage.name().toLowerCase(Locale.ROOT)
+                                + "_latency_summary_microseconds";
+                List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+                for (Map.Entry<String, ConcurrentMap<String, Map<Priority, Stages>>> model :
+                        tracker.stages.entrySet()) {
+                    for (Map.Entry<String, Map<Priority, Stages>> version :
+                            model.getValue().entrySet()) {
+                        for (Stages priorityStages : version.getValue().values()) {
+                            addSamples(
+                                    samples,
+                                    name,
+                                    Arrays.asList(
+                                            model.getKey(),
+                                            version.getKey(),
+                                            priorityStages.priority.name()),
+                                    priorityStages.snapshot(stage));
+                        }
+                    }
+                }
+                if (stage.isOptional() && samples.isEmpty()) {
+                    continue;
+                }
+                families.add(
+                        new MetricFamilySamples(
+                                name,
+                                Type.SUMMARY,
+                                "Torchserve "
+                                        + stage.name().toLowerCase(Locale.ROOT)
+                                        + " latency over the last "
+                                        + tracker.windowSeconds
+                                        + " seconds with unit: Microseconds",
+                                samples));
+            }
+            return families;
+        }
+
+        private static void addSamples(
+                List<MetricFamilySamples.Sample> samples,
+                String name,
+                List<String> labelValues,
+                Histogram histogram) {
+            if (histogram.getTotalCount() == 0) {
+                return;
+            }
+            for (double quantile : QUANTILES) {
+                List<String> quantileLabelValues = new ArrayList<>(labelValues);
+                quantileLabelValues.add(Collector.doubleToGoString(quantile));
+                samples.add(
+                        new MetricFamilySamples.Sample(
+                                name,
+                                QUANTILE_LABEL_NAMES,
+                                quantileLabelValues,
+                                histogram.getValueAtPercentile(quantile * 100)));
+            }
+            samples.add(
+                    new MetricFamilySamples.Sample(
+                            name + "_count", LABEL_NAMES, labelValues, histogram.getTotalCount()));
+            samples.add(
+                    new MetricFamilySamples.Sample(
+                            name + "_sum",
+                            LABEL_NAMES,
+                            labelValues,
+                            histogram.getMean() * histogram.getTotalCount()));
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.pytorch.serve.metrics;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import org.pytorch.serve.http.Session;
+import org.pytorch.serve.util.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes log metrics and the access log on a background thread. Request threads publish a fixed
+ * layout event holding the value, a timestamp and references to strings prepared ahead, such as
+ * the prefix and dimensions of a bound {@link MetricHandle}, into a bounded ring buffer. The
+ * consumer formats the lines and calls the appenders.
+ *
+ * <p>Publishing never blocks: if the consumer falls behind and the ring is full, the event is
+ * dropped and counted in {@code ts_log_events_dropped_total}.
+ */
+public final class LogEventPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogEventPipeline.class);
+    private static final Logger accessLogger = LoggerFactory.getLogger("ACCESS_LOG");
+
+    static final int FRONTEND_METRIC = 0;
+    static final int BACKEND_METRIC = 1;
+    static final int ACCESS = 2;
+
+    private static LogEventPipeline instance;
+
+    private final Disruptor<LogEvent> disruptor;
+    private final RingBuffer<LogEvent> ringBuffer;
+    private final LongAdder dropped = new LongAdder();
+
+    LogEventPipeline(int bufferSize) {
+        disruptor =
+                new Disruptor<>(
+                        LogEvent::new,
+                        ceilingPowerOfTwo(bufferSize),
+                        r -> {
+                            Thread thread = new Thread(r, "log-event-pipeline");
+                            thread.setDaemon(true);
+                            return thread;
+                        },
+                        ProducerType.MULTI,
+                        new SleepingWaitStrategy());
+        disruptor.handleEventsWith(new Consumer());
+        ringBuffer = disruptor.start();
+    }
+
+    public static void init(ConfigManager configManager) {
+        if (configManager.isLogEventPipelineEnabled()) {
+            instance = new LogEventPipeline(configManager.getLogEventBufferSize());
+        }
+    }
+
+    /** Writes the events still in the ring and stops the consumer. */
+    public static void shutdown() {
+        if (instance == null) {
+            return;
+        }
+        instance.stop();
+        instance = null;
+    }
+
+    /** Writes the access log line of a completed request. */
+    public static void logAccess(Session session) {
+        if (!accessLogger.isInfoEnabled()) {
+            return;
+        }
+        session.setEndTime(System.currentTimeMillis());
+        LogEventPipeline pipeline = instance;
+        if (pipeline == null) {
+            accessLogger.info(session.toString());
+        } else {
+            pipeline.publish(ACCESS, session, null, null, 0, 0);
+        }
+    }
+
+    static void logFrontendMetric(String prefix, double value, String dimensions) {
+        long time = System.currentTimeMillis();
+        LogEventPipeline pipeline = instance;
+        if (pipeline == null) {
+            LogMetric.logFrontendMetric(prefix, value, dimensions, time);
+        } else {
+            pipeline.publish(FRONTEND_METRIC, prefix, dimensions, null, value, time);
+        }
+    }
+
+    static void logBackendMetric(
+            LogMetric metric, List<String> dimensionValues, String requestIds, double value) {
+        long time = System.currentTimeMillis();
+        LogEventPipeline pipeline = instance;
+        if (pipeline == null) {
+            metric.logBackendMetric(dimensionValues, requestIds, value, time);
+        } else {
+            pipeline.publish(BACKEND_METRIC, metric, requestIds, dimensionValues, value, time);
+        }
+    }
+
+    /** Writes the events still in the ring and stops the consumer of this pipeline. */
+    void stop() {
+        try {
+            disruptor.shutdown(5, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Log events were lost on shutdown.");
+            disruptor.halt();
+        }
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+
+    long getRemainingCapacity() {
+        return ringBuffer.remainingCapacity();
+    }
+
+    void publish(
+            int type,
+            Object source,
+            String text,
+            List<String> dimensionValues,
+            double value,
+            long time) {
+        long sequence;
+        try {
+            sequence = ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            dropped.increment();
+            return;
+        }
+        try {
+            LogEvent event = ringBuffer.get(sequence);
+            event.type = type;
+            event.source = source;
+            event.text = text;
+            event.dimensionValues = dimensionValues;
+            event.value = value;
+            event.time = time;
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    private static int ceilingPowerOfTwo(int size) {
+        int bufferSize = Integer.highestOneBit(Math.max(2, size));
+        return bufferSize < size ? bufferSize << 1 : bufferSize;
+    }
+
+    /** A slot of the ring, reused for every event written to it. */
+    private static final class LogEvent {
+
+        private int type;
+        private Object source;
+        private String text;
+        private List<String> dimensionValues;
+        private double value;
+        private long time;
+
+        void clear() {
+            source = null;
+            text = null;
+            dimensionValues = null;
+        }
+    }
+
+    private final class Consumer implements EventHandler<LogEvent> {
+
+        private long reported;
+
+        @Override
+        public void onEvent(LogEvent event, long sequence, boolean endOfBatch) {
+            try {
+                switch (event.type) {
+                    case FRONTEND_METRIC:
+                        LogMetric.logFrontendMetric(
+                                (String) event.source, event.value, event.text, event.time);
+                        break;
+                    case BACKEND_METRIC:
+                        ((LogMetric) event.source)
+                                .logBackendMetric(
+                                        event.dimensionValues, event.text, event.value, event.time);
+                        break;
+                    default:
+                        accessLogger.info(event.source.toString());
+                        break;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to write log event: ", e);
+            } finally {
+                event.clear();
+            }
+            if (endOfBatch) {
+                reportDropped();
+            }
+        }
+
+        private void reportDropped() {
+            long total = dropped.sum();
+            if (total == reported) {
+                return;
+            }
+            MetricCache metricCache = MetricCache.getInstance();
+            MetricHandle metric =
+                    metricCache == null
+                            ? null
+                            : metricCache.getHostMetricFrontend("ts_log_events_dropped_total");
+            if (metric != null) {
+                try {
+                    metric.addOrUpdate(total - reported);
+                } catch (Exception e) {
+                    logger.error(
+                            "Failed to update frontend metric ts_log_events_dropped_total: ", e);
+                }
+            }
+            reported = total;
+        }
+    }
+}
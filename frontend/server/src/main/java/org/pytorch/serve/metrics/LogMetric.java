@@ -1,9 +1,7 @@
 package org.pytorch.serve.metrics;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 import org.pytorch.serve.util.ConfigManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,53 +22,64 @@ public class LogMetric extends IMetric {
     }
 
     @Override
-    public void addOrUpdate(List<String> dimensionValues, double value) {
+    protected MetricHandle newHandle(List<String> dimensionValues) {
         // Used for logging frontend metrics
-        String metricString = this.buildMetricString(dimensionValues, value);
-        loggerTsMetrics.info(metricString);
+        String prefix = this.name + '.' + this.unit + ':';
+        String dimensions = this.buildDimensionString(dimensionValues);
+        return value -> LogEventPipeline.logFrontendMetric(prefix, value, dimensions);
+    }
+
+    @Override
+    public void addOrUpdate(List<String> dimensionValues, double value) {
+        // Don't cache a handle for every dimension values logged, log metrics keep no state
+        newHandle(dimensionValues).addOrUpdate(value);
     }
 
     @Override
     public void addOrUpdate(List<String> dimensionValues, String requestIds, double value) {
         // Used for logging backend metrics
-        String metricString = this.buildMetricString(dimensionValues, requestIds, value);
-        loggerModelMetrics.info(metricString);
+        LogEventPipeline.logBackendMetric(this, dimensionValues, requestIds, value);
     }
 
-    private String buildMetricString(List<String> dimensionValues, double value) {
-        StringBuilder metricStringBuilder = new StringBuilder();
-        metricStringBuilder
-                .append(this.name)
-                .append('.')
-                .append(this.unit)
-                .append(':')
-                .append(value)
-                .append("|#");
+    static void logFrontendMetric(String prefix, double value, String dimensions, long time) {
+        loggerTsMetrics.info(
+                "{}{}{},timestamp:{}",
+                prefix,
+                value,
+                dimensions,
+                TimeUnit.MILLISECONDS.toSeconds(time));
+    }
+
+    void logBackendMetric(
+            List<String> dimensionValues, String requestIds, double value, long time) {
+        loggerModelMetrics.info(buildMetricString(dimensionValues, requestIds, value, time));
+    }
+
+    private String buildDimensionString(List<String> dimensionValues) {
+        StringBuilder dimensionStringBuilder = new StringBuilder("|#");
 
         // Exclude the final dimension which is expected to be Hostname
         int dimensionsCount = Math.min(this.dimensionNames.size() - 1, dimensionValues.size() - 1);
-        List<String> dimensions = new ArrayList<String>();
         for (int index = 0; index < dimensionsCount; index++) {
-            dimensions.add(this.dimensionNames.get(index) + ":" + dimensionValues.get(index));
+            if (index > 0) {
+                dimensionStringBuilder.append(',');
+            }
+            dimensionStringBuilder
+                    .append(this.dimensionNames.get(index))
+                    .append(':')
+                    .append(dimensionValues.get(index));
         }
-        metricStringBuilder.append(dimensions.stream().collect(Collectors.joining(",")));
 
         // The final dimension is expected to be Hostname
-        metricStringBuilder
+        dimensionStringBuilder
                 .append("|#hostname:")
                 .append(dimensionValues.get(dimensionValues.size() - 1));
 
-        metricStringBuilder
-                .append(",timestamp:")
-                .append(
-                        String.valueOf(
-                                TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())));
-
-        return metricStringBuilder.toString();
+        return dimensionStringBuilder.toString();
     }
 
     private String buildMetricString(
-            List<String> dimensionValues, String requestIds, double value) {
+            List<String> dimensionValues, String requestIds, double value, long time) {
         StringBuilder metricStringBuilder = new StringBuilder();
         metricStringBuilder
                 .append(this.name)
@@ -78,28 +87,13 @@ public class LogMetric extends IMetric {
                 .append(this.unit)
                 .append(':')
                 .append(value)
-                .append("|#");
-
-        // Exclude the final dimension which is expected to be Hostname
-        int dimensionsCount = Math.min(this.dimensionNames.size() - 1, dimensionValues.size() - 1);
-        List<String> dimensions = new ArrayList<String>();
-        for (int index = 0; index < dimensionsCount; index++) {
-            dimensions.add(this.dimensionNames.get(index) + ":" + dimensionValues.get(index));
-        }
-        metricStringBuilder.append(dimensions.stream().collect(Collectors.joining(",")));
-
-        // The final dimension is expected to be Hostname
-        metricStringBuilder
-                .append("|#hostname:")
-                .append(dimensionValues.get(dimensionValues.size() - 1));
+                .append(buildDimensionString(dimensionValues));
 
         metricStringBuilder.append(",requestID:").append(requestIds);
 
         metricStringBuilder
                 .append(",timestamp:")
-                .append(
-                        String.valueOf(
-                                TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())));
+                .append(TimeUnit.MILLISECONDS.toSeconds(time));
 
         return metricStringBuilder.toString();
     }
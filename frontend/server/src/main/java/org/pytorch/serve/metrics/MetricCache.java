@@ -1,6 +1,7 @@
 package org.pytorch.serve.metrics;
 
 import java.io.FileNotFoundException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -16,10 +17,14 @@ public final class MetricCache {
     private MetricConfiguration config;
     private ConcurrentMap<String, IMetric> metricsFrontend;
     private ConcurrentMap<String, IMetric> metricsBackend;
+    private ConcurrentMap<String, ModelMetricHandles> modelHandlesFrontend;
+    private List<String> hostDimensionValues;
 
     private MetricCache() throws FileNotFoundException {
         this.metricsFrontend = new ConcurrentHashMap<String, IMetric>();
         this.metricsBackend = new ConcurrentHashMap<String, IMetric>();
+        this.modelHandlesFrontend = new ConcurrentHashMap<String, ModelMetricHandles>();
+        this.hostDimensionValues = Arrays.asList("Host", ConfigManager.getInstance().getHostName());
 
         String metricsConfigPath = ConfigManager.getInstance().getMetricsConfigPath();
         try {
@@ -110,6 +115,43 @@ public final class MetricCache {
         return metricsFrontend.get(metricName);
     }
 
+    /**
+     * Returns the handle of a frontend metric with the dimensions model_name, model_version and
+     * hostname for a model version. Handles are cached per model version.
+     *
+     * @param metricName the name of the metric
+     * @param modelName the name of the model
+     * @param modelVersion the version of the model, null for the default version
+     * @return the handle, or null if the metric is not configured
+     */
+    public MetricHandle getMetricFrontend(
+            String metricName, String modelName, String modelVersion) {
+        ModelMetricHandles handles = modelHandlesFrontend.get(metricName);
+        if (handles == null) {
+            IMetric metric = metricsFrontend.get(metricName);
+            if (metric == null) {
+                return null;
+            }
+            String hostName = ConfigManager.getInstance().getHostName();
+            handles =
+                    modelHandlesFrontend.computeIfAbsent(
+                            metricName, k -> new ModelMetricHandles(metric, hostName));
+        }
+        return handles.get(modelName, modelVersion);
+    }
+
+    /**
+     * Returns the handle of a frontend metric with the dimensions Level and Hostname for the Host
+     * level.
+     *
+     * @param metricName the name of the metric
+     * @return the handle, or null if the metric is not configured
+     */
+    public MetricHandle getHostMetricFrontend(String metricName) {
+        IMetric metric = metricsFrontend.get(metricName);
+        return metric == null ? null : metric.bind(hostDimensionValues);
+    }
+
     public IMetric getMetricBackend(String metricName) {
         return metricsBackend.get(metricName);
     }
@@ -6,124 +6,387 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.IOUtils;
 import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.DeviceTelemetry;
 import org.pytorch.serve.util.messages.EnvironmentUtils;
-import org.pytorch.serve.wlm.ModelVersionedRefs;
 import org.pytorch.serve.wlm.ModelManager;
 import org.pytorch.serve.wlm.WorkerThread;
-import org.pytorch.serve.wlm.Model;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Collects the host metrics and the CPU and memory usage of the frontend and of every worker
+ * process. On Linux the metrics are read from /proc and the cgroup of the model server, so that
+ * memory and CPU utilization are relative to the limits of a container, and the GPU metrics are
+ * taken from the {@link DeviceTelemetry}. The Python collector is only run for the GPU metrics if
+ * the telemetry has none, and collects all metrics on other platforms.
+ */
 public class MetricCollector implements Runnable {
 
     private static final Logger logger = LoggerFactory.getLogger(MetricCollector.class);
+
+    private static final String FRONTEND_NAME = "frontend";
+    private static final double MB = 1024 * 1024;
+    private static final double GB = 1024 * 1024 * 1024;
+
     private final MetricCache metricCache;
     private ConfigManager configManager;
+    private final ProcFileSystem procFs;
+    private final long frontendPid;
+
+    private long[] lastCpuTimes;
+    private long lastCgroupCpuUsage = -1;
+    private long lastCgroupSampled;
+    private long[] lastDiskBytes;
+    private long lastDiskSampled;
+    private Map<Long, long[]> lastProcessTicks = new HashMap<>();
+    /** The handles of the Host level metrics, bound on their first sample. */
+    private final Map<String, MetricHandle> hostMetrics = new HashMap<>();
 
     public MetricCollector(ConfigManager configManager) {
         this.configManager = configManager;
         this.metricCache = MetricCache.getInstance();
+        this.procFs = new ProcFileSystem(Paths.get("/"));
+        this.frontendPid = ProcessHandle.current().pid();
     }
 
     @Override
     public void run() {
+        // an exception would cancel the next runs of the collector
         try {
-            // TODO Simon: there was previously something related to metrics here, we might add it back
-
-            // Collect System level Metrics
-            String[] args = new String[4];
-            args[0] = configManager.getPythonExecutable();
-            args[1] = "ts/metrics/metric_collector.py";
-            args[2] = "--gpu";
-            args[3] = String.valueOf(ConfigManager.getInstance().getNumberOfGpu());
-            File workingDir = new File(configManager.getModelServerHome());
-
-            String[] envp = EnvironmentUtils.getEnvString(workingDir.getAbsolutePath(), null, null);
-            final Process p = Runtime.getRuntime().exec(args, envp, workingDir); // NOPMD
-            ModelManager modelManager = ModelManager.getInstance();
-            Map<Integer, WorkerThread> workerMap = modelManager.getWorkers();
-            try (OutputStream os = p.getOutputStream()) {
+            Map<Integer, WorkerThread> workerMap = ModelManager.getInstance().getWorkers();
+            List<Metric> metricsSystem = new ArrayList<>();
+            if (procFs.isAvailable()) {
+                collectHostMetrics(metricsSystem);
+                collectProcessMetrics(workerMap, metricsSystem);
+                if (configManager.getNumberOfGpu() > 0 && !collectGpuMetrics(metricsSystem)) {
+                    runPythonCollector(true, workerMap, metricsSystem);
+                }
+            } else {
+                runPythonCollector(false, workerMap, metricsSystem);
+            }
+            MetricManager.getInstance().setMetrics(metricsSystem);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to collect system metrics", e);
+        }
+    }
+
+    private void collectHostMetrics(List<Metric> metrics) {
+        long now = System.nanoTime();
+        double cpuUtilization = getCpuUtilization(now);
+        if (cpuUtilization >= 0) {
+            publishHost(metrics, "CPUUtilization", cpuUtilization, "Percent");
+        }
+
+        long[] memory = procFs.readMemory();
+        if (memory != null) {
+            long total = memory[0];
+            long used = total - memory[1];
+            long[] cgroupMemory = procFs.readCgroupMemory();
+            if (cgroupMemory != null) {
+                total = Math.min(total, cgroupMemory[0]);
+                used = Math.min(total, cgroupMemory[1]);
+            }
+            publishHost(metrics, "MemoryUsed", used / MB, "Megabytes");
+            publishHost(metrics, "MemoryAvailable", (total - used) / MB, "Megabytes");
+            publishHost(metrics, "MemoryUtilization", used * 100.0 / total, "Percent");
+        }
+
+        File root = new File("/");
+        long diskTotal = root.getTotalSpace();
+        if (diskTotal > 0) {
+            long diskUsed = diskTotal - root.getFreeSpace();
+            long diskAvailable = root.getUsableSpace();
+            publishHost(metrics, "DiskUsage", diskUsed / GB, "Gigabytes");
+            publishHost(metrics, "DiskAvailable", diskAvailable / GB, "Gigabytes");
+            // like df, the space reserved for root does not count as available
+            double diskUtilization = diskUsed * 100.0 / (diskUsed + diskAvailable);
+            publishHost(metrics, "DiskUtilization", diskUtilization, "Percent");
+        }
+
+        long[] diskBytes = procFs.readDiskBytes();
+        if (diskBytes != null) {
+            if (lastDiskBytes != null) {
+                double seconds = (now - lastDiskSampled) / (double) TimeUnit.SECONDS.toNanos(1);
+                double read = Math.max(0, diskBytes[0] - lastDiskBytes[0]) / seconds;
+                double written = Math.max(0, diskBytes[1] - lastDiskBytes[1]) / seconds;
+                publishHost(metrics, "DiskReadBytesPerSecond", read, "Bytes");
+                publishHost(metrics, "DiskWriteBytesPerSecond", written, "Bytes");
+            }
+            lastDiskBytes = diskBytes;
+            lastDiskSampled = now;
+        }
+    }
+
+    /** Publishes the GPU metrics from the device telemetry, returns false if not available. */
+    private boolean collectGpuMetrics(List<Metric> metrics) {
+        DeviceTelemetry telemetry = DeviceTelemetry.getInstance();
+        List<DeviceTelemetry.DeviceStats> devices =
+                telemetry == null ? Collections.emptyList() : telemetry.getDevices();
+        if (devices.isEmpty()) {
+            return false;
+        }
+        String hostName = configManager.getHostName();
+        Dimension level = new Dimension("Level", "Host");
+        for (DeviceTelemetry.DeviceStats device : devices) {
+            Dimension deviceId = new Dimension("DeviceId", String.valueOf(device.getIndex()));
+            if (device.getMemoryUsed() >= 0 && device.getMemoryTotal() > 0) {
+                double utilization = device.getMemoryUsed() * 100.0 / device.getMemoryTotal();
+                publish(
+                        metrics,
+                        new Metric(
+                                "GPUMemoryUtilization",
+                                format(utilization),
+                                "Percent",
+                                hostName,
+                                level,
+                                deviceId));
+                publish(
+                        metrics,
+                        new Metric(
+                                "GPUMemoryUsed",
+                                String.valueOf(device.getMemoryUsed()),
+                                "Megabytes",
+                                hostName,
+                                level,
+                                deviceId));
+            }
+            if (device.getUtilizationGpu() >= 0) {
+                publish(
+                        metrics,
+                        new Metric(
+                                "GPUUtilization",
+                                String.valueOf(device.getUtilizationGpu()),
+                                "Percent",
+                                hostName,
+                                level,
+                                deviceId));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the CPU utilization since the last run, relative to the CPU quota of the cgroup if
+     * one is set. The first run returns the average utilization of the host since boot.
+     */
+    private double getCpuUtilization(long now) {
+        double cpuLimit = procFs.readCgroupCpuLimit();
+        if (cpuLimit > 0) {
+            long usage = procFs.readCgroupCpuUsage();
+            long lastUsage = lastCgroupCpuUsage;
+            long lastSampled = lastCgroupSampled;
+            lastCgroupCpuUsage = usage;
+            lastCgroupSampled = now;
+            if (usage >= 0 && lastUsage >= 0) {
+                double utilization = (usage - lastUsage) * 100.0 / ((now - lastSampled) * cpuLimit);
+                return Math.min(100, Math.max(0, utilization));
+            }
+        }
+
+        long[] cpuTimes = procFs.readCpuTimes();
+        if (cpuTimes == null) {
+            return -1;
+        }
+        long[] last = lastCpuTimes;
+        lastCpuTimes = cpuTimes;
+        if (last == null || cpuTimes[1] <= last[1]) {
+            return cpuTimes[1] == 0 ? 0 : cpuTimes[0] * 100.0 / cpuTimes[1];
+        }
+        return (cpuTimes[0] - last[0]) * 100.0 / (cpuTimes[1] - last[1]);
+    }
+
+    private void collectProcessMetrics(Map<Integer, WorkerThread> workerMap, List<Metric> metrics) {
+        long now = System.nanoTime();
+        Map<Long, long[]> processTicks = new HashMap<>();
+        collectProcessMetrics(frontendPid, FRONTEND_NAME, now, processTicks, metrics);
+        for (Map.Entry<Integer, WorkerThread> entry : workerMap.entrySet()) {
+            int pid = entry.getKey();
+            if (pid < 0) {
+                logger.warn("worker pid is not available yet.");
+                continue;
+            }
+            WorkerThread worker = entry.getValue();
+            long rss =
+                    collectProcessMetrics(pid, worker.getWorkerName(), now, processTicks, metrics);
+            if (rss >= 0) {
+                worker.setMemory(rss);
+            }
+        }
+        // the samples of exited processes are dropped
+        lastProcessTicks = processTicks;
+    }
+
+    /** Publishes the metrics of a process and returns its resident set size in bytes. */
+    private long collectProcessMetrics(
+            long pid,
+            String name,
+            long now,
+            Map<Long, long[]> processTicks,
+            List<Metric> metrics) {
+        String hostName = configManager.getHostName();
+        Dimension workerName = new Dimension("WorkerName", name);
+        Dimension level = new Dimension("Level", "Host");
+
+        long ticks = procFs.readProcessCpuTicks(pid);
+        if (ticks >= 0) {
+            long[] last = lastProcessTicks.get(pid);
+            if (last != null && ticks >= last[0]) {
+                double seconds = (now - last[1]) / (double) TimeUnit.SECONDS.toNanos(1);
+                double utilization =
+                        (ticks - last[0]) * 100.0 / ProcFileSystem.CLOCK_TICKS / seconds;
+                publish(
+                        metrics,
+                        new Metric(
+                                "ProcessCPUUtilization",
+                                format(utilization),
+                                "Percent",
+                                hostName,
+                                workerName,
+                                level));
+            }
+            processTicks.put(pid, new long[] {ticks, now});
+        }
+
+        long rss = procFs.readProcessRss(pid);
+        if (rss >= 0) {
+            publish(
+                    metrics,
+                    new Metric(
+                            "ProcessMemoryUsed",
+                            format(rss / MB),
+                            "Megabytes",
+                            hostName,
+                            workerName,
+                            level));
+        }
+        return rss;
+    }
+
+    private void runPythonCollector(
+            boolean gpuOnly, Map<Integer, WorkerThread> workerMap, List<Metric> metricsSystem)
+            throws IOException {
+        List<String> args = new ArrayList<>();
+        args.add(configManager.getPythonExecutable());
+        args.add("ts/metrics/metric_collector.py");
+        args.add("--gpu");
+        args.add(String.valueOf(configManager.getNumberOfGpu()));
+        if (gpuOnly) {
+            args.add("--gpu-only");
+        }
+        File workingDir = new File(configManager.getModelServerHome());
+
+        String[] envp = EnvironmentUtils.getEnvString(workingDir.getAbsolutePath(), null, null);
+        final Process p =
+                Runtime.getRuntime().exec(args.toArray(new String[0]), envp, workingDir); // NOPMD
+        try (OutputStream os = p.getOutputStream()) {
+            if (!gpuOnly) {
                 writeWorkerPids(workerMap, os);
             }
+        }
 
-            new Thread(
-                            () -> {
-                                try {
-                                    String error =
-                                            IOUtils.toString(
-                                                    p.getErrorStream(), StandardCharsets.UTF_8);
-                                    if (!error.isEmpty()) {
-                                        logger.error(error);
-                                    }
-                                } catch (IOException e) {
-                                    logger.error("", e);
-                                }
-                            })
-                    .start();
-
-            MetricManager metricManager = MetricManager.getInstance();
-            try (BufferedReader reader =
-                    new BufferedReader(
-                            new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-                List<Metric> metricsSystem = new ArrayList<>();
-                metricManager.setMetrics(metricsSystem);
-
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.isEmpty()) {
-                        break;
-                    }
-                    Metric metric = Metric.parse(line);
-                    if (metric == null) {
-                        logger.warn("Parse metrics failed: " + line);
-                    } else {
-                        if (this.metricCache.getMetricFrontend(metric.getMetricName()) != null) {
+        new Thread(
+                        () -> {
                             try {
-                                List<String> dimensionValues = new ArrayList<String>();
-                                for (Dimension dimension : metric.getDimensions()) {
-                                    dimensionValues.add(dimension.getValue());
+                                String error =
+                                        IOUtils.toString(
+                                                p.getErrorStream(), StandardCharsets.UTF_8);
+                                if (!error.isEmpty()) {
+                                    logger.error(error);
                                 }
-                                // Frontend metrics by default have the last dimension as Hostname
-                                dimensionValues.add(metric.getHostName());
-                                this.metricCache
-                                        .getMetricFrontend(metric.getMetricName())
-                                        .addOrUpdate(
-                                                dimensionValues,
-                                                Double.parseDouble(metric.getValue()));
-                            } catch (Exception e) {
-                                logger.error(
-                                        "Failed to update frontend metric ",
-                                        metric.getMetricName(),
-                                        ": ",
-                                        e);
+                            } catch (IOException e) {
+                                logger.error("", e);
                             }
-                        }
-                        metricsSystem.add(metric);
-                    }
+                        })
+                .start();
+
+        try (BufferedReader reader =
+                new BufferedReader(
+                        new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    break;
+                }
+                Metric metric = Metric.parse(line);
+                if (metric == null) {
+                    logger.warn("Parse metrics failed: " + line);
+                } else {
+                    publish(metricsSystem, metric);
                 }
+            }
 
-                // Collect process level metrics
-                while ((line = reader.readLine()) != null) {
-                    String[] tokens = line.split(":");
-                    if (tokens.length != 2) {
-                        continue;
-                    }
+            // Collect process level metrics
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.split(":");
+                if (tokens.length != 2) {
+                    continue;
+                }
 
-                    Integer pid = Integer.valueOf(tokens[0]);
-                    WorkerThread worker = workerMap.get(pid);
+                Integer pid = Integer.valueOf(tokens[0]);
+                WorkerThread worker = workerMap.get(pid);
+                if (worker != null) {
                     worker.setMemory(Long.parseLong(tokens[1]));
                 }
             }
-        } catch (IOException e) {
-            logger.error("", e);
         }
     }
 
+    private void publish(List<Metric> metrics, Metric metric) {
+        IMetric frontendMetric = metricCache.getMetricFrontend(metric.getMetricName());
+        if (frontendMetric != null) {
+            try {
+                List<String> dimensionValues = new ArrayList<String>();
+                for (Dimension dimension : metric.getDimensions()) {
+                    dimensionValues.add(dimension.getValue());
+                }
+                // Frontend metrics by default have the last dimension as Hostname
+                dimensionValues.add(metric.getHostName());
+                frontendMetric.addOrUpdate(dimensionValues, Double.parseDouble(metric.getValue()));
+            } catch (Exception e) {
+                logger.error("Failed to update frontend metric {}: ", metric.getMetricName(), e);
+            }
+        }
+        metrics.add(metric);
+    }
+
+    private void publishHost(List<Metric> metrics, String name, double value, String unit) {
+        Metric metric =
+                new Metric(
+                        name,
+                        format(value),
+                        unit,
+                        configManager.getHostName(),
+                        new Dimension("Level", "Host"));
+        MetricHandle handle = hostMetrics.get(name);
+        if (handle == null) {
+            handle = metricCache.getHostMetricFrontend(name);
+            if (handle != null) {
+                hostMetrics.put(name, handle);
+            }
+        }
+        if (handle != null) {
+            try {
+                handle.addOrUpdate(Double.parseDouble(metric.getValue()));
+            } catch (Exception e) {
+                logger.error("Failed to update frontend metric {}: ", name, e);
+            }
+        }
+        metrics.add(metric);
+    }
+
+    private static String format(double value) {
+        return String.valueOf(Math.round(value * 100) / 100.0);
+    }
+
     private void writeWorkerPids(Map<Integer, WorkerThread> workerMap, OutputStream os)
             throws IOException {
         boolean first = true;
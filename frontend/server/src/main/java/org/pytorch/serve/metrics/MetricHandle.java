@@ -0,0 +1,16 @@
+package org.pytorch.serve.metrics;
+
+/**
+ * A metric bound to one set of dimension values. Handles are obtained once from {@link
+ * IMetric#bind(java.util.List)} and then record values without looking up or allocating the
+ * dimensions again.
+ */
+public interface MetricHandle {
+
+    /**
+     * Records a value: counters are incremented by it, gauges set to it and histograms observe it.
+     *
+     * @param value the value to record
+     */
+    void addOrUpdate(double value);
+}
@@ -0,0 +1,39 @@
+package org.pytorch.serve.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The handles of a metric with the dimensions model_name, model_version and hostname, cached per
+ * model version so that finding the handle of a request's model allocates nothing.
+ */
+final class ModelMetricHandles {
+
+    private static final String DEFAULT_VERSION = "default";
+
+    private final IMetric metric;
+    private final String hostName;
+    private final ConcurrentMap<String, ConcurrentMap<String, MetricHandle>> handles;
+
+    ModelMetricHandles(IMetric metric, String hostName) {
+        this.metric = metric;
+        this.hostName = hostName;
+        this.handles = new ConcurrentHashMap<>();
+    }
+
+    MetricHandle get(String modelName, String modelVersion) {
+        String version = modelVersion == null ? DEFAULT_VERSION : modelVersion;
+        ConcurrentMap<String, MetricHandle> versions = handles.get(modelName);
+        if (versions == null) {
+            versions = handles.computeIfAbsent(modelName, k -> new ConcurrentHashMap<>());
+        }
+        MetricHandle handle = versions.get(version);
+        if (handle == null) {
+            handle =
+                    versions.computeIfAbsent(
+                            version, v -> metric.bind(Arrays.asList(modelName, v, hostName)));
+        }
+        return handle;
+    }
+}
@@ -0,0 +1,228 @@
+package org.pytorch.serve.metrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Reads the system and process accounting of Linux from /proc and from the cgroup of the model
+ * server, which is expected to be mounted at /sys/fs/cgroup as it is in a container.
+ *
+ * <p>All readers return -1, or null, if the file is not available or can not be parsed.
+ */
+final class ProcFileSystem {
+
+    /** Jiffies per second of the CPU times in /proc, USER_HZ is 100 on all Linux platforms. */
+    static final int CLOCK_TICKS = 100;
+
+    private static final int SECTOR_SIZE = 512;
+    /** Memory limits of cgroup v1 at or above this value mean no limit. */
+    private static final long UNLIMITED = Long.MAX_VALUE / 2;
+
+    private final Path proc;
+    private final Path cgroup;
+    private final Path sysBlock;
+
+    ProcFileSystem(Path root) {
+        proc = root.resolve("proc");
+        cgroup = root.resolve("sys/fs/cgroup");
+        sysBlock = root.resolve("sys/block");
+    }
+
+    boolean isAvailable() {
+        return Files.isReadable(proc.resolve("stat"));
+    }
+
+    /** Returns the busy and the total jiffies of all CPUs of the host since boot. */
+    long[] readCpuTimes() {
+        String line = readFirstLine(proc.resolve("stat"));
+        if (line == null || !line.startsWith("cpu ")) {
+            return null;
+        }
+        String[] tokens = line.trim().split("\\s+");
+        long total = 0;
+        long idle = 0;
+        // user nice system idle iowait irq softirq steal, guest time is included in user
+        for (int i = 1; i < Math.min(tokens.length, 9); ++i) {
+            long value = Long.parseLong(tokens[i]);
+            total += value;
+            if (i == 4 || i == 5) {
+                idle += value;
+            }
+        }
+        return new long[] {total - idle, total};
+    }
+
+    /** Returns the user and system jiffies a process used since it started. */
+    long readProcessCpuTicks(long pid) {
+        String line = readFirstLine(proc.resolve(pid + "/stat"));
+        if (line == null) {
+            return -1;
+        }
+        // the command name in parentheses may contain spaces
+        String[] tokens = line.substring(line.lastIndexOf(')') + 2).split(" ");
+        if (tokens.length < 13) {
+            return -1;
+        }
+        // utime and stime are fields 14 and 15, the tokens start at field 3
+        return Long.parseLong(tokens[11]) + Long.parseLong(tokens[12]);
+    }
+
+    /** Returns the resident set size of a process in bytes. */
+    long readProcessRss(long pid) {
+        long kb = readKeyValue(proc.resolve(pid + "/status"), "VmRSS:");
+        return kb < 0 ? -1 : kb * 1024;
+    }
+
+    /** Returns the MemTotal and MemAvailable of the host in bytes. */
+    long[] readMemory() {
+        Path meminfo = proc.resolve("meminfo");
+        long total = readKeyValue(meminfo, "MemTotal:");
+        long available = readKeyValue(meminfo, "MemAvailable:");
+        if (total < 0 || available < 0) {
+            return null;
+        }
+        return new long[] {total * 1024, available * 1024};
+    }
+
+    /** Returns the bytes read from and written to the block devices of the host since boot. */
+    long[] readDiskBytes() {
+        List<String> lines = readLines(proc.resolve("diskstats"));
+        if (lines == null) {
+            return null;
+        }
+        long read = 0;
+        long written = 0;
+        for (String line : lines) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens.length < 10) {
+                continue;
+            }
+            String device = tokens[2];
+            // count whole disks only, their partitions are part of them
+            if (device.startsWith("loop")
+                    || device.startsWith("ram")
+                    || !Files.exists(sysBlock.resolve(device))) {
+                continue;
+            }
+            read += Long.parseLong(tokens[5]);
+            written += Long.parseLong(tokens[9]);
+        }
+        return new long[] {read * SECTOR_SIZE, written * SECTOR_SIZE};
+    }
+
+    /**
+     * Returns the memory limit and usage of the cgroup in bytes, or null if the memory of the
+     * cgroup is not limited. The usage does not count the inactive page cache, which the kernel
+     * reclaims before it reaches the limit.
+     */
+    long[] readCgroupMemory() {
+        long limit;
+        long usage;
+        long inactive;
+        if (isCgroupV2()) {
+            // "max" if the memory is not limited
+            limit = readLong(cgroup.resolve("memory.max"));
+            if (limit < 0) {
+                return null;
+            }
+            usage = readLong(cgroup.resolve("memory.current"));
+            inactive = readKeyValue(cgroup.resolve("memory.stat"), "inactive_file");
+        } else {
+            limit = readLong(cgroup.resolve("memory/memory.limit_in_bytes"));
+            if (limit < 0 || limit >= UNLIMITED) {
+                return null;
+            }
+            usage = readLong(cgroup.resolve("memory/memory.usage_in_bytes"));
+            inactive = readKeyValue(cgroup.resolve("memory/memory.stat"), "total_inactive_file");
+        }
+        if (usage < 0) {
+            return null;
+        }
+        return new long[] {limit, Math.max(0, usage - Math.max(0, inactive))};
+    }
+
+    /** Returns the number of CPUs the cgroup is limited to, or -1 if it is not limited. */
+    double readCgroupCpuLimit() {
+        if (isCgroupV2()) {
+            String max = readFirstLine(cgroup.resolve("cpu.max"));
+            if (max == null) {
+                return -1;
+            }
+            String[] tokens = max.trim().split("\\s+");
+            if (tokens.length != 2 || "max".equals(tokens[0])) {
+                return -1;
+            }
+            return Double.parseDouble(tokens[0]) / Double.parseDouble(tokens[1]);
+        }
+        long quota = readLong(cgroup.resolve("cpu/cpu.cfs_quota_us"));
+        long period = readLong(cgroup.resolve("cpu/cpu.cfs_period_us"));
+        if (quota <= 0 || period <= 0) {
+            return -1;
+        }
+        return (double) quota / period;
+    }
+
+    /** Returns the CPU time the cgroup used in nanoseconds. */
+    long readCgroupCpuUsage() {
+        if (isCgroupV2()) {
+            long usec = readKeyValue(cgroup.resolve("cpu.stat"), "usage_usec");
+            return usec < 0 ? -1 : usec * 1000;
+        }
+        return readLong(cgroup.resolve("cpuacct/cpuacct.usage"));
+    }
+
+    private boolean isCgroupV2() {
+        return Files.exists(cgroup.resolve("cgroup.controllers"));
+    }
+
+    private static long readLong(Path path) {
+        String line = readFirstLine(path);
+        if (line == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(line.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Returns the number following a key at the start of a line, such as "MemTotal: 1024 kB". */
+    private static long readKeyValue(Path path, String key) {
+        List<String> lines = readLines(path);
+        if (lines == null) {
+            return -1;
+        }
+        for (String line : lines) {
+            if (line.startsWith(key)) {
+                String[] tokens = line.substring(key.length()).trim().split("\\s+");
+                try {
+                    return Long.parseLong(tokens[0]);
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String readFirstLine(Path path) {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return reader.readLine();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static List<String> readLines(Path path) {
+        try {
+            return Files.readAllLines(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.pytorch.serve.metrics;
+
+/**
+ * The {@link System#nanoTime()} timestamps of an inference request at the points of its lifecycle
+ * in the frontend. A timeline is only created while request stage timing is enabled, so code on
+ * the request path checks for null and otherwise does nothing.
+ */
+public final class RequestTimeline {
+
+    /** The points of the request lifecycle a timestamp is taken at, in order. */
+    public enum Mark {
+        /** The headers of the HTTP request have been decoded. */
+        RECEIVED,
+        /** The full HTTP request has been received and aggregated. */
+        DECODED,
+        /** The request input has been parsed from the HTTP request. */
+        PARSED,
+        /** The job is about to be added to the queue of the model. */
+        ENQUEUED,
+        /** A worker has taken the job into a batch. */
+        SCHEDULED,
+        /** The batch has been encoded for the backend. */
+        ENCODED,
+        /** The batch has been written to the backend socket. */
+        WRITTEN,
+        /** The first bytes of the backend response have been read. */
+        REPLIED,
+        /** The backend response has been decoded. */
+        REPLY_DECODED,
+        /** The response has been handed to the client connection. */
+        COMPLETED
+    }
+
+    private static final Mark[] MARKS = Mark.values();
+
+    private final long[] marks = new long[MARKS.length];
+    private final long epochOffsetNanos;
+    private final boolean sampled;
+
+    RequestTimeline(long received, boolean sampled) {
+        long now = System.nanoTime();
+        marks[Mark.RECEIVED.ordinal()] = received;
+        marks[Mark.DECODED.ordinal()] = now;
+        this.sampled = sampled;
+        epochOffsetNanos = sampled ? System.currentTimeMillis() * 1_000_000L - now : 0;
+    }
+
+    /**
+     * Starts the timeline of a request.
+     *
+     * @param received the time the request headers were decoded at, 0 if unknown
+     * @return the timeline, or null if request stage timing is disabled
+     */
+    public static RequestTimeline start(long received) {
+        RequestTracer tracer = RequestTracer.getInstance();
+        return tracer == null ? null : tracer.newTimeline(received);
+    }
+
+    public void mark(Mark mark) {
+        marks[mark.ordinal()] = System.nanoTime();
+    }
+
+    public void mark(Mark mark, long nanos) {
+        marks[mark.ordinal()] = nanos;
+    }
+
+    public long get(Mark mark) {
+        return marks[mark.ordinal()];
+    }
+
+    /**
+     * Returns the time between two marks in nanoseconds, or -1 if either was not taken, for
+     * example the HTTP marks of a gRPC request.
+     */
+    public long getDuration(Mark from, Mark to) {
+        long start = marks[from.ordinal()];
+        long end = marks[to.ordinal()];
+        if (start == 0 || end == 0 || end < start) {
+            return -1;
+        }
+        return end - start;
+    }
+
+    /** Returns true if the timeline is exported as a trace when the request completes. */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /** Converts a mark to nanoseconds since the epoch, for sampled timelines only. */
+    long toEpochNanos(long nanos) {
+        return epochOffsetNanos + nanos;
+    }
+}
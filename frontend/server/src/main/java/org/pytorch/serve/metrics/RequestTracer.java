@@ -0,0 +1,427 @@
+package org.pytorch.serve.metrics;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.pytorch.serve.job.Job;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the {@link RequestTimeline}s of inference requests while request stage timing is
+ * enabled, and exports a sample of them as traces in the OTLP/JSON format. Each sampled request
+ * becomes a server span covering the request, with one child span per stage of its timeline.
+ *
+ * <p>Traces are queued to a background thread, which appends them to a file, one OTLP export
+ * request per line, or posts them to an OTLP/HTTP collector. Traces are dropped while the queue
+ * is full.
+ */
+public final class RequestTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestTracer.class);
+
+    private static final int QUEUE_SIZE = 4096;
+    private static final int MAX_BATCH = 256;
+    private static final int SPAN_KIND_INTERNAL = 1;
+    private static final int SPAN_KIND_SERVER = 2;
+
+    private static RequestTracer instance;
+
+    private final float sampleRate;
+    private final String hostName;
+    private final String export;
+    private final BlockingQueue<Trace> queue;
+    private Thread exporter;
+    private volatile boolean stopped;
+
+    private RequestTracer(ConfigManager configManager) {
+        sampleRate = configManager.getRequestTraceSampleRate();
+        hostName = configManager.getHostName();
+        export = configManager.getRequestTraceExport();
+        queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    }
+
+    public static void init(ConfigManager configManager) {
+        if (!configManager.isRequestStageTimingEnabled()) {
+            return;
+        }
+        RequestTracer tracer = new RequestTracer(configManager);
+        if (tracer.sampleRate > 0) {
+            tracer.exporter = new Thread(tracer::exportLoop, "request-tracer");
+            tracer.exporter.setDaemon(true);
+            tracer.exporter.start();
+        }
+        instance = tracer;
+    }
+
+    /** Returns the tracer, or null if request stage timing is disabled. */
+    public static RequestTracer getInstance() {
+        return instance;
+    }
+
+    /** Exports the traces still queued and stops the exporter. */
+    public static void shutdown() {
+        RequestTracer tracer = instance;
+        instance = null;
+        if (tracer == null || tracer.exporter == null) {
+            return;
+        }
+        tracer.stopped = true;
+        try {
+            tracer.exporter.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    RequestTimeline newTimeline(long received) {
+        boolean sampled =
+                sampleRate > 0
+                        && (sampleRate >= 1
+                                || ThreadLocalRandom.current().nextFloat() < sampleRate);
+        return new RequestTimeline(received, sampled);
+    }
+
+    /**
+     * Queues the trace of a completed job whose timeline is sampled.
+     *
+     * @param job the completed job
+     * @param timeline the timeline of the job
+     */
+    public void export(Job job, RequestTimeline timeline) {
+        if (!timeline.isSampled()) {
+            return;
+        }
+        String traceParent = job.getPayload().getHeaders().get("traceparent");
+        queue.offer(
+                new Trace(
+                        job.getModelName(),
+                        job.getModelVersion(),
+                        job.getJobId(),
+                        job.getPriority().name(),
+                        traceParent,
+                        timeline));
+    }
+
+    private void exportLoop() {
+        List<Trace> batch = new ArrayList<>(MAX_BATCH);
+        try (Sink sink = openSink()) {
+            boolean running = true;
+            while (running) {
+                // the traces queued before shutdown are still exported
+                running = !stopped;
+                try {
+                    Trace trace = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (trace != null) {
+                        batch.add(trace);
+                    }
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+                queue.drainTo(batch, MAX_BATCH - batch.size());
+                if (!batch.isEmpty()) {
+                    try {
+                        sink.write(JsonUtils.GSON.toJson(toExportRequest(batch)));
+                    } catch (IOException | RuntimeException e) {
+                        logger.warn("Failed to export {} request traces", batch.size(), e);
+                    }
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to open request trace export {}", export, e);
+        }
+    }
+
+    private Sink openSink() throws IOException {
+        String scheme = export.toLowerCase(Locale.ROOT);
+        if (scheme.startsWith("http://") || scheme.startsWith("https://")) {
+            return new CollectorSink(URI.create(export));
+        }
+        Path path = Paths.get(export);
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return new FileSink(
+                Files.newBufferedWriter(
+                        path,
+                        StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND));
+    }
+
+    private JsonObject toExportRequest(List<Trace> traces) {
+        JsonArray spans = new JsonArray();
+        for (Trace trace : traces) {
+            trace.addSpans(spans);
+        }
+
+        JsonObject scope = new JsonObject();
+        scope.addProperty("name", "org.pytorch.serve");
+        JsonObject scopeSpans = new JsonObject();
+        scopeSpans.add("scope", scope);
+        scopeSpans.add("spans", spans);
+        JsonArray scopeSpansList = new JsonArray();
+        scopeSpansList.add(scopeSpans);
+
+        JsonArray attributes = new JsonArray();
+        attributes.add(attribute("service.name", "torchserve"));
+        attributes.add(attribute("host.name", hostName));
+        JsonObject resource = new JsonObject();
+        resource.add("attributes", attributes);
+
+        JsonObject resourceSpans = new JsonObject();
+        resourceSpans.add("resource", resource);
+        resourceSpans.add("scopeSpans", scopeSpansList);
+        JsonArray resourceSpansList = new JsonArray();
+        resourceSpansList.add(resourceSpans);
+
+        JsonObject request = new JsonObject();
+        request.add("resourceSpans", resourceSpansList);
+        return request;
+    }
+
+    private static JsonObject attribute(String key, String value) {
+        JsonObject anyValue = new JsonObject();
+        anyValue.addProperty("stringValue", value);
+        JsonObject attribute = new JsonObject();
+        attribute.addProperty("key", key);
+        attribute.add("value", anyValue);
+        return attribute;
+    }
+
+    private static JsonObject span(
+            String traceId,
+            String spanId,
+            String parentSpanId,
+            String name,
+            int kind,
+            long start,
+            long end) {
+        JsonObject span = new JsonObject();
+        span.addProperty("traceId", traceId);
+        span.addProperty("spanId", spanId);
+        if (parentSpanId != null) {
+            span.addProperty("parentSpanId", parentSpanId);
+        }
+        span.addProperty("name", name);
+        span.addProperty("kind", kind);
+        span.addProperty("startTimeUnixNano", Long.toUnsignedString(start));
+        span.addProperty("endTimeUnixNano", Long.toUnsignedString(end));
+        return span;
+    }
+
+    /**
+     * Parses a W3C trace context header, {@code version-traceid-parentid-flags} in lowercase hex.
+     *
+     * @param traceParent the traceparent header of the request, null if it has none
+     * @return the trace id and the parent span id, or null if the header is missing or malformed
+     */
+    static String[] parseTraceParent(String traceParent) {
+        if (traceParent == null
+                || traceParent.length() < 55
+                || traceParent.charAt(2) != '-'
+                || traceParent.charAt(35) != '-'
+                || traceParent.charAt(52) != '-') {
+            return null;
+        }
+        String version = traceParent.substring(0, 2);
+        if (!isHex(version, false) || "ff".equals(version)) {
+            return null;
+        }
+        // later versions may append fields, version 00 has none
+        if ("00".equals(version)
+                ? traceParent.length() != 55
+                : traceParent.length() > 55 && traceParent.charAt(55) != '-') {
+            return null;
+        }
+        String traceId = traceParent.substring(3, 35);
+        String parentSpanId = traceParent.substring(36, 52);
+        if (!isHex(traceId, true)
+                || !isHex(parentSpanId, true)
+                || !isHex(traceParent.substring(53, 55), false)) {
+            return null;
+        }
+        return new String[] {traceId, parentSpanId};
+    }
+
+    private static boolean isHex(String value, boolean nonZero) {
+        boolean zero = true;
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+            zero &= c == '0';
+        }
+        return !(nonZero && zero);
+    }
+
+    private static String newSpanId() {
+        return String.format("%016x", ThreadLocalRandom.current().nextLong());
+    }
+
+    /** The data of a sampled request, captured when it completes. */
+    private static final class Trace {
+
+        private final String modelName;
+        private final String modelVersion;
+        private final String requestId;
+        private final String priority;
+        private final String traceParent;
+        private final RequestTimeline timeline;
+
+        Trace(
+                String modelName,
+                String modelVersion,
+                String requestId,
+                String priority,
+                String traceParent,
+                RequestTimeline timeline) {
+            this.modelName = modelName;
+            this.modelVersion = modelVersion;
+            this.requestId = requestId;
+            this.priority = priority;
+            this.traceParent = traceParent;
+            this.timeline = timeline;
+        }
+
+        void addSpans(JsonArray spans) {
+            String traceId;
+            String parentSpanId = null;
+            String[] parent = parseTraceParent(traceParent);
+            if (parent != null) {
+                traceId = parent[0];
+                parentSpanId = parent[1];
+            } else {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                traceId = String.format("%016x%016x", random.nextLong(), random.nextLong());
+            }
+
+            RequestTimeline.Mark first =
+                    timeline.get(RequestTimeline.Mark.RECEIVED) == 0
+                            ? RequestTimeline.Mark.DECODED
+                            : RequestTimeline.Mark.RECEIVED;
+            String spanId = newSpanId();
+            JsonObject root =
+                    span(
+                            traceId,
+                            spanId,
+                            parentSpanId,
+                            "inference " + modelName,
+                            SPAN_KIND_SERVER,
+                            timeline.toEpochNanos(timeline.get(first)),
+                            timeline.toEpochNanos(
+                                    timeline.get(RequestTimeline.Mark.COMPLETED)));
+            JsonArray attributes = new JsonArray();
+            attributes.add(attribute("ts.model_name", modelName));
+            attributes.add(
+                    attribute("ts.model_version", modelVersion == null ? "default" : modelVersion));
+            attributes.add(attribute("ts.request_id", requestId));
+            attributes.add(attribute("ts.priority", priority));
+            root.add("attributes", attributes);
+            spans.add(root);
+
+            for (LatencyTracker.Stage stage : LatencyTracker.Stage.values()) {
+                if (stage.getFrom() == null
+                        || timeline.getDuration(stage.getFrom(), stage.getTo()) < 0) {
+                    continue;
+                }
+                spans.add(
+                        span(
+                                traceId,
+                                newSpanId(),
+                                spanId,
+                                stage.name().toLowerCase(Locale.ROOT),
+                                SPAN_KIND_INTERNAL,
+                                timeline.toEpochNanos(timeline.get(stage.getFrom())),
+                                timeline.toEpochNanos(timeline.get(stage.getTo()))));
+            }
+        }
+    }
+
+    private interface Sink extends AutoCloseable {
+
+        void write(String exportRequest) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class FileSink implements Sink {
+
+        private final Writer writer;
+
+        FileSink(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(String exportRequest) throws IOException {
+            writer.write(exportRequest);
+            writer.write('\n');
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    private static final class CollectorSink implements Sink {
+
+        private final URI uri;
+        private final HttpClient client;
+
+        CollectorSink(URI uri) {
+            this.uri = uri;
+            client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        }
+
+        @Override
+        public void write(String exportRequest) throws IOException {
+            HttpRequest request =
+                    HttpRequest.newBuilder(uri)
+                            .timeout(Duration.ofSeconds(10))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(exportRequest))
+                            .build();
+            HttpResponse<Void> response;
+            try {
+                response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while exporting request traces", e);
+            }
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException("Collector responded with status " + response.statusCode());
+            }
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,117 @@
+package org.pytorch.serve.metrics.format.prometheous;
+
+import io.prometheus.client.Collector;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Enumeration;
+
+/**
+ * Writes metric samples in the OpenMetrics 1.0.0 text format, which the Prometheus client of this
+ * build predates.
+ *
+ * <p>Counters are declared as {@code counter} if their samples carry the {@code _total} suffix
+ * OpenMetrics requires, and as {@code unknown} otherwise so that their sample names stay the same
+ * as in the Prometheus text format.
+ */
+public final class OpenMetricsFormat {
+
+    public static final String CONTENT_TYPE =
+            "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private OpenMetricsFormat() {}
+
+    public static void write(Writer writer, Enumeration<Collector.MetricFamilySamples> families)
+            throws IOException {
+        while (families.hasMoreElements()) {
+            Collector.MetricFamilySamples family = families.nextElement();
+            String name = family.name;
+            String type;
+            switch (family.type) {
+                case COUNTER:
+                    String base =
+                            name.endsWith("_total") ? name.substring(0, name.length() - 6) : name;
+                    if (isCounter(family, base)) {
+                        name = base;
+                        type = "counter";
+                    } else {
+                        type = "unknown";
+                    }
+                    break;
+                case GAUGE:
+                    type = "gauge";
+                    break;
+                case SUMMARY:
+                    type = "summary";
+                    break;
+                case HISTOGRAM:
+                    type = "histogram";
+                    break;
+                default:
+                    type = "unknown";
+                    break;
+            }
+
+            writer.write("# TYPE ");
+            writer.write(name);
+            writer.write(' ');
+            writer.write(type);
+            writer.write('\n');
+            writer.write("# HELP ");
+            writer.write(name);
+            writer.write(' ');
+            writeEscaped(writer, family.help);
+            writer.write('\n');
+
+            for (Collector.MetricFamilySamples.Sample sample : family.samples) {
+                writer.write(sample.name);
+                if (!sample.labelNames.isEmpty()) {
+                    writer.write('{');
+                    for (int i = 0; i < sample.labelNames.size(); ++i) {
+                        if (i > 0) {
+                            writer.write(',');
+                        }
+                        writer.write(sample.labelNames.get(i));
+                        writer.write("=\"");
+                        writeEscaped(writer, sample.labelValues.get(i));
+                        writer.write('"');
+                    }
+                    writer.write('}');
+                }
+                writer.write(' ');
+                writer.write(Collector.doubleToGoString(sample.value));
+                writer.write('\n');
+            }
+        }
+        writer.write("# EOF\n");
+    }
+
+    private static boolean isCounter(Collector.MetricFamilySamples family, String name) {
+        String total = name + "_total";
+        for (Collector.MetricFamilySamples.Sample sample : family.samples) {
+            if (!total.equals(sample.name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeEscaped(Writer writer, String s) throws IOException {
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                default:
+                    writer.write(c);
+                    break;
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import io.prometheus.client.Counter;
 import java.util.List;
 import org.pytorch.serve.metrics.IMetric;
 import org.pytorch.serve.metrics.MetricBuilder;
+import org.pytorch.serve.metrics.MetricHandle;
 
 public class PrometheusCounter extends IMetric {
     private final Counter counter;
@@ -21,8 +22,10 @@ public class PrometheusCounter extends IMetric {
     }
 
     @Override
-    public void addOrUpdate(List<String> dimensionValues, double value) {
-        this.counter.labels(dimensionValues.toArray(new String[dimensionValues.size()])).inc(value);
+    protected MetricHandle newHandle(List<String> dimensionValues) {
+        Counter.Child child =
+                this.counter.labels(dimensionValues.toArray(new String[dimensionValues.size()]));
+        return child::inc;
     }
 
     @Override
@@ -4,6 +4,7 @@ import io.prometheus.client.Gauge;
 import java.util.List;
 import org.pytorch.serve.metrics.IMetric;
 import org.pytorch.serve.metrics.MetricBuilder;
+import org.pytorch.serve.metrics.MetricHandle;
 
 public class PrometheusGauge extends IMetric {
     private final Gauge gauge;
@@ -21,8 +22,10 @@ public class PrometheusGauge extends IMetric {
     }
 
     @Override
-    public void addOrUpdate(List<String> dimensionValues, double value) {
-        this.gauge.labels(dimensionValues.toArray(new String[dimensionValues.size()])).set(value);
+    protected MetricHandle newHandle(List<String> dimensionValues) {
+        Gauge.Child child =
+                this.gauge.labels(dimensionValues.toArray(new String[dimensionValues.size()]));
+        return child::set;
     }
 
     @Override
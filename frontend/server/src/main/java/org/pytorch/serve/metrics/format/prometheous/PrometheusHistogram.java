@@ -4,6 +4,7 @@ import io.prometheus.client.Histogram;
 import java.util.List;
 import org.pytorch.serve.metrics.IMetric;
 import org.pytorch.serve.metrics.MetricBuilder;
+import org.pytorch.serve.metrics.MetricHandle;
 
 public class PrometheusHistogram extends IMetric {
     private final Histogram histogram;
@@ -21,10 +22,10 @@ public class PrometheusHistogram extends IMetric {
     }
 
     @Override
-    public void addOrUpdate(List<String> dimensionValues, double value) {
-        this.histogram
-                .labels(dimensionValues.toArray(new String[dimensionValues.size()]))
-                .observe(value);
+    protected MetricHandle newHandle(List<String> dimensionValues) {
+        Histogram.Child child =
+                this.histogram.labels(dimensionValues.toArray(new String[dimensionValues.size()]));
+        return child::observe;
     }
 
     @Override
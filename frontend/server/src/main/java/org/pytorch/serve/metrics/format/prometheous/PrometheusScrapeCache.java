@@ -0,0 +1,233 @@
+package org.pytorch.serve.metrics.format.prometheous;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPOutputStream;
+import org.pytorch.serve.metrics.IMetric;
+import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.MetricHandle;
+import org.pytorch.serve.util.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Renders Prometheus scrapes on a background thread and caches the encoded result for a short
+ * time, so that concurrent and repeated scrapes share one rendering and never run it on an event
+ * loop.
+ */
+public final class PrometheusScrapeCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrometheusScrapeCache.class);
+
+    /** Number of distinct scrapes, by format and name filter, that are cached. */
+    static final int MAX_ENTRIES = 32;
+
+    private static PrometheusScrapeCache instance;
+
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<Format, ScrapeMetrics> scrapeMetrics;
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, CompletableFuture<Snapshot>> snapshots;
+
+    PrometheusScrapeCache(long ttlMs, String hostName, LongSupplier clock) {
+        ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.clock = clock;
+        scrapeMetrics = new EnumMap<>(Format.class);
+        for (Format format : Format.values()) {
+            scrapeMetrics.put(format, new ScrapeMetrics(format, hostName));
+        }
+        executor =
+                Executors.newSingleThreadExecutor(
+                        r -> {
+                            Thread thread = new Thread(r, "prometheus-scrape");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        snapshots = new ConcurrentHashMap<>();
+    }
+
+    public static synchronized void init(ConfigManager configManager) {
+        if (instance == null) {
+            instance =
+                    new PrometheusScrapeCache(
+                            configManager.getPrometheusScrapeCacheTtlMs(),
+                            configManager.getHostName(),
+                            System::nanoTime);
+        }
+    }
+
+    public static PrometheusScrapeCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the encoded metrics, rendering them if the cached snapshot is older than the TTL.
+     *
+     * @param format the exposition format
+     * @param names the metric families to include, all if empty
+     * @param gzip true to return the body gzip compressed
+     * @return the body of the scrape response
+     */
+    public CompletableFuture<byte[]> getBody(Format format, Set<String> names, boolean gzip) {
+        CompletableFuture<Snapshot> snapshot = getSnapshot(format, names);
+        if (gzip) {
+            return snapshot.thenApplyAsync(Snapshot::getGzipped, executor);
+        }
+        return snapshot.thenApply(Snapshot::getBody);
+    }
+
+    private CompletableFuture<Snapshot> getSnapshot(Format format, Set<String> names) {
+        String key = format.name() + new TreeSet<>(names);
+        if (snapshots.size() >= MAX_ENTRIES && !snapshots.containsKey(key)) {
+            return CompletableFuture.supplyAsync(() -> render(format, names), executor);
+        }
+        long now = clock.getAsLong();
+        return snapshots.compute(
+                key,
+                (k, cached) -> {
+                    if (cached != null && (!cached.isDone() || isFresh(cached, now))) {
+                        return cached;
+                    }
+                    return CompletableFuture.supplyAsync(() -> render(format, names), executor);
+                });
+    }
+
+    private boolean isFresh(CompletableFuture<Snapshot> cached, long now) {
+        return !cached.isCompletedExceptionally()
+                && now - cached.getNow(null).renderedAt < ttlNanos;
+    }
+
+    private Snapshot render(Format format, Set<String> names) {
+        long start = clock.getAsLong();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            Enumeration<Collector.MetricFamilySamples> families =
+                    CollectorRegistry.defaultRegistry.filteredMetricFamilySamples(names);
+            if (format == Format.OPENMETRICS) {
+                OpenMetricsFormat.write(writer, families);
+            } else {
+                TextFormat.write004(writer, families);
+            }
+        } catch (IOException e) {
+            logger.error("Exception encountered while reporting metrics");
+            throw new UncheckedIOException(e);
+        }
+        long end = clock.getAsLong();
+        byte[] body = out.toByteArray();
+        ScrapeMetrics metrics = scrapeMetrics.get(format);
+        update(metrics.duration, "ts_scrape_duration_microseconds", (end - start) / 1000);
+        update(metrics.size, "ts_scrape_size_bytes", body.length);
+        return new Snapshot(body, end);
+    }
+
+    private static void update(MetricHandle metric, String name, double value) {
+        if (metric != null) {
+            try {
+                metric.addOrUpdate(value);
+            } catch (Exception e) {
+                logger.error("Failed to update frontend metric " + name + ": ", e);
+            }
+        }
+    }
+
+    /** The exposition formats of a scrape. */
+    public enum Format {
+        TEXT("text", TextFormat.CONTENT_TYPE_004),
+        OPENMETRICS("openmetrics", OpenMetricsFormat.CONTENT_TYPE);
+
+        private final String label;
+        private final String contentType;
+
+        Format(String label, String contentType) {
+            this.label = label;
+            this.contentType = contentType;
+        }
+
+        /** Returns OpenMetrics if the Accept header of the scrape asks for it. */
+        public static Format negotiate(String accept) {
+            if (accept != null && accept.contains("application/openmetrics-text")) {
+                return OPENMETRICS;
+            }
+            return TEXT;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    /** The metric handles of the scrapes in one format, bound when the cache is created. */
+    private static final class ScrapeMetrics {
+
+        private final MetricHandle duration;
+        private final MetricHandle size;
+
+        ScrapeMetrics(Format format, String hostName) {
+            List<String> dimensionValues = Arrays.asList(format.getLabel(), hostName);
+            duration = bind("ts_scrape_duration_microseconds", dimensionValues);
+            size = bind("ts_scrape_size_bytes", dimensionValues);
+        }
+
+        private static MetricHandle bind(String name, List<String> dimensionValues) {
+            MetricCache metricCache = MetricCache.getInstance();
+            IMetric metric = metricCache == null ? null : metricCache.getMetricFrontend(name);
+            return metric == null ? null : metric.bind(dimensionValues);
+        }
+    }
+
+    private static final class Snapshot {
+
+        private final byte[] body;
+        private final long renderedAt;
+        private byte[] gzipped;
+
+        Snapshot(byte[] body, long renderedAt) {
+            this.body = body;
+            this.renderedAt = renderedAt;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        /** Compresses the body once, on the first scrape that accepts gzip. */
+        synchronized byte[] getGzipped() {
+            if (gzipped == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                    gzip.write(body);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                gzipped = out.toByteArray();
+            }
+            return gzipped;
+        }
+    }
+}
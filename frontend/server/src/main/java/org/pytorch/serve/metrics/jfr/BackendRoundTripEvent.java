@@ -0,0 +1,34 @@
+package org.pytorch.serve.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.pytorch.serve.BackendRoundTrip")
+@Label("Backend Round Trip")
+@Description("A worker sent a request to its backend and received all responses")
+@Category({"TorchServe", "Worker"})
+@StackTrace(false)
+public final class BackendRoundTripEvent extends jdk.jfr.Event {
+
+    @Label("Worker")
+    String worker;
+
+    @Label("Model")
+    String model;
+
+    @Label("Model Version")
+    String modelVersion;
+
+    @Label("Command")
+    String command;
+
+    @Label("Batch Size")
+    int batchSize;
+
+    @Label("Status")
+    @Description("The status code of the last response, -1 if the backend did not respond")
+    int status;
+}
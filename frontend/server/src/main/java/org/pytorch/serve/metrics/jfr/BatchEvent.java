@@ -0,0 +1,34 @@
+package org.pytorch.serve.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.pytorch.serve.Batch")
+@Label("Batch Formation")
+@Description("A worker waited for jobs and formed a batch, the duration is the wait")
+@Category({"TorchServe", "Worker"})
+@StackTrace(false)
+public final class BatchEvent extends jdk.jfr.Event {
+
+    @Label("Worker")
+    String worker;
+
+    @Label("Model")
+    String model;
+
+    @Label("Model Version")
+    String modelVersion;
+
+    @Label("Batch Size")
+    int batchSize;
+
+    @Label("Max Batch Size")
+    int maxBatchSize;
+
+    @Label("Max Batch Delay")
+    @Description("The maximum time to wait for a batch to fill, in milliseconds")
+    int maxBatchDelay;
+}
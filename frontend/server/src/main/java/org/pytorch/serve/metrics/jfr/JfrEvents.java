@@ -0,0 +1,180 @@
+package org.pytorch.serve.metrics.jfr;
+
+import org.pytorch.serve.job.Job;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.messages.WorkerCommands;
+import org.pytorch.serve.wlm.Model;
+import org.pytorch.serve.wlm.WorkerState;
+
+/**
+ * Emits the JDK Flight Recorder events of the inference path while they are enabled with {@code
+ * enable_jfr_events}. While disabled no event is created. While enabled an event only costs its
+ * creation if no recording includes it, the queue depth is only counted for recorded events.
+ *
+ * <p>The begin methods of the duration events return null while disabled, the matching commit
+ * methods ignore null.
+ */
+public final class JfrEvents {
+
+    private static boolean enabled;
+
+    private JfrEvents() {}
+
+    public static void init(ConfigManager configManager) {
+        enabled = configManager.isJfrEventsEnabled();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void jobEnqueued(Model model, Job job, boolean accepted) {
+        if (!enabled) {
+            return;
+        }
+        JobEnqueuedEvent event = new JobEnqueuedEvent();
+        if (event.shouldCommit()) {
+            event.model = model.getModelName();
+            event.modelVersion = model.getVersion();
+            event.priority = job.getPriority().name();
+            event.queueDepth = model.getQueueDepth();
+            event.accepted = accepted;
+            event.commit();
+        }
+    }
+
+    public static void jobDequeued(Model model, Job job) {
+        if (!enabled) {
+            return;
+        }
+        JobDequeuedEvent event = new JobDequeuedEvent();
+        if (event.shouldCommit()) {
+            event.model = model.getModelName();
+            event.modelVersion = model.getVersion();
+            event.priority = job.getPriority().name();
+            event.queueDepth = model.getQueueDepth();
+            event.queueTime = job.getScheduled() - job.getBegin();
+            event.commit();
+        }
+    }
+
+    public static BatchEvent beginBatch() {
+        if (!enabled) {
+            return null;
+        }
+        BatchEvent event = new BatchEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitBatch(BatchEvent event, String worker, Model model, int batchSize) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.worker = worker;
+            event.model = model.getModelName();
+            event.modelVersion = model.getVersion();
+            event.batchSize = batchSize;
+            event.maxBatchSize = model.getBatchSize();
+            event.maxBatchDelay = model.getMaxBatchDelay();
+            event.commit();
+        }
+    }
+
+    public static BackendRoundTripEvent beginBackendRoundTrip() {
+        if (!enabled) {
+            return null;
+        }
+        BackendRoundTripEvent event = new BackendRoundTripEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitBackendRoundTrip(
+            BackendRoundTripEvent event,
+            String worker,
+            Model model,
+            WorkerCommands command,
+            int batchSize,
+            int status) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.worker = worker;
+            event.model = model.getModelName();
+            event.modelVersion = model.getVersion();
+            event.command = command.name();
+            event.batchSize = batchSize;
+            event.status = status;
+            event.commit();
+        }
+    }
+
+    public static void workerStateChanged(
+            String worker, Model model, WorkerState from, WorkerState to, int status) {
+        if (!enabled) {
+            return;
+        }
+        WorkerStateEvent event = new WorkerStateEvent();
+        if (event.shouldCommit()) {
+            event.worker = worker;
+            event.model = model.getModelName();
+            event.modelVersion = model.getVersion();
+            event.from = from == null ? null : from.name();
+            event.to = to.name();
+            event.status = status;
+            event.commit();
+        }
+    }
+
+    public static ModelLoadEvent beginModelLoad() {
+        if (!enabled) {
+            return null;
+        }
+        ModelLoadEvent event = new ModelLoadEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitModelLoad(
+            ModelLoadEvent event, String model, String modelVersion, String url, boolean success) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.model = model;
+            event.modelVersion = modelVersion;
+            event.url = url;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    public static ModelUnloadEvent beginModelUnload() {
+        if (!enabled) {
+            return null;
+        }
+        ModelUnloadEvent event = new ModelUnloadEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitModelUnload(
+            ModelUnloadEvent event, String model, String modelVersion, int status) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.model = model;
+            event.modelVersion = modelVersion;
+            event.status = status;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.pytorch.serve.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("org.pytorch.serve.JobDequeued")
+@Label("Job Dequeued")
+@Description("A worker took an inference job from the queue of a model into a batch")
+@Category({"TorchServe", "Queue"})
+@StackTrace(false)
+public final class JobDequeuedEvent extends jdk.jfr.Event {
+
+    @Label("Model")
+    String model;
+
+    @Label("Model Version")
+    String modelVersion;
+
+    @Label("Priority")
+    String priority;
+
+    @Label("Queue Depth")
+    @Description("Jobs left in the queue of the model")
+    int queueDepth;
+
+    @Label("Queue Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueTime;
+}
@@ -0,0 +1,32 @@
+package org.pytorch.serve.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.pytorch.serve.JobEnqueued")
+@Label("Job Enqueued")
+@Description("An inference job was added to the queue of a model")
+@Category({"TorchServe", "Queue"})
+@StackTrace(false)
+public final class JobEnqueuedEvent extends jdk.jfr.Event {
+
+    @Label("Model")
+    String model;
+
+    @Label("Model Version")
+    String modelVersion;
+
+    @Label("Priority")
+    String priority;
+
+    @Label("Queue Depth")
+    @Description("Jobs in the queue of the model after this one was added")
+    int queueDepth;
+
+    @Label("Accepted")
+    @Description("False if the queue was full or no job ticket was available")
+    boolean accepted;
+}
@@ -0,0 +1,27 @@
+package org.pytorch.serve.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.pytorch.serve.ModelLoad")
+@Label("Model Load")
+@Description("A model archive was downloaded, extracted and registered with its dependencies")
+@Category({"TorchServe", "Model"})
+@StackTrace(false)
+public final class ModelLoadEvent extends jdk.jfr.Event {
+
+    @Label("Model")
+    String model;
+
+    @Label("Model Version")
+    String modelVersion;
+
+    @Label("URL")
+    String url;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,24 @@
+package org.pytorch.serve.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.pytorch.serve.ModelUnload")
+@Label("Model Unload")
+@Description("A model version was unregistered and its workers stopped")
+@Category({"TorchServe", "Model"})
+@StackTrace(false)
+public final class ModelUnloadEvent extends jdk.jfr.Event {
+
+    @Label("Model")
+    String model;
+
+    @Label("Model Version")
+    String modelVersion;
+
+    @Label("Status")
+    int status;
+}
@@ -0,0 +1,31 @@
+package org.pytorch.serve.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.pytorch.serve.WorkerState")
+@Label("Worker State Change")
+@Description("A worker changed its state")
+@Category({"TorchServe", "Worker"})
+public final class WorkerStateEvent extends jdk.jfr.Event {
+
+    @Label("Worker")
+    String worker;
+
+    @Label("Model")
+    String model;
+
+    @Label("Model Version")
+    String modelVersion;
+
+    @Label("From")
+    String from;
+
+    @Label("To")
+    String to;
+
+    @Label("Status")
+    int status;
+}
@@ -0,0 +1,185 @@
+package org.pytorch.serve.util;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.pytorch.serve.metrics.IMetric;
+import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.MetricHandle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An event loop shard of the sharded acceptor mode. Every connector binds one {@code
+ * SO_REUSEPORT} listener per shard, the kernel spreads incoming connections over the listeners and
+ * each connection stays on the event loops of the shard that accepted it.
+ */
+public class AcceptorShard {
+
+    private static final Logger logger = LoggerFactory.getLogger(AcceptorShard.class);
+
+    private final int index;
+    private final String cpus;
+    private final EventLoopGroup group;
+    private final AtomicLong activeConnections;
+
+    /**
+     * Creates the event loops of a shard.
+     *
+     * @param index the index of the shard
+     * @param shards the total number of shards
+     * @param threads the number of event loops of the shard
+     * @param cpuAffinity true to pin the event loops to a slice of the available CPUs
+     */
+    public AcceptorShard(int index, int shards, int threads, boolean cpuAffinity) {
+        this.index = index;
+        this.cpus = cpuAffinity ? getCpuList(index, shards) : null;
+        this.group =
+                new EpollEventLoopGroup(
+                        threads, new DefaultThreadFactory("acceptor-shard-" + index));
+        this.activeConnections = new AtomicLong();
+        if (cpus != null) {
+            startPinned();
+        }
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public EventLoopGroup getGroup() {
+        return group;
+    }
+
+    /** Returns a handler counting the connections and requests of a connector on this shard. */
+    public ChannelHandler newMetricsHandler(ConnectorType connectorType) {
+        return new ShardMetricsHandler(connectorType);
+    }
+
+    /** Returns the CPUs of a shard in the list format of taskset. */
+    static String getCpuList(int index, int shards) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (shards >= cores) {
+            return String.valueOf(index % cores);
+        }
+        int first = index * cores / shards;
+        int last = (index + 1) * cores / shards - 1;
+        return first + "-" + last;
+    }
+
+    /**
+     * Starts the event loop threads from a thread pinned to the CPUs of the shard, so that they
+     * inherit its affinity and taskset runs once per shard instead of once per event loop.
+     */
+    private void startPinned() {
+        Thread starter =
+                new Thread(
+                        () -> {
+                            if (!pinCurrentThread()) {
+                                return;
+                            }
+                            // event loops start their thread on the first task they are given
+                            for (EventExecutor loop : group) {
+                                loop.submit(() -> {}).syncUninterruptibly();
+                            }
+                        },
+                        "acceptor-shard-" + index + "-affinity");
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Pins the calling thread to the CPUs of the shard with taskset. */
+    private boolean pinCurrentThread() {
+        try {
+            // /proc/thread-self links to <pid>/task/<tid> of the calling thread
+            Path self = Files.readSymbolicLink(Path.of("/proc/thread-self"));
+            String tid = self.getFileName().toString();
+            Process process =
+                    new ProcessBuilder("taskset", "-p", "-c", cpus, tid)
+                            .redirectErrorStream(true)
+                            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                            .start();
+            if (process.waitFor() == 0) {
+                return true;
+            }
+            logger.warn("Failed to pin acceptor shard {} to CPUs {}", index, cpus);
+        } catch (IOException e) {
+            logger.warn("Failed to pin acceptor shard {} to CPUs {}", index, cpus, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @ChannelHandler.Sharable
+    private final class ShardMetricsHandler extends ChannelInboundHandlerAdapter {
+
+        private final MetricHandle connectionsMetric;
+        private final MetricHandle activeConnectionsMetric;
+        private final MetricHandle requestsMetric;
+
+        ShardMetricsHandler(ConnectorType connectorType) {
+            List<String> dimensionValues =
+                    Arrays.asList(
+                            connectorType.name(),
+                            String.valueOf(index),
+                            ConfigManager.getInstance().getHostName());
+            connectionsMetric = bind("ts_acceptor_connections_total", dimensionValues);
+            activeConnectionsMetric = bind("ts_acceptor_active_connections", dimensionValues);
+            requestsMetric = bind("ts_acceptor_requests_total", dimensionValues);
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            long active = activeConnections.incrementAndGet();
+            update(connectionsMetric, "ts_acceptor_connections_total", 1);
+            update(activeConnectionsMetric, "ts_acceptor_active_connections", active);
+            super.channelActive(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            long active = activeConnections.decrementAndGet();
+            update(activeConnectionsMetric, "ts_acceptor_active_connections", active);
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (msg instanceof HttpRequest) {
+                update(requestsMetric, "ts_acceptor_requests_total", 1);
+            }
+            super.channelRead(ctx, msg);
+        }
+
+        private MetricHandle bind(String name, List<String> dimensionValues) {
+            IMetric metric = MetricCache.getInstance().getMetricFrontend(name);
+            return metric == null ? null : metric.bind(dimensionValues);
+        }
+
+        private void update(MetricHandle metric, String name, double value) {
+            if (metric != null) {
+                try {
+                    metric.addOrUpdate(value);
+                } catch (Exception e) {
+                    logger.error("Failed to update frontend metric " + name + ": ", e);
+                }
+            }
+        }
+    }
+}
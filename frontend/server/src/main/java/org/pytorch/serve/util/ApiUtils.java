@@ -1,16 +1,27 @@
 package org.pytorch.serve.util;
 
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import org.apache.commons.io.FilenameUtils;
 import org.pytorch.serve.archive.DownloadArchiveException;
@@ -25,9 +36,11 @@ import org.pytorch.serve.http.InvalidModelVersionException;
 import org.pytorch.serve.http.RequestTimeoutException;
 import org.pytorch.serve.http.ServiceUnavailableException;
 import org.pytorch.serve.http.StatusResponse;
+import org.pytorch.serve.http.messages.BatchItemResponse;
 import org.pytorch.serve.http.messages.DescribeModelResponse;
 import org.pytorch.serve.http.messages.ListModelsResponse;
 import org.pytorch.serve.http.messages.RegisterModelRequest;
+import org.pytorch.serve.job.BatchItemJob;
 import org.pytorch.serve.job.RestJob;
 import org.pytorch.serve.snapshot.SnapshotManager;
 import org.pytorch.serve.util.messages.RequestInput;
@@ -376,6 +389,9 @@ public final class ApiUtils {
         ModelManager modelManager = ModelManager.getInstance();
         int numHealthy = 0;
         int numScaled = 0;
+        if (modelManager.isStartupModelLoading(null)) {
+            return false;
+        }
 
         for (Map.Entry<String, ModelVersionedRefs> m : modelManager.getAllModels()) {
             numScaled = m.getValue().getDefaultModel().getMinWorkers();
@@ -389,6 +405,16 @@ public final class ApiUtils {
         return true;
     }
 
+    /**
+     * Answers requests for a model that is not registered yet because it is still loading at
+     * startup with 503 instead of 404, so that clients retry rather than treat it as missing.
+     */
+    public static void checkStartupModelLoading(String modelName) {
+        if (ModelManager.getInstance().isStartupModelLoading(modelName)) {
+            throw new ServiceUnavailableException("Model " + modelName + " is still loading");
+        }
+    }
+
     private static DescribeModelResponse createModelResponse(
             ModelManager modelManager, String modelName, Model model) {
         DescribeModelResponse resp = new DescribeModelResponse();
@@ -431,6 +457,94 @@ public final class ApiUtils {
         return job;
     }
 
+    /**
+     * Queues one item of a batch request as its own job. Failures are reported through the result
+     * of the returned job, so that one bad item does not fail the whole batch.
+     */
+    public static BatchItemJob addBatchItemJob(
+            int index, String modelName, String version, RequestInput input) {
+        BatchItemJob job = new BatchItemJob(index, modelName, version, input);
+        try {
+            Model model = ModelManager.getInstance().getModel(modelName, version);
+            if (model == null) {
+                checkStartupModelLoading(modelName);
+                throw new ModelNotFoundException("Model not found: " + modelName);
+            }
+            input.setClientExpireTS(model.getClientTimeoutInMills());
+            if (!ModelManager.getInstance().addJob(job)) {
+                String priority = job.getPriority().toString();
+                job.sendError(
+                        HttpURLConnection.HTTP_UNAVAILABLE,
+                        getInferenceErrorResponseMessage(modelName, version, priority));
+                return job;
+            }
+            if (model.getClientTimeoutInMills() > 0) {
+                // expired responses are dropped by the BatchAggregator, don't wait for them
+                ScheduledFuture<?> timeout =
+                        ModelManager.getInstance()
+                                .getScheduler()
+                                .schedule(
+                                        () ->
+                                                job.sendError(
+                                                        HttpURLConnection.HTTP_CLIENT_TIMEOUT,
+                                                        "Request timed out"),
+                                        model.getClientTimeoutInMills(),
+                                        TimeUnit.MILLISECONDS);
+                job.getResult().whenComplete((j, e) -> timeout.cancel(false));
+            }
+        } catch (ModelNotFoundException | ModelVersionNotFoundException e) {
+            job.sendError(HttpURLConnection.HTTP_NOT_FOUND, e.getMessage());
+        } catch (ServiceUnavailableException e) {
+            job.sendError(HttpURLConnection.HTTP_UNAVAILABLE, e.getMessage());
+        }
+        return job;
+    }
+
+    public static BatchItemResponse getBatchItemResponse(BatchItemJob job) {
+        BatchItemResponse resp = new BatchItemResponse();
+        resp.setIndex(job.getIndex());
+        resp.setCode(job.getStatusCode());
+        if (!job.isSuccess()) {
+            resp.setMessage(job.getMessage());
+            return resp;
+        }
+
+        byte[] content = job.getContent();
+        CharSequence contentType = job.getContentType();
+        String mimeType = "";
+        if (contentType != null && contentType.length() > 0) {
+            mimeType = contentType.toString().toLowerCase(Locale.ROOT);
+            resp.setContentType(contentType.toString());
+        }
+        if (mimeType.contains("json")) {
+            try {
+                resp.setResponse(
+                        JsonParser.parseString(new String(content, StandardCharsets.UTF_8)));
+                return resp;
+            } catch (JsonParseException e) {
+                // not valid json, return it as text
+            }
+        }
+        if (mimeType.isEmpty() || mimeType.startsWith("text/") || mimeType.contains("json")) {
+            try {
+                String text =
+                        StandardCharsets.UTF_8
+                                .newDecoder()
+                                .onMalformedInput(CodingErrorAction.REPORT)
+                                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                                .decode(ByteBuffer.wrap(content))
+                                .toString();
+                resp.setResponse(new JsonPrimitive(text));
+                return resp;
+            } catch (CharacterCodingException e) {
+                // binary response, fall through to base64
+            }
+        }
+        resp.setEncoding("base64");
+        resp.setResponse(new JsonPrimitive(Base64.getEncoder().encodeToString(content)));
+        return resp;
+    }
+
     @SuppressWarnings("PMD")
     public static String getInferenceErrorResponseMessage(String modelName, String modelVersion, String jobPriority) {
         String responseMessage = "Model: " + modelName + "\n";
@@ -57,10 +57,16 @@ public final class ConfigManager {
     private static final String TS_MANAGEMENT_ADDRESS = "management_address";
     private static final String TS_METRICS_ADDRESS = "metrics_address";
     private static final String TS_LOAD_MODELS = "load_models";
+    private static final String TS_STARTUP_MODEL_LOAD_THREADS = "startup_model_load_threads";
+    private static final String TS_STARTUP_MODEL_LOAD_IN_BACKGROUND =
+            "startup_model_load_in_background";
     private static final String TS_BLACKLIST_ENV_VARS = "blacklist_env_vars";
     private static final String TS_DEFAULT_WORKERS_PER_MODEL = "default_workers_per_model";
     private static final String TS_DEFAULT_RESPONSE_TIMEOUT = "default_response_timeout";
     private static final String TS_UNREGISTER_MODEL_TIMEOUT = "unregister_model_timeout";
+    private static final String TS_WARM_WORKER_POOL_SIZE = "warm_worker_pool_size";
+    private static final String TS_ARCHIVE_CACHE_DIR = "archive_cache_dir";
+    private static final String TS_ARCHIVE_CACHE_SIZE_MB = "archive_cache_size_mb";
     private static final String TS_NUMBER_OF_NETTY_THREADS = "number_of_netty_threads";
     private static final String TS_NETTY_CLIENT_THREADS = "netty_client_threads";
     private static final String TS_JOB_QUEUE_SIZE = "job_queue_size";
@@ -68,6 +74,8 @@ public final class ConfigManager {
     private static final String TS_NUMBER_OF_GPU = "number_of_gpu";
     private static final String TS_MIN_FREE_GPU_MEMORY = "min_free_gpu_memory";
     private static final String TS_MAX_SHARE_GPU_FAILURES = "max_share_gpu_failures";
+    private static final String TS_DEVICE_TELEMETRY_INTERVAL_MS = "device_telemetry_interval_ms";
+    private static final String TS_DEVICE_TELEMETRY_COMMAND = "device_telemetry_command";
     private static final String TS_METRICS_CONFIG = "metrics_config";
     private static final String TS_METRICS_MODE = "metrics_mode";
     private static final String TS_DISABLE_SYSTEM_METRICS = "disable_system_metrics";
@@ -89,9 +97,15 @@ public final class ConfigManager {
     private static final String TS_PRIVATE_KEY_FILE = "private_key_file";
     private static final String TS_MAX_REQUEST_SIZE = "max_request_size";
     private static final String TS_MAX_RESPONSE_SIZE = "max_response_size";
+    private static final String TS_MAX_STREAM_BUFFER_SIZE = "max_stream_buffer_size";
     private static final String TS_LIMIT_MAX_IMAGE_PIXELS = "limit_max_image_pixels";
     private static final String TS_DEFAULT_SERVICE_HANDLER = "default_service_handler";
     private static final String TS_SERVICE_ENVELOPE = "service_envelope";
+    private static final String TS_KSERVE_SPLIT_REQUESTS = "kserve_split_requests";
+    private static final String TS_BULK_JOB_ROOT = "bulk_job_root";
+    private static final String TS_BULK_JOB_DIR = "bulk_job_dir";
+    private static final String TS_BULK_JOB_THREADS = "bulk_job_threads";
+    private static final String TS_MAX_BULK_JOB_CONCURRENCY = "max_bulk_job_concurrency";
     private static final String TS_MODEL_SERVER_HOME = "model_server_home";
     private static final String TS_MODEL_STORE = "model_store";
     private static final String TS_PREFER_DIRECT_BUFFER = "prefer_direct_buffer";
@@ -101,12 +115,43 @@ public final class ConfigManager {
     private static final String TS_GRPC_INFERENCE_PORT = "grpc_inference_port";
     private static final String TS_GRPC_MANAGEMENT_PORT = "grpc_management_port";
     private static final String TS_ENABLE_GRPC_SSL = "enable_grpc_ssl";
+    private static final String TS_GRPC_STREAM_WINDOW = "grpc_stream_window";
+    private static final String TS_ENABLE_LATENCY_PERCENTILES = "enable_latency_percentiles";
+    private static final String TS_LATENCY_WINDOW_SECONDS = "latency_window_seconds";
+    private static final String TS_REQUEST_STAGE_TIMING = "request_stage_timing";
+    private static final String TS_REQUEST_TRACE_SAMPLE_RATE = "request_trace_sample_rate";
+    private static final String TS_REQUEST_TRACE_EXPORT = "request_trace_export";
+    private static final String TS_SERVER_TIMING_HEADER = "server_timing_header";
+    private static final String TS_ENABLE_JFR_EVENTS = "enable_jfr_events";
+    private static final String TS_BACKEND_METRICS_CHANNEL = "backend_metrics_channel";
+    private static final String TS_LOG_EVENT_PIPELINE = "log_event_pipeline";
+    private static final String TS_LOG_EVENT_BUFFER_SIZE = "log_event_buffer_size";
+    private static final String TS_PROMETHEUS_SCRAPE_CACHE_TTL_MS =
+            "prometheus_scrape_cache_ttl_ms";
+    private static final String TS_GRPC_INFERENCE_THREADS = "grpc_inference_threads";
+    private static final String TS_GRPC_MANAGEMENT_THREADS = "grpc_management_threads";
+    private static final String TS_GRPC_QUEUE_SIZE = "grpc_queue_size";
+    private static final String TS_GRPC_INFERENCE_DIRECT_EXECUTOR =
+            "grpc_inference_direct_executor";
+    private static final String TS_GRPC_FLOW_CONTROL_WINDOW = "grpc_flow_control_window";
+    private static final String TS_GRPC_MAX_CONCURRENT_STREAMS = "grpc_max_concurrent_streams";
+    private static final String TS_GRPC_KEEPALIVE_TIME = "grpc_keepalive_time_ms";
+    private static final String TS_GRPC_KEEPALIVE_TIMEOUT = "grpc_keepalive_timeout_ms";
+    private static final String TS_GRPC_PERMIT_KEEPALIVE_TIME = "grpc_permit_keepalive_time_ms";
+    private static final String TS_GRPC_MAX_INBOUND_MESSAGE_SIZE =
+            "grpc_max_inbound_message_size";
     private static final String TS_INITIAL_WORKER_PORT = "initial_worker_port";
     private static final String TS_INITIAL_DISTRIBUTION_PORT = "initial_distribution_port";
     private static final String TS_WORKFLOW_STORE = "workflow_store";
 
     // Configuration which are not documented or enabled through environment variables
     private static final String USE_NATIVE_IO = "use_native_io";
+    private static final String TS_ACCEPTOR_SHARDS = "acceptor_shards";
+    private static final String TS_MANAGEMENT_NETTY_THREADS = "management_netty_threads";
+    private static final String TS_METRICS_NETTY_THREADS = "metrics_netty_threads";
+    private static final String TS_OFFLOAD_THREADS = "offload_threads";
+    private static final String TS_OFFLOAD_QUEUE_SIZE = "offload_queue_size";
+    private static final String TS_ACCEPTOR_CPU_AFFINITY = "acceptor_cpu_affinity";
     private static final String IO_RATIO = "io_ratio";
     private static final String METRIC_TIME_INTERVAL = "metric_time_interval";
     private static final String ENABLE_ENVVARS_CONFIG = "enable_envvars_config";
@@ -331,6 +376,50 @@ public final class ConfigManager {
         return Boolean.parseBoolean(getProperty(TS_ENABLE_GRPC_SSL, "false"));
     }
 
+    public int getGRPCStreamWindow() {
+        return getIntProperty(TS_GRPC_STREAM_WINDOW, 32);
+    }
+
+    public int getGRPCThreads(ConnectorType connectorType) {
+        if (connectorType == ConnectorType.MANAGEMENT_CONNECTOR) {
+            return getIntProperty(TS_GRPC_MANAGEMENT_THREADS, 4);
+        }
+        return getIntProperty(
+                TS_GRPC_INFERENCE_THREADS, Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getGRPCQueueSize() {
+        return getIntProperty(TS_GRPC_QUEUE_SIZE, 100);
+    }
+
+    public boolean isGRPCInferenceDirectExecutor() {
+        return Boolean.parseBoolean(getProperty(TS_GRPC_INFERENCE_DIRECT_EXECUTOR, "false"));
+    }
+
+    public int getGRPCFlowControlWindow() {
+        return getIntProperty(TS_GRPC_FLOW_CONTROL_WINDOW, 1048576);
+    }
+
+    public int getGRPCMaxConcurrentStreams() {
+        return getIntProperty(TS_GRPC_MAX_CONCURRENT_STREAMS, Integer.MAX_VALUE);
+    }
+
+    public int getGRPCKeepAliveTime() {
+        return getIntProperty(TS_GRPC_KEEPALIVE_TIME, 7200000);
+    }
+
+    public int getGRPCKeepAliveTimeout() {
+        return getIntProperty(TS_GRPC_KEEPALIVE_TIMEOUT, 20000);
+    }
+
+    public int getGRPCPermitKeepAliveTime() {
+        return getIntProperty(TS_GRPC_PERMIT_KEEPALIVE_TIME, 300000);
+    }
+
+    public int getGRPCMaxInboundMessageSize() {
+        return getIntProperty(TS_GRPC_MAX_INBOUND_MESSAGE_SIZE, getMaxRequestSize());
+    }
+
     public boolean getPreferDirectBuffer() {
         return Boolean.parseBoolean(getProperty(TS_PREFER_DIRECT_BUFFER, "false"));
     }
@@ -359,6 +448,82 @@ public final class ConfigManager {
         return getIntProperty(TS_NETTY_CLIENT_THREADS, 0);
     }
 
+    public int getManagementNettyThreads() {
+        return getIntProperty(TS_MANAGEMENT_NETTY_THREADS, 1);
+    }
+
+    public int getMetricsNettyThreads() {
+        return getIntProperty(TS_METRICS_NETTY_THREADS, 1);
+    }
+
+    public boolean isLatencyPercentilesEnabled() {
+        return Boolean.parseBoolean(getProperty(TS_ENABLE_LATENCY_PERCENTILES, "true"));
+    }
+
+    public int getLatencyWindowSeconds() {
+        return getIntProperty(TS_LATENCY_WINDOW_SECONDS, 60);
+    }
+
+    public boolean isRequestStageTimingEnabled() {
+        return Boolean.parseBoolean(getProperty(TS_REQUEST_STAGE_TIMING, "false"));
+    }
+
+    public float getRequestTraceSampleRate() {
+        return getFloatProperty(TS_REQUEST_TRACE_SAMPLE_RATE, 0f);
+    }
+
+    /**
+     * Returns where sampled request traces are exported to: the URL of an OTLP/HTTP collector, or
+     * a file that OTLP/JSON requests are appended to, one per line.
+     */
+    public String getRequestTraceExport() {
+        String export = prop.getProperty(TS_REQUEST_TRACE_EXPORT);
+        if (export == null || export.isEmpty()) {
+            return System.getProperty("LOG_LOCATION") + "/ts_request_traces.json";
+        }
+        return export;
+    }
+
+    public boolean isServerTimingHeaderEnabled() {
+        return Boolean.parseBoolean(getProperty(TS_SERVER_TIMING_HEADER, "false"));
+    }
+
+    public boolean isJfrEventsEnabled() {
+        return Boolean.parseBoolean(getProperty(TS_ENABLE_JFR_EVENTS, "false"));
+    }
+
+    public boolean isBackendMetricsChannelEnabled() {
+        return Boolean.parseBoolean(getProperty(TS_BACKEND_METRICS_CHANNEL, "true"));
+    }
+
+    public boolean isLogEventPipelineEnabled() {
+        return Boolean.parseBoolean(getProperty(TS_LOG_EVENT_PIPELINE, "true"));
+    }
+
+    public int getLogEventBufferSize() {
+        return getIntProperty(TS_LOG_EVENT_BUFFER_SIZE, 65536);
+    }
+
+    public int getPrometheusScrapeCacheTtlMs() {
+        return getIntProperty(TS_PROMETHEUS_SCRAPE_CACHE_TTL_MS, 1000);
+    }
+
+    public int getOffloadThreads() {
+        return getIntProperty(TS_OFFLOAD_THREADS, Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getOffloadQueueSize() {
+        return getIntProperty(TS_OFFLOAD_QUEUE_SIZE, 100);
+    }
+
+    public int getAcceptorShards() {
+        return getIntProperty(TS_ACCEPTOR_SHARDS, 0);
+    }
+
+    public boolean isAcceptorCpuAffinity() {
+        return Boolean.parseBoolean(getProperty(TS_ACCEPTOR_CPU_AFFINITY, "false"));
+    }
+
     public int getJobQueueSize() {
         return getIntProperty(TS_JOB_QUEUE_SIZE, 100);
     }
@@ -384,6 +549,14 @@ public final class ConfigManager {
         return getFloatProperty(TS_MAX_SHARE_GPU_FAILURES, 0.90f);
     }
 
+    public int getDeviceTelemetryIntervalMs() {
+        return getIntProperty(TS_DEVICE_TELEMETRY_INTERVAL_MS, 5000);
+    }
+
+    public String getDeviceTelemetryCommand() {
+        return getProperty(TS_DEVICE_TELEMETRY_COMMAND, "nvidia-smi");
+    }
+
     public String getMetricsConfigPath() {
         String path = getCanonicalPath(prop.getProperty(TS_METRICS_CONFIG));
         if (path == null) {
@@ -419,6 +592,35 @@ public final class ConfigManager {
         return getProperty(TS_SERVICE_ENVELOPE, null);
     }
 
+    public boolean isKServeSplitRequests() {
+        return Boolean.parseBoolean(getProperty(TS_KSERVE_SPLIT_REQUESTS, "false"));
+    }
+
+    /** Returns the directory holding the input and output of bulk jobs, null if disabled. */
+    public String getBulkJobRoot() {
+        String root = prop.getProperty(TS_BULK_JOB_ROOT);
+        if (root == null || root.isEmpty()) {
+            return null;
+        }
+        return getCanonicalPath(root);
+    }
+
+    public String getBulkJobDir() {
+        String dir = prop.getProperty(TS_BULK_JOB_DIR);
+        if (dir == null) {
+            dir = System.getProperty("LOG_LOCATION") + "/bulk";
+        }
+        return getCanonicalPath(dir);
+    }
+
+    public int getBulkJobThreads() {
+        return getIntProperty(TS_BULK_JOB_THREADS, 2);
+    }
+
+    public int getMaxBulkJobConcurrency() {
+        return getIntProperty(TS_MAX_BULK_JOB_CONCURRENCY, 64);
+    }
+
     public Properties getConfiguration() {
         return (Properties) prop.clone();
     }
@@ -468,6 +670,19 @@ public final class ConfigManager {
         return tsHome;
     }
 
+    public int getWarmWorkerPoolSize() {
+        return getIntProperty(TS_WARM_WORKER_POOL_SIZE, 0);
+    }
+
+    public String getArchiveCacheDir() {
+        String dir = prop.getProperty(TS_ARCHIVE_CACHE_DIR);
+        return dir == null || dir.isEmpty() ? null : getCanonicalPath(dir);
+    }
+
+    public int getArchiveCacheSizeMb() {
+        return getIntProperty(TS_ARCHIVE_CACHE_SIZE_MB, 20480);
+    }
+
     public String getPythonExecutable() {
         return prop.getProperty(PYTHON_EXECUTABLE, "python");
     }
@@ -488,6 +703,14 @@ public final class ConfigManager {
         return prop.getProperty(TS_LOAD_MODELS);
     }
 
+    public int getStartupModelLoadThreads() {
+        return getIntProperty(TS_STARTUP_MODEL_LOAD_THREADS, 4);
+    }
+
+    public boolean isStartupModelLoadInBackground() {
+        return Boolean.parseBoolean(getProperty(TS_STARTUP_MODEL_LOAD_IN_BACKGROUND, "false"));
+    }
+
     public Pattern getBlacklistPattern() {
         return blacklistPattern;
     }
@@ -652,14 +875,37 @@ public final class ConfigManager {
                 + (getModelStore() == null ? "N/A" : getModelStore())
                 + "\nInitial Models: "
                 + (getLoadModels() == null ? "N/A" : getLoadModels())
+                + "\nStartup model load threads: "
+                + getStartupModelLoadThreads()
+                + (isStartupModelLoadInBackground() ? " in background" : "")
                 + "\nLog dir: "
                 + getCanonicalPath(System.getProperty("LOG_LOCATION"))
                 + "\nMetrics dir: "
                 + getCanonicalPath(System.getProperty("METRICS_LOCATION"))
+                + "\nBulk job root: "
+                + (getBulkJobRoot() == null ? "N/A" : getBulkJobRoot())
+                + "\nBulk job dir: "
+                + getBulkJobDir()
                 + "\nNetty threads: "
                 + getNettyThreads()
                 + "\nNetty client threads: "
                 + getNettyClientThreads()
+                + "\nManagement netty threads: "
+                + getManagementNettyThreads()
+                + "\nOffload threads: "
+                + getOffloadThreads()
+                + "\nAcceptor shards: "
+                + getAcceptorShards()
+                + "\ngRPC stream window: "
+                + getGRPCStreamWindow()
+                + "\ngRPC inference threads: "
+                + (isGRPCInferenceDirectExecutor()
+                        ? "event loops"
+                        : getGRPCThreads(ConnectorType.INFERENCE_CONNECTOR))
+                + "\ngRPC management threads: "
+                + getGRPCThreads(ConnectorType.MANAGEMENT_CONNECTOR)
+                + "\ngRPC queue size: "
+                + getGRPCQueueSize()
                 + "\nDefault workers per model: "
                 + getDefaultWorkers()
                 + "\nBlacklist Regex: "
@@ -668,6 +914,8 @@ public final class ConfigManager {
                 + prop.getProperty(TS_MAX_RESPONSE_SIZE, "6553500")
                 + "\nMaximum Request Size: "
                 + prop.getProperty(TS_MAX_REQUEST_SIZE, "6553500")
+                + "\nMaximum Stream Buffer Size: "
+                + getMaxStreamBufferSize()
                 + "\nLimit Maximum Image Pixels: "
                 + prop.getProperty(TS_LIMIT_MAX_IMAGE_PIXELS, "true")
                 + "\nPrefer direct buffer: "
@@ -680,6 +928,32 @@ public final class ConfigManager {
                 + prop.getProperty(TS_ENABLE_METRICS_API, "true")
                 + "\nMetrics mode: "
                 + getMetricsMode()
+                + "\nLatency percentiles window: "
+                + (isLatencyPercentilesEnabled() ? getLatencyWindowSeconds() + "s" : "disabled")
+                + "\nRequest stage timing: "
+                + (isRequestStageTimingEnabled()
+                        ? "trace sample rate " + getRequestTraceSampleRate()
+                        : "disabled")
+                + "\nServer-Timing header: "
+                + isServerTimingHeaderEnabled()
+                + "\nJFR events: "
+                + isJfrEventsEnabled()
+                + "\nBackend metrics channel: "
+                + isBackendMetricsChannelEnabled()
+                + "\nLog event buffer size: "
+                + (isLogEventPipelineEnabled() ? getLogEventBufferSize() : "disabled")
+                + "\nPrometheus scrape cache TTL: "
+                + getPrometheusScrapeCacheTtlMs()
+                + "ms"
+                + "\nWarm worker pool size: "
+                + getWarmWorkerPoolSize()
+                + "\nArchive cache: "
+                + (getArchiveCacheDir() == null
+                        ? "disabled"
+                        : getArchiveCacheDir() + " (" + getArchiveCacheSizeMb() + "MB)")
+                + "\nDevice telemetry interval: "
+                + getDeviceTelemetryIntervalMs()
+                + "ms"
                 + "\nDisable system metrics: "
                 + isSystemMetricsDisabled()
                 + "\nWorkflow Store: "
@@ -704,6 +978,10 @@ public final class ConfigManager {
         return getIntProperty(TS_MAX_REQUEST_SIZE, 6553500);
     }
 
+    public int getMaxStreamBufferSize() {
+        return getIntProperty(TS_MAX_STREAM_BUFFER_SIZE, 16777216);
+    }
+
     public boolean isLimitMaxImagePixels() {
         return Boolean.parseBoolean(prop.getProperty(TS_LIMIT_MAX_IMAGE_PIXELS, "true"));
     }
@@ -110,6 +110,21 @@ public class Connector {
         return new Connector(port, false, host, String.valueOf(port), ssl, connectorType);
     }
 
+    /**
+     * Returns the connector backend workers send their metrics to, bound to an ephemeral port if
+     * unix domain sockets are not available.
+     */
+    public static Connector newBackendMetricsConnector() {
+        if (useNativeIo && (Epoll.isAvailable() || KQueue.isAvailable())) {
+            String path =
+                    System.getProperty("java.io.tmpdir")
+                            + "/.ts.metrics.sock."
+                            + ProcessHandle.current().pid();
+            return new Connector(-1, true, "", path, false, null);
+        }
+        return new Connector(0, false, "127.0.0.1", "0", false, null);
+    }
+
     public String getSocketType() {
         return uds ? "unix" : "tcp";
     }
@@ -157,6 +172,11 @@ public class Connector {
         return eventLoopGroup;
     }
 
+    /** Returns true if listeners can share a port with {@code SO_REUSEPORT}. */
+    public static boolean isReusePortAvailable() {
+        return useNativeIo && Epoll.isAvailable();
+    }
+
     public Class<? extends ServerChannel> getServerChannel() {
         if (useNativeIo && Epoll.isAvailable()) {
             return uds ? EpollServerDomainSocketChannel.class : EpollServerSocketChannel.class;
@@ -0,0 +1,245 @@
+package org.pytorch.serve.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples the utilization and memory of all GPUs on a background thread at a fixed interval, with
+ * a single query of the {@link Provider} for all devices. Describe calls and the GPU metrics read
+ * the last snapshot instead of querying the devices themselves. GPU assignment reads it as well,
+ * and reserves the memory of the workers it assigned since.
+ */
+public final class DeviceTelemetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceTelemetry.class);
+
+    private static DeviceTelemetry instance;
+
+    private final Provider provider;
+    private ScheduledExecutorService scheduler;
+    private volatile List<DeviceStats> snapshot = Collections.emptyList();
+
+    DeviceTelemetry(Provider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * Takes the first snapshot and starts the poller if the model server uses GPUs, so that GPU
+     * assignment at startup already sees the free memory of the devices.
+     */
+    public static synchronized void init(ConfigManager configManager) {
+        if (configManager.getNumberOfGpu() <= 0) {
+            return;
+        }
+        String command = configManager.getDeviceTelemetryCommand();
+        DeviceTelemetry telemetry = new DeviceTelemetry(new NvidiaSmiProvider(command));
+        telemetry.poll();
+        telemetry.start(configManager.getDeviceTelemetryIntervalMs());
+        instance = telemetry;
+    }
+
+    /** Returns the telemetry, or null if the model server does not use GPUs. */
+    public static synchronized DeviceTelemetry getInstance() {
+        return instance;
+    }
+
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.scheduler.shutdownNow();
+            instance = null;
+        }
+    }
+
+    void start(long intervalMs) {
+        scheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        r -> {
+                            Thread thread = new Thread(r, "device-telemetry");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        scheduler.scheduleWithFixedDelay(this::poll, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    void poll() {
+        // an exception would cancel the next polls
+        try {
+            List<DeviceStats> devices = new ArrayList<>(provider.query());
+            devices.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+            snapshot = Collections.unmodifiableList(devices);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to query device telemetry: {}", e.getMessage());
+            snapshot = Collections.emptyList();
+        }
+    }
+
+    /** Returns the stats of all devices from the last poll, empty if the poll failed. */
+    public List<DeviceStats> getDevices() {
+        return snapshot;
+    }
+
+    /** Returns the stats of a device from the last poll, or null if they are not available. */
+    public DeviceStats getDevice(int index) {
+        for (DeviceStats device : snapshot) {
+            if (device.getIndex() == index) {
+                return device;
+            }
+        }
+        return null;
+    }
+
+    /** Queries the stats of all devices at once. */
+    public interface Provider {
+
+        List<DeviceStats> query() throws IOException;
+    }
+
+    /** The stats of a device at the time of a poll, memory in MiB and utilization in percent. */
+    public static final class DeviceStats {
+
+        private final int index;
+        private final int utilizationGpu;
+        private final int utilizationMemory;
+        private final int memoryUsed;
+        private final int memoryFree;
+        private final int memoryTotal;
+        private final long timestamp;
+
+        public DeviceStats(
+                int index,
+                int utilizationGpu,
+                int utilizationMemory,
+                int memoryUsed,
+                int memoryFree,
+                int memoryTotal) {
+            this.index = index;
+            this.utilizationGpu = utilizationGpu;
+            this.utilizationMemory = utilizationMemory;
+            this.memoryUsed = memoryUsed;
+            this.memoryFree = memoryFree;
+            this.memoryTotal = memoryTotal;
+            timestamp = System.currentTimeMillis();
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getUtilizationGpu() {
+            return utilizationGpu;
+        }
+
+        public int getUtilizationMemory() {
+            return utilizationMemory;
+        }
+
+        public int getMemoryUsed() {
+            return memoryUsed;
+        }
+
+        public int getMemoryFree() {
+            return memoryFree;
+        }
+
+        public int getMemoryTotal() {
+            return memoryTotal;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    /** Queries all NVIDIA GPUs with a single invocation of nvidia-smi. */
+    static final class NvidiaSmiProvider implements Provider {
+
+        private static final String QUERY =
+                "--query-gpu=index,utilization.gpu,utilization.memory,memory.used,memory.free,"
+                        + "memory.total";
+
+        private static final long TIMEOUT_MS = 10000;
+
+        private final String command;
+        private final long timeoutMs;
+
+        NvidiaSmiProvider(String command) {
+            this(command, TIMEOUT_MS);
+        }
+
+        NvidiaSmiProvider(String command, long timeoutMs) {
+            this.command = command;
+            this.timeoutMs = timeoutMs;
+        }
+
+        @Override
+        public List<DeviceStats> query() throws IOException {
+            // the output goes to a file, so that a hanging command cannot block the poller on the
+            // pipe before the timeout
+            File output = Files.createTempFile("device-telemetry", ".csv").toFile();
+            List<String> lines;
+            try {
+                Process process =
+                        new ProcessBuilder(command, QUERY, "--format=csv,noheader,nounits")
+                                .redirectErrorStream(true)
+                                .redirectOutput(output)
+                                .start();
+                try {
+                    if (!process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+                        process.destroyForcibly();
+                        throw new IOException(command + " timed out");
+                    }
+                } catch (InterruptedException e) {
+                    process.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                    throw new IOException(command + " interrupted", e);
+                }
+                lines = FileUtils.readLines(output, StandardCharsets.UTF_8);
+                if (process.exitValue() != 0) {
+                    throw new IOException(command + " failed: " + String.join(" ", lines));
+                }
+            } finally {
+                FileUtils.deleteQuietly(output);
+            }
+
+            List<DeviceStats> devices = new ArrayList<>();
+            for (String line : lines) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] values = line.split(",");
+                if (values.length != 6) {
+                    throw new IOException("Unexpected " + command + " output: " + line);
+                }
+                devices.add(
+                        new DeviceStats(
+                                parse(values[0]),
+                                parse(values[1]),
+                                parse(values[2]),
+                                parse(values[3]),
+                                parse(values[4]),
+                                parse(values[5])));
+            }
+            return devices;
+        }
+
+        /** Returns -1 for the values a device does not support, reported as "[N/A]". */
+        private static int parse(String value) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+}
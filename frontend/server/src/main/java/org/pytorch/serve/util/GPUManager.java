@@ -7,10 +7,6 @@ import java.util.Iterator;
 import java.util.ArrayDeque;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.nio.charset.StandardCharsets;
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +23,9 @@ public final class GPUManager {
     private final float maxShareFailures;
 
     private AtomicInteger[] freeMemory;
+    // the last telemetry sample per GPU and the number of workers assigned to it since
+    private DeviceTelemetry.DeviceStats[] samples;
+    private int[] nAssigned;
     private HashMap<String, Integer> workerIds;
     private ArrayDeque<Integer> gpuFailureHistory;
 
@@ -43,42 +42,26 @@ public final class GPUManager {
             for (int i = 0; i < this.nGPUs; i++) {
                 this.freeMemory[i] = new AtomicInteger(-1);
             }
+            this.samples = new DeviceTelemetry.DeviceStats[this.nGPUs];
+            this.nAssigned = new int[this.nGPUs];
         }
     }
 
-    // code largely copied from WorkerThread::getGpuUsage
-    private int queryNvidiaSmiFreeMemory(int gpuId) {
-        Process process;
-        try {
-            process =
-                    Runtime.getRuntime()
-                            .exec(
-                                    "nvidia-smi -i "
-                                            + gpuId
-                                            + " --query-gpu=memory.free --format=csv,noheader,nounits");
-            process.waitFor();
-            int exitCode = process.exitValue();
-            if (exitCode != 0) {
-                InputStream error = process.getErrorStream();
-                for (int i = 0; i < error.available(); i++) {
-                    logger.error("" + error.read());
-                }
-                return -1;
-            }
-            InputStream stdout = process.getInputStream();
-            BufferedReader reader =
-                    new BufferedReader(new InputStreamReader(stdout, StandardCharsets.UTF_8));
-            String line = reader.readLine();
-            if (line == null) {
-                return -1;
-            } else {
-                return Integer.parseInt(line);
-            }
-        } catch (Exception e) {
-            logger.error("An exception occurred when querying for free gpu memory", e);
+    // free memory from the last poll of the device telemetry, -1 if not available
+    // each worker assigned since the poll is not shown by it, and reserves the minimum free memory
+    private int getFreeMemory(DeviceTelemetry telemetry, int gpuId) {
+        DeviceTelemetry.DeviceStats device = telemetry == null ? null : telemetry.getDevice(gpuId);
+        if (device == null) {
+            return -1;
         }
-
-        return -1;
+        if (device != this.samples[gpuId]) {
+            this.samples[gpuId] = device;
+            this.nAssigned[gpuId] = 0;
+        }
+        if (device.getMemoryFree() < 0) {
+            return -1;
+        }
+        return device.getMemoryFree() - this.nAssigned[gpuId] * this.minFreeMemory;
     }
 
     public static synchronized void init(ConfigManager configManager) {
@@ -108,8 +91,9 @@ public final class GPUManager {
             this.gpuFailureHistory.addLast(failedGpuId);
         }
         // get free memory per GPU
+        DeviceTelemetry telemetry = DeviceTelemetry.getInstance();
         for (int i = 0; i < this.nGPUs; i++) {
-            this.freeMemory[i].set(queryNvidiaSmiFreeMemory(i));
+            this.freeMemory[i].set(getFreeMemory(telemetry, i));
         }
         // get failures for share calculation
         int[] nFailures = new int[this.nGPUs];
@@ -174,6 +158,7 @@ public final class GPUManager {
                     " with free memory " + eligibleIdFreeMems.get(gpuId) + 
                     " with number of failures " + nFailures[gpuId] + 
                     " to workerId " + workerId);
+        this.nAssigned[gpuId]++;
         return gpuId;
     }
 }
@@ -1,6 +1,11 @@
 package org.pytorch.serve.util;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import io.grpc.Status;
+import java.util.Map;
+import org.pytorch.serve.util.messages.InputParameter;
+import org.pytorch.serve.util.messages.RequestInput;
 
 public final class GRPCUtils {
 
@@ -61,4 +66,25 @@ public final class GRPCUtils {
                 }
         }
     }
+
+    /**
+     * Adds the inputs of a gRPC request as parameters of the request input. The parameters are
+     * read only views of the request's {@link ByteString}s, the payload is copied only once when it
+     * is encoded for the worker.
+     */
+    public static void addInputParameters(RequestInput inputData, Map<String, ByteString> input) {
+        for (Map.Entry<String, ByteString> entry : input.entrySet()) {
+            inputData.addParameter(
+                    new InputParameter(
+                            entry.getKey(), entry.getValue().asReadOnlyByteBuffer(), null));
+        }
+    }
+
+    /**
+     * Wraps a response body into a {@link ByteString} without copying it. The body must not be
+     * modified afterwards, which holds for the bodies of worker responses.
+     */
+    public static ByteString wrapResponse(byte[] body) {
+        return UnsafeByteOperations.unsafeWrap(body);
+    }
 }
@@ -0,0 +1,478 @@
+package org.pytorch.serve.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.pytorch.serve.http.BadRequestException;
+import org.pytorch.serve.http.InternalServerException;
+import org.pytorch.serve.job.BatchItemJob;
+import org.pytorch.serve.util.messages.InputParameter;
+import org.pytorch.serve.util.messages.RequestInput;
+
+/**
+ * Splits KServe requests with many instances (v1) or inputs (v2) into one request per instance
+ * and merges the responses back into one KServe response.
+ */
+public final class KServeUtils {
+
+    public static final String V1_REQUEST_FIELD = "instances";
+    public static final String V1_RESPONSE_FIELD = "predictions";
+    public static final String V2_REQUEST_FIELD = "inputs";
+    public static final String V2_RESPONSE_FIELD = "outputs";
+    public static final String INFERENCE_HEADER_CONTENT_LENGTH = "Inference-Header-Content-Length";
+
+    private static final String BINARY_DATA = "binary_data";
+    private static final String BINARY_DATA_OUTPUT = "binary_data_output";
+    private static final String BINARY_DATA_SIZE = "binary_data_size";
+    private static final String PARAMETERS = "parameters";
+
+    private KServeUtils() {}
+
+    /**
+     * Splits the request body on the given array field. Every returned request keeps all other
+     * top level fields of the original request and an array with a single element. The request is
+     * streamed: the other fields are written once and every element once into its own buffer, no
+     * json tree is built.
+     *
+     * @return the split requests, or null if the body is not a json object or the array has less
+     *     than two elements
+     */
+    public static List<byte[]> splitRequest(ByteBuf body, String arrayField) {
+        Buffer fields = new Buffer();
+        List<Buffer> elements = null;
+        try (Reader in =
+                        new InputStreamReader(
+                                new ByteBufInputStream(body.duplicate()), StandardCharsets.UTF_8);
+                JsonReader reader = new JsonReader(in)) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+            JsonWriter fieldWriter = newWriter(fields);
+            reader.beginObject();
+            fieldWriter.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (arrayField.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    elements = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        Buffer element = new Buffer();
+                        JsonWriter elementWriter = newWriter(element);
+                        copy(reader, elementWriter);
+                        elementWriter.flush();
+                        elements.add(element);
+                    }
+                    reader.endArray();
+                } else {
+                    fieldWriter.name(name);
+                    copy(reader, fieldWriter);
+                }
+            }
+            reader.endObject();
+            fieldWriter.endObject();
+            fieldWriter.flush();
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            // leave malformed requests to the backend to report
+            return null;
+        }
+        if (elements == null || elements.size() < 2) {
+            return null;
+        }
+
+        // {fields,"arrayField":[element]} with the closing brace of the fields left out
+        int fieldsLength = fields.size() - 1;
+        byte[] open =
+                ((fieldsLength > 1 ? "," : "") + '"' + arrayField + "\":[")
+                        .getBytes(StandardCharsets.UTF_8);
+        List<byte[]> requests = new ArrayList<>(elements.size());
+        for (Buffer element : elements) {
+            byte[] request = new byte[fieldsLength + open.length + element.size() + 2];
+            int pos = fields.copyTo(request, 0, fieldsLength);
+            System.arraycopy(open, 0, request, pos, open.length);
+            pos = element.copyTo(request, pos + open.length, element.size());
+            request[pos] = ']';
+            request[pos + 1] = '}';
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    private static JsonWriter newWriter(Buffer buffer) {
+        return new JsonWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8));
+    }
+
+    /** Copies the next value of the reader to the writer token by token. */
+    private static void copy(JsonReader reader, JsonWriter writer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copy(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+                break;
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copy(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+                break;
+            case STRING:
+                writer.value(reader.nextString());
+                break;
+            case NUMBER:
+                // keeps the number as written in the request
+                writer.jsonValue(reader.nextString());
+                break;
+            case BOOLEAN:
+                writer.value(reader.nextBoolean());
+                break;
+            case NULL:
+                reader.nextNull();
+                writer.nullValue();
+                break;
+            default:
+                throw new IllegalStateException("Unexpected json token: " + reader.peek());
+        }
+    }
+
+    /**
+     * Concatenates the array field of the successful item responses in item order. All other top
+     * level fields are taken from the first response.
+     */
+    public static JsonObject mergeResponses(List<BatchItemJob> jobs, String arrayField) {
+        JsonObject merged = new JsonObject();
+        JsonArray array = new JsonArray(jobs.size());
+        for (BatchItemJob job : jobs) {
+            try (Reader in =
+                    new InputStreamReader(
+                            new ByteArrayInputStream(job.getContent()), StandardCharsets.UTF_8)) {
+                JsonObject response = JsonParser.parseReader(in).getAsJsonObject();
+                for (Map.Entry<String, JsonElement> field : response.entrySet()) {
+                    if (arrayField.equals(field.getKey())) {
+                        array.addAll(field.getValue().getAsJsonArray());
+                    } else if (!merged.has(field.getKey())) {
+                        merged.add(field.getKey(), field.getValue());
+                    }
+                }
+            } catch (IOException | JsonParseException | IllegalStateException e) {
+                throw new InternalServerException(
+                        "Invalid KServe response for instance " + job.getIndex(), e);
+            }
+        }
+        merged.add(arrayField, array);
+        return merged;
+    }
+
+    /**
+     * Parses a request of the KServe v2 binary tensor extension. The json header is added as the
+     * "body" parameter and every binary tensor as a parameter named after its input. The
+     * parameters are slices of content, the tensors are not copied.
+     *
+     * @return the json header of the request
+     */
+    public static JsonObject parseBinaryRequest(
+            byte[] content, int headerLength, RequestInput input) {
+        if (headerLength < 0 || headerLength > content.length) {
+            throw new BadRequestException(
+                    "Invalid " + INFERENCE_HEADER_CONTENT_LENGTH + ": " + headerLength);
+        }
+        JsonObject header;
+        try {
+            header =
+                    JsonParser.parseString(
+                                    new String(content, 0, headerLength, StandardCharsets.UTF_8))
+                            .getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw invalidHeader(e.getMessage());
+        }
+
+        ByteBuffer body = ByteBuffer.wrap(content);
+        input.addParameter(
+                new InputParameter(
+                        "body", slice(body, 0, headerLength), HttpHeaderValues.APPLICATION_JSON));
+        int offset = headerLength;
+        JsonElement inputs = header.get(V2_REQUEST_FIELD);
+        if (inputs != null) {
+            if (!inputs.isJsonArray()) {
+                throw invalidHeader(V2_REQUEST_FIELD + " is not an array");
+            }
+            for (JsonElement element : inputs.getAsJsonArray()) {
+                if (!element.isJsonObject()) {
+                    throw invalidHeader("input is not an object");
+                }
+                JsonObject tensor = element.getAsJsonObject();
+                JsonElement parameters = tensor.get(PARAMETERS);
+                if (parameters == null || parameters.isJsonNull()) {
+                    continue;
+                }
+                if (!parameters.isJsonObject()) {
+                    throw invalidHeader(PARAMETERS + " of an input is not an object");
+                }
+                JsonElement binaryDataSize = parameters.getAsJsonObject().get(BINARY_DATA_SIZE);
+                if (binaryDataSize == null) {
+                    continue;
+                }
+                JsonElement nameElement = tensor.get("name");
+                if (!isString(nameElement)) {
+                    throw invalidHeader("input with binary data has no name");
+                }
+                String name = nameElement.getAsString();
+                if (!binaryDataSize.isJsonPrimitive()
+                        || !binaryDataSize.getAsJsonPrimitive().isNumber()) {
+                    throw invalidHeader(
+                            BINARY_DATA_SIZE + " of input " + name + " is not a number");
+                }
+                long size = binaryDataSize.getAsLong();
+                if (size < 0 || offset + size > content.length) {
+                    throw new BadRequestException(
+                            "Binary data of input " + name + " exceeds the request size");
+                }
+                input.addParameter(
+                        new InputParameter(
+                                name,
+                                slice(body, offset, (int) size),
+                                HttpHeaderValues.APPLICATION_OCTET_STREAM));
+                offset += (int) size;
+            }
+        }
+        if (offset != content.length) {
+            throw new BadRequestException(
+                    "Request contains "
+                            + (content.length - offset)
+                            + " bytes of binary data not assigned to any input");
+        }
+        return header;
+    }
+
+    private static BadRequestException invalidHeader(String message) {
+        return new BadRequestException("Invalid inference request header: " + message);
+    }
+
+    private static boolean isString(JsonElement element) {
+        return element != null
+                && element.isJsonPrimitive()
+                && element.getAsJsonPrimitive().isString();
+    }
+
+    /** Returns true if the request header asks for any output as binary data. */
+    public static boolean isBinaryOutputRequested(JsonObject requestHeader) {
+        return isBinaryDataAll(requestHeader) || !getBinaryOutputNames(requestHeader).isEmpty();
+    }
+
+    /**
+     * Converts a KServe v2 json response to the binary tensor extension, the data of every output
+     * requested as binary is moved behind the json header in little endian order.
+     */
+    public static FullHttpResponse encodeBinaryResponse(JsonObject requestHeader, byte[] content) {
+        JsonObject response;
+        try {
+            response =
+                    JsonParser.parseString(new String(content, StandardCharsets.UTF_8))
+                            .getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new InternalServerException("Invalid KServe v2 response", e);
+        }
+
+        boolean all = isBinaryDataAll(requestHeader);
+        Set<String> binaryOutputs = getBinaryOutputNames(requestHeader);
+        ByteBuf binary = Unpooled.buffer();
+        if (response.has(V2_RESPONSE_FIELD)) {
+            for (JsonElement element : response.getAsJsonArray(V2_RESPONSE_FIELD)) {
+                JsonObject output = element.getAsJsonObject();
+                String name = output.has("name") ? output.get("name").getAsString() : null;
+                if (!output.has("data")
+                        || !output.has("datatype")
+                        || !(all || binaryOutputs.contains(name))) {
+                    continue;
+                }
+                String datatype = output.get("datatype").getAsString();
+                int start = binary.writerIndex();
+                if (!writeTensor(datatype, output.get("data"), binary)) {
+                    binary.writerIndex(start);
+                    continue;
+                }
+                output.remove("data");
+                JsonObject parameters = output.getAsJsonObject(PARAMETERS);
+                if (parameters == null) {
+                    parameters = new JsonObject();
+                    output.add(PARAMETERS, parameters);
+                }
+                parameters.addProperty(BINARY_DATA_SIZE, binary.writerIndex() - start);
+            }
+        }
+
+        byte[] header = JsonUtils.GSON.toJson(response).getBytes(StandardCharsets.UTF_8);
+        FullHttpResponse resp =
+                new DefaultFullHttpResponse(
+                        HttpVersion.HTTP_1_1,
+                        HttpResponseStatus.OK,
+                        Unpooled.wrappedBuffer(Unpooled.wrappedBuffer(header), binary));
+        resp.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_OCTET_STREAM);
+        resp.headers().set(INFERENCE_HEADER_CONTENT_LENGTH, header.length);
+        return resp;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        return view.slice();
+    }
+
+    private static boolean isBinaryDataAll(JsonObject requestHeader) {
+        JsonObject parameters = requestHeader.getAsJsonObject(PARAMETERS);
+        return parameters != null
+                && parameters.has(BINARY_DATA_OUTPUT)
+                && parameters.get(BINARY_DATA_OUTPUT).getAsBoolean();
+    }
+
+    private static Set<String> getBinaryOutputNames(JsonObject requestHeader) {
+        Set<String> names = new HashSet<>();
+        if (!requestHeader.has(V2_RESPONSE_FIELD)) {
+            return names;
+        }
+        for (JsonElement element : requestHeader.getAsJsonArray(V2_RESPONSE_FIELD)) {
+            JsonObject output = element.getAsJsonObject();
+            JsonObject parameters = output.getAsJsonObject(PARAMETERS);
+            if (parameters != null
+                    && parameters.has(BINARY_DATA)
+                    && parameters.get(BINARY_DATA).getAsBoolean()) {
+                names.add(output.get("name").getAsString());
+            }
+        }
+        return names;
+    }
+
+    /** Writes the flattened elements of data, returns false for unsupported data types. */
+    private static boolean writeTensor(String datatype, JsonElement data, ByteBuf out) {
+        switch (datatype) {
+            case "BOOL":
+            case "UINT8":
+            case "INT8":
+            case "UINT16":
+            case "INT16":
+            case "UINT32":
+            case "INT32":
+            case "UINT64":
+            case "INT64":
+            case "FP16":
+            case "FP32":
+            case "FP64":
+            case "BYTES":
+                break;
+            default:
+                return false;
+        }
+        if (data.isJsonArray()) {
+            for (JsonElement element : data.getAsJsonArray()) {
+                writeTensor(datatype, element, out);
+            }
+            return true;
+        }
+        switch (datatype) {
+            case "BOOL":
+                out.writeByte(data.getAsBoolean() ? 1 : 0);
+                break;
+            case "UINT8":
+            case "INT8":
+                out.writeByte(data.getAsInt());
+                break;
+            case "UINT16":
+            case "INT16":
+                out.writeShortLE(data.getAsInt());
+                break;
+            case "UINT32":
+            case "INT32":
+                out.writeIntLE((int) data.getAsLong());
+                break;
+            case "UINT64":
+            case "INT64":
+                out.writeLongLE(data.getAsBigInteger().longValue());
+                break;
+            case "FP16":
+                out.writeShortLE(toHalf(data.getAsFloat()));
+                break;
+            case "FP32":
+                out.writeFloatLE(data.getAsFloat());
+                break;
+            case "FP64":
+                out.writeDoubleLE(data.getAsDouble());
+                break;
+            default: // BYTES
+                byte[] buf = data.getAsString().getBytes(StandardCharsets.UTF_8);
+                out.writeIntLE(buf.length);
+                out.writeBytes(buf);
+                break;
+        }
+        return true;
+    }
+
+    /** Converts a float to IEEE 754 half precision, rounding to nearest. */
+    private static int toHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int abs = bits & 0x7fffffff;
+        int val = abs + 0x1000;
+        if (val >= 0x47800000) {
+            if (abs >= 0x47800000) {
+                if (val < 0x7f800000) {
+                    return sign | 0x7c00; // infinity
+                }
+                return sign | 0x7c00 | ((bits & 0x007fffff) >>> 13); // NaN
+            }
+            return sign | 0x7bff; // largest finite half
+        }
+        if (val >= 0x38800000) {
+            return sign | ((val - 0x38000000) >>> 13); // normal
+        }
+        if (val < 0x33000000) {
+            return sign; // underflow to zero
+        }
+        int exp = abs >>> 23; // subnormal
+        return sign
+                | ((((bits & 0x7fffff) | 0x800000) + (0x800000 >>> (exp - 102))) >>> (126 - exp));
+    }
+
+    /** A byte buffer that copies its content into an array without an intermediate copy. */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        synchronized int copyTo(byte[] dest, int pos, int length) {
+            System.arraycopy(buf, 0, dest, pos, length);
+            return pos + length;
+        }
+    }
+}
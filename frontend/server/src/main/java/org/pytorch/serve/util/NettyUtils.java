@@ -24,13 +24,13 @@ import io.netty.util.AttributeKey;
 import io.netty.util.CharsetUtil;
 import java.io.IOException;
 import java.net.SocketAddress;
-import java.util.Arrays;
 import java.util.List;
 import org.pytorch.serve.http.ErrorResponse;
 import org.pytorch.serve.http.Session;
 import org.pytorch.serve.http.StatusResponse;
-import org.pytorch.serve.metrics.IMetric;
+import org.pytorch.serve.metrics.LogEventPipeline;
 import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.MetricHandle;
 import org.pytorch.serve.util.messages.InputParameter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -130,38 +130,15 @@ public final class NettyUtils {
             // session might be recycled if channel is closed already.
             session.setCode(resp.status().code());
             headers.set(REQUEST_ID, session.getRequestId());
-            logger.info(session.toString());
+            LogEventPipeline.logAccess(session);
         }
         int code = resp.status().code();
-        List<String> requestsMetricDimensionValues =
-                Arrays.asList("Host", ConfigManager.getInstance().getHostName());
         if (code >= 200 && code < 300) {
-            IMetric requests2xxMetric = MetricCache.getInstance().getMetricFrontend("Requests2XX");
-            if (requests2xxMetric != null) {
-                try {
-                    requests2xxMetric.addOrUpdate(requestsMetricDimensionValues, 1);
-                } catch (Exception e) {
-                    logger.error("Failed to update frontend metric Requests2XX: ", e);
-                }
-            }
+            updateRequestsMetric(RequestsMetrics.REQUESTS_2XX, "Requests2XX");
         } else if (code >= 400 && code < 500) {
-            IMetric requests4xxMetric = MetricCache.getInstance().getMetricFrontend("Requests4XX");
-            if (requests4xxMetric != null) {
-                try {
-                    requests4xxMetric.addOrUpdate(requestsMetricDimensionValues, 1);
-                } catch (Exception e) {
-                    logger.error("Failed to update frontend metric Requests4XX: ", e);
-                }
-            }
+            updateRequestsMetric(RequestsMetrics.REQUESTS_4XX, "Requests4XX");
         } else {
-            IMetric requests5xxMetric = MetricCache.getInstance().getMetricFrontend("Requests5XX");
-            if (requests5xxMetric != null) {
-                try {
-                    requests5xxMetric.addOrUpdate(requestsMetricDimensionValues, 1);
-                } catch (Exception e) {
-                    logger.error("Failed to update frontend metric Requests5XX: ", e);
-                }
-            }
+            updateRequestsMetric(RequestsMetrics.REQUESTS_5XX, "Requests5XX");
         }
 
         String allowedOrigin = configManager.getCorsAllowedOrigin();
@@ -204,6 +181,16 @@ public final class NettyUtils {
         }
     }
 
+    private static void updateRequestsMetric(MetricHandle metric, String name) {
+        if (metric != null) {
+            try {
+                metric.addOrUpdate(1);
+            } catch (Exception e) {
+                logger.error("Failed to update frontend metric " + name + ": ", e);
+            }
+        }
+    }
+
     /** Closes the specified channel after all queued write requests are flushed. */
     public static void closeOnFlush(Channel ch) {
         if (ch.isActive()) {
@@ -269,4 +256,17 @@ public final class NettyUtils {
                         "Except form field, but got " + data.getHttpDataType());
         }
     }
+
+    /** The Host level handles of the request counters, bound on the first response. */
+    private static final class RequestsMetrics {
+
+        static final MetricHandle REQUESTS_2XX = bind("Requests2XX");
+        static final MetricHandle REQUESTS_4XX = bind("Requests4XX");
+        static final MetricHandle REQUESTS_5XX = bind("Requests5XX");
+
+        private static MetricHandle bind(String name) {
+            MetricCache metricCache = MetricCache.getInstance();
+            return metricCache == null ? null : metricCache.getHostMetricFrontend(name);
+        }
+    }
 }
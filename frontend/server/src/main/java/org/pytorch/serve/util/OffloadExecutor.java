@@ -0,0 +1,142 @@
+package org.pytorch.serve.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.pytorch.serve.http.ServiceUnavailableException;
+import org.pytorch.serve.metrics.IMetric;
+import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.MetricHandle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded executor for request handlers that may block, like model registration and plugin
+ * endpoints, so that they never run on the event loops serving inference I/O.
+ */
+public final class OffloadExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(OffloadExecutor.class);
+
+    private static final ThreadLocal<Boolean> OFFLOAD_THREAD = new ThreadLocal<>();
+
+    private static OffloadExecutor offloadExecutor;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<ConnectorType, TaskMetrics> taskMetrics;
+
+    private OffloadExecutor(ConfigManager configManager) {
+        int threads = configManager.getOffloadThreads();
+        ThreadFactory threadFactory =
+                new ThreadFactoryBuilder().setNameFormat("offload-thread-%d").build();
+        executor =
+                new ThreadPoolExecutor(
+                        threads,
+                        threads,
+                        0L,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(configManager.getOffloadQueueSize()),
+                        r ->
+                                threadFactory.newThread(
+                                        () -> {
+                                            OFFLOAD_THREAD.set(Boolean.TRUE);
+                                            r.run();
+                                        }));
+        taskMetrics = new EnumMap<>(ConnectorType.class);
+        for (ConnectorType connectorType : ConnectorType.values()) {
+            taskMetrics.put(connectorType, new TaskMetrics(connectorType, configManager));
+        }
+    }
+
+    public static void init(ConfigManager configManager) {
+        offloadExecutor = new OffloadExecutor(configManager);
+    }
+
+    public static OffloadExecutor getInstance() {
+        return offloadExecutor;
+    }
+
+    /** Returns true if the calling thread already runs an offloaded task. */
+    public static boolean isOffloadThread() {
+        return OFFLOAD_THREAD.get() != null;
+    }
+
+    /**
+     * Runs the task on an offload thread.
+     *
+     * @param connectorType the connector that received the request, used as metric dimension
+     * @param task the task to run
+     * @throws ServiceUnavailableException if all threads are busy and the queue is full
+     */
+    public void execute(ConnectorType connectorType, Runnable task) {
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(
+                    () -> {
+                        long startedAt = System.nanoTime();
+                        try {
+                            task.run();
+                        } finally {
+                            updateMetrics(
+                                    connectorType,
+                                    (startedAt - queuedAt) / 1000,
+                                    (System.nanoTime() - startedAt) / 1000);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException(
+                    "Too many pending management requests, please retry later.");
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void updateMetrics(
+            ConnectorType connectorType, long queueLatencyMicros, long latencyMicros) {
+        TaskMetrics metrics = taskMetrics.get(connectorType);
+        update(metrics.tasks, "ts_offload_tasks_total", 1);
+        update(metrics.queueLatency, "ts_offload_queue_latency_microseconds", queueLatencyMicros);
+        update(metrics.latency, "ts_offload_latency_microseconds", latencyMicros);
+    }
+
+    private static void update(MetricHandle metric, String name, double value) {
+        if (metric != null) {
+            try {
+                metric.addOrUpdate(value);
+            } catch (Exception e) {
+                logger.error("Failed to update frontend metric " + name + ": ", e);
+            }
+        }
+    }
+
+    /** The metric handles of the tasks of one connector, bound when the executor is created. */
+    private static final class TaskMetrics {
+
+        private final MetricHandle tasks;
+        private final MetricHandle queueLatency;
+        private final MetricHandle latency;
+
+        TaskMetrics(ConnectorType connectorType, ConfigManager configManager) {
+            List<String> dimensionValues =
+                    Arrays.asList(connectorType.name(), configManager.getHostName());
+            tasks = bind("ts_offload_tasks_total", dimensionValues);
+            queueLatency = bind("ts_offload_queue_latency_microseconds", dimensionValues);
+            latency = bind("ts_offload_latency_microseconds", dimensionValues);
+        }
+
+        private static MetricHandle bind(String name, List<String> dimensionValues) {
+            MetricCache metricCache = MetricCache.getInstance();
+            IMetric metric = metricCache == null ? null : metricCache.getMetricFrontend(name);
+            return metric == null ? null : metric.bind(dimensionValues);
+        }
+    }
+}
@@ -82,6 +82,15 @@ public class PriorityLinkedBlockingDeque<T extends Prioritisable> {
         return this.priorityDeques.reduceValues(Long.MAX_VALUE, LinkedBlockingDeque::isEmpty, Boolean::logicalAnd);
     }
 
+    public int size() {
+        // the sum of all deques, which may change while they are counted
+        int size = 0;
+        for (LinkedBlockingDeque<T> deque : this.priorityDeques.values()) {
+            size += deque.size();
+        }
+        return size;
+    }
+
     public boolean offer(T p) {
         final ReentrantLock lock = this.lock;
         lock.lock();
@@ -6,10 +6,16 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.ChannelGroupFuture;
 import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.pytorch.serve.metrics.IMetric;
+import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.MetricHandle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,12 +23,16 @@ public class ServerGroups {
 
     private static final Logger logger = LoggerFactory.getLogger(ServerGroups.class);
 
+    private static final long LAG_PROBE_INTERVAL_MS = 1000;
+
     private ChannelGroup allChannels;
 
     private EventLoopGroup serverGroup;
     private EventLoopGroup childGroup;
+    private EventLoopGroup managementGroup;
     private EventLoopGroup metricsGroup;
     private EventLoopGroup backendGroup;
+    private List<AcceptorShard> acceptorShards;
 
     private ConfigManager configManager;
 
@@ -35,23 +45,115 @@ public class ServerGroups {
         allChannels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
 
         serverGroup = Connector.newEventLoopGroup(2);
-        childGroup = Connector.newEventLoopGroup(configManager.getNettyThreads());
+        synchronized (this) {
+            // created on first use, the acceptor shards serve the inference connector otherwise
+            childGroup = null;
+        }
+        managementGroup = Connector.newEventLoopGroup(configManager.getManagementNettyThreads());
         if (configManager.isMetricApiEnable()) {
-            metricsGroup = Connector.newEventLoopGroup(1);
+            metricsGroup = Connector.newEventLoopGroup(configManager.getMetricsNettyThreads());
         }
         backendGroup = Connector.newEventLoopGroup(configManager.getNettyClientThreads());
+        OffloadExecutor.init(configManager);
+
+        acceptorShards = new ArrayList<>();
+        int shards = configManager.getAcceptorShards();
+        if (shards > 1) {
+            if (Connector.isReusePortAvailable()) {
+                int threads = configManager.getNettyThreads();
+                if (threads <= 0) {
+                    threads = Runtime.getRuntime().availableProcessors() * 2;
+                }
+                threads = Math.max(1, threads / shards);
+                boolean cpuAffinity = configManager.isAcceptorCpuAffinity();
+                for (int i = 0; i < shards; ++i) {
+                    AcceptorShard shard = new AcceptorShard(i, shards, threads, cpuAffinity);
+                    acceptorShards.add(shard);
+                    monitorLag("shard-" + i, shard.getGroup());
+                }
+            } else {
+                logger.warn(
+                        "Sharded acceptors require the native epoll transport, using a single"
+                                + " acceptor.");
+            }
+        }
+
+        monitorLag("server", serverGroup);
+        monitorLag("management", managementGroup);
+        if (metricsGroup != null) {
+            monitorLag("metrics", metricsGroup);
+        }
+    }
+
+    /**
+     * Reports the largest delay of a probe task scheduled on the event loops of the group, a
+     * blocked event loop shows up as lag of every connection it serves.
+     */
+    private void monitorLag(String name, EventLoopGroup group) {
+        MetricCache metricCache = MetricCache.getInstance();
+        IMetric lagMetric =
+                metricCache == null
+                        ? null
+                        : metricCache.getMetricFrontend("ts_event_loop_lag_microseconds");
+        if (lagMetric == null) {
+            return;
+        }
+        MetricHandle metric = lagMetric.bind(Arrays.asList(name, configManager.getHostName()));
+        AtomicLong maxLag = new AtomicLong();
+        for (EventExecutor loop : group) {
+            scheduleLagProbe(loop, maxLag);
+        }
+        group.next()
+                .scheduleAtFixedRate(
+                        () -> {
+                            try {
+                                metric.addOrUpdate(maxLag.getAndSet(0));
+                            } catch (Exception e) {
+                                logger.error(
+                                        "Failed to update frontend metric"
+                                                + " ts_event_loop_lag_microseconds: ",
+                                        e);
+                            }
+                        },
+                        LAG_PROBE_INTERVAL_MS,
+                        LAG_PROBE_INTERVAL_MS,
+                        TimeUnit.MILLISECONDS);
+    }
+
+    private static void scheduleLagProbe(EventExecutor loop, AtomicLong maxLag) {
+        if (loop.isShuttingDown()) {
+            return;
+        }
+        long expected = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LAG_PROBE_INTERVAL_MS);
+        loop.schedule(
+                () -> {
+                    long lag = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - expected);
+                    maxLag.accumulateAndGet(lag, Math::max);
+                    scheduleLagProbe(loop, maxLag);
+                },
+                LAG_PROBE_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
     }
 
     public void shutdown(boolean graceful) {
         closeAllChannels(graceful);
+        OffloadExecutor.getInstance().shutdown();
 
         List<EventLoopGroup> allEventLoopGroups = new ArrayList<>();
 
         allEventLoopGroups.add(serverGroup);
-        allEventLoopGroups.add(childGroup);
+        synchronized (this) {
+            if (childGroup != null) {
+                allEventLoopGroups.add(childGroup);
+            }
+        }
+        allEventLoopGroups.add(managementGroup);
         if (configManager.isMetricApiEnable()) {
             allEventLoopGroups.add(metricsGroup);
         }
+        for (AcceptorShard shard : acceptorShards) {
+            allEventLoopGroups.add(shard.getGroup());
+        }
 
         for (EventLoopGroup group : allEventLoopGroups) {
             if (graceful) {
@@ -76,10 +178,19 @@ public class ServerGroups {
         return serverGroup;
     }
 
-    public EventLoopGroup getChildGroup() {
+    /** Returns the event loops of the inference connector, created on first use. */
+    public synchronized EventLoopGroup getChildGroup() {
+        if (childGroup == null) {
+            childGroup = Connector.newEventLoopGroup(configManager.getNettyThreads());
+            monitorLag("inference", childGroup);
+        }
         return childGroup;
     }
 
+    public EventLoopGroup getManagementGroup() {
+        return managementGroup;
+    }
+
     public EventLoopGroup getMetricsGroup() {
         return metricsGroup;
     }
@@ -88,6 +199,10 @@ public class ServerGroups {
         return backendGroup;
     }
 
+    public List<AcceptorShard> getAcceptorShards() {
+        return acceptorShards;
+    }
+
     public void registerChannel(Channel channel) {
         allChannels.add(channel);
     }
@@ -9,6 +9,8 @@ import java.util.Map;
 public final class CodecUtils {
 
     public static final int END = -1;
+    /** End of the prediction list, followed by the timings reported by the backend. */
+    public static final int TIMINGS = -2;
     public static final int BUFFER_UNDER_RUN = -3;
 
     private CodecUtils() {}
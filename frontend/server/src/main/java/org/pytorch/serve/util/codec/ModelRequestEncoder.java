@@ -3,9 +3,12 @@ package org.pytorch.serve.util.codec;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.MessageToByteEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
+import org.pytorch.serve.metrics.RequestTimeline;
 import org.pytorch.serve.util.messages.BaseModelRequest;
 import org.pytorch.serve.util.messages.InputParameter;
 import org.pytorch.serve.util.messages.ModelInferenceRequest;
@@ -18,6 +21,28 @@ public class ModelRequestEncoder extends MessageToByteEncoder<BaseModelRequest>
         super(preferDirect);
     }
 
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+            throws Exception {
+        if (msg instanceof ModelInferenceRequest && !promise.isVoid()) {
+            // the promise completes once the flushed batch has been written to the socket
+            List<RequestInput> batch = ((ModelInferenceRequest) msg).getRequestBatch();
+            promise.addListener(
+                    f -> {
+                        if (f.isSuccess()) {
+                            long written = System.nanoTime();
+                            for (RequestInput input : batch) {
+                                RequestTimeline timeline = input.getTimeline();
+                                if (timeline != null) {
+                                    timeline.mark(RequestTimeline.Mark.WRITTEN, written);
+                                }
+                            }
+                        }
+                    });
+        }
+        super.write(ctx, msg, promise);
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, BaseModelRequest msg, ByteBuf out) {
         if (msg instanceof ModelLoadModelRequest) {
@@ -68,6 +93,12 @@ public class ModelRequestEncoder extends MessageToByteEncoder<BaseModelRequest>
                 encodeRequest(input, out);
             }
             out.writeInt(-1); // End of List
+            for (RequestInput input : request.getRequestBatch()) {
+                RequestTimeline timeline = input.getTimeline();
+                if (timeline != null) {
+                    timeline.mark(RequestTimeline.Mark.ENCODED);
+                }
+            }
         }
     }
 
@@ -95,9 +126,8 @@ public class ModelRequestEncoder extends MessageToByteEncoder<BaseModelRequest>
 
         encodeField(parameter.getContentType(), out);
 
-        byte[] buf = parameter.getValue();
-        out.writeInt(buf.length);
-        out.writeBytes(buf);
+        out.writeInt(parameter.getValueLength());
+        out.writeBytes(parameter.getValueBuffer());
     }
 
     private static void encodeField(CharSequence field, ByteBuf out) {
@@ -11,13 +11,28 @@ import org.pytorch.serve.util.messages.Predictions;
 public class ModelResponseDecoder extends ByteToMessageDecoder {
 
     private final int maxBufferSize;
+    private final boolean timed;
+    private long frameStart;
 
     public ModelResponseDecoder(int maxBufferSize) {
+        this(maxBufferSize, false);
+    }
+
+    /**
+     * @param maxBufferSize the maximum size of a field of the response
+     * @param timed true to record when the first bytes of a response were read and when it was
+     *     decoded
+     */
+    public ModelResponseDecoder(int maxBufferSize, boolean timed) {
         this.maxBufferSize = maxBufferSize;
+        this.timed = timed;
     }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        if (timed && frameStart == 0) {
+            frameStart = System.nanoTime();
+        }
         int size = in.readableBytes();
         if (size < 9) {
             return;
@@ -37,7 +52,8 @@ public class ModelResponseDecoder extends ByteToMessageDecoder {
             resp.setMessage(CodecUtils.readString(in, len));
 
             List<Predictions> predictions = new ArrayList<>();
-            while ((len = CodecUtils.readLength(in, maxBufferSize)) != CodecUtils.END) {
+            while ((len = CodecUtils.readLength(in, maxBufferSize)) != CodecUtils.END
+                    && len != CodecUtils.TIMINGS) {
                 if (len == CodecUtils.BUFFER_UNDER_RUN) {
                     return;
                 }
@@ -80,6 +96,14 @@ public class ModelResponseDecoder extends ByteToMessageDecoder {
                 predictions.add(prediction);
             }
             resp.setPredictions(predictions);
+            if (len == CodecUtils.TIMINGS && !readTimings(in, resp)) {
+                return;
+            }
+            if (timed) {
+                resp.setReceivedAt(frameStart);
+                resp.setDecodedAt(System.nanoTime());
+                frameStart = 0;
+            }
             out.add(resp);
             completed = true;
         } finally {
@@ -88,4 +112,39 @@ public class ModelResponseDecoder extends ByteToMessageDecoder {
             }
         }
     }
+
+    /**
+     * Reads the durations of the processing steps the backend reported, each one for the whole
+     * batch or for one prediction: the number of timings, then per timing the index of the
+     * prediction or -1 for the batch, the name of the step and the duration in milliseconds.
+     *
+     * @return false if the timings are not received completely yet
+     */
+    private boolean readTimings(ByteBuf in, ModelWorkerResponse resp) {
+        if (in.readableBytes() < 4) {
+            return false;
+        }
+        List<Predictions> predictions = resp.getPredictions();
+        for (int count = in.readInt(); count > 0; --count) {
+            if (in.readableBytes() < 4) {
+                return false;
+            }
+            int index = in.readInt();
+            int len = CodecUtils.readLength(in, maxBufferSize);
+            if (len == CodecUtils.BUFFER_UNDER_RUN) {
+                return false;
+            }
+            String name = CodecUtils.readString(in, len);
+            if (in.readableBytes() < 8) {
+                return false;
+            }
+            double durationMs = in.readDouble();
+            if (index < 0) {
+                resp.addTiming(name, durationMs);
+            } else if (index < predictions.size()) {
+                predictions.get(index).addTiming(name, durationMs);
+            }
+        }
+        return true;
+    }
 }
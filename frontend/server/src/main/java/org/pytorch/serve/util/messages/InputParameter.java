@@ -1,11 +1,13 @@
 package org.pytorch.serve.util.messages;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 public class InputParameter {
 
     private String name;
     private byte[] value;
+    private ByteBuffer buffer;
     private CharSequence contentType;
 
     public InputParameter() {}
@@ -25,14 +27,41 @@ public class InputParameter {
         this.value = data.clone();
     }
 
+    /**
+     * Creates a parameter backed by the given buffer without copying it. The buffer content must
+     * not be modified while the parameter is in use.
+     */
+    public InputParameter(String name, ByteBuffer data, CharSequence contentType) {
+        this.name = name;
+        this.contentType = contentType;
+        this.buffer = data.slice();
+    }
+
     public String getName() {
         return name;
     }
 
     public byte[] getValue() {
+        if (value == null && buffer != null) {
+            byte[] data = new byte[buffer.remaining()];
+            buffer.duplicate().get(data);
+            value = data;
+        }
         return value;
     }
 
+    /** Returns a read only view of the value that does not copy a buffer backed parameter. */
+    public ByteBuffer getValueBuffer() {
+        if (buffer != null) {
+            return buffer.asReadOnlyBuffer();
+        }
+        return ByteBuffer.wrap(value).asReadOnlyBuffer();
+    }
+
+    public int getValueLength() {
+        return buffer != null ? buffer.remaining() : value.length;
+    }
+
     public CharSequence getContentType() {
         return contentType;
     }
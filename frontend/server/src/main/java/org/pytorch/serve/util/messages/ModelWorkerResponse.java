@@ -1,12 +1,18 @@
 package org.pytorch.serve.util.messages;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ModelWorkerResponse {
 
     private int code;
     private String message;
     private List<Predictions> predictions;
+    private long receivedAt;
+    private long decodedAt;
+    private Map<String, Double> timings = Collections.emptyMap();
 
     public ModelWorkerResponse() {}
 
@@ -34,6 +40,36 @@ public class ModelWorkerResponse {
         this.predictions = predictions;
     }
 
+    /** Returns the durations of the processing steps reported by the backend, in milliseconds. */
+    public Map<String, Double> getTimings() {
+        return timings;
+    }
+
+    public void addTiming(String name, double durationMs) {
+        if (timings.isEmpty()) {
+            timings = new LinkedHashMap<>();
+        }
+        timings.put(name, durationMs);
+    }
+
+    /** Returns the time the first bytes of the response were read at, 0 if not timed. */
+    public long getReceivedAt() {
+        return receivedAt;
+    }
+
+    public void setReceivedAt(long receivedAt) {
+        this.receivedAt = receivedAt;
+    }
+
+    /** Returns the time the response was decoded at, 0 if not timed. */
+    public long getDecodedAt() {
+        return decodedAt;
+    }
+
+    public void setDecodedAt(long decodedAt) {
+        this.decodedAt = decodedAt;
+    }
+
     public void appendPredictions(Predictions prediction) {
         this.predictions.add(prediction);
     }
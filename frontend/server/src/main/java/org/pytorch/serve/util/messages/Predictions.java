@@ -1,5 +1,7 @@
 package org.pytorch.serve.util.messages;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class Predictions {
@@ -11,6 +13,7 @@ public class Predictions {
     private String contentType;
     private Map<String, String> headers;
     private byte[] resp;
+    private Map<String, Double> timings = Collections.emptyMap();
 
     public Map<String, String> getHeaders() {
         return headers;
@@ -20,6 +23,18 @@ public class Predictions {
         this.headers = headers;
     }
 
+    /** Returns the durations of the processing steps reported by the backend, in milliseconds. */
+    public Map<String, Double> getTimings() {
+        return timings;
+    }
+
+    public void addTiming(String name, double durationMs) {
+        if (timings.isEmpty()) {
+            timings = new LinkedHashMap<>();
+        }
+        timings.put(name, durationMs);
+    }
+
     public Predictions() {}
 
     public String getRequestId() {
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.pytorch.serve.metrics.RequestTimeline;
 
 public class RequestInput {
     public static final String TS_STREAM_NEXT = "ts_stream_next";
@@ -13,6 +14,7 @@ public class RequestInput {
     private Map<String, String> headers;
     private List<InputParameter> parameters;
     private long clientExpireTS;
+    private RequestTimeline timeline;
 
     public RequestInput(String requestId) {
         this.requestId = requestId;
@@ -62,6 +64,15 @@ public class RequestInput {
         return null;
     }
 
+    /** Returns the stage timestamps of the request, null if request stage timing is disabled. */
+    public RequestTimeline getTimeline() {
+        return timeline;
+    }
+
+    public void setTimeline(RequestTimeline timeline) {
+        this.timeline = timeline;
+    }
+
     public long getClientExpireTS() {
         return clientExpireTS;
     }
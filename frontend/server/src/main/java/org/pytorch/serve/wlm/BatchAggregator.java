@@ -3,6 +3,12 @@ package org.pytorch.serve.wlm;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.pytorch.serve.job.Job;
+import org.pytorch.serve.metrics.LatencyTracker;
+import org.pytorch.serve.metrics.RequestTimeline;
+import org.pytorch.serve.metrics.RequestTracer;
+import org.pytorch.serve.metrics.jfr.BatchEvent;
+import org.pytorch.serve.metrics.jfr.JfrEvents;
+import org.pytorch.serve.util.ConfigManager;
 import org.pytorch.serve.util.messages.BaseModelRequest;
 import org.pytorch.serve.util.messages.ModelInferenceRequest;
 import org.pytorch.serve.util.messages.ModelLoadModelRequest;
@@ -17,12 +23,16 @@ public class BatchAggregator {
 
     private static final Logger logger = LoggerFactory.getLogger(BatchAggregator.class);
 
+    private static final String SERVER_TIMING = "Server-Timing";
+
     private Model model;
     private Map<String, Job> jobs;
+    private boolean serverTiming;
 
     public BatchAggregator(Model model) {
         this.model = model;
         jobs = new LinkedHashMap<>();
+        serverTiming = ConfigManager.getInstance().isServerTimingHeaderEnabled();
     }
 
     public BaseModelRequest getRequest(String threadName, WorkerState state)
@@ -31,6 +41,7 @@ public class BatchAggregator {
 
         ModelInferenceRequest req = new ModelInferenceRequest(model.getModelName());
 
+        BatchEvent batchEvent = JfrEvents.beginBatch();
         model.pollBatch(
                 threadName, (state == WorkerState.WORKER_MODEL_LOADED) ? 0 : Long.MAX_VALUE, jobs);
 
@@ -58,9 +69,11 @@ public class BatchAggregator {
                     req.setCommand(WorkerCommands.STREAMPREDICT);
                 }
                 j.setScheduled();
+                JfrEvents.jobDequeued(model, j);
                 req.addRequest(j.getPayload());
             }
         }
+        JfrEvents.commitBatch(batchEvent, threadName, model, jobs.size());
         return req;
     }
 
@@ -96,6 +109,15 @@ public class BatchAggregator {
                         jobDone = false;
                     }
                 }
+                RequestTimeline timeline = job.getTimeline();
+                if (timeline != null) {
+                    timeline.mark(RequestTimeline.Mark.REPLIED, message.getReceivedAt());
+                    timeline.mark(RequestTimeline.Mark.REPLY_DECODED, message.getDecodedAt());
+                }
+                Map<String, Double> timings = getTimings(message, prediction);
+                if (serverTiming && prediction.getHeaders() != null) {
+                    prediction.getHeaders().put(SERVER_TIMING, getServerTiming(job, timings));
+                }
                 if (job.getPayload().getClientExpireTS() > System.currentTimeMillis()) {
                     job.response(
                             prediction.getResp(),
@@ -103,6 +125,7 @@ public class BatchAggregator {
                             prediction.getStatusCode(),
                             prediction.getReasonPhrase(),
                             prediction.getHeaders());
+                    recordLatency(job, prediction, timings);
                 } else {
                     logger.warn(
                             "Drop response for inference request {} due to client timeout",
@@ -133,6 +156,100 @@ public class BatchAggregator {
         return jobDone;
     }
 
+    /** Returns false if any client of the current batch can not accept more stream data. */
+    public boolean isWritable() {
+        for (Job job : jobs.values()) {
+            if (!job.isWritable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the number of stream response bytes buffered for the clients of the batch. */
+    public long getBufferedBytes() {
+        long bytes = 0;
+        for (Job job : jobs.values()) {
+            bytes += job.getBufferedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Waits until all clients of the current batch are writable. Streams of the clients which are
+     * still not writable after timeoutMs are aborted.
+     *
+     * @return false if at least one stream was aborted
+     */
+    public boolean awaitWritable(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        boolean writable = true;
+        for (Job job : jobs.values()) {
+            long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            if (!job.awaitWritable(remaining)) {
+                job.abortStream("client not writable for " + timeoutMs + " ms");
+                writable = false;
+            }
+        }
+        return writable;
+    }
+
+    /** Returns the backend timings of a prediction, the ones of its batch if it has none. */
+    private static Map<String, Double> getTimings(
+            ModelWorkerResponse message, Predictions prediction) {
+        if (prediction.getTimings().isEmpty()) {
+            return message.getTimings();
+        }
+        if (message.getTimings().isEmpty()) {
+            return prediction.getTimings();
+        }
+        Map<String, Double> timings = new LinkedHashMap<>(message.getTimings());
+        timings.putAll(prediction.getTimings());
+        return timings;
+    }
+
+    /** Formats the queue, backend and backend step durations of a job as Server-Timing header. */
+    private static String getServerTiming(Job job, Map<String, Double> timings) {
+        StringBuilder sb = new StringBuilder(64 + 32 * timings.size());
+        appendServerTiming(sb, "queue", (job.getScheduled() - job.getBegin()) / 1e6);
+        appendServerTiming(sb, "backend", (System.nanoTime() - job.getScheduled()) / 1e6);
+        for (Map.Entry<String, Double> timing : timings.entrySet()) {
+            appendServerTiming(sb, timing.getKey(), timing.getValue());
+        }
+        return sb.toString();
+    }
+
+    private static void appendServerTiming(StringBuilder sb, String name, double durationMs) {
+        if (sb.length() > 0) {
+            sb.append(", ");
+        }
+        for (int i = 0; i < name.length(); ++i) {
+            char c = name.charAt(i);
+            // the metric name is an HTTP token
+            sb.append(Character.isLetterOrDigit(c) || c == '-' || c == '.' ? c : '_');
+        }
+        sb.append(";dur=").append(Math.round(durationMs * 1000) / 1000.0);
+    }
+
+    private void recordLatency(Job job, Predictions prediction, Map<String, Double> timings) {
+        LatencyTracker latencyTracker = LatencyTracker.getInstance();
+        if (latencyTracker == null || job.getCmd() == WorkerCommands.DESCRIBE) {
+            return;
+        }
+        if (!"true".equals(prediction.getHeaders().get(RequestInput.TS_STREAM_NEXT))) {
+            long completed = System.nanoTime();
+            RequestTimeline timeline = job.getTimeline();
+            if (timeline != null) {
+                timeline.mark(RequestTimeline.Mark.COMPLETED, completed);
+            }
+            latencyTracker.record(job, completed, timings);
+            RequestTracer tracer = RequestTracer.getInstance();
+            if (timeline != null && tracer != null) {
+                tracer.export(job, timeline);
+            }
+        }
+    }
+
     public void sendError(BaseModelRequest message, String error, int status) {
         if (message instanceof ModelLoadModelRequest) {
             logger.warn("Load model failed: {}, error: {}", message.getModelName(), error);
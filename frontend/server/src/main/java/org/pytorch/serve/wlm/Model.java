@@ -15,6 +15,8 @@ import org.apache.commons.io.FilenameUtils;
 import org.pytorch.serve.archive.model.ModelArchive;
 import org.pytorch.serve.archive.model.ModelConfig;
 import org.pytorch.serve.job.Job;
+import org.pytorch.serve.metrics.RequestTimeline;
+import org.pytorch.serve.metrics.jfr.JfrEvents;
 import org.pytorch.serve.util.ConfigManager;
 import org.pytorch.serve.util.PriorityLinkedBlockingDeque;
 import org.pytorch.serve.util.messages.WorkerCommands;
@@ -245,9 +247,13 @@ public class Model {
     public boolean addJob(Job job) {
         if (isUseJobTicket() && !getJobTickets()) {
             logger.info("There are no job tickets");
+            JfrEvents.jobEnqueued(this, job, false);
             return false;
         }
-        return jobsDb.get(DEFAULT_DATA_QUEUE).offer(job);
+        job.mark(RequestTimeline.Mark.ENQUEUED);
+        boolean accepted = jobsDb.get(DEFAULT_DATA_QUEUE).offer(job);
+        JfrEvents.jobEnqueued(this, job, accepted);
+        return accepted;
     }
 
     public void addFirst(Job job) {
@@ -391,6 +397,11 @@ public class Model {
         this.clientTimeoutInMills = clientTimeoutInMills;
     }
 
+    /** Returns the number of jobs in the queue of the model, of all priorities. */
+    public int getQueueDepth() {
+        return jobsDb.get(DEFAULT_DATA_QUEUE).size();
+    }
+
     public String getQueueStatusString() {
         return jobsDb.get(DEFAULT_DATA_QUEUE).getQueueStatusString();
     }
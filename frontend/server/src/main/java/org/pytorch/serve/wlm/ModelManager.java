@@ -8,7 +8,6 @@ import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -16,8 +15,8 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import org.pytorch.serve.archive.DownloadArchiveException;
 import org.pytorch.serve.archive.model.Manifest;
 import org.pytorch.serve.archive.model.ModelArchive;
@@ -28,6 +27,10 @@ import org.pytorch.serve.archive.model.ModelVersionNotFoundException;
 import org.pytorch.serve.http.ConflictStatusException;
 import org.pytorch.serve.http.InvalidModelVersionException;
 import org.pytorch.serve.job.Job;
+import org.pytorch.serve.metrics.LatencyTracker;
+import org.pytorch.serve.metrics.jfr.JfrEvents;
+import org.pytorch.serve.metrics.jfr.ModelLoadEvent;
+import org.pytorch.serve.metrics.jfr.ModelUnloadEvent;
 import org.pytorch.serve.util.ConfigManager;
 import org.pytorch.serve.util.messages.EnvironmentUtils;
 import org.slf4j.Logger;
@@ -42,15 +45,20 @@ public final class ModelManager {
     private final ConfigManager configManager;
     private final WorkLoadManager wlm;
     private final ConcurrentHashMap<String, ModelVersionedRefs> modelsNameMap;
-    private final HashSet<String> startupModels;
+    private final Set<String> startupModels;
+    private final ConcurrentHashMap<String, Integer> loadingStartupModels;
     private final ScheduledExecutorService scheduler;
 
     private ModelManager(ConfigManager configManager, WorkLoadManager wlm) {
         this.configManager = configManager;
         this.wlm = wlm;
         modelsNameMap = new ConcurrentHashMap<>();
-        scheduler = Executors.newScheduledThreadPool(2);
-        this.startupModels = new HashSet<>();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(2);
+        // the timeouts of completed requests are cancelled, drop them from the queue at once
+        executor.setRemoveOnCancelPolicy(true);
+        scheduler = executor;
+        this.startupModels = ConcurrentHashMap.newKeySet();
+        this.loadingStartupModels = new ConcurrentHashMap<>();
     }
 
     public static void init(ConfigManager configManager, WorkLoadManager wlm) {
@@ -119,6 +127,48 @@ public final class ModelManager {
             boolean isWorkflowModel,
             boolean s3SseKms)
             throws ModelException, IOException, InterruptedException, DownloadArchiveException {
+        ModelLoadEvent loadEvent = JfrEvents.beginModelLoad();
+        ModelArchive archive = null;
+        try {
+            archive =
+                    doRegisterModel(
+                            url,
+                            modelName,
+                            runtime,
+                            handler,
+                            batchSize,
+                            maxBatchDelay,
+                            responseTimeout,
+                            defaultModelName,
+                            ignoreDuplicate,
+                            isWorkflowModel,
+                            s3SseKms);
+            return archive;
+        } finally {
+            if (loadEvent != null) {
+                JfrEvents.commitModelLoad(
+                        loadEvent,
+                        archive == null ? modelName : archive.getModelName(),
+                        archive == null ? null : archive.getModelVersion(),
+                        url,
+                        archive != null);
+            }
+        }
+    }
+
+    private ModelArchive doRegisterModel(
+            String url,
+            String modelName,
+            Manifest.RuntimeType runtime,
+            String handler,
+            int batchSize,
+            int maxBatchDelay,
+            int responseTimeout,
+            String defaultModelName,
+            boolean ignoreDuplicate,
+            boolean isWorkflowModel,
+            boolean s3SseKms)
+            throws ModelException, IOException, InterruptedException, DownloadArchiveException {
 
         ModelArchive archive;
         if (isWorkflowModel && url == null) { // This is  a workflow function
@@ -156,6 +206,28 @@ public final class ModelManager {
         return archive;
     }
 
+    /**
+     * Downloads, extracts and validates the archive of a model to register with {@link
+     * #registerModelArchive(ModelArchive)}, the steps of {@link #registerModel(String, String)}
+     * that do not change the registered models.
+     */
+    public ModelArchive downloadModelArchive(String url, String modelName, String defaultModelName)
+            throws ModelException, IOException, DownloadArchiveException {
+        return createModelArchive(modelName, url, null, null, defaultModelName, false);
+    }
+
+    /**
+     * Registers a model from an archive downloaded with {@link #downloadModelArchive}, with the
+     * defaults of {@link #registerModel(String, String)}. The dependencies of the model are
+     * installed separately with {@link #setupModelDependencies(Model)}.
+     */
+    public Model registerModelArchive(ModelArchive archive) throws ModelVersionNotFoundException {
+        Model model =
+                createModel(archive, 1, 100, configManager.getDefaultResponseTimeout(), false);
+        createVersionedModel(model, archive.getModelVersion());
+        return model;
+    }
+
     private ModelArchive createModelArchive(
             String modelName,
             String url,
@@ -201,7 +273,7 @@ public final class ModelManager {
         return archive;
     }
 
-    private void setupModelDependencies(Model model)
+    public void setupModelDependencies(Model model)
             throws IOException, InterruptedException, ModelException {
         String requirementsFile =
                 model.getModelArchive().getManifest().getModel().getRequirementsFile();
@@ -368,6 +440,7 @@ public final class ModelManager {
 
         Model model;
         int httpResponseStatus;
+        ModelUnloadEvent unloadEvent = JfrEvents.beginModelUnload();
 
         try {
             model = vmodel.removeVersionModel(versionId);
@@ -381,6 +454,11 @@ public final class ModelManager {
             if (httpResponseStatus == HttpURLConnection.HTTP_OK) {
                 model.getModelArchive().clean();
                 startupModels.remove(modelName);
+                LatencyTracker latencyTracker = LatencyTracker.getInstance();
+                if (latencyTracker != null) {
+                    latencyTracker.removeModel(
+                            modelName, versionId, vmodel.getAllVersions().isEmpty());
+                }
                 logger.info("Model {} unregistered.", modelName);
             } else {
                 if (versionId == null) {
@@ -407,6 +485,7 @@ public final class ModelManager {
             httpResponseStatus = HttpURLConnection.HTTP_INTERNAL_ERROR;
         }
 
+        JfrEvents.commitModelUnload(unloadEvent, modelName, versionId, httpResponseStatus);
         return httpResponseStatus;
     }
 
@@ -553,10 +632,37 @@ public final class ModelManager {
         wlm.scheduleAsync(runnable);
     }
 
+    public void shutdownWarmWorkerPool() {
+        wlm.shutdownWarmWorkerPool();
+    }
+
     public Set<String> getStartupModels() {
         return startupModels;
     }
 
+    /**
+     * Marks a model to load at startup as loading until {@link #setStartupModelLoaded} was called
+     * as often, once per archive of the model.
+     */
+    public void setStartupModelLoading(String modelName) {
+        loadingStartupModels.merge(modelName, 1, Integer::sum);
+    }
+
+    public void setStartupModelLoaded(String modelName) {
+        loadingStartupModels.computeIfPresent(modelName, (k, v) -> v > 1 ? v - 1 : null);
+    }
+
+    /**
+     * Returns true while a model to load at startup is not registered yet, or while any such model
+     * is if the name is null.
+     */
+    public boolean isStartupModelLoading(String modelName) {
+        if (modelName == null) {
+            return !loadingStartupModels.isEmpty();
+        }
+        return loadingStartupModels.containsKey(modelName);
+    }
+
     public Model getModel(String modelName, String versionId) throws ModelVersionNotFoundException {
         ModelVersionedRefs vmodel = modelsNameMap.get(modelName);
         if (vmodel == null) {
@@ -0,0 +1,244 @@
+package org.pytorch.serve.wlm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.pytorch.serve.archive.DownloadArchiveException;
+import org.pytorch.serve.archive.model.ModelArchive;
+import org.pytorch.serve.archive.model.ModelException;
+import org.pytorch.serve.archive.model.ModelVersionNotFoundException;
+import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.MetricHandle;
+import org.pytorch.serve.metrics.jfr.JfrEvents;
+import org.pytorch.serve.metrics.jfr.ModelLoadEvent;
+import org.pytorch.serve.util.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the models given with {@code load_models} on {@code startup_model_load_threads} threads.
+ * The archives are downloaded, extracted and validated in parallel, the models are registered in
+ * the order they were added, so that the first version of a model stays its default version, and
+ * their dependencies are installed and their workers started in parallel again.
+ */
+public final class StartupModelLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupModelLoader.class);
+
+    private final ConfigManager configManager;
+    private final ModelManager modelManager;
+    private final List<Entry> entries = new ArrayList<>();
+
+    public StartupModelLoader(ConfigManager configManager, ModelManager modelManager) {
+        this.configManager = configManager;
+        this.modelManager = modelManager;
+    }
+
+    /**
+     * Adds a model to load.
+     *
+     * @param url the url of the archive
+     * @param modelName the name of the model, null for the name in the archive
+     * @param defaultModelName the name of the model if neither is given
+     */
+    public void add(String url, String modelName, String defaultModelName) {
+        entries.add(new Entry(url, modelName, defaultModelName));
+    }
+
+    /**
+     * Starts loading the models. The returned future completes once all models are registered and
+     * their workers requested, failures are logged. The workers start in the background.
+     */
+    public CompletableFuture<Void> start() {
+        if (entries.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int threads =
+                Math.min(Math.max(configManager.getStartupModelLoadThreads(), 1), entries.size());
+        ExecutorService executor =
+                Executors.newFixedThreadPool(
+                        threads,
+                        r -> {
+                            Thread thread = new Thread(r, "startup-model-loader");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        long begin = System.currentTimeMillis();
+        logger.info("Loading {} startup model(s) on {} thread(s)", entries.size(), threads);
+
+        List<CompletableFuture<Void>> loaded = new ArrayList<>(entries.size());
+        CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+        for (Entry entry : entries) {
+            modelManager.setStartupModelLoading(entry.getExpectedName());
+            CompletableFuture<ModelArchive> archive =
+                    CompletableFuture.supplyAsync(() -> download(entry), executor);
+            // registered in order whether the previous model failed or not
+            CompletableFuture<Model> model =
+                    previous.thenCombine(archive, (ignored, a) -> register(entry, a));
+            previous = model.handle((m, e) -> null);
+            loaded.add(
+                    model.thenAcceptAsync(m -> startWorkers(entry, m), executor)
+                            .whenComplete((ignored, e) -> finish(entry, e)));
+        }
+
+        return CompletableFuture.allOf(loaded.toArray(new CompletableFuture<?>[0]))
+                .handle(
+                        (ignored, e) -> {
+                            executor.shutdown();
+                            logger.info(
+                                    "Registered startup models in {} ms",
+                                    System.currentTimeMillis() - begin);
+                            return null;
+                        });
+    }
+
+    private ModelArchive download(Entry entry) {
+        entry.loadEvent = JfrEvents.beginModelLoad();
+        entry.begin = System.currentTimeMillis();
+        logger.info("Loading initial models: {}", entry.url);
+        try {
+            ModelArchive archive =
+                    modelManager.downloadModelArchive(
+                            entry.url, entry.modelName, entry.defaultModelName);
+            entry.downloaded = System.currentTimeMillis();
+            return archive;
+        } catch (ModelException | IOException | DownloadArchiveException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private Model register(Entry entry, ModelArchive archive) {
+        try {
+            Model model = modelManager.registerModelArchive(archive);
+            entry.model = model;
+            return model;
+        } catch (ModelVersionNotFoundException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void startWorkers(Entry entry, Model model) {
+        try {
+            modelManager.setupModelDependencies(model);
+            entry.registered = System.currentTimeMillis();
+            logger.info("Model {} loaded.", model.getModelName());
+
+            ModelArchive archive = model.getModelArchive();
+            int workers = configManager.getDefaultWorkers();
+            int minWorkers =
+                    configManager.getJsonIntValue(
+                            archive.getModelName(),
+                            archive.getModelVersion(),
+                            Model.MIN_WORKERS,
+                            workers);
+            int maxWorkers =
+                    configManager.getJsonIntValue(
+                            archive.getModelName(),
+                            archive.getModelVersion(),
+                            Model.MAX_WORKERS,
+                            workers);
+            if (archive.getModelConfig() != null) {
+                int marMinWorkers = archive.getModelConfig().getMinWorkers();
+                int marMaxWorkers = archive.getModelConfig().getMaxWorkers();
+                if (marMinWorkers > 0 && marMaxWorkers >= marMinWorkers) {
+                    minWorkers = marMinWorkers;
+                    maxWorkers = marMaxWorkers;
+                } else {
+                    logger.warn(
+                            "Invalid model config in mar, minWorkers:{}, maxWorkers:{}",
+                            marMinWorkers,
+                            marMaxWorkers);
+                }
+            }
+            modelManager
+                    .updateModel(
+                            archive.getModelName(),
+                            archive.getModelVersion(),
+                            minWorkers,
+                            maxWorkers,
+                            true,
+                            false)
+                    .whenComplete((status, e) -> reportReady(entry, model, status));
+            modelManager.getStartupModels().add(archive.getModelName());
+        } catch (IOException | ModelException | WorkerInitializationException e) {
+            throw new CompletionException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    private void finish(Entry entry, Throwable e) {
+        modelManager.setStartupModelLoaded(entry.getExpectedName());
+        Model model = entry.model;
+        if (entry.loadEvent != null) {
+            JfrEvents.commitModelLoad(
+                    entry.loadEvent,
+                    model == null ? entry.getExpectedName() : model.getModelName(),
+                    model == null ? null : model.getVersion(),
+                    entry.url,
+                    e == null);
+        }
+        if (e != null) {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            logger.warn("Failed to load model: " + entry.url, cause);
+        }
+    }
+
+    private void reportReady(Entry entry, Model model, Integer status) {
+        long ready = System.currentTimeMillis() - entry.begin;
+        logger.info(
+                "Startup model {} version {} ready with status {} in {} ms, archive {} ms,"
+                        + " registration {} ms",
+                model.getModelName(),
+                model.getVersion(),
+                status,
+                ready,
+                entry.downloaded - entry.begin,
+                entry.registered - entry.downloaded);
+        MetricCache metricCache = MetricCache.getInstance();
+        MetricHandle metric =
+                metricCache == null
+                        ? null
+                        : metricCache.getMetricFrontend(
+                                "ts_startup_model_load_milliseconds",
+                                model.getModelName(),
+                                model.getVersion());
+        if (metric != null) {
+            try {
+                metric.addOrUpdate(ready);
+            } catch (Exception e) {
+                logger.error(
+                        "Failed to update frontend metric ts_startup_model_load_milliseconds: ",
+                        e);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final String url;
+        private final String modelName;
+        private final String defaultModelName;
+        private volatile ModelLoadEvent loadEvent;
+        private volatile Model model;
+        private volatile long begin;
+        private volatile long downloaded;
+        private volatile long registered;
+
+        Entry(String url, String modelName, String defaultModelName) {
+            this.url = url;
+            this.modelName = modelName;
+            this.defaultModelName = defaultModelName;
+        }
+
+        /** Returns the name the model is expected to have before its archive is read. */
+        String getExpectedName() {
+            return modelName == null || modelName.isEmpty() ? defaultModelName : modelName;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.pytorch.serve.wlm;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.pytorch.serve.archive.model.Manifest;
+import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.MetricHandle;
+import org.pytorch.serve.util.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a number of model-agnostic Python workers started, with torch imported and listening on
+ * their socket, so that adding a worker to a model only has to connect and load the model instead
+ * of starting an interpreter first. Claimed workers are replaced in the background.
+ *
+ * <p>Only models with the default Python runtime and a single process per worker can claim a
+ * pooled worker, and not those that install their own dependencies. The pool is disabled with the
+ * CPU launcher, which pins the cores of a worker by its rank among the workers of its model.
+ */
+final class WarmWorkerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmWorkerPool.class);
+
+    private final ConfigManager configManager;
+    private final AtomicInteger port;
+    private final int size;
+    private final ConcurrentLinkedQueue<WorkerLifeCycle> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger starting = new AtomicInteger();
+    private ExecutorService executor;
+    private volatile boolean stopped;
+
+    WarmWorkerPool(ConfigManager configManager, AtomicInteger port) {
+        this.configManager = configManager;
+        this.port = port;
+        this.size =
+                configManager.isDebug() || configManager.isCPULauncherEnabled()
+                        ? 0
+                        : Math.max(configManager.getWarmWorkerPoolSize(), 0);
+    }
+
+    void start() {
+        if (size == 0) {
+            return;
+        }
+        executor =
+                Executors.newCachedThreadPool(
+                        r -> {
+                            Thread thread = new Thread(r, "warm-worker-pool");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        logger.info("Starting {} pooled worker(s)", size);
+        replenish();
+    }
+
+    /** Returns the number of started workers that wait to be claimed. */
+    int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Claims a started worker for a model and starts its replacement.
+     *
+     * @return the life cycle of the worker adopted by the model, or null if the model cannot use a
+     *     pooled worker or none is started
+     */
+    WorkerLifeCycle claim(Model model) {
+        if (size == 0 || stopped || !isEligible(model)) {
+            return null;
+        }
+        WorkerLifeCycle lifeCycle;
+        while ((lifeCycle = idle.poll()) != null) {
+            if (lifeCycle.isAlive()) {
+                break;
+            }
+            logger.warn(
+                    "Pooled worker died before it was claimed, exit value {}",
+                    lifeCycle.getExitValue());
+            lifeCycle.exit();
+        }
+        if (lifeCycle == null) {
+            logger.info("No pooled worker started for model {}", model.getModelName());
+            updateMetric("ts_warm_worker_pool_misses_total", 1);
+        } else {
+            lifeCycle.adopt(model);
+            logger.info("Claimed pooled worker for model {}", model.getModelName());
+            updateMetric("ts_warm_worker_pool_hits_total", 1);
+        }
+        updateMetric("ts_warm_worker_pool_size", idle.size());
+        replenish();
+        return lifeCycle;
+    }
+
+    synchronized void shutdown() {
+        stopped = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        WorkerLifeCycle lifeCycle;
+        while ((lifeCycle = idle.poll()) != null) {
+            lifeCycle.exit();
+        }
+    }
+
+    private boolean isEligible(Model model) {
+        Manifest manifest = model.getModelArchive().getManifest();
+        // the packages installed into the model directory may replace those the worker imported
+        boolean ownDependencies =
+                configManager.getInstallPyDepPerModel()
+                        && manifest.getModel().getRequirementsFile() != null;
+        return model.getParallelLevel() == 1
+                && manifest.getRuntime() == Manifest.RuntimeType.PYTHON
+                && !ownDependencies;
+    }
+
+    /** Starts as many workers as are missing, each on a thread of its own. */
+    private synchronized void replenish() {
+        int missing = size - idle.size() - starting.get();
+        for (int i = 0; i < missing && !stopped; ++i) {
+            starting.incrementAndGet();
+            executor.execute(this::startWorker);
+        }
+    }
+
+    private void startWorker() {
+        WorkerLifeCycle lifeCycle = new WorkerLifeCycle(configManager);
+        try {
+            // a failed start is retried with the next claim rather than right away, so that a
+            // broken Python environment does not restart workers in a loop
+            lifeCycle.startPooledWorker(port.getAndIncrement());
+            synchronized (this) {
+                if (stopped) {
+                    lifeCycle.exit();
+                    return;
+                }
+                idle.add(lifeCycle);
+            }
+            updateMetric("ts_warm_worker_pool_size", idle.size());
+        } catch (WorkerInitializationException e) {
+            logger.warn("Failed to start pooled worker", e);
+        } catch (InterruptedException e) {
+            lifeCycle.exit();
+            Thread.currentThread().interrupt();
+        } finally {
+            starting.decrementAndGet();
+        }
+    }
+
+    private static void updateMetric(String name, double value) {
+        MetricCache metricCache = MetricCache.getInstance();
+        MetricHandle metric = metricCache == null ? null : metricCache.getHostMetricFrontend(name);
+        if (metric != null) {
+            try {
+                metric.addOrUpdate(value);
+            } catch (Exception e) {
+                logger.error("Failed to update frontend metric {}: ", name, e);
+            }
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class WorkLoadManager {
     private AtomicInteger port;
     private AtomicInteger distributionPort;
     private AtomicInteger gpuCounter;
+    private WarmWorkerPool warmWorkerPool;
 
     public WorkLoadManager(ConfigManager configManager, GPUManager gpuManager, EventLoopGroup backendGroup) {
         this.configManager = configManager;
@@ -43,6 +44,8 @@ public class WorkLoadManager {
 
         threadPool = Executors.newCachedThreadPool();
         workers = new ConcurrentHashMap<>();
+        warmWorkerPool = new WarmWorkerPool(configManager, port);
+        warmWorkerPool.start();
     }
 
     public List<WorkerThread> getWorkers(ModelVersionName modelVersionName) {
@@ -233,12 +236,16 @@ public class WorkLoadManager {
             }
 
             BatchAggregator aggregator = new BatchAggregator(model);
+            // a pooled worker keeps the port it was started on
+            WorkerLifeCycle lifeCycle = warmWorkerPool.claim(model);
             int currentPort =
-                    model.getParallelLevel() > 1
-                            ? configManager.isDebug()
-                                    ? distributionPort.get()
-                                    : distributionPort.getAndAdd(model.getParallelLevel())
-                            : configManager.isDebug() ? port.get() : port.getAndIncrement();
+                    lifeCycle != null
+                            ? lifeCycle.getPort()
+                            : model.getParallelLevel() > 1
+                                    ? configManager.isDebug()
+                                            ? distributionPort.get()
+                                            : distributionPort.getAndAdd(model.getParallelLevel())
+                                    : configManager.isDebug() ? port.get() : port.getAndIncrement();
             WorkerThread thread =
                     new WorkerThread(
                             configManager,
@@ -247,7 +254,8 @@ public class WorkLoadManager {
                             gpuManager,
                             model,
                             aggregator,
-                            listener);
+                            listener,
+                            lifeCycle);
             threads.add(thread);
             threadPool.submit(thread);
         }
@@ -256,4 +264,9 @@ public class WorkLoadManager {
     public void scheduleAsync(Runnable r) {
         threadPool.execute(r);
     }
+
+    /** Stops the workers of the warm pool that were not claimed by a model. */
+    public void shutdownWarmWorkerPool() {
+        warmWorkerPool.shutdown();
+    }
 }
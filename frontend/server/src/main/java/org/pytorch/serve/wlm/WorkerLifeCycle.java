@@ -14,6 +14,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.pytorch.serve.archive.model.ModelConfig;
+import org.pytorch.serve.metrics.BackendMetricsChannel;
 import org.pytorch.serve.metrics.Dimension;
 import org.pytorch.serve.metrics.Metric;
 import org.pytorch.serve.metrics.MetricCache;
@@ -31,6 +32,7 @@ public class WorkerLifeCycle {
     private ModelManager modelManager = ModelManager.getInstance();
     private Model model;
     private int pid = -1;
+    private int port;
     private Process process;
     private CountDownLatch latch;
     private boolean success;
@@ -39,6 +41,7 @@ public class WorkerLifeCycle {
     private ReaderThread outReader;
     private int numWorker;
     private int currNumRunningWorkers;
+    private boolean prestarted;
 
     public WorkerLifeCycle(ConfigManager configManager, Model model) {
         this.configManager = configManager;
@@ -47,6 +50,15 @@ public class WorkerLifeCycle {
         this.currNumRunningWorkers = modelManager.getNumRunningWorkers(model.getModelVersionName());
     }
 
+    /**
+     * Creates the life cycle of a model-agnostic worker of the {@link WarmWorkerPool}, which is
+     * started with {@link #startPooledWorker(int)} and assigned to a model with {@link
+     * #adopt(Model)} once it is claimed.
+     */
+    WorkerLifeCycle(ConfigManager configManager) {
+        this.configManager = configManager;
+    }
+
     public Process getProcess() {
         return process;
     }
@@ -141,6 +153,62 @@ public class WorkerLifeCycle {
             }
         }
 
+        addWorkerArgs(argl, workingDir);
+        launch(argl, envp, modelPath, getThreadName(model), model.getParallelLevel());
+    }
+
+    /**
+     * Starts a worker that is not bound to a model yet. The worker imports torch and listens on
+     * its socket until the frontend connects and sends the LOAD of the model it is claimed for.
+     * Its PYTHONPATH has no model yet, the worker adds the handler and model directories in the
+     * order of {@link EnvironmentUtils#getEnvString} when it loads the model.
+     */
+    void startPooledWorker(int port) throws WorkerInitializationException, InterruptedException {
+        File workingDir = new File(configManager.getModelServerHome());
+        setPort(port);
+
+        ArrayList<String> argl = new ArrayList<>();
+        argl.add(configManager.getPythonExecutable());
+        addWorkerArgs(argl, workingDir);
+        argl.add("--warm");
+        List<String> envp =
+                Arrays.asList(
+                        EnvironmentUtils.getEnvString(workingDir.getAbsolutePath(), null, null));
+
+        launch(argl, envp, workingDir, "W-" + port + "-pool", 1);
+    }
+
+    /** Assigns a started pooled worker to the model it is claimed for. */
+    synchronized void adopt(Model model) {
+        this.model = model;
+        this.numWorker = model.getMinWorkers();
+        prestarted = true;
+        // the model output of the worker is logged under the name of its model from now on
+        if (errReader != null) {
+            errReader.rename(getThreadName(model));
+            outReader.rename(getThreadName(model));
+        }
+    }
+
+    private String getThreadName(Model model) {
+        return "W-" + port + '-' + model.getModelVersionName().getVersionedModelName();
+    }
+
+    /**
+     * Returns true once if the worker process was started before it was adopted and is still
+     * alive, in which case the worker thread connects to it instead of starting a new process.
+     */
+    public synchronized boolean takePrestarted() {
+        boolean alive = prestarted && isAlive();
+        prestarted = false;
+        return alive;
+    }
+
+    public synchronized boolean isAlive() {
+        return process != null && process.isAlive();
+    }
+
+    private void addWorkerArgs(List<String> argl, File workingDir) {
         argl.add(new File(workingDir, "ts/model_service_worker.py").getAbsolutePath());
         argl.add("--sock-type");
         argl.add(connector.getSocketType());
@@ -150,18 +218,28 @@ public class WorkerLifeCycle {
         argl.add("--metrics-config");
         argl.add(configManager.getMetricsConfigPath());
 
+        BackendMetricsChannel metricsChannel = BackendMetricsChannel.getInstance();
+        if (metricsChannel != null) {
+            argl.add("--metrics-sock-type");
+            argl.add(metricsChannel.getSocketType());
+            argl.add("--metrics-sock-name");
+            argl.add(metricsChannel.getSocketName());
+        }
+    }
+
+    private void launch(
+            List<String> argl, List<String> envp, File dir, String threadName, int parallelLevel)
+            throws WorkerInitializationException, InterruptedException {
         try {
-            latch = new CountDownLatch(model.getParallelLevel());
+            latch = new CountDownLatch(parallelLevel);
 
             String[] args = argl.toArray(new String[argl.size()]);
             String[] envs = envp.toArray(new String[envp.size()]);
             logger.debug("Worker cmdline: {}", argl.toString());
 
             synchronized (this) {
-                process = Runtime.getRuntime().exec(args, envs, modelPath);
+                process = Runtime.getRuntime().exec(args, envs, dir);
 
-                String threadName =
-                        "W-" + port + '-' + model.getModelVersionName().getVersionedModelName();
                 errReader = new ReaderThread(threadName, process.getErrorStream(), true, this);
                 outReader = new ReaderThread(threadName, process.getInputStream(), false, this);
                 errReader.start();
@@ -258,6 +336,11 @@ public class WorkerLifeCycle {
 
     private synchronized void setPort(int port) {
         connector = new Connector(port);
+        this.port = port;
+    }
+
+    synchronized int getPort() {
+        return port;
     }
 
     private static final class ReaderThread extends Thread {
@@ -283,6 +366,10 @@ public class WorkerLifeCycle {
             this.metricCache = MetricCache.getInstance();
         }
 
+        void rename(String name) {
+            setName(name + (error ? "-stderr" : "-stdout"));
+        }
+
         public void terminate() {
             isRunning.set(false);
         }
@@ -9,13 +9,9 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.SocketAddress;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -31,13 +27,18 @@ import org.pytorch.serve.job.Job;
 import org.pytorch.serve.job.RestJob;
 import org.pytorch.serve.metrics.IMetric;
 import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.MetricHandle;
+import org.pytorch.serve.metrics.jfr.BackendRoundTripEvent;
+import org.pytorch.serve.metrics.jfr.JfrEvents;
 import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.DeviceTelemetry;
 import org.pytorch.serve.util.GPUManager;
 import org.pytorch.serve.util.Connector;
 import org.pytorch.serve.util.codec.ModelRequestEncoder;
 import org.pytorch.serve.util.codec.ModelResponseDecoder;
 import org.pytorch.serve.util.messages.BaseModelRequest;
 import org.pytorch.serve.util.messages.InputParameter;
+import org.pytorch.serve.util.messages.ModelInferenceRequest;
 import org.pytorch.serve.util.messages.ModelWorkerResponse;
 import org.pytorch.serve.util.messages.RequestInput;
 import org.pytorch.serve.util.messages.WorkerCommands;
@@ -55,9 +56,9 @@ public class WorkerThread implements Runnable {
     private static final long WORKER_TIMEOUT = 2L;
     private static final ModelRequestEncoder ENCODER =
             new ModelRequestEncoder(ConfigManager.getInstance().getPreferDirectBuffer());
-    private final IMetric workerThreadTimeMetric;
+    private final MetricHandle workerThreadTimeMetric;
+    private final MetricHandle streamBufferedBytesMetric;
     private final IMetric workerLoadTimeMetric;
-    private final List<String> workerThreadTimeMetricDimensionValues;
     private final List<String> workerLoadTimeMetricDimensionValues;
     private ConfigManager configManager;
     private GPUManager gpuManager;
@@ -90,7 +91,8 @@ public class WorkerThread implements Runnable {
             GPUManager gpuManager,
             Model model,
             BatchAggregator aggregator,
-            WorkerStateListener listener) {
+            WorkerStateListener listener,
+            WorkerLifeCycle lifeCycle) {
         this.workerId = String.valueOf(port); // Unique across all workers.
         this.configManager = configManager;
         this.backendEventGroup = backendEventGroup;
@@ -101,13 +103,18 @@ public class WorkerThread implements Runnable {
         this.gpuId = gpuManager.getGPU(this.workerId);
         this.listener = listener;
         startTime = System.currentTimeMillis();
-        lifeCycle = new WorkerLifeCycle(configManager, model);
+        // the life cycle of a worker claimed from the warm pool, or null to start a new process
+        this.lifeCycle = lifeCycle != null ? lifeCycle : new WorkerLifeCycle(configManager, model);
         replies = new ArrayBlockingQueue<>(model.getParallelLevel());
         this.workerThreadTimeMetric =
-                MetricCache.getInstance().getMetricFrontend("WorkerThreadTime");
+                MetricCache.getInstance().getHostMetricFrontend("WorkerThreadTime");
+        this.streamBufferedBytesMetric =
+                MetricCache.getInstance()
+                        .getMetricFrontend(
+                                "ts_stream_buffered_bytes",
+                                model.getModelName(),
+                                model.getVersion());
         this.workerLoadTimeMetric = MetricCache.getInstance().getMetricFrontend("WorkerLoadTime");
-        this.workerThreadTimeMetricDimensionValues =
-                Arrays.asList("Host", ConfigManager.getInstance().getHostName());
         this.workerLoadTimeMetricDimensionValues =
                 Arrays.asList(getWorkerName(), "Host", ConfigManager.getInstance().getHostName());
     }
@@ -116,57 +123,25 @@ public class WorkerThread implements Runnable {
         return state;
     }
 
+    /** Returns the usage of the GPU of the worker from the last poll of the device telemetry. */
     public String getGpuUsage() {
-        Process process;
-        StringBuffer gpuUsage = new StringBuffer();
-        if (gpuId >= 0) {
-            try {
-                // TODO : add a generic code to capture gpu details for different devices instead of
-                // just NVIDIA
-                process =
-                        Runtime.getRuntime()
-                                .exec(
-                                        "nvidia-smi -i "
-                                                + gpuId
-                                                + " --query-gpu=utilization.gpu,utilization.memory,memory.used --format=csv");
-                process.waitFor();
-                int exitCode = process.exitValue();
-                if (exitCode != 0) {
-                    gpuUsage.append("failed to obtained gpu usage");
-                    InputStream error = process.getErrorStream();
-                    for (int i = 0; i < error.available(); i++) {
-                        logger.error("" + error.read());
-                    }
-                    return gpuUsage.toString();
-                }
-                InputStream stdout = process.getInputStream();
-                BufferedReader reader =
-                        new BufferedReader(new InputStreamReader(stdout, StandardCharsets.UTF_8));
-                String line;
-                String[] headers = new String[3];
-                Boolean firstLine = true;
-                while ((line = reader.readLine()) != null) {
-                    if (firstLine) {
-                        headers = line.split(",");
-                        firstLine = false;
-                    } else {
-                        String[] values = line.split(",");
-                        StringBuffer sb = new StringBuffer("gpuId::" + gpuId + " ");
-                        for (int i = 0; i < headers.length; i++) {
-                            sb.append(headers[i] + "::" + values[i].strip());
-                        }
-                        gpuUsage.append(sb.toString());
-                    }
-                }
-            } catch (Exception e) {
-                gpuUsage.append("failed to obtained gpu usage");
-                logger.error("Exception Raised : " + e.toString());
-            }
-        } else {
-            gpuUsage.append("N/A");
+        if (gpuId < 0) {
+            return "N/A";
         }
-
-        return gpuUsage.toString();
+        DeviceTelemetry telemetry = DeviceTelemetry.getInstance();
+        DeviceTelemetry.DeviceStats device = telemetry == null ? null : telemetry.getDevice(gpuId);
+        if (device == null) {
+            return "failed to obtained gpu usage";
+        }
+        return "gpuId::"
+                + gpuId
+                + " utilization.gpu [%]::"
+                + device.getUtilizationGpu()
+                + " % utilization.memory [%]::"
+                + device.getUtilizationMemory()
+                + " % memory.used [MiB]::"
+                + device.getMemoryUsed()
+                + " MiB";
     }
 
     public WorkerLifeCycle getLifeCycle() {
@@ -200,6 +175,7 @@ public class WorkerThread implements Runnable {
                                                         != ModelConfig.ParallelType.PP)
                                 ? model.getParallelLevel()
                                 : 1;
+                BackendRoundTripEvent roundTripEvent = JfrEvents.beginBackendRoundTrip();
                 for (int i = 0; backendChannel.size() > 0 && i < repeats; i++) {
                     backendChannel.get(i).writeAndFlush(req).sync();
                 }
@@ -221,6 +197,12 @@ public class WorkerThread implements Runnable {
                     if (reply != null) {
                         jobDone = aggregator.sendResponse(reply);
                         logger.debug("sent a reply, jobdone: {}", jobDone);
+                        if (isStreaming) {
+                            updateStreamBufferedBytes();
+                        }
+                        if (!jobDone && !aggregator.isWritable()) {
+                            awaitClientWritable();
+                        }
                     } else if (req.getCommand() != WorkerCommands.DESCRIBE) {
                         int val = model.incrFailedInfReqs();
                         logger.error("Number or consecutive unsuccessful inference {}", val);
@@ -230,6 +212,17 @@ public class WorkerThread implements Runnable {
                     totalDuration += duration;
                 } while (!jobDone);
                 logger.info("Backend response time: {}", totalDuration);
+                if (roundTripEvent != null) {
+                    JfrEvents.commitBackendRoundTrip(
+                            roundTripEvent,
+                            getWorkerName(),
+                            model,
+                            req.getCommand(),
+                            req instanceof ModelInferenceRequest
+                                    ? ((ModelInferenceRequest) req).getRequestBatch().size()
+                                    : 0,
+                            reply == null ? -1 : reply.getCode());
+                }
 
                 switch (req.getCommand()) {
                     case PREDICT:
@@ -265,8 +258,7 @@ public class WorkerThread implements Runnable {
                         (System.currentTimeMillis() - wtStartTime) - totalDuration;
                 if (this.workerThreadTimeMetric != null) {
                     try {
-                        this.workerThreadTimeMetric.addOrUpdate(
-                                this.workerThreadTimeMetricDimensionValues, workerThreadTime);
+                        this.workerThreadTimeMetric.addOrUpdate(workerThreadTime);
                     } catch (Exception e) {
                         logger.error("Failed to update frontend metric WorkerThreadTime: ", e);
                     }
@@ -338,7 +330,7 @@ public class WorkerThread implements Runnable {
     }
 
     private void connect() throws WorkerInitializationException, InterruptedException {
-        if (!configManager.isDebug()) {
+        if (!configManager.isDebug() && !lifeCycle.takePrestarted()) {
             lifeCycle.startWorker(port, getDeviceIds());
         }
 
@@ -348,6 +340,7 @@ public class WorkerThread implements Runnable {
         final int parallelLevel = model.getParallelLevel();
         final CountDownLatch latch = new CountDownLatch(parallelLevel);
         final int responseBufferSize = configManager.getMaxResponseSize();
+        final boolean timed = configManager.isRequestStageTimingEnabled();
         try {
             for (int i = 0; i < parallelLevel; i++) {
                 Connector connector = new Connector(port + i);
@@ -360,7 +353,9 @@ public class WorkerThread implements Runnable {
                                     public void initChannel(Channel ch) {
                                         ChannelPipeline p = ch.pipeline();
                                         p.addLast(ENCODER);
-                                        p.addLast(new ModelResponseDecoder(responseBufferSize));
+                                        p.addLast(
+                                                new ModelResponseDecoder(
+                                                        responseBufferSize, timed));
                                         p.addLast(new WorkerHandler());
                                     }
                                 });
@@ -429,6 +424,40 @@ public class WorkerThread implements Runnable {
         }
     }
 
+    /**
+     * Stops reading stream responses from the backend while a client is not writable. The worker
+     * socket buffer fills up and blocks the backend, so the backend is paused rather than the
+     * frontend buffering the stream.
+     */
+    private void awaitClientWritable() throws InterruptedException {
+        logger.debug("Client not writable, pausing backend stream of {}", getWorkerName());
+        setBackendAutoRead(false);
+        try {
+            if (!aggregator.awaitWritable(TimeUnit.SECONDS.toMillis(responseTimeout))) {
+                logger.warn("Aborted stream response of slow client on {}", getWorkerName());
+            }
+        } finally {
+            setBackendAutoRead(true);
+        }
+    }
+
+    /** Reports the stream response bytes buffered for the clients of the current batch. */
+    private void updateStreamBufferedBytes() {
+        if (streamBufferedBytesMetric != null) {
+            try {
+                streamBufferedBytesMetric.addOrUpdate(aggregator.getBufferedBytes());
+            } catch (Exception e) {
+                logger.error("Failed to update frontend metric ts_stream_buffered_bytes: ", e);
+            }
+        }
+    }
+
+    private void setBackendAutoRead(boolean autoRead) {
+        for (Channel channel : backendChannel) {
+            channel.config().setAutoRead(autoRead);
+        }
+    }
+
     public boolean isRunning() {
         return running.get();
     }
@@ -464,7 +493,7 @@ public class WorkerThread implements Runnable {
         }
     }
 
-    private String getWorkerName() {
+    public String getWorkerName() {
         String modelName = model.getModelVersionName().getVersionedModelName();
         return "W-" + port + '-' + modelName;
     }
@@ -473,6 +502,7 @@ public class WorkerThread implements Runnable {
         listener.notifyChangeState(
                 model.getModelVersionName().getVersionedModelName(), newState, status);
         logger.debug("{} State change {} -> {}", getWorkerName(), state, newState);
+        JfrEvents.workerStateChanged(getWorkerName(), model, state, newState, status);
         long currentTS = System.currentTimeMillis();
         long timeTaken = currentTS - startTime;
         if (state != WorkerState.WORKER_SCALED_DOWN) {
@@ -35,6 +35,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.pytorch.serve.http.ErrorResponse;
 import org.pytorch.serve.http.StatusResponse;
+import org.pytorch.serve.http.messages.BatchItemResponse;
 import org.pytorch.serve.http.messages.DescribeModelResponse;
 import org.pytorch.serve.http.messages.ListModelsResponse;
 import org.pytorch.serve.metrics.Dimension;
@@ -984,6 +985,52 @@ public class ModelServerTest {
     @Test(
             alwaysRun = true,
             dependsOnMethods = {"testPredictionsEchoNoMultipart"})
+    public void testBatchPredictions()
+            throws HttpPostRequestEncoder.ErrorDataEncoderException, InterruptedException,
+                    IOException {
+        Channel inferChannel = TestUtils.getInferenceChannel(configManager);
+        Channel mgmtChannel = TestUtils.getManagementChannel(configManager);
+        loadTests(mgmtChannel, "echo.mar", "echo");
+
+        TestUtils.setResult(null);
+        TestUtils.setLatch(new CountDownLatch(1));
+        DefaultFullHttpRequest req =
+                new DefaultFullHttpRequest(
+                        HttpVersion.HTTP_1_1, HttpMethod.POST, "/predictions/echo/batch");
+
+        // each form field is an item, echo fails the item without a "data" field
+        HttpPostRequestEncoder encoder = new HttpPostRequestEncoder(req, true);
+        encoder.addBodyAttribute("data", "first");
+        encoder.addBodyAttribute("input", "second");
+        encoder.addBodyAttribute("data", "third");
+
+        inferChannel.writeAndFlush(encoder.finalizeRequest());
+        if (encoder.isChunked()) {
+            inferChannel.writeAndFlush(encoder).sync();
+        }
+
+        TestUtils.getLatch().await();
+
+        Assert.assertEquals(TestUtils.getHttpStatus(), HttpResponseStatus.OK);
+        BatchItemResponse[] resp =
+                JsonUtils.GSON.fromJson(TestUtils.getResult(), BatchItemResponse[].class);
+        Assert.assertEquals(resp.length, 3);
+        for (int i = 0; i < resp.length; ++i) {
+            Assert.assertEquals(resp[i].getIndex(), i);
+        }
+        Assert.assertEquals(resp[0].getCode(), HttpResponseStatus.OK.code());
+        Assert.assertEquals(resp[0].getResponse().getAsString(), "first");
+        Assert.assertEquals(resp[1].getCode(), HttpResponseStatus.SERVICE_UNAVAILABLE.code());
+        Assert.assertEquals(resp[1].getMessage(), "Prediction failed");
+        Assert.assertNull(resp[1].getResponse());
+        Assert.assertEquals(resp[2].getCode(), HttpResponseStatus.OK.code());
+        Assert.assertEquals(resp[2].getResponse().getAsString(), "third");
+        unloadTests(mgmtChannel, "echo");
+    }
+
+    @Test(
+            alwaysRun = true,
+            dependsOnMethods = {"testBatchPredictions"})
     public void testPredictionsModifyResponseHeader()
             throws NoSuchFieldException, IllegalAccessException, InterruptedException {
         Channel inferChannel = TestUtils.getInferenceChannel(configManager);
@@ -2344,28 +2391,34 @@ public class ModelServerTest {
 
     private void testModelMetrics(String modelName, String version) throws InterruptedException {
         Channel metricsChannel = TestUtils.getMetricsChannel(configManager);
-        TestUtils.setResult(null);
-        TestUtils.setLatch(new CountDownLatch(1));
-        DefaultFullHttpRequest metricsReq =
-                new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/metrics");
-        metricsChannel.writeAndFlush(metricsReq);
-        TestUtils.getLatch().await();
         Pattern inferLatencyMatcher = TestUtils.getTSInferLatencyMatcher(modelName, version);
-        Assert.assertTrue(inferLatencyMatcher.matcher(TestUtils.getResult()).find());
-
-        TestUtils.setResult(null);
-        TestUtils.setLatch(new CountDownLatch(1));
-        metricsReq =
-                new DefaultFullHttpRequest(
-                        HttpVersion.HTTP_1_1,
-                        HttpMethod.GET,
-                        "/metrics?name[]=ts_inference_latency_microseconds");
-        metricsChannel.writeAndFlush(metricsReq);
-        TestUtils.getLatch().await();
-        Assert.assertTrue(inferLatencyMatcher.matcher(TestUtils.getResult()).find());
+        scrapeUntilFound(metricsChannel, "/metrics", inferLatencyMatcher);
+        scrapeUntilFound(
+                metricsChannel,
+                "/metrics?name[]=ts_inference_latency_microseconds",
+                inferLatencyMatcher);
         Assert.assertFalse(TestUtils.getResult().contains("ts_inference_requests_total"));
     }
 
+    /** Scrapes until the metric shows up, a scrape may be served from a cached rendering. */
+    private void scrapeUntilFound(Channel metricsChannel, String uri, Pattern matcher)
+            throws InterruptedException {
+        long deadline =
+                System.currentTimeMillis() + configManager.getPrometheusScrapeCacheTtlMs() + 10000;
+        while (true) {
+            TestUtils.setResult(null);
+            TestUtils.setLatch(new CountDownLatch(1));
+            metricsChannel.writeAndFlush(
+                    new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri));
+            TestUtils.getLatch().await();
+            if (matcher.matcher(TestUtils.getResult()).find()) {
+                return;
+            }
+            Assert.assertTrue(System.currentTimeMillis() < deadline, "Not scraped: " + matcher);
+            Thread.sleep(100);
+        }
+    }
+
     private void loadTests(Channel channel, String model, String modelName)
             throws InterruptedException {
         TestUtils.setResult(null);
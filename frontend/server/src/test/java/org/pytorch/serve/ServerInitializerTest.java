@@ -0,0 +1,139 @@
+package org.pytorch.serve;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.servingsdk.impl.PluginsManager;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.ConnectorType;
+import org.pytorch.serve.util.OffloadExecutor;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class ServerInitializerTest {
+
+    private ConfigManager configManager;
+    private String offloadThreads;
+    private String offloadQueueSize;
+    private CountDownLatch release;
+
+    @BeforeClass
+    public void beforeClass() throws InterruptedException {
+        System.setProperty("tsConfigFile", "src/test/resources/config.properties");
+        ConfigManager.init(new ConfigManager.Arguments());
+        configManager = ConfigManager.getInstance();
+        PluginsManager.getInstance().initialize();
+        MetricCache.init();
+
+        offloadThreads = String.valueOf(configManager.getOffloadThreads());
+        offloadQueueSize = String.valueOf(configManager.getOffloadQueueSize());
+        // a single busy offload thread with a full queue rejects every offloaded request
+        configManager.setProperty("offload_threads", "1");
+        configManager.setProperty("offload_queue_size", "1");
+        OffloadExecutor.init(configManager);
+        release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        OffloadExecutor.getInstance()
+                .execute(
+                        ConnectorType.ALL,
+                        () -> {
+                            started.countDown();
+                            await(release);
+                        });
+        started.await();
+        OffloadExecutor.getInstance().execute(ConnectorType.ALL, () -> await(release));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void afterClass() {
+        release.countDown();
+        OffloadExecutor.getInstance().shutdown();
+        configManager.setProperty("offload_threads", offloadThreads);
+        configManager.setProperty("offload_queue_size", offloadQueueSize);
+        configManager.setProperty("request_stage_timing", "false");
+    }
+
+    @Test
+    public void testPipeline() {
+        configManager.setProperty("request_stage_timing", "true");
+        // the timing handler is only added to the listeners serving inference requests
+        assertPipeline(ConnectorType.ALL, true);
+        assertPipeline(ConnectorType.INFERENCE_CONNECTOR, true);
+        assertPipeline(ConnectorType.MANAGEMENT_CONNECTOR, false);
+        assertPipeline(ConnectorType.METRICS_CONNECTOR, false);
+
+        configManager.setProperty("request_stage_timing", "false");
+        assertPipeline(ConnectorType.ALL, false);
+
+        ChannelInboundHandlerAdapter shardHandler = new ChannelInboundHandlerAdapter();
+        EmbeddedChannel channel =
+                new EmbeddedChannel(new ServerInitializer(null, ConnectorType.ALL, shardHandler));
+        try {
+            Assert.assertSame(channel.pipeline().get("shard"), shardHandler);
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    public void testOffloadSelection() {
+        // the inference requests of a shared listener stay on the event loop
+        Assert.assertEquals(getStatus(ConnectorType.ALL, "/api-description"), 200);
+        Assert.assertEquals(getStatus(ConnectorType.INFERENCE_CONNECTOR, "/api-description"), 200);
+        // the requests that may block are offloaded and rejected by the full offload executor
+        Assert.assertEquals(getStatus(ConnectorType.ALL, "/models"), 503);
+        Assert.assertEquals(getStatus(ConnectorType.ALL, "/workflows"), 503);
+        Assert.assertEquals(getStatus(ConnectorType.ALL, "/bulk"), 503);
+        // every request of the management listener is offloaded
+        Assert.assertEquals(getStatus(ConnectorType.MANAGEMENT_CONNECTOR, "/api-description"), 503);
+    }
+
+    private static void assertPipeline(ConnectorType type, boolean timing) {
+        EmbeddedChannel channel = new EmbeddedChannel(new ServerInitializer(null, type));
+        try {
+            ChannelPipeline pipeline = channel.pipeline();
+            Assert.assertNull(pipeline.get("ssl"));
+            Assert.assertNotNull(pipeline.get("http"));
+            Assert.assertEquals(pipeline.get("timing") != null, timing, type.name());
+            Assert.assertNotNull(pipeline.get("aggregator"));
+            Assert.assertNull(pipeline.get("shard"));
+            Assert.assertNotNull(pipeline.get("handler"));
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private static int getStatus(ConnectorType type, String uri) {
+        EmbeddedChannel channel = new EmbeddedChannel(new ServerInitializer(null, type));
+        try {
+            String request = "GET " + uri + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+            channel.writeInbound(Unpooled.copiedBuffer(request, StandardCharsets.US_ASCII));
+            ByteBuf response = channel.readOutbound();
+            Assert.assertNotNull(response, uri);
+            try {
+                // HTTP/1.1 <status> <reason>
+                String statusLine = response.toString(StandardCharsets.US_ASCII);
+                return Integer.parseInt(statusLine.substring(9, 12));
+            } finally {
+                response.release();
+            }
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
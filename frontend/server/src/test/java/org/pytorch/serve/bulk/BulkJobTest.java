@@ -0,0 +1,254 @@
+package org.pytorch.serve.bulk;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import io.netty.util.internal.logging.Slf4JLoggerFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.commons.io.FileUtils;
+import org.pytorch.serve.ModelServer;
+import org.pytorch.serve.archive.model.ModelException;
+import org.pytorch.serve.http.BadRequestException;
+import org.pytorch.serve.http.ConflictStatusException;
+import org.pytorch.serve.http.ResourceNotFoundException;
+import org.pytorch.serve.http.messages.DescribeBulkJobResponse;
+import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.servingsdk.impl.PluginsManager;
+import org.pytorch.serve.snapshot.InvalidSnapshotException;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.GPUManager;
+import org.pytorch.serve.util.JsonUtils;
+import org.pytorch.serve.wlm.ModelManager;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class BulkJobTest {
+
+    private static final long TIMEOUT_MS = 60000;
+
+    private ConfigManager configManager;
+    private ModelServer server;
+    private File root;
+    private File jobDir;
+
+    @BeforeClass
+    public void beforeClass()
+            throws InterruptedException, IOException, GeneralSecurityException,
+                    InvalidSnapshotException {
+        System.setProperty("tsConfigFile", "src/test/resources/config.properties");
+        root = Files.createTempDirectory("bulk-root").toFile();
+        jobDir = Files.createTempDirectory("bulk-jobs").toFile();
+
+        ConfigManager.init(new ConfigManager.Arguments());
+        configManager = ConfigManager.getInstance();
+        configManager.setProperty("bulk_job_root", root.getAbsolutePath());
+        configManager.setProperty("bulk_job_dir", jobDir.getAbsolutePath());
+        PluginsManager.getInstance().initialize();
+        MetricCache.init();
+        GPUManager.init(configManager);
+
+        InternalLoggerFactory.setDefaultFactory(Slf4JLoggerFactory.INSTANCE);
+        server = new ModelServer(configManager, GPUManager.getInstance());
+        server.startRESTserver();
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (ModelManager.getInstance().getModel("noop", null) == null) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline, "noop not loaded");
+            Thread.sleep(100);
+        }
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void afterClass() {
+        server.stop();
+        FileUtils.deleteQuietly(root);
+        FileUtils.deleteQuietly(jobDir);
+    }
+
+    @Test
+    public void testSubmit() throws ModelException, IOException, InterruptedException {
+        File input = writeRecords("submit.jsonl", 5);
+        File output = new File(root, "submit-out.jsonl");
+
+        DescribeBulkJobResponse job = submit(input, output, 2);
+        job = waitForStatus(job.getJobId(), BulkJob.Status.COMPLETED);
+        Assert.assertEquals(job.getTotalRecords(), 5);
+        Assert.assertEquals(job.getProcessedRecords(), 5);
+        Assert.assertEquals(job.getFailedRecords(), 0);
+
+        List<JsonObject> lines = readOutput(output);
+        Assert.assertEquals(lines.size(), 5);
+        for (int i = 0; i < lines.size(); ++i) {
+            Assert.assertEquals(lines.get(i).get("index").getAsInt(), i);
+            Assert.assertEquals(lines.get(i).get("code").getAsInt(), 200);
+            Assert.assertEquals(lines.get(i).get("response").getAsString(), "OK");
+        }
+        // the output of a job is never overwritten
+        Assert.assertThrows(ConflictStatusException.class, () -> submit(input, output, 2));
+        BulkJobManager.getInstance().deleteJob(job.getJobId());
+    }
+
+    @Test
+    public void testConfinedToRoot() throws IOException {
+        File input = writeRecords("confined.jsonl", 1);
+        File outside = Files.createTempDirectory("bulk-outside").toFile();
+        try {
+            Assert.assertThrows(
+                    BadRequestException.class,
+                    () -> submit(input, new File(outside, "out.jsonl"), 1));
+            File link = new File(root, "link");
+            Files.createSymbolicLink(link.toPath(), outside.toPath());
+            Assert.assertThrows(
+                    BadRequestException.class,
+                    () -> submit(input, new File(link, "out.jsonl"), 1));
+
+            restartBulkJobs("");
+            Assert.assertThrows(
+                    ResourceNotFoundException.class,
+                    () -> submit(input, new File(root, "disabled.jsonl"), 1));
+        } finally {
+            restartBulkJobs(root.getAbsolutePath());
+            FileUtils.deleteQuietly(outside);
+        }
+    }
+
+    @Test
+    public void testLinkedRoot() throws ModelException, IOException, InterruptedException {
+        File input = writeRecords("linked.jsonl", 1);
+        File link = new File(jobDir, "root-link");
+        Files.createSymbolicLink(link.toPath(), root.toPath());
+        try {
+            // the root is resolved like the paths of the jobs
+            restartBulkJobs(link.getAbsolutePath());
+            DescribeBulkJobResponse job =
+                    submit(new File(link, input.getName()), new File(link, "linked-out.jsonl"), 1);
+            job = waitForStatus(job.getJobId(), BulkJob.Status.COMPLETED);
+            Assert.assertEquals(job.getProcessedRecords(), 1);
+            BulkJobManager.getInstance().deleteJob(job.getJobId());
+        } finally {
+            restartBulkJobs(root.getAbsolutePath());
+            Files.delete(link.toPath());
+        }
+    }
+
+    @Test
+    public void testCheckpointResume()
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        File input = writeRecords("resume.jsonl", 5);
+        File output = new File(root, "resume-out.jsonl");
+        // two records were committed before the server stopped, the rest of the output is lost
+        String committed = "{\"index\":0,\"code\":200}\n{\"index\":1,\"code\":200}\n";
+        Files.write(output.toPath(), (committed + "{\"index\":2").getBytes(StandardCharsets.UTF_8));
+
+        JsonObject checkpoint = new JsonObject();
+        checkpoint.addProperty("id", "resumed");
+        checkpoint.addProperty("modelName", "noop");
+        checkpoint.addProperty("input", input.getCanonicalPath());
+        checkpoint.addProperty("output", output.getCanonicalPath());
+        checkpoint.addProperty("concurrency", 2);
+        checkpoint.addProperty("status", BulkJob.Status.RUNNING.name());
+        checkpoint.addProperty("createdTime", System.currentTimeMillis());
+        checkpoint.addProperty("totalRecords", 5);
+        checkpoint.addProperty("committedRecords", 2);
+        checkpoint.addProperty("outputPosition", committed.length());
+        Files.write(
+                new File(jobDir, "resumed.json").toPath(),
+                JsonUtils.GSON.toJson(checkpoint).getBytes(StandardCharsets.UTF_8));
+
+        // a restarted server loads the checkpoints and resumes the running jobs, once the models
+        // to load at startup are registered
+        BulkJobManager.getInstance().shutdown();
+        BulkJobManager.init(configManager);
+        server.resumeBulkJobs().get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        Assert.assertFalse(ModelManager.getInstance().isStartupModelLoading(null));
+
+        DescribeBulkJobResponse job = waitForStatus("resumed", BulkJob.Status.COMPLETED);
+        Assert.assertEquals(job.getProcessedRecords(), 5);
+        String content = new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+        Assert.assertTrue(content.startsWith(committed), content);
+        List<JsonObject> lines = readOutput(output);
+        Assert.assertEquals(lines.size(), 5);
+        for (int i = 2; i < lines.size(); ++i) {
+            Assert.assertEquals(lines.get(i).get("index").getAsInt(), i);
+            Assert.assertEquals(lines.get(i).get("response").getAsString(), "OK");
+        }
+    }
+
+    @Test
+    public void testCancel() throws ModelException, IOException, InterruptedException {
+        File input = writeRecords("cancel.jsonl", 1000);
+        File output = new File(root, "cancel-out.jsonl");
+        BulkJobManager manager = BulkJobManager.getInstance();
+
+        DescribeBulkJobResponse job = submit(input, output, 1);
+        job = manager.cancelJob(job.getJobId());
+        Assert.assertEquals(job.getStatus(), BulkJob.Status.CANCELLED.name());
+        String jobId = job.getJobId();
+        Assert.assertThrows(ConflictStatusException.class, () -> manager.cancelJob(jobId));
+        Assert.assertThrows(ConflictStatusException.class, () -> manager.resumeJob(jobId));
+
+        job = waitForStatus(jobId, BulkJob.Status.CANCELLED);
+        Assert.assertTrue(job.getProcessedRecords() < 1000);
+        manager.deleteJob(jobId);
+        Assert.assertFalse(new File(jobDir, jobId + ".json").exists());
+        Assert.assertThrows(ResourceNotFoundException.class, () -> manager.getJob(jobId));
+    }
+
+    private void restartBulkJobs(String bulkJobRoot) {
+        BulkJobManager.getInstance().shutdown();
+        configManager.setProperty("bulk_job_root", bulkJobRoot);
+        BulkJobManager.init(configManager);
+    }
+
+    private static DescribeBulkJobResponse submit(File input, File output, int concurrency)
+            throws ModelException {
+        return BulkJobManager.getInstance()
+                .submitJob(
+                        "noop",
+                        null,
+                        input.getAbsolutePath(),
+                        output.getAbsolutePath(),
+                        concurrency);
+    }
+
+    private File writeRecords(String name, int count) throws IOException {
+        StringBuilder records = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            records.append("{\"data\":").append(i).append("}\n");
+        }
+        File file = new File(root, name);
+        Files.write(file.toPath(), records.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<JsonObject> readOutput(File output) throws IOException {
+        List<JsonObject> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(output.toPath(), StandardCharsets.UTF_8)) {
+            lines.add(JsonParser.parseString(line).getAsJsonObject());
+        }
+        return lines;
+    }
+
+    private static DescribeBulkJobResponse waitForStatus(String jobId, BulkJob.Status status)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        DescribeBulkJobResponse job = BulkJobManager.getInstance().getJob(jobId);
+        while (!status.name().equals(job.getStatus())) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline, job.getStatus());
+            Thread.sleep(100);
+            job = BulkJobManager.getInstance().getJob(jobId);
+        }
+        return job;
+    }
+}
@@ -0,0 +1,59 @@
+package org.pytorch.serve.grpcimpl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.pytorch.serve.util.ConnectorType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class GRPCExecutorTest {
+
+    @Test
+    public void testRejectedTaskRunsOnCaller() throws InterruptedException {
+        ExecutorService executor =
+                GRPCExecutor.newExecutor(ConnectorType.INFERENCE_CONNECTOR, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(
+                    () -> {
+                        started.countDown();
+                        await(release);
+                    });
+            Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+            AtomicBoolean queuedRejected = new AtomicBoolean(true);
+            executor.execute(() -> queuedRejected.set(GRPCExecutor.isRejected()));
+
+            // the queue is full, the task runs on the caller and is marked as rejected
+            Thread caller = Thread.currentThread();
+            AtomicBoolean onCaller = new AtomicBoolean();
+            AtomicBoolean rejected = new AtomicBoolean();
+            executor.execute(
+                    () -> {
+                        onCaller.set(Thread.currentThread() == caller);
+                        rejected.set(GRPCExecutor.isRejected());
+                    });
+            Assert.assertTrue(onCaller.get());
+            Assert.assertTrue(rejected.get());
+            Assert.assertFalse(GRPCExecutor.isRejected());
+
+            release.countDown();
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            Assert.assertFalse(queuedRejected.get());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package org.pytorch.serve.grpcimpl;
+
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import io.netty.util.internal.logging.Slf4JLoggerFactory;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.pytorch.serve.ModelServer;
+import org.pytorch.serve.grpc.inference.BatchPredictionItem;
+import org.pytorch.serve.grpc.inference.BatchPredictionsRequest;
+import org.pytorch.serve.grpc.inference.BatchPredictionsResponse;
+import org.pytorch.serve.grpc.inference.InferenceAPIsServiceGrpc;
+import org.pytorch.serve.grpc.inference.PredictionResponse;
+import org.pytorch.serve.grpc.inference.PredictionsRequest;
+import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.servingsdk.impl.PluginsManager;
+import org.pytorch.serve.snapshot.InvalidSnapshotException;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.ConnectorType;
+import org.pytorch.serve.util.GPUManager;
+import org.pytorch.serve.wlm.ModelManager;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class InferenceImplTest {
+
+    private static final long TIMEOUT_MS = 60000;
+
+    private ConfigManager configManager;
+    private String streamWindow;
+    private ModelServer server;
+    private ManagedChannel channel;
+    private InferenceAPIsServiceGrpc.InferenceAPIsServiceStub stub;
+    private InferenceAPIsServiceGrpc.InferenceAPIsServiceBlockingStub blockingStub;
+
+    @BeforeClass
+    public void beforeClass()
+            throws InterruptedException, IOException, GeneralSecurityException,
+                    InvalidSnapshotException {
+        System.setProperty("tsConfigFile", "src/test/resources/config.properties");
+        ConfigManager.init(new ConfigManager.Arguments());
+        configManager = ConfigManager.getInstance();
+        streamWindow = String.valueOf(configManager.getGRPCStreamWindow());
+        PluginsManager.getInstance().initialize();
+        MetricCache.init();
+        GPUManager.init(configManager);
+
+        InternalLoggerFactory.setDefaultFactory(Slf4JLoggerFactory.INSTANCE);
+        server = new ModelServer(configManager, GPUManager.getInstance());
+        server.startRESTserver();
+        server.startGRPCServers();
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (ModelManager.getInstance().getModel("noop", null) == null) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline, "noop not loaded");
+            Thread.sleep(100);
+        }
+
+        int port = configManager.getGRPCPort(ConnectorType.INFERENCE_CONNECTOR);
+        channel = NettyChannelBuilder.forAddress("127.0.0.1", port).usePlaintext().build();
+        stub = InferenceAPIsServiceGrpc.newStub(channel);
+        blockingStub = InferenceAPIsServiceGrpc.newBlockingStub(channel);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void afterClass() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        server.stop();
+        configManager.setProperty("grpc_stream_window", streamWindow);
+    }
+
+    @Test
+    public void testPredictionsStream() throws InterruptedException {
+        // a window smaller than the number of requests makes the server pull them in turns
+        configManager.setProperty("grpc_stream_window", "2");
+        Responses responses = new Responses();
+        StreamObserver<PredictionsRequest> requests = stub.predictionsStream(responses);
+        for (int i = 0; i < 5; ++i) {
+            requests.onNext(newRequest("noop", "c" + i));
+        }
+        // failed requests are answered in the stream and do not end it
+        requests.onNext(newRequest("", "no-model"));
+        requests.onNext(newRequest("missing", "missing"));
+        requests.onNext(newRequest("noop", "last"));
+        requests.onCompleted();
+
+        Assert.assertTrue(responses.completed.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        Assert.assertNull(responses.error);
+        Assert.assertEquals(responses.count.get(), 8);
+        Assert.assertEquals(responses.byCorrelationId.size(), 8);
+        for (int i = 0; i < 5; ++i) {
+            assertPrediction(responses.byCorrelationId.get("c" + i));
+        }
+        assertPrediction(responses.byCorrelationId.get("last"));
+
+        PredictionResponse noModel = responses.byCorrelationId.get("no-model");
+        Assert.assertEquals(noModel.getCode(), 400);
+        Assert.assertEquals(noModel.getMessage(), "Parameter model_name is required.");
+        Assert.assertTrue(noModel.getPrediction().isEmpty());
+        PredictionResponse missing = responses.byCorrelationId.get("missing");
+        Assert.assertEquals(missing.getCode(), 404);
+        Assert.assertEquals(missing.getMessage(), "Model not found: missing");
+    }
+
+    @Test
+    public void testEmptyPredictionsStream() throws InterruptedException {
+        Responses responses = new Responses();
+        stub.predictionsStream(responses).onCompleted();
+
+        Assert.assertTrue(responses.completed.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        Assert.assertNull(responses.error);
+        Assert.assertEquals(responses.count.get(), 0);
+    }
+
+    @Test
+    public void testBatchPredictions() {
+        // the items without a model name use the model of the batch
+        BatchPredictionsRequest request =
+                BatchPredictionsRequest.newBuilder()
+                        .setModelName("noop")
+                        .addRequests(newRequest("", "first"))
+                        .addRequests(newRequest("missing", "second"))
+                        .addRequests(newRequest("noop", "third"))
+                        .build();
+        BatchPredictionsResponse response =
+                blockingStub
+                        .withDeadlineAfter(TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                        .batchPredictions(request);
+
+        Assert.assertEquals(response.getResponsesCount(), 3);
+        BatchPredictionItem first = response.getResponses(0);
+        Assert.assertEquals(first.getCorrelationId(), "first");
+        Assert.assertEquals(first.getCode(), 200, first.getMessage());
+        Assert.assertEquals(first.getPrediction().toStringUtf8(), "OK");
+        BatchPredictionItem second = response.getResponses(1);
+        Assert.assertEquals(second.getCorrelationId(), "second");
+        Assert.assertEquals(second.getCode(), 404);
+        Assert.assertEquals(second.getMessage(), "Model not found: missing");
+        Assert.assertEquals(response.getResponses(2).getCorrelationId(), "third");
+        Assert.assertEquals(response.getResponses(2).getCode(), 200);
+
+        // without a model of the batch an item without a model name fails on its own
+        request = request.toBuilder().clearModelName().build();
+        response = blockingStub.batchPredictions(request);
+        Assert.assertEquals(response.getResponses(0).getCode(), 400);
+        Assert.assertEquals(
+                response.getResponses(0).getMessage(), "Parameter model_name is required.");
+        Assert.assertEquals(response.getResponses(2).getCode(), 200);
+    }
+
+    @Test
+    public void testEmptyBatchPredictions() {
+        StatusRuntimeException e =
+                Assert.expectThrows(
+                        StatusRuntimeException.class,
+                        () ->
+                                blockingStub.batchPredictions(
+                                        BatchPredictionsRequest.getDefaultInstance()));
+        Assert.assertEquals(e.getStatus().getCode(), Status.Code.INVALID_ARGUMENT);
+    }
+
+    private static PredictionsRequest newRequest(String modelName, String correlationId) {
+        return PredictionsRequest.newBuilder()
+                .setModelName(modelName)
+                .setCorrelationId(correlationId)
+                .putInput("data", ByteString.copyFromUtf8(correlationId))
+                .build();
+    }
+
+    private static void assertPrediction(PredictionResponse response) {
+        Assert.assertNotNull(response);
+        Assert.assertEquals(response.getCode(), 200, response.getMessage());
+        Assert.assertEquals(response.getPrediction().toStringUtf8(), "OK");
+    }
+
+    private static final class Responses implements StreamObserver<PredictionResponse> {
+
+        private final Map<String, PredictionResponse> byCorrelationId = new ConcurrentHashMap<>();
+        private final AtomicInteger count = new AtomicInteger();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Throwable error;
+
+        @Override
+        public void onNext(PredictionResponse response) {
+            byCorrelationId.put(response.getCorrelationId(), response);
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            completed.countDown();
+        }
+
+        @Override
+        public void onCompleted() {
+            completed.countDown();
+        }
+    }
+}
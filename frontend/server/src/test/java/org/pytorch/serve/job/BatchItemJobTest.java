@@ -0,0 +1,65 @@
+package org.pytorch.serve.job;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import org.pytorch.serve.http.messages.BatchItemResponse;
+import org.pytorch.serve.util.ApiUtils;
+import org.pytorch.serve.util.messages.RequestInput;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BatchItemJobTest {
+
+    private static final Map<String, String> STREAM_NEXT =
+            Collections.singletonMap(RequestInput.TS_STREAM_NEXT, "true");
+
+    @Test
+    public void testStreamResponse() {
+        BatchItemJob job = newJob(1);
+        job.response(bytes("{\"a\":"), "application/json", 200, null, STREAM_NEXT);
+        Assert.assertFalse(job.getResult().isDone());
+        job.response(bytes("1}"), "application/json", 200, null, null);
+        Assert.assertTrue(job.getResult().isDone());
+
+        // the items of a batch only complete once, a late timeout leaves the result intact
+        job.sendError(408, "Request timed out");
+        BatchItemResponse resp = ApiUtils.getBatchItemResponse(job);
+        Assert.assertEquals(resp.getIndex(), 1);
+        Assert.assertEquals(resp.getCode(), 200);
+        Assert.assertEquals(resp.getContentType(), "application/json");
+        Assert.assertEquals(resp.getResponse().getAsJsonObject().get("a").getAsInt(), 1);
+        Assert.assertNull(resp.getMessage());
+    }
+
+    @Test
+    public void testFailedItem() {
+        BatchItemJob job = newJob(2);
+        job.sendError(503, "Prediction failed");
+        job.response(bytes("late"), "text/plain", 200, null, null);
+
+        BatchItemResponse resp = ApiUtils.getBatchItemResponse(job);
+        Assert.assertEquals(resp.getIndex(), 2);
+        Assert.assertEquals(resp.getCode(), 503);
+        Assert.assertEquals(resp.getMessage(), "Prediction failed");
+        Assert.assertNull(resp.getResponse());
+    }
+
+    @Test
+    public void testBinaryResponse() {
+        BatchItemJob job = newJob(0);
+        job.response(new byte[] {(byte) 0xff, 0}, "application/octet-stream", 200, null, null);
+
+        BatchItemResponse resp = ApiUtils.getBatchItemResponse(job);
+        Assert.assertEquals(resp.getEncoding(), "base64");
+        Assert.assertEquals(resp.getResponse().getAsString(), "/wA=");
+    }
+
+    private static BatchItemJob newJob(int index) {
+        return new BatchItemJob(index, "noop", "1.0", new RequestInput("id-" + index));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
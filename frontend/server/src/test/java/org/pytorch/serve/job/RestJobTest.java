@@ -0,0 +1,101 @@
+package org.pytorch.serve.job;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.messages.RequestInput;
+import org.pytorch.serve.util.messages.WorkerCommands;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RestJobTest {
+
+    private static final Map<String, String> STREAM_NEXT =
+            Collections.singletonMap(RequestInput.TS_STREAM_NEXT, "true");
+
+    private EmbeddedChannel channel;
+    private HeldWrites writes;
+    private String maxStreamBufferSize;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        maxStreamBufferSize = String.valueOf(ConfigManager.getInstance().getMaxStreamBufferSize());
+        writes = new HeldWrites();
+        channel = new EmbeddedChannel(writes, new ChannelInboundHandlerAdapter());
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        ConfigManager.getInstance().setProperty("max_stream_buffer_size", maxStreamBufferSize);
+        writes.complete();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testBufferedBytes() {
+        RestJob job = newJob();
+        job.response(new byte[10], "text/plain", 200, null, STREAM_NEXT);
+        job.response(new byte[20], "text/plain", 200, null, STREAM_NEXT);
+        // the chunks are buffered until netty has written them to the client
+        Assert.assertEquals(job.getBufferedBytes(), 30);
+
+        writes.complete();
+        channel.runPendingTasks();
+        Assert.assertEquals(job.getBufferedBytes(), 0);
+        Assert.assertTrue(job.isWritable());
+    }
+
+    @Test
+    public void testAbortOverBufferLimit() {
+        ConfigManager.getInstance().setProperty("max_stream_buffer_size", "16");
+        RestJob job = newJob();
+        job.response(new byte[10], "text/plain", 200, null, STREAM_NEXT);
+        int written = writes.size();
+        job.response(new byte[10], "text/plain", 200, null, STREAM_NEXT);
+
+        // the chunk over the limit aborts the stream and closes the connection
+        Assert.assertEquals(writes.size(), written);
+        Assert.assertFalse(channel.isOpen());
+        Assert.assertTrue(job.isWritable());
+        job.response(new byte[10], "text/plain", 200, null, STREAM_NEXT);
+        Assert.assertEquals(writes.size(), written);
+    }
+
+    private RestJob newJob() {
+        ChannelHandlerContext ctx = channel.pipeline().lastContext();
+        return new RestJob(ctx, "noop", "1.0", WorkerCommands.PREDICT, new RequestInput("id"));
+    }
+
+    /** Holds the writes of the job, as a client that does not read its response. */
+    private static final class HeldWrites extends ChannelOutboundHandlerAdapter {
+
+        private final List<ChannelPromise> promises = new ArrayList<>();
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            ReferenceCountUtil.release(msg);
+            promises.add(promise);
+        }
+
+        int size() {
+            return promises.size();
+        }
+
+        void complete() {
+            for (ChannelPromise promise : promises) {
+                promise.trySuccess();
+            }
+            promises.clear();
+        }
+    }
+}
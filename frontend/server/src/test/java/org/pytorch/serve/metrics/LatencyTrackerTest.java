@@ -0,0 +1,161 @@
+package org.pytorch.serve.metrics;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.pytorch.serve.ServerInitializer;
+import org.pytorch.serve.http.messages.DescribeLatencyResponse;
+import org.pytorch.serve.job.BatchItemJob;
+import org.pytorch.serve.job.Job;
+import org.pytorch.serve.servingsdk.impl.PluginsManager;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.ConnectorType;
+import org.pytorch.serve.util.messages.RequestInput;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class LatencyTrackerTest {
+
+    private static final int WINDOW_SLICES = 6;
+
+    private ConfigManager configManager;
+    private String windowSeconds;
+    private LatencyTracker tracker;
+
+    @BeforeClass
+    public void beforeClass() {
+        System.setProperty("tsConfigFile", "src/test/resources/config.properties");
+        ConfigManager.init(new ConfigManager.Arguments());
+        configManager = ConfigManager.getInstance();
+        PluginsManager.getInstance().initialize();
+        windowSeconds = String.valueOf(configManager.getLatencyWindowSeconds());
+        // the slices never rotate on their own during the test
+        configManager.setProperty("latency_window_seconds", "3600");
+        LatencyTracker.init(configManager);
+        tracker = LatencyTracker.getInstance();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void afterClass() {
+        configManager.setProperty("latency_window_seconds", windowSeconds);
+    }
+
+    @Test
+    public void testPercentiles() {
+        for (int i = 1; i <= 1000; ++i) {
+            record("percentiles", "1.0", i);
+        }
+        // only the completed slices of the window are reported
+        Assert.assertTrue(tracker.getLatencies("percentiles", null).isEmpty());
+        tracker.rotate();
+
+        List<DescribeLatencyResponse> latencies = tracker.getLatencies("percentiles", null);
+        Assert.assertEquals(latencies.size(), 1);
+        DescribeLatencyResponse resp = latencies.get(0);
+        Assert.assertEquals(resp.getModelVersion(), "1.0");
+        Assert.assertEquals(resp.getPriority(), "MAX");
+        Assert.assertEquals(resp.getWindowSeconds(), 3600);
+        Assert.assertFalse(resp.getLatencies().containsKey("batch_wait"));
+
+        DescribeLatencyResponse.Latency backend = resp.getLatencies().get("backend");
+        Assert.assertEquals(backend.getCount(), 1000);
+        assertMicros(backend.getP50(), 500);
+        assertMicros(backend.getP90(), 900);
+        assertMicros(backend.getP99(), 990);
+        assertMicros(backend.getP999(), 999);
+        assertMicros(backend.getMax(), 1000);
+        Assert.assertEquals(resp.getLatencies().get("queue").getMax(), 0);
+    }
+
+    @Test
+    public void testWindowRotation() {
+        record("rotation", null, 100);
+        tracker.rotate();
+        record("rotation", null, 200);
+        tracker.rotate();
+
+        DescribeLatencyResponse.Latency endToEnd = getEndToEnd("rotation");
+        Assert.assertEquals(endToEnd.getCount(), 2);
+        assertMicros(endToEnd.getMax(), 200);
+
+        // the first slice leaves the window after as many rotations as the window has slices
+        for (int i = 1; i < WINDOW_SLICES; ++i) {
+            tracker.rotate();
+        }
+        endToEnd = getEndToEnd("rotation");
+        Assert.assertEquals(endToEnd.getCount(), 1);
+        assertMicros(endToEnd.getMax(), 200);
+        tracker.rotate();
+        Assert.assertTrue(tracker.getLatencies("rotation", null).isEmpty());
+    }
+
+    @Test
+    public void testRemoveModel() {
+        record("removed", "1.0", 1);
+        record("removed", "2.0", 1);
+        record("removed", null, 1);
+        tracker.rotate();
+        Assert.assertEquals(tracker.getLatencies("removed", null).size(), 3);
+
+        tracker.removeModel("removed", "1.0", false);
+        Assert.assertTrue(tracker.getLatencies("removed", "1.0").isEmpty());
+        Assert.assertEquals(tracker.getLatencies("removed", null).size(), 2);
+        tracker.removeModel("removed", "2.0", true);
+        Assert.assertTrue(tracker.getLatencies("removed", null).isEmpty());
+    }
+
+    @Test
+    public void testLatencyApi() {
+        record("api", "1.0", 10);
+        record("other", "1.0", 10);
+        tracker.rotate();
+
+        EmbeddedChannel channel =
+                new EmbeddedChannel(new ServerInitializer(null, ConnectorType.ALL));
+        try {
+            String request = "GET /latency?model_name=api HTTP/1.1\r\nHost: localhost\r\n\r\n";
+            channel.writeInbound(Unpooled.copiedBuffer(request, StandardCharsets.US_ASCII));
+            StringBuilder response = new StringBuilder();
+            for (ByteBuf buf = channel.readOutbound(); buf != null; buf = channel.readOutbound()) {
+                response.append(buf.toString(StandardCharsets.UTF_8));
+                buf.release();
+            }
+            Assert.assertTrue(response.toString().startsWith("HTTP/1.1 200"), response.toString());
+
+            String body = response.substring(response.indexOf("\r\n\r\n") + 4);
+            JsonArray latencies = JsonParser.parseString(body).getAsJsonArray();
+            Assert.assertEquals(latencies.size(), 1);
+            JsonObject resp = latencies.get(0).getAsJsonObject();
+            Assert.assertEquals(resp.get("modelName").getAsString(), "api");
+            Assert.assertEquals(resp.get("modelVersion").getAsString(), "1.0");
+            JsonObject endToEnd = resp.getAsJsonObject("latencies").getAsJsonObject("end_to_end");
+            Assert.assertEquals(endToEnd.get("count").getAsLong(), 1);
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private DescribeLatencyResponse.Latency getEndToEnd(String modelName) {
+        List<DescribeLatencyResponse> latencies = tracker.getLatencies(modelName, null);
+        Assert.assertEquals(latencies.size(), 1);
+        return latencies.get(0).getLatencies().get("end_to_end");
+    }
+
+    /** Records a job that was scheduled at once and completed after the given milliseconds. */
+    private void record(String modelName, String modelVersion, long millis) {
+        Job job = new BatchItemJob(0, modelName, modelVersion, new RequestInput("id"));
+        tracker.record(job, job.getBegin() + millis * 1_000_000);
+    }
+
+    /** Asserts a latency in microseconds within the precision of the histograms. */
+    private static void assertMicros(long micros, long millis) {
+        Assert.assertEquals(micros, millis * 1000, millis, String.valueOf(micros));
+    }
+}
@@ -0,0 +1,122 @@
+package org.pytorch.serve.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class LogEventPipelineTest {
+
+    private static final String PREFIX = "TestMetric.ms:";
+    private static final String DIMENSIONS = "|#Level:Host|#hostname:TestHost";
+    private static final int ITERATIONS = 1 << 20;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final Logger logger = LoggerFactory.getLogger(LogEventPipelineTest.class);
+
+    private final List<LogEventPipeline> pipelines = new ArrayList<>();
+
+    @AfterMethod(alwaysRun = true)
+    public void afterMethod() {
+        for (LogEventPipeline pipeline : pipelines) {
+            pipeline.stop();
+        }
+        pipelines.clear();
+    }
+
+    @Test
+    public void testDropOnOverflow() throws InterruptedException {
+        LogEventPipeline pipeline = newPipeline(4);
+        CountDownLatch consuming = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object blocking =
+                new Object() {
+                    @Override
+                    public String toString() {
+                        consuming.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return "blocked";
+                    }
+                };
+
+        // the access event stalls the consumer, the ring holds four events at most
+        pipeline.publish(LogEventPipeline.ACCESS, blocking, null, null, 0, 0);
+        Assert.assertTrue(consuming.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; ++i) {
+            publishMetric(pipeline, i);
+        }
+        release.countDown();
+        Assert.assertEquals(pipeline.getDropped(), 7);
+    }
+
+    /**
+     * Measures the time a request thread spends on a log metric update, formatting and logging
+     * inline before and publishing to the pipeline after. The events are published in bursts of
+     * half the ring once the consumer caught up, so that no event takes the drop path. Timings
+     * depend on the machine, so the benchmark group is excluded from the test suite.
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkLogMetricUpdate() throws InterruptedException {
+        for (int i = 0; i < ITERATIONS / 10; ++i) {
+            LogMetric.logFrontendMetric(PREFIX, i, DIMENSIONS, System.currentTimeMillis());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS / 10; ++i) {
+            LogMetric.logFrontendMetric(PREFIX, i, DIMENSIONS, System.currentTimeMillis());
+        }
+        long before = (System.nanoTime() - start) * 10 / ITERATIONS;
+
+        LogEventPipeline pipeline = newPipeline(BUFFER_SIZE);
+        publishBursts(pipeline);
+        long elapsed = publishBursts(pipeline);
+        long after = elapsed / ITERATIONS;
+        logger.info(
+                "log metric update on the request thread: before {} ns, after {} ns",
+                before,
+                after);
+
+        Assert.assertEquals(pipeline.getDropped(), 0);
+    }
+
+    /** Publishes the iterations in bursts that fit into the ring, returns their duration. */
+    private static long publishBursts(LogEventPipeline pipeline) throws InterruptedException {
+        int burst = BUFFER_SIZE / 2;
+        long elapsed = 0;
+        for (int i = 0; i < ITERATIONS; i += burst) {
+            while (pipeline.getRemainingCapacity() < BUFFER_SIZE) {
+                Thread.sleep(1);
+            }
+            long start = System.nanoTime();
+            for (int j = 0; j < burst; ++j) {
+                publishMetric(pipeline, i + j);
+            }
+            elapsed += System.nanoTime() - start;
+        }
+        return elapsed;
+    }
+
+    private LogEventPipeline newPipeline(int bufferSize) {
+        LogEventPipeline pipeline = new LogEventPipeline(bufferSize);
+        pipelines.add(pipeline);
+        return pipeline;
+    }
+
+    private static void publishMetric(LogEventPipeline pipeline, double value) {
+        pipeline.publish(
+                LogEventPipeline.FRONTEND_METRIC,
+                PREFIX,
+                DIMENSIONS,
+                null,
+                value,
+                System.currentTimeMillis());
+    }
+}
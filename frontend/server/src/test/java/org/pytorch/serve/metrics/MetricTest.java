@@ -1,12 +1,20 @@
 package org.pytorch.serve.metrics;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.prometheus.client.CollectorRegistry;
+import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.core.Logger;
 import org.apache.logging.log4j.core.appender.WriterAppender;
+import org.pytorch.serve.metrics.format.prometheous.OpenMetricsFormat;
 import org.pytorch.serve.metrics.format.prometheous.PrometheusCounter;
 import org.pytorch.serve.metrics.format.prometheous.PrometheusGauge;
 import org.pytorch.serve.metrics.format.prometheous.PrometheusHistogram;
@@ -266,4 +274,134 @@ public class MetricTest {
                         testMetricDimensionValues.toArray(new String[0]));
         Assert.assertEquals(metricValue, Double.valueOf(3.0));
     }
+
+    @Test
+    public void testPrometheusCounterHandle() {
+        IMetric testMetric =
+                MetricBuilder.build(
+                        MetricBuilder.MetricMode.PROMETHEUS,
+                        MetricBuilder.MetricType.COUNTER,
+                        testMetricName,
+                        testMetricUnit,
+                        testMetricDimensionNames);
+        MetricHandle handle = testMetric.bind(testMetricDimensionValues);
+        Assert.assertSame(
+                testMetric.bind(new ArrayList<String>(testMetricDimensionValues)), handle);
+
+        handle.addOrUpdate(1.0);
+        testMetric.addOrUpdate(testMetricDimensionValues, 2.0);
+        Double metricValue =
+                CollectorRegistry.defaultRegistry.getSampleValue(
+                        testMetricName,
+                        testMetricDimensionNames.toArray(new String[0]),
+                        testMetricDimensionValues.toArray(new String[0]));
+        Assert.assertEquals(metricValue, Double.valueOf(3.0));
+    }
+
+    @Test
+    public void testHandleCacheLimit() {
+        IMetric testMetric =
+                MetricBuilder.build(
+                        MetricBuilder.MetricMode.PROMETHEUS,
+                        MetricBuilder.MetricType.COUNTER,
+                        testMetricName,
+                        testMetricUnit,
+                        testMetricDimensionNames);
+        List<String> dimensionValues = new ArrayList<>(testMetricDimensionValues);
+        for (int i = 0; i < IMetric.MAX_CACHED_HANDLES; ++i) {
+            dimensionValues.set(0, "cached" + i);
+            testMetric.bind(dimensionValues);
+        }
+        dimensionValues.set(0, "cached0");
+        Assert.assertSame(testMetric.bind(dimensionValues), testMetric.bind(dimensionValues));
+
+        // beyond the limit the handles are not cached but still record values
+        dimensionValues.set(0, "uncached");
+        MetricHandle handle = testMetric.bind(dimensionValues);
+        Assert.assertNotSame(testMetric.bind(dimensionValues), handle);
+        handle.addOrUpdate(1.0);
+        testMetric.addOrUpdate(dimensionValues, 2.0);
+        Double metricValue =
+                CollectorRegistry.defaultRegistry.getSampleValue(
+                        testMetricName,
+                        testMetricDimensionNames.toArray(new String[0]),
+                        dimensionValues.toArray(new String[0]));
+        Assert.assertEquals(metricValue, Double.valueOf(3.0));
+    }
+
+    @Test
+    public void testBackendMetricsDecoder() {
+        IMetric testMetric =
+                MetricBuilder.build(
+                        MetricBuilder.MetricMode.PROMETHEUS,
+                        MetricBuilder.MetricType.COUNTER,
+                        testMetricName,
+                        testMetricUnit,
+                        testMetricDimensionNames);
+        EmbeddedChannel channel =
+                new EmbeddedChannel(
+                        new LengthFieldBasedFrameDecoder(1024, 0, 4, 0, 4),
+                        new BackendMetricsDecoder(
+                                name -> testMetricName.equals(name) ? testMetric : null));
+
+        channel.writeInbound(encodeMetricRecord("UnknownMetric", 5.0));
+        channel.writeInbound(encodeMetricRecord(testMetricName, 2.0));
+        channel.writeInbound(encodeMetricRecord(testMetricName, 1.0));
+        Double metricValue =
+                CollectorRegistry.defaultRegistry.getSampleValue(
+                        testMetricName,
+                        testMetricDimensionNames.toArray(new String[0]),
+                        testMetricDimensionValues.toArray(new String[0]));
+        Assert.assertEquals(metricValue, Double.valueOf(3.0));
+        Assert.assertTrue(channel.isOpen());
+    }
+
+    @Test
+    public void testOpenMetricsFormat() throws IOException {
+        IMetric counter =
+                MetricBuilder.build(
+                        MetricBuilder.MetricMode.PROMETHEUS,
+                        MetricBuilder.MetricType.COUNTER,
+                        "test_requests_total",
+                        "Count",
+                        testMetricDimensionNames);
+        counter.addOrUpdate(testMetricDimensionValues, 2.0);
+        IMetric legacyCounter =
+                MetricBuilder.build(
+                        MetricBuilder.MetricMode.PROMETHEUS,
+                        MetricBuilder.MetricType.COUNTER,
+                        testMetricName,
+                        testMetricUnit,
+                        testMetricDimensionNames);
+        legacyCounter.addOrUpdate(testMetricDimensionValues, 1.0);
+
+        StringWriter writer = new StringWriter();
+        OpenMetricsFormat.write(writer, CollectorRegistry.defaultRegistry.metricFamilySamples());
+        String text = writer.toString();
+        Assert.assertTrue(text.contains("# TYPE test_requests counter\n"));
+        Assert.assertTrue(
+                text.contains(
+                        "test_requests_total{ModelName=\"TestModel\",Level=\"Model\","
+                                + "Hostname=\"TestHost\"} 2.0\n"));
+        Assert.assertTrue(text.contains("# TYPE TestMetric unknown\n"));
+        Assert.assertTrue(text.endsWith("# EOF\n"));
+    }
+
+    private ByteBuf encodeMetricRecord(String metricName, double value) {
+        ByteBuf record = Unpooled.buffer();
+        writeString(record, metricName);
+        record.writeDouble(value);
+        writeString(record, testRequestId);
+        record.writeInt(testMetricDimensionValues.size());
+        for (String dimensionValue : testMetricDimensionValues) {
+            writeString(record, dimensionValue);
+        }
+        return Unpooled.wrappedBuffer(Unpooled.copyInt(record.readableBytes()), record);
+    }
+
+    private static void writeString(ByteBuf buf, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buf.writeInt(bytes.length);
+        buf.writeBytes(bytes);
+    }
 }
@@ -0,0 +1,98 @@
+package org.pytorch.serve.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class ProcFileSystemTest {
+
+    private Path root;
+
+    @BeforeClass
+    public void beforeClass() throws IOException {
+        root = Files.createTempDirectory("procfs");
+        write("proc/stat", "cpu  100 20 30 800 50 0 0 0 0 0\ncpu0 100 20 30 800 50 0 0 0 0 0\n");
+        write(
+                "proc/42/stat",
+                "42 (python worker) S 1 42 42 0 -1 4194560 1000 0 0 0 250 50 0 0 20 0 4 0 100\n");
+        write("proc/42/status", "Name:\tpython\nVmPeak:\t 2048 kB\nVmRSS:\t 1024 kB\n");
+        write("proc/meminfo", "MemTotal:  4096 kB\nMemFree:  1024 kB\nMemAvailable:  3072 kB\n");
+        write(
+                "proc/diskstats",
+                "   8       0 sda 10 0 100 5 20 0 200 10 0 15 15 0 0 0 0\n"
+                        + "   8       1 sda1 10 0 100 5 20 0 200 10 0 15 15 0 0 0 0\n"
+                        + "   7       0 loop0 10 0 100 5 20 0 200 10 0 15 15 0 0 0 0\n");
+        Files.createDirectories(root.resolve("sys/block/sda"));
+        Files.createDirectories(root.resolve("sys/block/loop0"));
+    }
+
+    @AfterClass
+    public void afterClass() throws IOException {
+        FileUtils.deleteDirectory(root.toFile());
+    }
+
+    @Test
+    public void testProc() {
+        ProcFileSystem procFs = new ProcFileSystem(root);
+        Assert.assertTrue(procFs.isAvailable());
+        Assert.assertEquals(procFs.readCpuTimes(), new long[] {150, 1000});
+        Assert.assertEquals(procFs.readProcessCpuTicks(42), 300);
+        Assert.assertEquals(procFs.readProcessRss(42), 1024 * 1024);
+        Assert.assertEquals(procFs.readMemory(), new long[] {4096 * 1024, 3072 * 1024});
+        Assert.assertEquals(procFs.readDiskBytes(), new long[] {100 * 512, 200 * 512});
+
+        Assert.assertEquals(procFs.readProcessCpuTicks(43), -1);
+        Assert.assertEquals(procFs.readProcessRss(43), -1);
+        Assert.assertFalse(new ProcFileSystem(root.resolve("missing")).isAvailable());
+    }
+
+    @Test(dependsOnMethods = "testProc")
+    public void testCgroupV1() throws IOException {
+        ProcFileSystem procFs = new ProcFileSystem(root);
+        write("sys/fs/cgroup/memory/memory.limit_in_bytes", "9223372036854771712\n");
+        write("sys/fs/cgroup/cpu/cpu.cfs_quota_us", "-1\n");
+        write("sys/fs/cgroup/cpu/cpu.cfs_period_us", "100000\n");
+        Assert.assertNull(procFs.readCgroupMemory());
+        Assert.assertEquals(procFs.readCgroupCpuLimit(), -1.0);
+
+        write("sys/fs/cgroup/memory/memory.limit_in_bytes", "2000\n");
+        write("sys/fs/cgroup/memory/memory.usage_in_bytes", "1500\n");
+        write("sys/fs/cgroup/memory/memory.stat", "cache 600\ntotal_inactive_file 500\n");
+        write("sys/fs/cgroup/cpu/cpu.cfs_quota_us", "150000\n");
+        write("sys/fs/cgroup/cpuacct/cpuacct.usage", "123456789\n");
+        Assert.assertEquals(procFs.readCgroupMemory(), new long[] {2000, 1000});
+        Assert.assertEquals(procFs.readCgroupCpuLimit(), 1.5);
+        Assert.assertEquals(procFs.readCgroupCpuUsage(), 123456789);
+    }
+
+    @Test(dependsOnMethods = "testCgroupV1")
+    public void testCgroupV2() throws IOException {
+        ProcFileSystem procFs = new ProcFileSystem(root);
+        write("sys/fs/cgroup/cgroup.controllers", "cpu memory\n");
+        write("sys/fs/cgroup/memory.max", "max\n");
+        write("sys/fs/cgroup/cpu.max", "max 100000\n");
+        Assert.assertNull(procFs.readCgroupMemory());
+        Assert.assertEquals(procFs.readCgroupCpuLimit(), -1.0);
+
+        write("sys/fs/cgroup/memory.max", "4000\n");
+        write("sys/fs/cgroup/memory.current", "3000\n");
+        write("sys/fs/cgroup/memory.stat", "anon 2000\nactive_file 200\ninactive_file 800\n");
+        write("sys/fs/cgroup/cpu.max", "200000 100000\n");
+        write("sys/fs/cgroup/cpu.stat", "usage_usec 5000\nuser_usec 4000\n");
+        Assert.assertEquals(procFs.readCgroupMemory(), new long[] {4000, 2200});
+        Assert.assertEquals(procFs.readCgroupCpuLimit(), 2.0);
+        Assert.assertEquals(procFs.readCgroupCpuUsage(), 5_000_000);
+    }
+
+    private void write(String path, String content) throws IOException {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
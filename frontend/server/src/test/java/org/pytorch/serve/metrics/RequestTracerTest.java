@@ -0,0 +1,248 @@
+package org.pytorch.serve.metrics;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.pytorch.serve.http.messages.DescribeLatencyResponse;
+import org.pytorch.serve.job.BatchItemJob;
+import org.pytorch.serve.job.Job;
+import org.pytorch.serve.metrics.RequestTimeline.Mark;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.codec.ModelRequestEncoder;
+import org.pytorch.serve.util.messages.ModelInferenceRequest;
+import org.pytorch.serve.util.messages.RequestInput;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class RequestTracerTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String PARENT_SPAN_ID = "00f067aa0ba902b7";
+    private static final String TRACE_PARENT = "00-" + TRACE_ID + "-" + PARENT_SPAN_ID + "-01";
+
+    private ConfigManager configManager;
+    private String windowSeconds;
+    private String sampleRate;
+    private File traceDir;
+
+    @BeforeClass
+    public void beforeClass() throws IOException {
+        System.setProperty("tsConfigFile", "src/test/resources/config.properties");
+        ConfigManager.init(new ConfigManager.Arguments());
+        configManager = ConfigManager.getInstance();
+        windowSeconds = String.valueOf(configManager.getLatencyWindowSeconds());
+        sampleRate = String.valueOf(configManager.getRequestTraceSampleRate());
+        traceDir = Files.createTempDirectory("traces").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void afterMethod() {
+        RequestTracer.shutdown();
+        configManager.setProperty("request_stage_timing", "false");
+        configManager.setProperty("request_trace_sample_rate", sampleRate);
+        configManager.setProperty("request_trace_export", "");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void afterClass() {
+        configManager.setProperty("latency_window_seconds", windowSeconds);
+        FileUtils.deleteQuietly(traceDir);
+    }
+
+    @Test
+    public void testTimeline() {
+        RequestTimeline timeline = new RequestTimeline(0, false);
+        long decoded = timeline.get(Mark.DECODED);
+        Assert.assertTrue(decoded > 0);
+        Assert.assertFalse(timeline.isSampled());
+        // marks that were not taken or are out of order have no duration
+        Assert.assertEquals(timeline.getDuration(Mark.RECEIVED, Mark.DECODED), -1);
+        Assert.assertEquals(timeline.getDuration(Mark.DECODED, Mark.PARSED), -1);
+        timeline.mark(Mark.PARSED, decoded + 2_000_000);
+        Assert.assertEquals(timeline.getDuration(Mark.DECODED, Mark.PARSED), 2_000_000);
+        timeline.mark(Mark.ENQUEUED, decoded + 1_000_000);
+        Assert.assertEquals(timeline.getDuration(Mark.PARSED, Mark.ENQUEUED), -1);
+        timeline.mark(Mark.ENQUEUED);
+        Assert.assertTrue(timeline.getDuration(Mark.PARSED, Mark.ENQUEUED) >= 0);
+
+        // the durations between the marks are recorded as the stages of the request
+        configManager.setProperty("latency_window_seconds", "3600");
+        LatencyTracker.init(configManager);
+        LatencyTracker tracker = LatencyTracker.getInstance();
+        RequestInput input = new RequestInput("timeline");
+        input.setTimeline(timeline);
+        Job job = new BatchItemJob(0, "timeline", null, input);
+        tracker.record(job, System.nanoTime());
+        tracker.rotate();
+
+        List<DescribeLatencyResponse> latencies = tracker.getLatencies("timeline", null);
+        Assert.assertEquals(latencies.size(), 1);
+        Map<String, DescribeLatencyResponse.Latency> stages = latencies.get(0).getLatencies();
+        Assert.assertEquals(stages.get("parse").getCount(), 1);
+        Assert.assertEquals(stages.get("parse").getMax(), 2000, 2);
+        Assert.assertEquals(stages.get("enqueue").getCount(), 1);
+        Assert.assertFalse(stages.containsKey("http_decode"));
+        Assert.assertFalse(stages.containsKey("encode"));
+    }
+
+    @Test
+    public void testWrittenMark() {
+        RequestTimeline timeline = new RequestTimeline(0, false);
+        RequestInput input = new RequestInput("written");
+        input.setTimeline(timeline);
+        ModelInferenceRequest request = new ModelInferenceRequest("written");
+        request.addRequest(input);
+
+        // the batch is written once the encoded bytes were flushed to the channel
+        EmbeddedChannel channel = new EmbeddedChannel(new ModelRequestEncoder(false));
+        try {
+            ChannelFuture future = channel.writeOneOutbound(request);
+            Assert.assertTrue(timeline.get(Mark.ENCODED) > 0);
+            Assert.assertFalse(future.isDone());
+            Assert.assertEquals(timeline.get(Mark.WRITTEN), 0);
+
+            channel.flushOutbound();
+            Assert.assertTrue(future.isSuccess());
+            Assert.assertTrue(timeline.getDuration(Mark.ENCODED, Mark.WRITTEN) >= 0);
+            ByteBuf buf = channel.readOutbound();
+            Assert.assertTrue(buf.isReadable());
+            buf.release();
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    public void testParseTraceParent() {
+        Assert.assertEquals(
+                RequestTracer.parseTraceParent(TRACE_PARENT),
+                new String[] {TRACE_ID, PARENT_SPAN_ID});
+        // later versions may append fields
+        Assert.assertEquals(
+                RequestTracer.parseTraceParent("01" + TRACE_PARENT.substring(2) + "-extra"),
+                new String[] {TRACE_ID, PARENT_SPAN_ID});
+
+        String[] malformed = {
+            "",
+            TRACE_PARENT.substring(0, 54),
+            TRACE_PARENT + "-extra",
+            TRACE_PARENT.replace('-', '_'),
+            TRACE_PARENT.toUpperCase(),
+            TRACE_PARENT.replace('a', 'g'),
+            "ff" + TRACE_PARENT.substring(2),
+            "00-" + TRACE_ID.replaceAll(".", "0") + "-" + PARENT_SPAN_ID + "-01",
+            "00-" + TRACE_ID + "-" + PARENT_SPAN_ID.replaceAll(".", "0") + "-01",
+            "00-" + TRACE_ID + "-" + PARENT_SPAN_ID + "-0x"
+        };
+        Assert.assertNull(RequestTracer.parseTraceParent(null));
+        for (String traceParent : malformed) {
+            Assert.assertNull(RequestTracer.parseTraceParent(traceParent), traceParent);
+        }
+    }
+
+    @Test
+    public void testExport() throws IOException {
+        File export = new File(traceDir, "sampled.json");
+        startTracer(1, export);
+        exportJob("propagated", TRACE_PARENT);
+        exportJob("malformed", "00-" + TRACE_ID + "-zz");
+        RequestTracer.shutdown();
+
+        Map<String, List<JsonObject>> spans = readSpans(export);
+        Assert.assertEquals(spans.size(), 2);
+        List<JsonObject> propagated = spans.get(TRACE_ID);
+        JsonObject root = propagated.get(0);
+        Assert.assertEquals(root.get("parentSpanId").getAsString(), PARENT_SPAN_ID);
+        Assert.assertEquals(root.get("name").getAsString(), "inference propagated");
+        Assert.assertEquals(root.get("kind").getAsInt(), 2);
+        // one child span per stage between the HTTP request and the response
+        Assert.assertEquals(propagated.size(), 10);
+        for (JsonObject child : propagated.subList(1, propagated.size())) {
+            Assert.assertEquals(child.get("parentSpanId"), root.get("spanId"));
+            Assert.assertEquals(child.get("kind").getAsInt(), 1);
+            Assert.assertTrue(
+                    Long.parseUnsignedLong(child.get("startTimeUnixNano").getAsString())
+                            <= Long.parseUnsignedLong(child.get("endTimeUnixNano").getAsString()));
+        }
+
+        // a malformed traceparent starts a new trace
+        spans.remove(TRACE_ID);
+        JsonObject newRoot = spans.values().iterator().next().get(0);
+        Assert.assertEquals(newRoot.get("name").getAsString(), "inference malformed");
+        Assert.assertEquals(newRoot.get("traceId").getAsString().length(), 32);
+        Assert.assertFalse(newRoot.has("parentSpanId"));
+    }
+
+    @Test
+    public void testExportUnsampled() {
+        File export = new File(traceDir, "unsampled.json");
+        startTracer(0, export);
+        Assert.assertFalse(exportJob("unsampled", TRACE_PARENT).isSampled());
+        RequestTracer.shutdown();
+
+        Assert.assertFalse(export.exists());
+    }
+
+    private void startTracer(float sampleRate, File export) {
+        configManager.setProperty("request_stage_timing", "true");
+        configManager.setProperty("request_trace_sample_rate", String.valueOf(sampleRate));
+        configManager.setProperty("request_trace_export", export.getAbsolutePath());
+        RequestTracer.init(configManager);
+    }
+
+    private static RequestTimeline exportJob(String modelName, String traceParent) {
+        RequestTimeline timeline = RequestTimeline.start(System.nanoTime());
+        for (Mark mark : Mark.values()) {
+            if (mark.ordinal() > Mark.DECODED.ordinal()) {
+                timeline.mark(mark);
+            }
+        }
+        RequestInput input = new RequestInput(modelName);
+        input.updateHeaders("traceparent", traceParent);
+        input.setTimeline(timeline);
+        RequestTracer.getInstance().export(new BatchItemJob(0, modelName, null, input), timeline);
+        return timeline;
+    }
+
+    /** Reads the exported spans by trace id, the root span first. */
+    private static Map<String, List<JsonObject>> readSpans(File export) throws IOException {
+        Map<String, List<JsonObject>> spans = new HashMap<>();
+        for (String line : Files.readAllLines(export.toPath(), StandardCharsets.UTF_8)) {
+            JsonObject request = JsonParser.parseString(line).getAsJsonObject();
+            JsonArray scopeSpans =
+                    request.getAsJsonArray("resourceSpans")
+                            .get(0)
+                            .getAsJsonObject()
+                            .getAsJsonArray("scopeSpans");
+            for (JsonElement element :
+                    scopeSpans.get(0).getAsJsonObject().getAsJsonArray("spans")) {
+                JsonObject span = element.getAsJsonObject();
+                List<JsonObject> trace =
+                        spans.computeIfAbsent(
+                                span.get("traceId").getAsString(), k -> new ArrayList<>());
+                if (span.get("kind").getAsInt() == 2) {
+                    trace.add(0, span);
+                } else {
+                    trace.add(span);
+                }
+            }
+        }
+        return spans;
+    }
+}
@@ -0,0 +1,244 @@
+package org.pytorch.serve.metrics.format.prometheous;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.io.IOUtils;
+import org.pytorch.serve.http.HttpRequestHandler;
+import org.pytorch.serve.http.api.rest.PrometheusMetricsRequestHandler;
+import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.metrics.format.prometheous.PrometheusScrapeCache.Format;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.ConnectorType;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PrometheusScrapeCacheTest {
+
+    private static final String NAME = "ts_test_scrape_samples";
+    private static final Set<String> NAMES = Collections.singleton(NAME);
+    private static final long TTL_MS = 1000;
+
+    private final AtomicLong clock = new AtomicLong();
+    private TestCollector collector;
+
+    @BeforeClass
+    public void beforeClass() throws IOException {
+        System.setProperty("tsConfigFile", "src/test/resources/config.properties");
+        ConfigManager.init(new ConfigManager.Arguments());
+        MetricCache.init();
+        PrometheusScrapeCache.init(ConfigManager.getInstance());
+        collector = new TestCollector();
+        CollectorRegistry.defaultRegistry.register(collector);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void afterClass() {
+        CollectorRegistry.defaultRegistry.unregister(collector);
+    }
+
+    @BeforeMethod
+    public void beforeMethod() {
+        collector.collected.set(0);
+        collector.samples = 1;
+        collector.blocked = null;
+    }
+
+    @Test
+    public void testTtlReuse() throws ExecutionException, InterruptedException {
+        PrometheusScrapeCache cache = newCache();
+        byte[] body = cache.getBody(Format.TEXT, NAMES, false).get();
+        Assert.assertTrue(new String(body, StandardCharsets.UTF_8).contains(NAME));
+
+        // scrapes within the TTL share the rendering
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(TTL_MS - 1));
+        Assert.assertSame(cache.getBody(Format.TEXT, NAMES, false).get(), body);
+        Assert.assertEquals(collector.collected.get(), 1);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        Assert.assertNotSame(cache.getBody(Format.TEXT, NAMES, false).get(), body);
+        Assert.assertEquals(collector.collected.get(), 2);
+    }
+
+    @Test
+    public void testInFlightSharing()
+            throws ExecutionException, InterruptedException, TimeoutException {
+        PrometheusScrapeCache cache = newCache();
+        CountDownLatch release = new CountDownLatch(1);
+        collector.blocked = release;
+
+        // the second scrape arrives while the first one is still rendering
+        CompletableFuture<byte[]> first = cache.getBody(Format.TEXT, NAMES, false);
+        CompletableFuture<byte[]> second = cache.getBody(Format.TEXT, NAMES, false);
+        Assert.assertFalse(first.isDone());
+        release.countDown();
+
+        Assert.assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(collector.collected.get(), 1);
+    }
+
+    @Test
+    public void testMaxEntries() throws ExecutionException, InterruptedException {
+        PrometheusScrapeCache cache = newCache();
+        for (int i = 0; i < PrometheusScrapeCache.MAX_ENTRIES; ++i) {
+            cache.getBody(Format.TEXT, names("other_" + i), false).get();
+        }
+        Assert.assertEquals(collector.collected.get(), PrometheusScrapeCache.MAX_ENTRIES);
+
+        // beyond the limit a scrape is rendered without being cached
+        Set<String> uncached = names("uncached");
+        byte[] body = cache.getBody(Format.TEXT, uncached, false).get();
+        Assert.assertNotSame(cache.getBody(Format.TEXT, uncached, false).get(), body);
+        Assert.assertEquals(collector.collected.get(), PrometheusScrapeCache.MAX_ENTRIES + 2);
+
+        cache.getBody(Format.TEXT, names("other_0"), false).get();
+        Assert.assertEquals(collector.collected.get(), PrometheusScrapeCache.MAX_ENTRIES + 2);
+    }
+
+    @Test
+    public void testGzipOnce() throws ExecutionException, InterruptedException, IOException {
+        PrometheusScrapeCache cache = newCache();
+        byte[] body = cache.getBody(Format.TEXT, NAMES, false).get();
+        byte[] gzipped = cache.getBody(Format.TEXT, NAMES, true).get();
+        Assert.assertSame(cache.getBody(Format.TEXT, NAMES, true).get(), gzipped);
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            Assert.assertEquals(IOUtils.toByteArray(is), body);
+        }
+        Assert.assertEquals(collector.collected.get(), 1);
+    }
+
+    @Test
+    public void testNegotiate() throws ExecutionException, InterruptedException {
+        Assert.assertEquals(Format.negotiate(null), Format.TEXT);
+        Assert.assertEquals(Format.negotiate("text/plain;version=0.0.4"), Format.TEXT);
+        Assert.assertEquals(
+                Format.negotiate("application/openmetrics-text;version=1.0.0,text/plain;q=0.5"),
+                Format.OPENMETRICS);
+
+        // the formats are rendered and cached separately
+        PrometheusScrapeCache cache = newCache();
+        String text =
+                new String(cache.getBody(Format.TEXT, NAMES, false).get(), StandardCharsets.UTF_8);
+        String openMetrics =
+                new String(
+                        cache.getBody(Format.OPENMETRICS, NAMES, false).get(),
+                        StandardCharsets.UTF_8);
+        Assert.assertFalse(text.contains("# EOF"));
+        Assert.assertTrue(openMetrics.endsWith("# EOF\n"));
+        Assert.assertEquals(collector.collected.get(), 2);
+    }
+
+    @Test
+    public void testChunking() throws ExecutionException, InterruptedException, IOException {
+        collector.samples = 5000;
+        byte[] body = PrometheusScrapeCache.getInstance().getBody(Format.TEXT, NAMES, false).get();
+        Assert.assertTrue(body.length > 2 * 64 * 1024);
+
+        // the scrape is served from the rendering above, streamed in chunks of 64 KiB
+        EmbeddedChannel channel =
+                new EmbeddedChannel(
+                        new HttpRequestHandler(
+                                new PrometheusMetricsRequestHandler(),
+                                ConnectorType.METRICS_CONNECTOR));
+        try {
+            channel.writeInbound(
+                    new DefaultFullHttpRequest(
+                            HttpVersion.HTTP_1_1, HttpMethod.GET, "/metrics?name[]=" + NAME));
+            channel.runPendingTasks();
+            HttpResponse resp = channel.readOutbound();
+            Assert.assertEquals(resp.status(), HttpResponseStatus.OK);
+            Assert.assertEquals(
+                    resp.headers().get(HttpHeaderNames.CONTENT_TYPE),
+                    Format.TEXT.getContentType());
+
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            List<Integer> chunks = new ArrayList<>();
+            HttpContent chunk = channel.readOutbound();
+            while (!(chunk instanceof LastHttpContent)) {
+                ByteBuf buf = chunk.content();
+                chunks.add(buf.readableBytes());
+                buf.readBytes(content, buf.readableBytes());
+                chunk.release();
+                chunk = channel.readOutbound();
+            }
+            Assert.assertEquals(content.toByteArray(), body);
+            for (int i = 0; i < chunks.size() - 1; ++i) {
+                Assert.assertEquals((int) chunks.get(i), 64 * 1024);
+            }
+            Assert.assertTrue(chunks.get(chunks.size() - 1) <= 64 * 1024);
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private PrometheusScrapeCache newCache() {
+        return new PrometheusScrapeCache(TTL_MS, "TestHost", clock::get);
+    }
+
+    private static Set<String> names(String other) {
+        return new HashSet<>(Arrays.asList(NAME, other));
+    }
+
+    /** Counts the renderings that include it, and can hold them until released. */
+    private static final class TestCollector extends Collector {
+
+        private final AtomicInteger collected = new AtomicInteger();
+        private volatile int samples = 1;
+        private volatile CountDownLatch blocked;
+
+        @Override
+        public List<MetricFamilySamples> collect() {
+            collected.incrementAndGet();
+            CountDownLatch latch = blocked;
+            if (latch != null) {
+                try {
+                    latch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            List<MetricFamilySamples.Sample> list = new ArrayList<>(samples);
+            for (int i = 0; i < samples; ++i) {
+                list.add(
+                        new MetricFamilySamples.Sample(
+                                NAME,
+                                Collections.singletonList("index"),
+                                Collections.singletonList(String.valueOf(i)),
+                                i));
+            }
+            return Collections.singletonList(
+                    new MetricFamilySamples(NAME, Type.GAUGE, "Samples of the test.", list));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.pytorch.serve.metrics.jfr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.pytorch.serve.util.ConfigManager;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+public class JfrEventsTest {
+
+    @AfterClass
+    public void afterClass() {
+        ConfigManager configManager = ConfigManager.getInstance();
+        configManager.setProperty("enable_jfr_events", "false");
+        JfrEvents.init(configManager);
+    }
+
+    @Test
+    public void testDisabled() {
+        ConfigManager configManager = ConfigManager.getInstance();
+        configManager.setProperty("enable_jfr_events", "false");
+        JfrEvents.init(configManager);
+        Assert.assertFalse(JfrEvents.isEnabled());
+        Assert.assertNull(JfrEvents.beginModelLoad());
+        Assert.assertNull(JfrEvents.beginBatch());
+        // committing the events of a disabled begin does nothing
+        JfrEvents.commitModelLoad(null, "noop", "1.0", "noop.mar", true);
+    }
+
+    @Test(dependsOnMethods = "testDisabled")
+    public void testModelEvents() throws IOException {
+        ConfigManager configManager = ConfigManager.getInstance();
+        configManager.setProperty("enable_jfr_events", "true");
+        JfrEvents.init(configManager);
+        Assert.assertTrue(JfrEvents.isEnabled());
+
+        Path file = Files.createTempFile("torchserve", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ModelLoadEvent.class);
+            recording.enable(ModelUnloadEvent.class);
+            recording.start();
+            JfrEvents.commitModelLoad(JfrEvents.beginModelLoad(), "noop", "1.0", "noop.mar", true);
+            JfrEvents.commitModelUnload(JfrEvents.beginModelUnload(), "noop", "1.0", 200);
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events =
+                    RecordingFile.readAllEvents(file).stream()
+                            .filter(e -> e.getEventType().getName().startsWith("org.pytorch"))
+                            .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                            .collect(Collectors.toList());
+            Assert.assertEquals(events.size(), 2);
+            RecordedEvent load = events.get(0);
+            Assert.assertEquals(load.getEventType().getName(), "org.pytorch.serve.ModelLoad");
+            Assert.assertEquals(load.getString("model"), "noop");
+            Assert.assertEquals(load.getString("url"), "noop.mar");
+            Assert.assertTrue(load.getBoolean("success"));
+            RecordedEvent unload = events.get(1);
+            Assert.assertEquals(unload.getEventType().getName(), "org.pytorch.serve.ModelUnload");
+            Assert.assertEquals(unload.getInt("status"), 200);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.pytorch.serve.util;
+
+import io.netty.util.concurrent.EventExecutor;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+public class AcceptorShardTest {
+
+    @Test
+    public void testCpuList() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (cores < 2) {
+            Assert.assertEquals(AcceptorShard.getCpuList(1, 2), "0");
+            return;
+        }
+        // the slices of the shards cover every CPU once
+        int next = 0;
+        for (int i = 0; i < 2; ++i) {
+            String[] range = AcceptorShard.getCpuList(i, 2).split("-");
+            Assert.assertEquals(Integer.parseInt(range[0]), next);
+            next = Integer.parseInt(range[1]) + 1;
+        }
+        Assert.assertEquals(next, cores);
+        Assert.assertEquals(AcceptorShard.getCpuList(cores + 1, cores), "1");
+    }
+
+    @Test
+    public void testCpuAffinity() throws IOException, InterruptedException, ExecutionException {
+        if (!Connector.isReusePortAvailable() || !new File("/proc/thread-self").exists()) {
+            throw new SkipException("Acceptor shards require epoll on Linux");
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        String all = cores == 1 ? "0" : "0-" + (cores - 1);
+        if (!all.equals(getAllowedCpus())) {
+            throw new SkipException("The CPUs of the test are restricted");
+        }
+
+        // with as many shards as CPUs every shard is pinned to a single CPU
+        int shards = Math.max(2, cores);
+        AcceptorShard shard = new AcceptorShard(1, shards, 2, true);
+        try {
+            for (EventExecutor loop : shard.getGroup()) {
+                Assert.assertEquals(
+                        loop.submit(AcceptorShardTest::getAllowedCpus).get(),
+                        String.valueOf(1 % cores));
+            }
+        } finally {
+            shard.getGroup().shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+        // the thread starting the event loops is pinned, the caller is not
+        Assert.assertEquals(getAllowedCpus(), all);
+    }
+
+    @Test
+    public void testShardedGroups() {
+        if (!Connector.isReusePortAvailable()) {
+            throw new SkipException("Acceptor shards require epoll");
+        }
+        ConfigManager configManager = ConfigManager.getInstance();
+        String acceptorShards = configManager.getProperty("acceptor_shards", "1");
+        configManager.setProperty("acceptor_shards", "2");
+        ServerGroups serverGroups = new ServerGroups(configManager);
+        try {
+            Assert.assertEquals(serverGroups.getAcceptorShards().size(), 2);
+            Assert.assertNotSame(
+                    serverGroups.getAcceptorShards().get(0).getGroup(),
+                    serverGroups.getAcceptorShards().get(1).getGroup());
+        } finally {
+            serverGroups.shutdown(false);
+            configManager.setProperty("acceptor_shards", acceptorShards);
+        }
+    }
+
+    private static String getAllowedCpus() throws IOException {
+        Path status = Path.of("/proc/thread-self/status");
+        for (String line : Files.readAllLines(status, StandardCharsets.UTF_8)) {
+            if (line.startsWith("Cpus_allowed_list:")) {
+                return line.substring(line.indexOf(':') + 1).trim();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,147 @@
+package org.pytorch.serve.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class DeviceTelemetryTest {
+
+    private Path dir;
+
+    @BeforeClass
+    public void beforeClass() throws IOException {
+        if (System.getProperty("os.name").startsWith("Win")) {
+            throw new SkipException("Test skipped on Windows");
+        }
+        dir = Files.createTempDirectory("telemetry");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void afterClass() throws IOException {
+        if (dir != null) {
+            FileUtils.deleteDirectory(dir.toFile());
+        }
+    }
+
+    @Test
+    public void testPoll() throws IOException {
+        // the devices are listed out of order, the second does not report its utilization
+        String smi =
+                fakeBinary(
+                        "nvidia-smi",
+                        "echo \"1, [N/A], [N/A], 2048, 14336, 16384\"\n"
+                                + "echo \"0, 75, 40, 8192, 8192, 16384\"\n");
+        DeviceTelemetry telemetry = new DeviceTelemetry(new DeviceTelemetry.NvidiaSmiProvider(smi));
+        Assert.assertTrue(telemetry.getDevices().isEmpty());
+        telemetry.poll();
+
+        List<DeviceTelemetry.DeviceStats> devices = telemetry.getDevices();
+        Assert.assertEquals(devices.size(), 2);
+        DeviceTelemetry.DeviceStats device = devices.get(0);
+        Assert.assertEquals(device.getIndex(), 0);
+        Assert.assertEquals(device.getUtilizationGpu(), 75);
+        Assert.assertEquals(device.getUtilizationMemory(), 40);
+        Assert.assertEquals(device.getMemoryUsed(), 8192);
+        Assert.assertEquals(device.getMemoryFree(), 8192);
+        Assert.assertEquals(device.getMemoryTotal(), 16384);
+
+        device = telemetry.getDevice(1);
+        Assert.assertNotNull(device);
+        Assert.assertEquals(device.getUtilizationGpu(), -1);
+        Assert.assertEquals(device.getMemoryFree(), 14336);
+        Assert.assertNull(telemetry.getDevice(2));
+    }
+
+    @Test
+    public void testPollFailure() throws IOException {
+        String smi = fakeBinary("failing-smi", "echo \"NVIDIA-SMI has failed\"\nexit 9\n");
+        DeviceTelemetry telemetry = new DeviceTelemetry(new DeviceTelemetry.NvidiaSmiProvider(smi));
+        telemetry.poll();
+        Assert.assertTrue(telemetry.getDevices().isEmpty());
+        Assert.assertNull(telemetry.getDevice(0));
+
+        telemetry =
+                new DeviceTelemetry(
+                        new DeviceTelemetry.NvidiaSmiProvider(
+                                dir.resolve("missing-smi").toString()));
+        telemetry.poll();
+        Assert.assertTrue(telemetry.getDevices().isEmpty());
+    }
+
+    @Test
+    public void testPollTimeout() throws IOException {
+        // the command never exits and keeps its output open
+        String smi = fakeBinary("hanging-smi", "echo \"0, 0, 0, 0, 8192, 16384\"\nexec sleep 60\n");
+        DeviceTelemetry.Provider provider = new DeviceTelemetry.NvidiaSmiProvider(smi, 500);
+        long start = System.nanoTime();
+        try {
+            provider.query();
+            Assert.fail("the query did not time out");
+        } catch (IOException e) {
+            Assert.assertEquals(e.getMessage(), smi + " timed out");
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    public void testGpuAssignmentReserves() throws IOException {
+        System.setProperty("tsConfigFile", "src/test/resources/config.properties");
+        ConfigManager.init(new ConfigManager.Arguments());
+        ConfigManager configManager = ConfigManager.getInstance();
+        String nGpus = String.valueOf(configManager.getNumberOfGpu());
+        String command = configManager.getDeviceTelemetryCommand();
+        String intervalMs = String.valueOf(configManager.getDeviceTelemetryIntervalMs());
+        String minFreeMemory = String.valueOf(configManager.getMinFreeGpuMemory());
+
+        File free = dir.resolve("free").toFile();
+        FileUtils.writeStringToFile(free, "8192", StandardCharsets.UTF_8);
+        String smi =
+                fakeBinary(
+                        "memory-smi",
+                        "echo \"0, 0, 0, 0, $(cat " + free.getAbsolutePath() + "), 16384\"\n");
+        configManager.setProperty("number_of_gpu", "1");
+        configManager.setProperty("device_telemetry_command", smi);
+        // the poller does not run during the test
+        configManager.setProperty("device_telemetry_interval_ms", "3600000");
+        configManager.setProperty("min_free_gpu_memory", "4096");
+        try {
+            DeviceTelemetry.init(configManager);
+            GPUManager.init(configManager);
+            Assert.assertEquals(GPUManager.getInstance().getGPU("W-9000-first"), 0);
+
+            // the last poll does not show the memory of the first worker, which is reserved
+            Assert.assertEquals(GPUManager.getInstance().getGPU("W-9001-second"), -1);
+
+            // the next poll shows the memory left, and releases the reservation
+            DeviceTelemetry.getInstance().poll();
+            Assert.assertEquals(GPUManager.getInstance().getGPU("W-9002-third"), 0);
+            FileUtils.writeStringToFile(free, "1024", StandardCharsets.UTF_8);
+            DeviceTelemetry.getInstance().poll();
+            Assert.assertEquals(GPUManager.getInstance().getGPU("W-9003-fourth"), -1);
+        } finally {
+            DeviceTelemetry.shutdown();
+            configManager.setProperty("number_of_gpu", nGpus);
+            configManager.setProperty("device_telemetry_command", command);
+            configManager.setProperty("device_telemetry_interval_ms", intervalMs);
+            configManager.setProperty("min_free_gpu_memory", minFreeMemory);
+            GPUManager.init(configManager);
+        }
+    }
+
+    private String fakeBinary(String name, String script) throws IOException {
+        File file = dir.resolve(name).toFile();
+        FileUtils.writeStringToFile(file, "#!/bin/sh\n" + script, StandardCharsets.UTF_8);
+        Assert.assertTrue(file.setExecutable(true));
+        return file.getAbsolutePath();
+    }
+}
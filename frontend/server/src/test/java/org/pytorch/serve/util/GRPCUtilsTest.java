@@ -0,0 +1,147 @@
+package org.pytorch.serve.util;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.pytorch.serve.grpc.inference.PredictionResponse;
+import org.pytorch.serve.grpc.inference.PredictionsRequest;
+import org.pytorch.serve.util.messages.InputParameter;
+import org.pytorch.serve.util.messages.RequestInput;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+public class GRPCUtilsTest {
+
+    private static final int PAYLOAD_SIZE = 4 * 1024 * 1024;
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void testInputParametersShareRequestBytes() {
+        byte[] data = {1, 2, 3, 4};
+        RequestInput inputData = new RequestInput("id");
+        GRPCUtils.addInputParameters(inputData, Map.of("data", ByteString.copyFrom(data)));
+
+        InputParameter parameter = inputData.getParameters().get(0);
+        Assert.assertEquals(parameter.getName(), "data");
+        Assert.assertEquals(parameter.getValueLength(), data.length);
+        Assert.assertEquals(parameter.getValue(), data);
+        Assert.assertTrue(parameter.getValueBuffer().isReadOnly());
+    }
+
+    /**
+     * Counts the copies of the request and response payload of one gRPC prediction on the
+     * frontend: a copy is a buffer that no longer sees a change of the bytes it was made from.
+     */
+    @Test
+    public void testBytesCopiedPerRequest() {
+        byte[] payload = {1, 2, 3, 4};
+        PredictionsRequest request =
+                PredictionsRequest.newBuilder()
+                        .setModelName("model")
+                        .putInput("data", UnsafeByteOperations.unsafeWrap(payload))
+                        .build();
+        RequestInput inputData = new RequestInput("id");
+        GRPCUtils.addInputParameters(inputData, request.getInputMap());
+        ByteBuf out = Unpooled.buffer(payload.length);
+        encode(inputData, out);
+
+        byte[] body = {5, 6};
+        PredictionResponse response =
+                PredictionResponse.newBuilder().setPrediction(GRPCUtils.wrapResponse(body)).build();
+
+        payload[0] = 7;
+        body[0] = 7;
+        int copies = 0;
+        ByteBuffer parameter = inputData.getParameters().get(0).getValueBuffer();
+        copies += parameter.get(0) == 7 ? 0 : 1;
+        copies += out.getByte(0) == 7 ? 0 : 1;
+        copies += response.getPrediction().byteAt(0) == 7 ? 0 : 1;
+        // the only copy is the encoding for the worker
+        Assert.assertEquals(copies, 1);
+        Assert.assertEquals(out.getByte(0), 1);
+        out.release();
+    }
+
+    /**
+     * Measures the bytes allocated on the frontend for the request and response payload of one
+     * gRPC prediction. Allocation counters depend on the JVM, so the benchmark group is excluded
+     * from the test suite.
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkBytesCopiedPerRequest() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            throw new SkipException("Thread allocation counters are not supported");
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+
+        PredictionsRequest request =
+                PredictionsRequest.newBuilder()
+                        .setModelName("model")
+                        .putInput("data", ByteString.copyFrom(new byte[PAYLOAD_SIZE]))
+                        .build();
+        byte[] body = new byte[PAYLOAD_SIZE];
+        ByteBuf out = Unpooled.buffer(PAYLOAD_SIZE);
+
+        Supplier<PredictionResponse> copying =
+                () -> {
+                    RequestInput inputData = new RequestInput("id");
+                    for (Map.Entry<String, ByteString> entry : request.getInputMap().entrySet()) {
+                        inputData.addParameter(
+                                new InputParameter(entry.getKey(), entry.getValue().toByteArray()));
+                    }
+                    encode(inputData, out);
+                    return PredictionResponse.newBuilder()
+                            .setPrediction(ByteString.copyFrom(body))
+                            .build();
+                };
+        Supplier<PredictionResponse> zeroCopy =
+                () -> {
+                    RequestInput inputData = new RequestInput("id");
+                    GRPCUtils.addInputParameters(inputData, request.getInputMap());
+                    encode(inputData, out);
+                    return PredictionResponse.newBuilder()
+                            .setPrediction(GRPCUtils.wrapResponse(body))
+                            .build();
+                };
+
+        long before = allocatedBytesPerRequest(threadBean, copying);
+        long after = allocatedBytesPerRequest(threadBean, zeroCopy);
+        System.out.printf(
+                "gRPC payload of %d bytes in and out, bytes allocated per request: "
+                        + "before %d, after %d%n",
+                PAYLOAD_SIZE, before, after);
+
+        Assert.assertTrue(before >= 3L * PAYLOAD_SIZE, "copying path allocated " + before);
+        Assert.assertTrue(after < PAYLOAD_SIZE / 100, "zero copy path allocated " + after);
+    }
+
+    private static void encode(RequestInput inputData, ByteBuf out) {
+        out.clear();
+        for (InputParameter parameter : inputData.getParameters()) {
+            out.writeBytes(parameter.getValueBuffer());
+        }
+    }
+
+    private static long allocatedBytesPerRequest(
+            com.sun.management.ThreadMXBean threadBean, Supplier<PredictionResponse> path) {
+        long size = 0;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            size += path.get().getPrediction().size();
+        }
+        long start = threadBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            size += path.get().getPrediction().size();
+        }
+        long allocated = threadBean.getCurrentThreadAllocatedBytes() - start;
+        Assert.assertEquals(size, 2L * ITERATIONS * PAYLOAD_SIZE);
+        return allocated / ITERATIONS;
+    }
+}
@@ -0,0 +1,166 @@
+package org.pytorch.serve.util;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.FullHttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.pytorch.serve.http.BadRequestException;
+import org.pytorch.serve.job.BatchItemJob;
+import org.pytorch.serve.util.messages.InputParameter;
+import org.pytorch.serve.util.messages.RequestInput;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class KServeUtilsTest {
+
+    @Test
+    public void testSplitAndMerge() {
+        String request = "{\"id\": \"42\", \"instances\": [[1, 2], [3, 4], {\"a\": 5}]}";
+        List<byte[]> split =
+                KServeUtils.splitRequest(
+                        Unpooled.copiedBuffer(request, StandardCharsets.UTF_8),
+                        KServeUtils.V1_REQUEST_FIELD);
+        Assert.assertNotNull(split);
+        Assert.assertEquals(split.size(), 3);
+        Assert.assertEquals(
+                new String(split.get(2), StandardCharsets.UTF_8),
+                "{\"id\":\"42\",\"instances\":[{\"a\":5}]}");
+
+        BatchItemJob first = newCompletedJob(0, "{\"predictions\": [7]}");
+        BatchItemJob second = newCompletedJob(1, "{\"predictions\": [8, 9]}");
+        JsonObject merged =
+                KServeUtils.mergeResponses(
+                        Arrays.asList(first, second), KServeUtils.V1_RESPONSE_FIELD);
+        Assert.assertEquals(merged.toString(), "{\"predictions\":[7,8,9]}");
+    }
+
+    @Test
+    public void testSplitKeepsValues() {
+        // the fields after the array are kept, numbers and strings are copied as written
+        String request =
+                "{\"instances\": [{\"x\": 4.50, \"s\": \"a\\\"b\", \"n\": null}, [true]],"
+                        + " \"parameters\": {\"k\": []}}";
+        List<byte[]> split =
+                KServeUtils.splitRequest(
+                        Unpooled.copiedBuffer(request, StandardCharsets.UTF_8),
+                        KServeUtils.V1_REQUEST_FIELD);
+        Assert.assertNotNull(split);
+        Assert.assertEquals(
+                new String(split.get(0), StandardCharsets.UTF_8),
+                "{\"parameters\":{\"k\":[]},"
+                        + "\"instances\":[{\"x\":4.50,\"s\":\"a\\\"b\",\"n\":null}]}");
+        Assert.assertEquals(
+                new String(split.get(1), StandardCharsets.UTF_8),
+                "{\"parameters\":{\"k\":[]},\"instances\":[[true]]}");
+        // a truncated request is left to the backend
+        Assert.assertNull(
+                KServeUtils.splitRequest(
+                        Unpooled.copiedBuffer("{\"instances\": [1, 2", StandardCharsets.UTF_8),
+                        KServeUtils.V1_REQUEST_FIELD));
+    }
+
+    @Test
+    public void testSplitSingleInstance() {
+        ByteBuf body = Unpooled.copiedBuffer("{\"instances\": [[1, 2]]}", StandardCharsets.UTF_8);
+        Assert.assertNull(KServeUtils.splitRequest(body, KServeUtils.V1_REQUEST_FIELD));
+        Assert.assertNull(
+                KServeUtils.splitRequest(
+                        Unpooled.copiedBuffer("[1, 2]", StandardCharsets.UTF_8),
+                        KServeUtils.V1_REQUEST_FIELD));
+    }
+
+    @Test
+    public void testParseBinaryRequest() {
+        String header =
+                "{\"inputs\": [{\"name\": \"x\", \"shape\": [2], \"datatype\": \"FP32\","
+                        + " \"parameters\": {\"binary_data_size\": 8}},"
+                        + " {\"name\": \"y\", \"shape\": [1], \"datatype\": \"INT64\","
+                        + " \"data\": [3]}]}";
+        byte[] headerBytes = header.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer content =
+                ByteBuffer.allocate(headerBytes.length + 8).order(ByteOrder.LITTLE_ENDIAN);
+        content.put(headerBytes).putFloat(1.5f).putFloat(-2f);
+
+        RequestInput input = new RequestInput("test");
+        KServeUtils.parseBinaryRequest(content.array(), headerBytes.length, input);
+        Assert.assertEquals(input.getParameters().size(), 2);
+        InputParameter tensor = input.getParameters().get(1);
+        Assert.assertEquals(tensor.getName(), "x");
+        ByteBuffer value = tensor.getValueBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        Assert.assertEquals(value.remaining(), 8);
+        Assert.assertEquals(value.getFloat(), 1.5f);
+        Assert.assertEquals(value.getFloat(), -2f);
+    }
+
+    @Test(expectedExceptions = BadRequestException.class)
+    public void testParseBinaryRequestTruncated() {
+        byte[] header =
+                ("{\"inputs\": [{\"name\": \"x\", \"datatype\": \"FP32\","
+                                + " \"parameters\": {\"binary_data_size\": 8}}]}")
+                        .getBytes(StandardCharsets.UTF_8);
+        KServeUtils.parseBinaryRequest(header, header.length, new RequestInput("test"));
+    }
+
+    @Test
+    public void testParseBinaryRequestInvalidHeader() {
+        String[] headers = {
+            "{\"inputs\": {\"name\": \"x\"}}",
+            "{\"inputs\": [[1]]}",
+            "{\"inputs\": [{\"parameters\": {\"binary_data_size\": 0}}]}",
+            "{\"inputs\": [{\"name\": \"x\", \"parameters\": [1]}]}",
+            "{\"inputs\": [{\"name\": \"x\", \"parameters\": {\"binary_data_size\": \"a\"}}]}"
+        };
+        for (String header : headers) {
+            byte[] content = header.getBytes(StandardCharsets.UTF_8);
+            try {
+                KServeUtils.parseBinaryRequest(content, content.length, new RequestInput("test"));
+                Assert.fail("Accepted " + header);
+            } catch (BadRequestException e) {
+                Assert.assertTrue(
+                        e.getMessage().startsWith("Invalid inference request header"), header);
+            }
+        }
+    }
+
+    @Test
+    public void testEncodeBinaryResponse() {
+        JsonObject requestHeader =
+                JsonParser.parseString("{\"parameters\": {\"binary_data_output\": true}}")
+                        .getAsJsonObject();
+        String response =
+                "{\"id\": \"1\", \"outputs\": [{\"name\": \"out\", \"shape\": [2],"
+                        + " \"datatype\": \"INT32\", \"data\": [1, 258]}]}";
+        FullHttpResponse resp =
+                KServeUtils.encodeBinaryResponse(
+                        requestHeader, response.getBytes(StandardCharsets.UTF_8));
+        int headerLength =
+                Integer.parseInt(
+                        resp.headers().get(KServeUtils.INFERENCE_HEADER_CONTENT_LENGTH));
+        ByteBuf content = resp.content();
+        JsonObject header =
+                JsonParser.parseString(
+                                content.toString(0, headerLength, StandardCharsets.UTF_8))
+                        .getAsJsonObject();
+        JsonObject output = header.getAsJsonArray("outputs").get(0).getAsJsonObject();
+        Assert.assertFalse(output.has("data"));
+        Assert.assertEquals(
+                output.getAsJsonObject("parameters").get("binary_data_size").getAsInt(), 8);
+        Assert.assertEquals(content.readableBytes(), headerLength + 8);
+        Assert.assertEquals(content.getIntLE(headerLength), 1);
+        Assert.assertEquals(content.getIntLE(headerLength + 4), 258);
+        resp.release();
+    }
+
+    private static BatchItemJob newCompletedJob(int index, String response) {
+        BatchItemJob job = new BatchItemJob(index, "noop", null, new RequestInput("test"));
+        job.response(
+                response.getBytes(StandardCharsets.UTF_8), "application/json", 200, null, null);
+        return job;
+    }
+}
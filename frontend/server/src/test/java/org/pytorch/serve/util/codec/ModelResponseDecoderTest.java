@@ -0,0 +1,76 @@
+package org.pytorch.serve.util.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.nio.charset.StandardCharsets;
+import org.pytorch.serve.util.messages.ModelWorkerResponse;
+import org.pytorch.serve.util.messages.Predictions;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ModelResponseDecoderTest {
+
+    @Test
+    public void testDecodeWithoutTimings() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ModelResponseDecoder(1024));
+        ByteBuf buf = encodeResponse();
+        buf.writeInt(CodecUtils.END);
+        Assert.assertTrue(channel.writeInbound(buf));
+
+        ModelWorkerResponse resp = channel.readInbound();
+        Assert.assertEquals(resp.getCode(), 200);
+        Assert.assertEquals(resp.getPredictions().size(), 1);
+        Assert.assertTrue(resp.getTimings().isEmpty());
+        Assert.assertTrue(resp.getPredictions().get(0).getTimings().isEmpty());
+        channel.finish();
+    }
+
+    @Test
+    public void testDecodeTimings() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ModelResponseDecoder(1024, true));
+        ByteBuf buf = encodeResponse();
+        buf.writeInt(CodecUtils.TIMINGS);
+        buf.writeInt(2);
+        encodeTiming(buf, -1, "inference", 12.5);
+        encodeTiming(buf, 0, "serialize", 0.25);
+
+        // the timings arrive in a second read
+        Assert.assertFalse(channel.writeInbound(buf.readRetainedSlice(buf.readableBytes() - 10)));
+        Assert.assertTrue(channel.writeInbound(buf));
+
+        ModelWorkerResponse resp = channel.readInbound();
+        Assert.assertEquals(resp.getTimings().get("inference"), Double.valueOf(12.5));
+        Predictions prediction = resp.getPredictions().get(0);
+        Assert.assertEquals(prediction.getRequestId(), "request_id");
+        Assert.assertEquals(prediction.getTimings().get("serialize"), Double.valueOf(0.25));
+        Assert.assertTrue(resp.getReceivedAt() > 0);
+        Assert.assertTrue(resp.getDecodedAt() >= resp.getReceivedAt());
+        channel.finish();
+    }
+
+    private static ByteBuf encodeResponse() {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeInt(200);
+        writeString(buf, "Prediction success");
+        writeString(buf, "request_id");
+        buf.writeInt(0); // content type
+        buf.writeInt(200);
+        buf.writeInt(0); // reason phrase
+        buf.writeInt(0); // headers
+        writeString(buf, "OK");
+        return buf;
+    }
+
+    private static void encodeTiming(ByteBuf buf, int index, String name, double durationMs) {
+        buf.writeInt(index);
+        writeString(buf, name);
+        buf.writeDouble(durationMs);
+    }
+
+    private static void writeString(ByteBuf buf, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buf.writeInt(bytes.length);
+        buf.writeBytes(bytes);
+    }
+}
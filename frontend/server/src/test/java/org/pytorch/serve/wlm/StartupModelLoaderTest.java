@@ -0,0 +1,81 @@
+package org.pytorch.serve.wlm;
+
+import io.netty.channel.EventLoopGroup;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.pytorch.serve.archive.model.ModelVersionNotFoundException;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.Connector;
+import org.pytorch.serve.util.GPUManager;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class StartupModelLoaderTest {
+
+    private ConfigManager configManager;
+    private String defaultWorkers;
+    private EventLoopGroup backendGroup;
+    private ModelManager modelManager;
+
+    @BeforeClass
+    public void beforeClass() {
+        System.setProperty("tsConfigFile", "src/test/resources/config.properties");
+        ConfigManager.init(new ConfigManager.Arguments());
+        configManager = ConfigManager.getInstance();
+        defaultWorkers = String.valueOf(configManager.getConfiguredDefaultWorkersPerModel());
+        configManager.setProperty("default_workers_per_model", "1");
+        GPUManager.init(configManager);
+        backendGroup = Connector.newEventLoopGroup(1);
+        ModelManager.init(
+                configManager,
+                new WorkLoadManager(configManager, GPUManager.getInstance(), backendGroup));
+        modelManager = ModelManager.getInstance();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void afterClass() {
+        modelManager.unregisterModel("startup", "1.11");
+        modelManager.unregisterModel("startup", "1.2.1");
+        backendGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        configManager.setProperty("default_workers_per_model", defaultWorkers);
+    }
+
+    @Test
+    public void testLoad()
+            throws InterruptedException, ExecutionException, TimeoutException,
+                    ModelVersionNotFoundException {
+        StartupModelLoader loader = new StartupModelLoader(configManager, modelManager);
+        loader.add("noop_v2.mar", "startup", "noop_v2");
+        loader.add("missing.mar", "broken", "missing");
+        loader.add("noop.mar", "startup", "noop");
+        loader.start().get(60, TimeUnit.SECONDS);
+
+        // the archives are read in parallel, the first one stays the default version
+        Model model = modelManager.getModel("startup", null);
+        Assert.assertNotNull(model);
+        Assert.assertEquals(model.getVersion(), "1.2.1");
+        Assert.assertNotNull(modelManager.getModel("startup", "1.11"));
+        Assert.assertTrue(modelManager.getStartupModels().contains("startup"));
+
+        // the broken archive neither stops the others nor stays loading
+        Assert.assertNull(modelManager.getModel("broken", null));
+        Assert.assertFalse(modelManager.isStartupModelLoading("broken"));
+        Assert.assertFalse(modelManager.isStartupModelLoading(null));
+    }
+
+    @Test
+    public void testLoadingCount() {
+        // a model with two archives is loading until both are done
+        modelManager.setStartupModelLoading("twice");
+        modelManager.setStartupModelLoading("twice");
+        modelManager.setStartupModelLoaded("twice");
+        Assert.assertTrue(modelManager.isStartupModelLoading("twice"));
+        Assert.assertTrue(modelManager.isStartupModelLoading(null));
+        modelManager.setStartupModelLoaded("twice");
+        Assert.assertFalse(modelManager.isStartupModelLoading("twice"));
+        Assert.assertFalse(modelManager.isStartupModelLoading(null));
+    }
+}
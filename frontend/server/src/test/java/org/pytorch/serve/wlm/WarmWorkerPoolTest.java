@@ -0,0 +1,233 @@
+package org.pytorch.serve.wlm;
+
+import io.netty.channel.EventLoopGroup;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.pytorch.serve.archive.model.ModelArchive;
+import org.pytorch.serve.metrics.MetricCache;
+import org.pytorch.serve.util.ConfigManager;
+import org.pytorch.serve.util.Connector;
+import org.pytorch.serve.util.GPUManager;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class WarmWorkerPoolTest {
+
+    private Path dir;
+    private String python;
+
+    @BeforeClass
+    public void beforeClass() throws IOException {
+        if (System.getProperty("os.name").startsWith("Win")) {
+            throw new SkipException("Test skipped on Windows");
+        }
+        dir = Files.createTempDirectory("pool");
+        python = ConfigManager.getInstance().getPythonExecutable();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void afterClass() throws IOException {
+        if (dir != null) {
+            ConfigManager configManager = ConfigManager.getInstance();
+            configManager.setProperty(ConfigManager.PYTHON_EXECUTABLE, python);
+            configManager.setProperty("warm_worker_pool_size", "0");
+            FileUtils.deleteDirectory(dir.toFile());
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        ConfigManager configManager = ConfigManager.getInstance();
+        configManager.setProperty("warm_worker_pool_size", "0");
+        WarmWorkerPool pool = new WarmWorkerPool(configManager, new AtomicInteger(9500));
+        pool.start();
+        Assert.assertNull(pool.claim(null));
+        Assert.assertEquals(pool.getIdleCount(), 0);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testStartAndShutdown()
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        // the fake interpreter records its arguments and pid, then waits like an unclaimed worker
+        File interpreter = dir.resolve("python").toFile();
+        FileUtils.writeStringToFile(
+                interpreter,
+                "#!/bin/sh\n"
+                        + "echo \"$@\" > \"$(dirname \"$0\")/args.$$\"\n"
+                        + "echo \"[PID]$$\"\n"
+                        + "echo \"Torch worker started.\"\n"
+                        + "exec sleep 300\n",
+                StandardCharsets.UTF_8);
+        Assert.assertTrue(interpreter.setExecutable(true));
+
+        ConfigManager configManager = ConfigManager.getInstance();
+        configManager.setProperty(ConfigManager.PYTHON_EXECUTABLE, interpreter.getAbsolutePath());
+        configManager.setProperty("warm_worker_pool_size", "2");
+        AtomicInteger port = new AtomicInteger(9500);
+        WarmWorkerPool pool = new WarmWorkerPool(configManager, port);
+        pool.start();
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (pool.getIdleCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(pool.getIdleCount(), 2);
+        // the pooled workers take their ports from the counter of the other workers
+        Assert.assertEquals(port.get(), 9502);
+
+        List<Long> pids = new ArrayList<>();
+        File[] argFiles = dir.toFile().listFiles((d, name) -> name.startsWith("args."));
+        Assert.assertNotNull(argFiles);
+        Assert.assertEquals(argFiles.length, 2);
+        for (File argFile : argFiles) {
+            String args = FileUtils.readFileToString(argFile, StandardCharsets.UTF_8);
+            Assert.assertTrue(args.contains("ts/model_service_worker.py"), args);
+            Assert.assertTrue(args.trim().endsWith("--warm"), args);
+            pids.add(Long.parseLong(argFile.getName().substring("args.".length())));
+        }
+
+        pool.shutdown();
+        Assert.assertEquals(pool.getIdleCount(), 0);
+        for (long pid : pids) {
+            Optional<ProcessHandle> process = ProcessHandle.of(pid);
+            if (process.isPresent()) {
+                process.get().onExit().get(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    @Test
+    public void testClaimAndConnect() throws Exception {
+        // the fake interpreter listens on the socket of the worker and records the first byte sent
+        File worker = dir.resolve("worker.py").toFile();
+        FileUtils.writeStringToFile(
+                worker,
+                "import os, socket, sys, time\n"
+                        + "args = sys.argv[1:]\n"
+                        + "if args[args.index('--sock-type') + 1] == 'unix':\n"
+                        + "    path = args[args.index('--sock-name') + 1]\n"
+                        + "    if os.path.exists(path):\n"
+                        + "        os.remove(path)\n"
+                        + "    sock = socket.socket(socket.AF_UNIX)\n"
+                        + "    sock.bind(path)\n"
+                        + "else:\n"
+                        + "    sock = socket.socket()\n"
+                        + "    sock.bind(('127.0.0.1', int(args[args.index('--port') + 1])))\n"
+                        + "sock.listen(1)\n"
+                        + "print('[PID]%d' % os.getpid())\n"
+                        + "print('Torch worker started.', flush=True)\n"
+                        + "conn, _ = sock.accept()\n"
+                        + "received = conn.recv(1)\n"
+                        + "name = 'received.%d' % os.getpid()\n"
+                        + "with open(os.path.join(os.path.dirname(__file__), name), 'wb') as f:\n"
+                        + "    f.write(received)\n"
+                        + "time.sleep(300)\n",
+                StandardCharsets.UTF_8);
+        File interpreter = dir.resolve("python-listening").toFile();
+        FileUtils.writeStringToFile(
+                interpreter,
+                "#!/bin/sh\n"
+                        + "echo \"$@\" > \"$(dirname \"$0\")/connect.$$\"\n"
+                        + "exec python3 \""
+                        + worker.getAbsolutePath()
+                        + "\" \"$@\"\n",
+                StandardCharsets.UTF_8);
+        Assert.assertTrue(interpreter.setExecutable(true));
+
+        ConfigManager configManager = ConfigManager.getInstance();
+        configManager.setProperty(ConfigManager.PYTHON_EXECUTABLE, interpreter.getAbsolutePath());
+        configManager.setProperty("warm_worker_pool_size", "1");
+        MetricCache.init();
+        GPUManager.init(configManager);
+        EventLoopGroup backendGroup = Connector.newEventLoopGroup(1);
+        WarmWorkerPool pool = new WarmWorkerPool(configManager, new AtomicInteger(9600));
+        ModelArchive archive =
+                ModelArchive.downloadModel(
+                        configManager.getAllowedUrls(), configManager.getModelStore(), "noop.mar");
+        WorkerThread thread = null;
+        try {
+            pool.start();
+            waitFor(() -> pool.getIdleCount() == 1);
+            Model model =
+                    new Model(
+                            archive,
+                            configManager.getJobQueueSize(),
+                            configManager.getHighPrioProb());
+
+            // a model that installs its own dependencies starts a worker of its own
+            archive.getManifest().getModel().setRequirementsFile("requirements.txt");
+            configManager.setProperty("install_py_dep_per_model", "true");
+            Assert.assertNull(pool.claim(model));
+            configManager.setProperty("install_py_dep_per_model", "false");
+            archive.getManifest().getModel().setRequirementsFile(null);
+
+            WorkerLifeCycle lifeCycle = pool.claim(model);
+            Assert.assertNotNull(lifeCycle);
+            Assert.assertEquals(lifeCycle.getPort(), 9600);
+
+            // the worker thread connects to the claimed worker and sends it the load of the model
+            thread =
+                    new WorkerThread(
+                            configManager,
+                            backendGroup,
+                            lifeCycle.getPort(),
+                            GPUManager.getInstance(),
+                            model,
+                            new BatchAggregator(model),
+                            new WorkerStateListener(new CompletableFuture<>(), 1),
+                            lifeCycle);
+            new Thread(thread).start();
+            long pid = lifeCycle.getProcess().pid();
+            File received = dir.resolve("received." + pid).toFile();
+            waitFor(received::exists);
+            Assert.assertEquals(FileUtils.readFileToString(received, StandardCharsets.UTF_8), "L");
+            Assert.assertFalse(lifeCycle.takePrestarted());
+
+            // no process was started for the model, only the replacement of the claimed worker
+            File[] argFiles = dir.toFile().listFiles((d, name) -> name.startsWith("connect."));
+            Assert.assertNotNull(argFiles);
+            for (File argFile : argFiles) {
+                String args = FileUtils.readFileToString(argFile, StandardCharsets.UTF_8);
+                Assert.assertTrue(args.trim().endsWith("--warm"), args);
+            }
+        } finally {
+            configManager.setProperty("install_py_dep_per_model", "false");
+            if (thread != null) {
+                thread.shutdown();
+                thread.getLifeCycle().exit();
+            }
+            pool.shutdown();
+            archive.clean();
+            backendGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (!condition.isMet() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(condition.isMet());
+    }
+
+    private interface Condition {
+
+        boolean isMet();
+    }
+}
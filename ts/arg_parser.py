@@ -128,6 +128,30 @@ class ArgParser(object):
             help="Metrics configuration file",
         )
 
+        parser.add_argument(
+            "--metrics-sock-type",
+            dest="metrics_sock_type",
+            type=str,
+            choices=["unix", "tcp"],
+            help="Socket type of the frontend metrics channel, metrics are logged to "
+            "stdout if not given",
+        )
+
+        parser.add_argument(
+            "--metrics-sock-name",
+            dest="metrics_sock_name",
+            type=str,
+            help="Socket path of the frontend metrics channel if 'metrics-sock-type' is "
+            "'unix', port on localhost if it is 'tcp'",
+        )
+
+        parser.add_argument(
+            "--warm",
+            action="store_true",
+            help="Start a pooled worker that is not bound to a model yet. Torch is imported "
+            "ahead and the worker changes to the model directory when the model is loaded",
+        )
+
         return parser
 
     @staticmethod
@@ -41,6 +41,7 @@ class Context(object):
         self.model_yaml_config = model_yaml_config
         # add cient socket variable cl_socket to be used for send_intermediate_predict_response
         self.cl_socket = None
+        self._timings = {}
 
     @property
     def system_properties(self):
@@ -115,6 +116,23 @@ class Context(object):
     def set_response_header(self, idx, key, value):
         self._request_processor[idx].add_response_property(key, value)
 
+    def set_timing(self, name: str, duration_ms: float, idx: int = -1) -> None:
+        """
+        Report the duration of a processing step to the frontend, which records it per model
+        and can return it to the client in the Server-Timing header
+        :param name: name of the step, e.g. preprocess
+        :param duration_ms: duration in milliseconds
+        :param idx: the index of the request in the batch, -1 if the step covers the whole batch
+        :return:
+        """
+        self._timings.setdefault(idx, {})[name] = duration_ms
+
+    def get_timings(self) -> Dict[int, Dict[str, float]]:
+        return self._timings
+
+    def reset_timings(self) -> None:
+        self._timings = {}
+
     # TODO: Should we add "add_header()" interface, to have multiple values for a single header. EG: Accept headers.
 
     def __eq__(self, other: object) -> bool:
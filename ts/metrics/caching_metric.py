@@ -5,6 +5,7 @@ import logging
 import socket
 import time
 
+from ts.metrics import metric_channel
 from ts.metrics.dimension import Dimension
 from ts.metrics.metric_abstract import MetricAbstract
 from ts.metrics.metric_type_enum import MetricTypes
@@ -13,7 +14,8 @@ logger = logging.getLogger(__name__)
 
 class CachingMetric(MetricAbstract):
     """
-    Class for generating metrics and printing it to stdout of the worker
+    Class for generating metrics and sending them to the frontend over the metric
+    channel, or printing them to stdout of the worker if the channel is not available
     """
 
     def __init__(
@@ -134,7 +136,11 @@ class CachingMetric(MetricAbstract):
                 f"with value: {value}: {ex}"
             )
         else:
-            self.emit_metrics(request_id, value, dimension_str)
+            channel = metric_channel.get_channel()
+            if channel is None or not channel.send(
+                self.metric_name, value, dimension_values, request_id
+            ):
+                self.emit_metrics(request_id, value, dimension_str)
 
     def update(
         self,
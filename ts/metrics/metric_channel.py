@@ -0,0 +1,155 @@
+"""
+Binary channel reporting the metrics of the worker to the frontend
+"""
+import logging
+import socket
+import struct
+import threading
+import time
+
+logger = logging.getLogger(__name__)
+
+_channel = None
+
+
+def _encode_string(buf, value):
+    data = value.encode("utf-8")
+    buf += struct.pack("!i", len(data))
+    buf += data
+
+
+class MetricChannel(object):
+    """
+    Sends metric records to the frontend as length prefixed binary frames, in place of
+    the [METRICS] lines on stdout. The record format is documented in
+    BackendMetricsDecoder of the frontend.
+
+    The socket is non-blocking so that a frontend that does not keep up never stalls
+    inference: frames it has not read yet wait in a bounded buffer, flushed on the next
+    send, and whole frames are dropped and counted once the buffer is full. A closed
+    channel is reconnected at most every RECONNECT_INTERVAL seconds, metrics are logged
+    in between.
+    """
+
+    MAX_PENDING_BYTES = 1024 * 1024
+    RECONNECT_INTERVAL = 5.0
+
+    def __init__(self, sock_type, sock_name):
+        """
+        Connects to the backend metrics channel of the frontend
+
+        Parameters
+        ----------
+        sock_type str
+            unix or tcp
+        sock_name str
+            socket path for unix, port on localhost for tcp
+        """
+        self.sock_type = sock_type
+        self.sock_name = sock_name
+        self.hostname = bytearray()
+        _encode_string(self.hostname, socket.gethostname())
+        self.lock = threading.Lock()
+        self.pending = bytearray()
+        self.dropped = 0
+        self.dropping = False
+        self.reconnect_at = 0.0
+        self.sock = self._connect()
+
+    def _connect(self):
+        if self.sock_type == "unix":
+            sock = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+            address = self.sock_name
+        else:
+            sock = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
+            address = ("127.0.0.1", int(self.sock_name))
+        try:
+            sock.connect(address)
+            sock.setblocking(False)
+        except OSError:
+            sock.close()
+            raise
+        return sock
+
+    def send(self, metric_name, value, dimension_values, request_id=None) -> bool:
+        """
+        Sends a metric record, the hostname is appended to the dimension values
+
+        Returns
+        -------
+        False if the channel is closed and the metric should be logged instead
+        """
+        body = bytearray()
+        _encode_string(body, metric_name)
+        body += struct.pack("!d", float(value))
+        _encode_string(body, request_id if request_id else "")
+        body += struct.pack("!i", len(dimension_values) + 1)
+        for dimension_value in dimension_values:
+            _encode_string(body, str(dimension_value))
+        body += self.hostname
+
+        with self.lock:
+            if self.sock is None and not self._reconnect():
+                return False
+            if len(self.pending) + len(body) + 4 > self.MAX_PENDING_BYTES:
+                self.dropped += 1
+                if not self.dropping:
+                    self.dropping = True
+                    logger.warning("Metrics channel is full, dropping metrics")
+            else:
+                self.pending += struct.pack("!i", len(body))
+                self.pending += body
+            return self._flush()
+
+    def _flush(self) -> bool:
+        while self.pending:
+            try:
+                sent = self.sock.send(self.pending)
+            except BlockingIOError:
+                return True
+            except OSError as ex:
+                logger.warning("Metrics channel closed, logging metrics instead: %s", ex)
+                self._close()
+                return False
+            del self.pending[:sent]
+        if self.dropping:
+            self.dropping = False
+            logger.warning("Metrics channel dropped %d metrics so far", self.dropped)
+        return True
+
+    def _reconnect(self) -> bool:
+        now = time.monotonic()
+        if now < self.reconnect_at:
+            return False
+        try:
+            self.sock = self._connect()
+        except OSError as ex:
+            self.reconnect_at = now + self.RECONNECT_INTERVAL
+            logger.debug("Failed to reconnect to metrics channel: %s", ex)
+            return False
+        logger.info("Metrics channel reconnected")
+        return True
+
+    def _close(self):
+        self.sock.close()
+        self.sock = None
+        # a partly sent frame must not be continued on the next connection
+        self.pending.clear()
+        self.reconnect_at = time.monotonic() + self.RECONNECT_INTERVAL
+
+
+def connect(sock_type, sock_name):
+    """
+    Connects the metrics of the worker to the frontend, they are logged to stdout
+    if the channel is not available.
+    """
+    global _channel
+    try:
+        _channel = MetricChannel(sock_type, sock_name)
+    except OSError as ex:
+        logger.warning("Failed to connect to metrics channel %s: %s", sock_name, ex)
+        _channel = None
+
+
+def get_channel():
+    return _channel
@@ -20,10 +20,21 @@ if __name__ == '__main__':
         help="number of GPU",
         type=int
     )
+    parser.add_argument(
+        "--gpu-only",
+        action="store_true",
+        help="only collect the GPU metrics, the frontend collects the others itself",
+    )
     arguments = parser.parse_args()
 
     logging.basicConfig(stream=sys.stdout, format="%(message)s", level=logging.INFO)
 
-    system_metrics.collect_all(sys.modules['ts.metrics.system_metrics'], arguments.gpu)
+    if arguments.gpu_only:
+        system_metrics.gpu_utilization(arguments.gpu)
+        for met in system_metrics.system_metrics:
+            logging.info(str(met))
+        logging.info("")
+    else:
+        system_metrics.collect_all(sys.modules['ts.metrics.system_metrics'], arguments.gpu)
 
-    check_process_mem_usage(sys.stdin)
+        check_process_mem_usage(sys.stdin)
@@ -5,6 +5,7 @@ Communication message format: binary encoding
 
 # pylint: disable=redefined-builtin
 
+import importlib
 import logging
 import os
 import platform
@@ -12,6 +13,7 @@ import socket
 import sys
 
 from ts.arg_parser import ArgParser
+from ts.metrics import metric_channel
 from ts.metrics.metric_cache_yaml_impl import MetricsCacheYamlImpl
 from ts.model_loader import ModelLoaderFactory
 from ts.protocol.otf_message_handler import create_load_model_response, retrieve_msg
@@ -27,6 +29,38 @@ WORLD_RANK = int(os.getenv("RANK", 0))
 LOCAL_WORLD_SIZE = int(os.getenv("LOCAL_WORLD_SIZE", 0))
 
 
+def enter_model_dir(model_dir, handler):
+    """
+    Make a pooled worker resolve the model like a worker started for it, which runs in
+    the model directory with the handler directory, the inherited PYTHONPATH, the model
+    directory and the working directory of the frontend on the PYTHONPATH, in that
+    order. The pooled worker was started in that working directory, with the inherited
+    PYTHONPATH and the working directory on its PYTHONPATH.
+    """
+    cwd = os.getcwd()
+    os.chdir(model_dir)
+    python_path = [
+        os.path.abspath(path)
+        for path in os.environ.get("PYTHONPATH", "").split(os.pathsep)
+        if path
+    ]
+    indices = [sys.path.index(path) for path in python_path if path in sys.path]
+    # sys.path[0] is the directory of this script, the PYTHONPATH follows it
+    if cwd in python_path and cwd in sys.path:
+        model_index = sys.path.index(cwd)
+    else:
+        model_index = max(indices) + 1 if indices else 1
+    if model_dir not in sys.path:
+        sys.path.insert(model_index, model_dir)
+    if handler and ":" in handler:
+        handler_file = handler.split(":")[0]
+        if "/" in handler_file:
+            handler_dir = os.path.abspath(os.path.dirname(handler_file))
+            if handler_dir not in sys.path:
+                sys.path.insert(min(indices) if indices else 1, handler_dir)
+    importlib.invalidate_caches()
+
+
 class TorchModelServiceWorker(object):
     """
     Backend worker to handle Model Server's python service code
@@ -39,8 +73,11 @@ class TorchModelServiceWorker(object):
         host_addr=None,
         port_num=None,
         metrics_config=None,
+        warm=False,
     ):
         self.sock_type = s_type
+        self.warm = warm
+        self.parent_pid = os.getppid()
 
         if s_type == "unix":
             if s_name is None:
@@ -126,6 +163,9 @@ class TorchModelServiceWorker(object):
             if "limitMaxImagePixels" in load_model_request:
                 limit_max_image_pixels = bool(load_model_request["limitMaxImagePixels"])
 
+            if self.warm:
+                enter_model_dir(model_dir, handler)
+
             self.metrics_cache.model_name = model_name
             model_loader = ModelLoaderFactory.get_model_loader()
             service = model_loader.load(
@@ -191,6 +231,19 @@ class TorchModelServiceWorker(object):
             else:
                 raise ValueError("Received unknown command: {}".format(cmd))
 
+    def accept(self):
+        """
+        Accept the connection of the frontend. A pooled worker waits until it is claimed,
+        as long as the frontend that started it is alive.
+        :return:
+        """
+        while True:
+            try:
+                return self.sock.accept()
+            except socket.timeout:
+                if not self.warm or os.getppid() != self.parent_pid:
+                    raise
+
     def run_server(self):
         """
         Run the backend worker process and listen on a socket
@@ -213,7 +266,7 @@ class TorchModelServiceWorker(object):
         logging.info("Python runtime: %s", platform.python_version())
 
         while True:
-            (cl_socket, _) = self.sock.accept()
+            (cl_socket, _) = self.accept()
             # workaround error(35, 'Resource temporarily unavailable') on OSX
             cl_socket.setblocking(True)
 
@@ -239,6 +292,11 @@ if __name__ == "__main__":
         host = args.host
         port = args.port
         metrics_config = args.metrics_config
+        if args.warm:
+            # the import a pooled worker is started ahead for
+            import torch  # pylint: disable=unused-import
+        if args.metrics_sock_type is not None:
+            metric_channel.connect(args.metrics_sock_type, args.metrics_sock_name)
 
         if BENCHMARK:
             import cProfile
@@ -248,7 +306,7 @@ if __name__ == "__main__":
             pr.dump_stats("/tmp/tsPythonProfile.prof")
 
         worker = TorchModelServiceWorker(
-            sock_type, socket_name, host, port, metrics_config
+            sock_type, socket_name, host, port, metrics_config, args.warm
         )
         worker.run_server()
         if BENCHMARK:
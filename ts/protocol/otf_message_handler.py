@@ -50,6 +50,26 @@ def encode_response_headers(resp_hdr_map):
     return msg
 
 
+def encode_timings(timings):
+    """
+    Encode the timings reported through the context, after the end of list marker TIMINGS.
+
+    :param timings: dict of the request index, -1 for the whole batch, to a dict of step
+        name to duration in milliseconds
+    :return:
+    """
+    msg = bytearray()
+    msg += struct.pack("!i", sum(len(steps) for steps in timings.values()))
+    for idx, steps in timings.items():
+        for name, duration_ms in steps.items():
+            buf = name.encode("utf-8")
+            msg += struct.pack("!i", idx)
+            msg += struct.pack("!i", len(buf))
+            msg += buf
+            msg += struct.pack("!d", duration_ms)
+    return msg
+
+
 def create_predict_response(
     ret, req_id_map, message, code, context=None, ts_stream_next=False
 ):
@@ -110,6 +130,7 @@ def create_predict_response(
             # Response headers
             msg += encode_response_headers(context.get_response_headers(idx))
 
+        serialize_start = time.perf_counter()
         if ret is None:
             buf = b"error"
             msg += struct.pack("!i", len(buf))
@@ -141,8 +162,16 @@ def create_predict_response(
                     return create_predict_response(
                         None, req_id_map, "Unsupported model output data type.", 503
                     )
+        if context is not None:
+            context.set_timing(
+                "serialize", (time.perf_counter() - serialize_start) * 1000, idx
+            )
 
-    msg += struct.pack("!i", -1)  # End of list
+    if context is not None and context.get_timings():
+        msg += struct.pack("!i", -2)  # End of list, followed by the timings
+        msg += encode_timings(context.get_timings())
+    else:
+        msg += struct.pack("!i", -1)  # End of list
     return msg
 
 
@@ -120,18 +120,25 @@ class Service(object):
         :return:
 
         """
+        deserialize_start = time.perf_counter()
         headers, input_batch, req_id_map = Service.retrieve_data_for_inference(batch)
 
+        self.context.reset_timings()
+        self.context.set_timing(
+            "deserialize", (time.perf_counter() - deserialize_start) * 1000
+        )
         self.context.request_ids = req_id_map
         self.context.request_processor = headers
         metrics = self.context.metrics
         metrics.request_ids = req_id_map
 
         start_time = time.time()
+        handle_start = time.perf_counter()
 
         # noinspection PyBroadException
         try:
             ret = self._entry_point(input_batch, self.context)
+            self.context.set_timing("handle", (time.perf_counter() - handle_start) * 1000)
         except MemoryError:
             logger.error("System out of memory", exc_info=True)
             return create_predict_response(None, req_id_map, "Out of resources", 507)
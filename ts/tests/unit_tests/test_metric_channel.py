@@ -0,0 +1,153 @@
+"""
+Unit tests of the binary metrics channel of the worker
+"""
+import os
+import socket
+import struct
+
+import pytest
+from ts.metrics import metric_channel
+from ts.metrics.metric_channel import MetricChannel
+
+
+def read_string(data, pos):
+    (length,) = struct.unpack_from("!i", data, pos)
+    pos += 4
+    return data[pos : pos + length].decode("utf-8"), pos + length
+
+
+def read_frames(data):
+    """Decodes the records of the frames, every frame must be complete"""
+    records = []
+    pos = 0
+    while pos < len(data):
+        (length,) = struct.unpack_from("!i", data, pos)
+        end = pos + 4 + length
+        assert end <= len(data)
+        name, pos = read_string(data, pos + 4)
+        (value,) = struct.unpack_from("!d", data, pos)
+        request_id, pos = read_string(data, pos + 8)
+        (count,) = struct.unpack_from("!i", data, pos)
+        pos += 4
+        dimension_values = []
+        for _ in range(count):
+            dimension_value, pos = read_string(data, pos)
+            dimension_values.append(dimension_value)
+        assert pos == end
+        records.append((name, value, request_id, dimension_values))
+    return records
+
+
+def receive(conn, channel=None):
+    """Reads until the peer is idle, flushing the pending frames of the channel"""
+    data = bytearray()
+    conn.settimeout(0.5)
+    while True:
+        if channel is not None:
+            with channel.lock:
+                channel._flush()
+        try:
+            chunk = conn.recv(65536)
+        except socket.timeout:
+            return data
+        if not chunk:
+            return data
+        data += chunk
+
+
+@pytest.fixture
+def unix_server(tmp_path):
+    path = os.path.join(str(tmp_path), "metrics.sock")
+    server = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+    server.bind(path)
+    server.listen(2)
+    yield server, path
+    server.close()
+
+
+@pytest.fixture
+def tcp_server():
+    server = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
+    server.bind(("127.0.0.1", 0))
+    server.listen(2)
+    yield server, str(server.getsockname()[1])
+    server.close()
+
+
+def test_framing(unix_server):
+    server, path = unix_server
+    channel = MetricChannel("unix", path)
+    conn, _ = server.accept()
+    assert channel.send("Latency", 1.5, ["noop", "Model"], "req-1")
+    assert channel.send("Requests", 2, ["noop"])
+
+    records = read_frames(receive(conn))
+    hostname = socket.gethostname()
+    assert records == [
+        ("Latency", 1.5, "req-1", ["noop", "Model", hostname]),
+        ("Requests", 2.0, "", ["noop", hostname]),
+    ]
+    conn.close()
+
+
+def test_reconnect(unix_server, monkeypatch):
+    server, path = unix_server
+    channel = MetricChannel("unix", path)
+    conn, _ = server.accept()
+    conn.close()
+
+    # the closed channel is reported and the metrics are logged until it reconnects
+    assert not channel.send("Requests", 1, ["noop"])
+    assert channel.sock is None
+    assert not channel.send("Requests", 2, ["noop"])
+
+    monkeypatch.setattr(MetricChannel, "RECONNECT_INTERVAL", 0)
+    channel.reconnect_at = 0
+    assert channel.send("Requests", 3, ["noop"])
+    conn, _ = server.accept()
+    records = read_frames(receive(conn))
+    assert [record[1] for record in records] == [3.0]
+    conn.close()
+
+
+def test_drop_when_full(unix_server, monkeypatch):
+    monkeypatch.setattr(MetricChannel, "MAX_PENDING_BYTES", 1024)
+    server, path = unix_server
+    channel = MetricChannel("unix", path)
+    conn, _ = server.accept()
+
+    # the frontend does not read, sending never blocks and whole frames are dropped
+    sent = 0
+    while channel.dropped == 0:
+        assert channel.send("Requests", sent, ["noop"])
+        sent += 1
+    assert len(channel.pending) <= 1024
+
+    records = read_frames(receive(conn, channel))
+    assert len(records) == sent - channel.dropped
+    values = [record[1] for record in records]
+    assert values == sorted(values)
+    assert not channel.pending
+    conn.close()
+
+
+def test_tcp_fallback(tcp_server, monkeypatch):
+    monkeypatch.setattr(metric_channel, "_channel", None)
+    server, port = tcp_server
+    metric_channel.connect("tcp", port)
+    channel = metric_channel.get_channel()
+    assert channel is not None
+    conn, _ = server.accept()
+    assert channel.send("Requests", 1, ["noop"])
+    records = read_frames(receive(conn))
+    assert records == [("Requests", 1.0, "", ["noop", socket.gethostname()])]
+    conn.close()
+
+
+def test_connect_failure(tcp_server, monkeypatch):
+    monkeypatch.setattr(metric_channel, "_channel", None)
+    server, port = tcp_server
+    server.close()
+    # the metrics are logged to stdout if the channel is not available
+    metric_channel.connect("tcp", port)
+    assert metric_channel.get_channel() is None
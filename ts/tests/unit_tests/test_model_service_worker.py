@@ -11,7 +11,7 @@ import mock
 import pytest
 from mock import Mock
 
-from ts.model_service_worker import TorchModelServiceWorker
+from ts.model_service_worker import TorchModelServiceWorker, enter_model_dir
 from ts.service import Service
 
 metrics_config_path = os.path.join(
@@ -135,6 +135,25 @@ class TestRunServer:
             model_service_worker.run_server()
         model_service_worker.sock.accept.assert_called_once()
 
+    def test_warm_waits_until_claimed(self, model_service_worker):
+        model_service_worker.warm = True
+        model_service_worker.sock.accept.side_effect = [
+            socket.timeout("Some Exception"),
+            self.accept_result,
+        ]
+        model_service_worker.sock.recv.return_value = b""
+        with pytest.raises(SystemExit):
+            model_service_worker.run_server()
+        assert model_service_worker.sock.accept.call_count == 2
+
+    def test_warm_with_parent_exited(self, model_service_worker, mocker):
+        model_service_worker.warm = True
+        model_service_worker.sock.accept.side_effect = socket.timeout("Some Exception")
+        mocker.patch("os.getppid", return_value=model_service_worker.parent_pid + 1)
+        with pytest.raises(socket.timeout):
+            model_service_worker.run_server()
+        model_service_worker.sock.accept.assert_called_once()
+
 
 # noinspection PyClassHasNoInit
 class TestLoadModel:
@@ -151,6 +170,13 @@ class TestLoadModel:
         model_service_worker.load_model(self.data)
         patches.loader.get_model_loader.assert_called()
 
+    def test_load_model_warm(self, patches, model_service_worker, mocker):
+        enter_model_dir = mocker.patch("ts.model_service_worker.enter_model_dir")
+        patches.loader.get_model_loader.return_value = Mock()
+        model_service_worker.warm = True
+        model_service_worker.load_model(self.data)
+        enter_model_dir.assert_called_once_with("mpath", "handled")
+
     # noinspection PyUnusedLocal
     @pytest.mark.parametrize("batch_size", [(None, None), ("1", 1)])
     @pytest.mark.parametrize("gpu", [(None, None), ("2", 2)])
@@ -163,6 +189,24 @@ class TestLoadModel:
             model_service_worker.load_model(data)
 
 
+def test_enter_model_dir(monkeypatch, tmp_path):
+    tmp_path = os.path.realpath(str(tmp_path))
+    home, lib, model_dir, handler_dir = (
+        os.path.join(tmp_path, name) for name in ("home", "lib", "model", "handler")
+    )
+    for path in (home, lib, model_dir, handler_dir):
+        os.mkdir(path)
+    # the pooled worker was started in the home directory with PYTHONPATH=lib:home
+    monkeypatch.chdir(home)
+    monkeypatch.setenv("PYTHONPATH", os.pathsep.join([lib, home]))
+    monkeypatch.setattr(sys, "path", ["ts", lib, home, "site-packages"])
+
+    enter_model_dir(model_dir, os.path.join(handler_dir, "handler.py") + ":handle")
+
+    assert os.getcwd() == model_dir
+    assert sys.path == ["ts", handler_dir, lib, model_dir, home, "site-packages"]
+
+
 # noinspection PyClassHasNoInit
 class TestHandleConnection:
     data = {"modelPath": b"mpath", "modelName": b"name", "handler": b"handled"}
@@ -163,3 +163,10 @@ class TestOtfCodecHandler:
 
         assert msg == b'\x00\x00\x00\xc8\x00\x00\x00\x06failed\x00\x00\x00\nrequest_id\x00\x00\x00\x00\x00\x00\x00' \
                       b'\xc8\x00\x00\x00\x00\x00\x00\x00\x00\x00\x00\x00\x05error\xff\xff\xff\xff'
+
+    def test_encode_timings(self):
+        msg = codec.encode_timings({-1: {"handle": 1.5}, 0: {"serialize": 0.25}})
+
+        assert msg == b'\x00\x00\x00\x02' \
+                      b'\xff\xff\xff\xff\x00\x00\x00\x06handle\x3f\xf8\x00\x00\x00\x00\x00\x00' \
+                      b'\x00\x00\x00\x00\x00\x00\x00\x09serialize\x3f\xd0\x00\x00\x00\x00\x00\x00'
@@ -337,11 +337,22 @@ class BaseHandler(abc.ABC):
             if self._is_describe():
                 output = [self.describe_handle()]
             else:
+                step_start = time.perf_counter()
                 data_preprocess = self.preprocess(data)
+                step_end = time.perf_counter()
+                self.context.set_timing("preprocess", (step_end - step_start) * 1000)
 
                 if not self._is_explain():
+                    step_start = step_end
                     output = self.inference(data_preprocess)
+                    step_end = time.perf_counter()
+                    self.context.set_timing(
+                        "inference", (step_end - step_start) * 1000
+                    )
                     output = self.postprocess(output)
+                    self.context.set_timing(
+                        "postprocess", (time.perf_counter() - step_end) * 1000
+                    )
                 else:
                     output = self.explain_handle(data_preprocess, data)
 
@@ -22,18 +22,23 @@ class KServeEnvelope(BaseEnvelope):
 
     def parse_input(self, data):
         self._data_list = [row.get("data") or row.get("body") for row in data]
-        # selecting the first input from the list torchserve creates
         logger.debug("Parse input data_list %s", self._data_list)
-        data = self._data_list[0]
 
-        # If the KF Transformer and Explainer sends in data as bytesarray
-        if isinstance(data, (bytes, bytearray)):
+        # the instances of every request in the batch are joined into one list,
+        # format_output splits the predictions back by request
+        self._lengths = []
+        self._inputs = []
+        for data in self._data_list:
+            # If the KF Transformer and Explainer sends in data as bytesarray
+            if isinstance(data, (bytes, bytearray)):
 
-            data = data.decode()
-            data = json.loads(data)
-            logger.debug("Bytes array is %s", data)
+                data = data.decode()
+                data = json.loads(data)
+                logger.debug("Bytes array is %s", data)
 
-        self._inputs = data.get("instances")
+            instances = data.get("instances") or []
+            self._lengths.append(len(instances))
+            self._inputs.extend(instances)
         logger.debug("kserve parsed inputs %s", self._inputs)
         return self._inputs
 
@@ -47,17 +52,22 @@ class KServeEnvelope(BaseEnvelope):
         Returns:
             (list): The response is returned as a list of predictions and explanations
         """
-        response = {}
         logger.debug("The Response of kserve %s", data)
-        if not self._is_explain():
-            response["predictions"] = data
-        else:
-            response["explanations"] = data
-        return [response]
-
-    def _is_explain(self):
-        if self.context and self.context.get_request_header(0, "explain"):
-            if self.context.get_request_header(0, "explain") == "True":
+        responses = []
+        cursor = 0
+        for idx, length in enumerate(self._lengths):
+            response = {}
+            if not self._is_explain(idx):
+                response["predictions"] = data[cursor : cursor + length]
+            else:
+                response["explanations"] = data[cursor : cursor + length]
+            responses.append(response)
+            cursor += length
+        return responses
+
+    def _is_explain(self, idx=0):
+        if self.context and self.context.get_request_header(idx, "explain"):
+            if self.context.get_request_header(idx, "explain") == "True":
                 return True
 
         return False
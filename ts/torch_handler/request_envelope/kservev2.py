@@ -86,35 +86,65 @@ class KServev2Envelope(BaseEnvelope):
 
     def _batch_from_json(self, rows):
         """
-        Joins the instances of a batch of JSON objects
+        Joins the inputs of a batch of JSON objects
         """
         logger.debug("Parse input data %s", rows)
         body_list = [
             body_list.get("data") or body_list.get("body") for body_list in rows
         ]
-        data_list = self._from_json(body_list)
+        # format_output splits the outputs back by request, one output per input
+        self._lengths = []
+        self._input_names = []
+        self._request_ids = []
+        data_list = []
+        for body, row in zip(body_list, rows):
+            inputs = self._from_json(body)
+            self._from_binary(inputs, row)
+            self._lengths.append(len(inputs))
+            data_list.extend(inputs)
         return data_list
 
-    def _from_json(self, body_list):
+    def _from_binary(self, data_list, row):
         """
-        Extracts the data from the JSON object
+        Fills the data of inputs sent with the binary tensor extension. The frontend
+        passes each binary tensor as a separate request parameter named after the input.
+        """
+        for input in data_list:
+            binary_data_size = input.get("parameters", {}).get("binary_data_size")
+            if binary_data_size is None or input["name"] not in row:
+                continue
+            raw = row[input["name"]]
+            if input["datatype"] == "BYTES":
+                elements = []
+                offset = 0
+                while offset < len(raw):
+                    length = int.from_bytes(raw[offset : offset + 4], "little")
+                    offset += 4
+                    elements.append(bytes(raw[offset : offset + length]))
+                    offset += length
+                # same as for json requests, only the first element is used
+                input["data"] = elements[0] if elements else b""
+            else:
+                dtype = _to_dtype(input["datatype"]).newbyteorder("<")
+                input["data"] = np.frombuffer(raw, dtype=dtype).tolist()
+
+    def _from_json(self, body):
+        """
+        Extracts the data from the JSON object of one request
         """
         # If the KF Transformer and Explainer sends in data as bytesarray
-        if isinstance(body_list[0], (bytes, bytearray)):
-            body_list = [json.loads(body.decode()) for body in body_list]
-            logger.debug("Bytes array is %s", body_list)
+        if isinstance(body, (bytes, bytearray)):
+            body = json.loads(body.decode())
+            logger.debug("Bytes array is %s", body)
 
         input_names = []
-        for index, input in enumerate(body_list[0]["inputs"]):
-            if input["datatype"] == "BYTES":
-                body_list[0]["inputs"][index]["data"] = input["data"][0]
+        for input in body["inputs"]:
+            if input["datatype"] == "BYTES" and "data" in input:
+                input["data"] = input["data"][0]
             input_names.append(input["name"])
-        setattr(self.context, "input_names", input_names)
-        logger.debug("Bytes array is %s", body_list)
-        if body_list[0].get("id") is not None:
-            setattr(self.context, "input_request_id", body_list[0]["id"])
-        data_list = [inputs_list.get("inputs") for inputs_list in body_list][0]
-        return data_list
+        self._input_names.append(input_names)
+        self._request_ids.append(body.get("id"))
+        return body["inputs"]
 
     def format_output(self, data):
         """Translates Torchserve output KServe v2 response format.
@@ -137,26 +167,32 @@ class KServev2Envelope(BaseEnvelope):
 
         """
         logger.debug("The Response of KServe v2 format %s", data)
-        response = {}
-        if hasattr(self.context, "input_request_id"):
-            response["id"] = getattr(self.context, "input_request_id")
-            delattr(self.context, "input_request_id")
-        else:
-            response["id"] = self.context.get_request_id(0)
-        response["model_name"] = self.context.manifest.get("model").get("modelName")
-        response["model_version"] = self.context.manifest.get("model").get(
-            "modelVersion"
-        )
-        response["outputs"] = self._batch_to_json(data)
-        return [response]
-
-    def _batch_to_json(self, data):
+        responses = []
+        cursor = 0
+        for idx, length in enumerate(self._lengths):
+            response = {}
+            request_id = self._request_ids[idx]
+            if request_id is None:
+                request_id = self.context.get_request_id(idx)
+            response["id"] = request_id
+            response["model_name"] = self.context.manifest.get("model").get(
+                "modelName"
+            )
+            response["model_version"] = self.context.manifest.get("model").get(
+                "modelVersion"
+            )
+            response["outputs"] = self._batch_to_json(
+                data[cursor : cursor + length], self._input_names[idx]
+            )
+            responses.append(response)
+            cursor += length
+        return responses
+
+    def _batch_to_json(self, data, input_names):
         """
         Splits batch output to json objects
         """
         output = []
-        input_names = getattr(self.context, "input_names")
-        delattr(self.context, "input_names")
         for index, item in enumerate(data):
             output.append(self._to_json(item, input_names[index]))
         return output
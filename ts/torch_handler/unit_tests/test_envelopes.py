@@ -10,6 +10,8 @@ import pytest
 from ts.torch_handler.base_handler import BaseHandler
 from ts.torch_handler.request_envelope.body import BodyEnvelope
 from ts.torch_handler.request_envelope.json import JSONEnvelope
+from ts.torch_handler.request_envelope.kserve import KServeEnvelope
+from ts.torch_handler.request_envelope.kservev2 import KServev2Envelope
 
 
 @pytest.fixture()
@@ -70,3 +72,50 @@ def test_binary(base_model_context):
     envelope = JSONEnvelope(lambda x, y: [row.decode("utf-8") for row in x])
     results = envelope.handle(test_data, base_model_context)
     assert results == ['{"predictions": ["a"]}']
+
+
+def test_kserve_batch(base_model_context):
+    """
+    Requests split by the frontend reach the envelope as a batch of rows,
+    each row gets its own response
+    """
+    test_data = [
+        {"body": {"instances": [[1.0], [2.0]]}},
+        {"body": b'{"instances": [[3.0]]}'},
+    ]
+
+    envelope = KServeEnvelope(lambda x, y: [row[0] * 2 for row in x])
+    results = envelope.handle(test_data, base_model_context)
+    assert results == [{"predictions": [2.0, 4.0]}, {"predictions": [6.0]}]
+
+
+def test_kservev2_batch(base_model_context):
+    base_model_context.manifest["model"]["modelName"] = "mnist"
+    base_model_context.manifest["model"]["modelVersion"] = "1.0"
+    test_data = [
+        {
+            "body": {
+                "id": "first",
+                "inputs": [
+                    {"name": "a", "shape": [2], "datatype": "INT32", "data": [1, 2]},
+                    {"name": "b", "shape": [1], "datatype": "INT32", "data": [3]},
+                ],
+            }
+        },
+        {
+            "body": b'{"inputs": [{"name": "c", "shape": [2], "datatype": "INT32",'
+            b' "parameters": {"binary_data_size": 8}}]}',
+            "c": (4).to_bytes(4, "little") + (5).to_bytes(4, "little"),
+        },
+    ]
+
+    envelope = KServev2Envelope(lambda x, y: [sum(row["data"]) for row in x])
+    results = envelope.handle(test_data, base_model_context)
+    assert len(results) == 2
+    assert results[0]["id"] == "first"
+    assert [output["name"] for output in results[0]["outputs"]] == ["a", "b"]
+    assert [output["data"] for output in results[0]["outputs"]] == [[3], [3]]
+    assert results[1]["id"] == "request-1"
+    assert results[1]["model_name"] == "mnist"
+    assert results[1]["outputs"][0]["name"] == "c"
+    assert results[1]["outputs"][0]["data"] == [9]
@@ -36,6 +36,13 @@ class MockContext:
 
         self.explain = False
         self.metrics = MetricsStore(uuid.uuid4(), model_name)
+        self.timings = {}
+
+    def set_timing(self, name, duration_ms, idx=-1):
+        self.timings.setdefault(idx, {})[name] = duration_ms
+
+    def get_request_id(self, idx=0):
+        return "request-{}".format(idx)
 
     def get_request_header(self, idx, exp):
         if idx and exp: